@@ -0,0 +1,174 @@
+package com.ksy.shortbreak.reactive.load;
+
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Side by side load test of the servlet and the reactive applications, both started with the "load" profile.
+ * <p>
+ * Every client repeats the timer scenario: a new pomodoro, its start and end by updates and the first page of the
+ * history, each request after the response to the previous one, so the number of clients is the number of concurrently
+ * open requests. Targets are tested one after another by the same clients, latencies are taken after the warmup.
+ * Clients of a user share cookies, so the servlet application checks the password only once per session, like the
+ * reactive one checking a {@code noop} password.
+ * <p>
+ * Arguments: {@code name=url,...} targets, number of clients, ISO-8601 duration and warmup, {@code user:password,...}
+ * users taken by clients in turn.
+ */
+public final class LoadTest {
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final List<String> OPERATIONS = List.of("new", "start", "end", "history");
+
+    public static void main(String[] args) throws Exception {
+        var targets = new LinkedHashMap<String, URI>();
+        for (var target : args[0].split(",")) {
+            var nameAndUrl = target.split("=", 2);
+            targets.put(nameAndUrl[0], URI.create(nameAndUrl[1]));
+        }
+        var clients = Integer.parseInt(args[1]);
+        var duration = Duration.parse(args[2]);
+        var warmup = Duration.parse(args[3]);
+        var users = Arrays.stream(args[4].split(","))
+                .map(user -> "Basic " + Base64.getEncoder().encodeToString(user.getBytes(StandardCharsets.UTF_8)))
+                .toArray(String[]::new);
+
+        var results = new LinkedHashMap<String, Map<String, Latencies>>();
+        for (var target : targets.entrySet()) {
+            System.out.printf("%s: %d clients for %s after %s of warmup%n", target.getKey(), clients, duration, warmup);
+            results.put(target.getKey(), new LoadTest(target.getValue(), users).run(clients, warmup, duration));
+        }
+
+        System.out.printf("%n%-10s %-8s %10s %8s %8s %8s %8s %8s%n", "target", "request", "count", "per sec", "p50 ms", "p99 ms", "max ms", "errors");
+        for (var target : results.entrySet()) {
+            for (var operation : target.getValue().entrySet()) {
+                var latencies = operation.getValue();
+                System.out.printf("%-10s %-8s %10d %8.0f %8.1f %8.1f %8.1f %8d %s%n", target.getKey(), operation.getKey(),
+                        latencies.count(), latencies.count() / (double) duration.toSeconds(),
+                        latencies.percentile(0.5), latencies.percentile(0.99), latencies.percentile(1), latencies.errors(),
+                        latencies.statuses());
+            }
+        }
+    }
+
+    private final URI base;
+    private final String[] users;
+    private final Map<String, HttpClient> http = new LinkedHashMap<>();
+    private final Map<String, Latencies> latencies = new LinkedHashMap<>();
+    private volatile long measuredSince;
+    private volatile long deadline;
+
+    private LoadTest(URI base, String[] users) {
+        this.base = base;
+        this.users = users;
+        for (var operation : OPERATIONS) latencies.put(operation, new Latencies());
+        for (var user : users)
+            http.put(user, HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(new CookieManager()).build());
+    }
+
+    private Map<String, Latencies> run(int clients, Duration warmup, Duration duration) {
+        var now = System.nanoTime();
+        measuredSince = now + warmup.toNanos();
+        deadline = measuredSince + duration.toNanos();
+        var running = new ArrayList<CompletableFuture<Void>>(clients);
+        for (var client = 0; client < clients; client++) {
+            var done = new CompletableFuture<Void>();
+            repeat(users[client % users.length], done);
+            running.add(done);
+        }
+        CompletableFuture.allOf(running.toArray(CompletableFuture[]::new)).join();
+        return latencies;
+    }
+
+    /** Repeats the scenario of a client until the deadline */
+    private void repeat(String user, CompletableFuture<Void> done) {
+        if (System.nanoTime() - deadline > 0) done.complete(null);
+        else scenario(user).whenComplete((ignored, e) -> repeat(user, done));
+    }
+
+    private CompletableFuture<?> scenario(String user) {
+        var started = OffsetDateTime.now(ZoneOffset.UTC);
+        return send("new", user, post("/pomodoro/new", ""))
+                .thenCompose(created -> {
+                    var id = ID.matcher(created.body());
+                    if (created.statusCode() != 200 || !id.find()) return CompletableFuture.completedFuture(created);
+                    return send("start", user, post("/pomodoro/update", form("id", id.group(), "sequence", "1", "started", started.toString())))
+                            .thenCompose(ignored -> send("end", user, post("/pomodoro/update",
+                                    form("id", id.group(), "sequence", "2", "ended", started.plusSeconds(5).toString()))));
+                })
+                .thenCompose(ignored -> send("history", user, HttpRequest.newBuilder(base.resolve("/pomodoro/history?page=0&size=20")).GET()));
+    }
+
+    private CompletableFuture<HttpResponse<String>> send(String operation, String user, HttpRequest.Builder request) {
+        var started = System.nanoTime();
+        return http.get(user).sendAsync(request.header("Authorization", user).timeout(Duration.ofSeconds(30)).build(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, e) -> {
+                    if (started - measuredSince < 0) return;
+                    latencies.get(operation).record(System.nanoTime() - started, response != null ? response.statusCode() : 0);
+                });
+    }
+
+    private HttpRequest.Builder post(String path, String form) {
+        return HttpRequest.newBuilder(base.resolve(path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+    }
+
+    private static String form(String... namesAndValues) {
+        var form = new StringBuilder();
+        for (var i = 0; i < namesAndValues.length; i += 2) {
+            if (form.length() > 0) form.append('&');
+            form.append(namesAndValues[i]).append('=').append(URLEncoder.encode(namesAndValues[i + 1], StandardCharsets.UTF_8));
+        }
+        return form.toString();
+    }
+
+    /** Latencies of completed requests of an operation and numbers of responses by status, 0 for failed requests */
+    private static final class Latencies {
+        private long[] nanos = new long[1 << 16];
+        private int count;
+        private final Map<Integer, AtomicLong> statuses = new LinkedHashMap<>();
+
+        synchronized void record(long latency, int status) {
+            if (count == nanos.length) nanos = Arrays.copyOf(nanos, count << 1);
+            nanos[count++] = latency;
+            statuses.computeIfAbsent(status, ignored -> new AtomicLong()).incrementAndGet();
+        }
+
+        synchronized int count() { return count; }
+
+        synchronized long errors() {
+            return statuses.entrySet().stream().filter(status -> status.getKey() < 200 || status.getKey() >= 400).mapToLong(status -> status.getValue().get()).sum();
+        }
+
+        synchronized String statuses() {
+            return statuses.entrySet().stream().map(status -> status.getKey() + ":" + status.getValue()).collect(joining(" "));
+        }
+
+        /** @return milliseconds */
+        synchronized double percentile(double percentile) {
+            if (count == 0) return 0;
+            var sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(percentile * count) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.ksy.shortbreak.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/** Pomodoro API on WebFlux and R2DBC, scans only this package, so no servlet application beans are picked up */
+@SpringBootApplication
+public class ReactiveApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(ReactiveApplication.class, args);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ksy.shortbreak.reactive.api;
+
+import com.ksy.shortbreak.api.PomodoroDto;
+import com.ksy.shortbreak.api.PomodoroPageDto;
+import com.ksy.shortbreak.reactive.service.ReactivePomodoroService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.security.Principal;
+
+/**
+ * New, update and history operations of {@code PomodoroController} with the same parameters. A new pomodoro is
+ * returned as JSON instead of the timer page.
+ */
+@RequestMapping("/pomodoro")
+public @RestController class ReactivePomodoroController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactivePomodoroController.class);
+
+    private final ReactivePomodoroService service;
+
+    public @Autowired ReactivePomodoroController(ReactivePomodoroService service) { this.service = service; }
+
+    @PreAuthorize("hasRole('USER')")
+    @PostMapping(value = "/new", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PomodoroDto> newPomodoro(Mono<Principal> principal) {
+        return principal
+                .flatMap(user -> service.initialize(user.getName()))
+                .map(PomodoroDto::ofPomodoro);
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @PostMapping("/update")
+    public Mono<Void> updatePomodoro(@Valid @ModelAttribute PomodoroDto dto, Mono<Principal> principal) {
+        LOG.debug("Updating pomodoro = {}", dto);
+        return principal
+                .flatMap(user -> service.update(user.getName(), dto.toPomodoro(user.getName())))
+                .then();
+    }
+
+    @PreAuthorize("hasRole('USER')")
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<PomodoroPageDto> userPomodorosHistory(@RequestParam int page, @RequestParam int size, Mono<Principal> principal) {
+        return principal.map(Principal::getName).flatMap(user -> Mono.zip(
+                service.pomodorosOfUser(user, page, size).map(PomodoroDto::ofPomodoro).collectList(),
+                service.countPomodorosOfUser(user),
+                (pomodoros, total) -> PomodoroPageDto.of(pomodoros, total, page, size)));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public void onInvalidPomodoro(IllegalArgumentException e) {
+        LOG.debug("Invalid pomodoro: {}", e.getMessage());
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void onConcurrentUpdate(DataAccessException e) {
+        LOG.debug("Concurrent update rejected: {}", e.getMessage());
+    }
+}
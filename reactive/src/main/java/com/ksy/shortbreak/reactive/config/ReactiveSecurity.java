@@ -0,0 +1,46 @@
+package com.ksy.shortbreak.reactive.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/** Same users and HTTP basic authentication as {@code config.Security} of the servlet application */
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public @Configuration class ReactiveSecurity {
+    private static final String USER_ROLE_VALUE = "USER";
+    private static final String ADMIN_ROLE_VALUE = "ADMIN";
+
+    public @Bean MapReactiveUserDetailsService users() {
+        return new MapReactiveUserDetailsService(
+                User.withUsername("ksy").password("{noop}123").roles(USER_ROLE_VALUE).build(),
+                User.withUsername("bob").password("{noop}123").roles(USER_ROLE_VALUE).build(),
+                User.withUsername("admin").password("{noop}admin").roles(USER_ROLE_VALUE, ADMIN_ROLE_VALUE).build());
+    }
+
+    /**
+     * Without the password upgrade of the default manager: it replaces {noop} passwords by bcrypt ones on the first
+     * login, and checking bcrypt on every request authenticated by HTTP basic dominates latencies.
+     */
+    public @Bean ReactiveAuthenticationManager authenticationManager(MapReactiveUserDetailsService users) {
+        return new UserDetailsRepositoryReactiveAuthenticationManager(users);
+    }
+
+    public @Bean SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+        return http
+                .authorizeExchange()
+                .pathMatchers("/admin/**", "/actuator/**").hasRole(ADMIN_ROLE_VALUE)
+                .anyExchange().authenticated()
+                .and()
+                .httpBasic()
+                .and().csrf().disable()
+                .build();
+    }
+}
@@ -0,0 +1,108 @@
+package com.ksy.shortbreak.reactive.persistent;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pomodoros in the table of schema.sql by plain SQL, as R2DBC has no mapping of embedded timing. The version is
+ * managed here like JPA does it: an update of a changed row matches nothing and fails.
+ */
+public @Repository class ReactivePomodoroRepo {
+    private static final String COLUMNS = "id, user, name, duration, started, ended, client_sequence, version";
+
+    private final DatabaseClient client;
+
+    public @Autowired ReactivePomodoroRepo(DatabaseClient client) { this.client = client; }
+
+    public Mono<Pomodoro> findById(UUID id) {
+        return client.execute("select " + COLUMNS + " from pomodoro where id = :id")
+                .bind("id", requireNonNull(id))
+                .map((row, metadata) -> pomodoroOf(row))
+                .one();
+    }
+
+    /** Same order as {@code PomodoroRepo.findAllByUserOrderByTimingEndedDesc}, not ended ones last */
+    public Flux<Pomodoro> findAllByUserOrderByEndedDesc(String user, int page, int size) {
+        return client.execute("select " + COLUMNS + " from pomodoro where user = :user order by ended desc nulls last, id limit :limit offset :offset")
+                .bind("user", requireNonNull(user))
+                .bind("limit", size)
+                .bind("offset", (long) page * size)
+                .map((row, metadata) -> pomodoroOf(row))
+                .all();
+    }
+
+    public Mono<Long> countByUser(String user) {
+        return client.execute("select count(*) from pomodoro where user = :user")
+                .bind("user", requireNonNull(user))
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one();
+    }
+
+    public Mono<Pomodoro> insert(Pomodoro pomodoro) {
+        return bindState(client.execute("insert into pomodoro (" + COLUMNS + ") values (:id, :user, :name, :duration, :started, :ended, :clientSequence, 0)"), pomodoro)
+                .bind("user", pomodoro.getUser())
+                .fetch().rowsUpdated()
+                .thenReturn(pomodoro);
+    }
+
+    /**
+     * @param pomodoro with the version it was read with
+     * @return the pomodoro with the next version
+     * @throws OptimisticLockingFailureException (as an error signal) if the pomodoro is changed since it was read
+     */
+    public Mono<Pomodoro> update(Pomodoro pomodoro) {
+        return bindState(client.execute("update pomodoro set name = :name, duration = :duration, started = :started, ended = :ended, client_sequence = :clientSequence, version = version + 1 where id = :id and version = :version"), pomodoro)
+                .bind("version", pomodoro.getVersion())
+                .fetch().rowsUpdated()
+                .flatMap(updated -> updated == 1
+                        ? Mono.just(Pomodoro.builder()
+                                .id(pomodoro.getId())
+                                .user(pomodoro.getUser())
+                                .name(pomodoro.getName())
+                                .timing(Pomodoro.Timing.of(pomodoro.getTiming()))
+                                .clientSequence(pomodoro.getClientSequence())
+                                .version(pomodoro.getVersion() + 1)
+                                .build())
+                        : Mono.error(new OptimisticLockingFailureException("Pomodoro " + pomodoro.getId() + " is changed since version " + pomodoro.getVersion())));
+    }
+
+    private static GenericExecuteSpec bindState(GenericExecuteSpec spec, Pomodoro pomodoro) {
+        var timing = pomodoro.getTiming();
+        spec = spec.bind("id", requireNonNull(pomodoro.getId())).bind("duration", timing.getDuration().toNanos());
+        spec = bindNullable(spec, "name", pomodoro.getName(), String.class);
+        spec = bindNullable(spec, "started", timing.getStarted(), OffsetDateTime.class);
+        spec = bindNullable(spec, "ended", timing.getEnded(), OffsetDateTime.class);
+        return bindNullable(spec, "clientSequence", pomodoro.getClientSequence(), Long.class);
+    }
+
+    private static <T> GenericExecuteSpec bindNullable(GenericExecuteSpec spec, String name, T value, Class<T> type) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+    }
+
+    private static Pomodoro pomodoroOf(Row row) {
+        return Pomodoro.builder()
+                .id(row.get("id", UUID.class))
+                .user(row.get("user", String.class))
+                .name(row.get("name", String.class))
+                .timing(Pomodoro.Timing.of(
+                        Duration.ofNanos(row.get("duration", Long.class)),
+                        row.get("started", OffsetDateTime.class),
+                        row.get("ended", OffsetDateTime.class)))
+                .clientSequence(row.get("client_sequence", Long.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.ksy.shortbreak.reactive.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.reactive.persistent.ReactivePomodoroRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Non-blocking counterpart of {@code PomodoroService}: the same validation by {@link Pomodoro.Timing} and the same
+ * {@link Pomodoro#updateBy} and {@link Pomodoro#hasApplied} semantics. The user is always passed explicitly, as there
+ * is no security context of the thread on an event loop. Archive, listeners and history tags of the servlet application
+ * are not part of this stack.
+ */
+public @Service class ReactivePomodoroService {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactivePomodoroService.class);
+
+    private final ReactivePomodoroRepo repository;
+
+    public @Autowired ReactivePomodoroService(ReactivePomodoroRepo repository) { this.repository = repository; }
+
+    public Flux<Pomodoro> pomodorosOfUser(String user, int page, int size) {
+        return repository.findAllByUserOrderByEndedDesc(requireNonNull(user), page, size);
+    }
+
+    public Mono<Long> countPomodorosOfUser(String user) { return repository.countByUser(requireNonNull(user)); }
+
+    public Mono<Pomodoro> initialize(String user) {
+        var pomodoro = Pomodoro.builder().id(UUID.randomUUID()).user(requireNonNull(user)).timing(Pomodoro.Timing.of()).build();
+        return repository.insert(pomodoro).doOnNext(initialized -> LOG.debug("Initialized pomodoro = {}", initialized));
+    }
+
+    /**
+     * Changes already applied according to their client sequence are ignored. Concurrent updates of the same
+     * pomodoro are detected by its version, the later one fails with
+     * {@link org.springframework.dao.OptimisticLockingFailureException} and can be retried by the client.
+     */
+    public Mono<Pomodoro> update(String user, Pomodoro changes) {
+        requireNonNull(user);
+        if (changes.getId() == null) return Mono.error(new IllegalArgumentException("Pomodoro not initialized yet: " + changes));
+        return repository.findById(changes.getId())
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Pomodoro with ID " + changes.getId() + " was not initialized before")))
+                .flatMap(current -> {
+                    if (!current.getUser().equals(user))
+                        return Mono.error(new AccessDeniedException("Unable to update pomodoro by changes " + changes + " by user " + user));
+                    if (current.hasApplied(changes)) {
+                        LOG.debug("Changes {} are already applied to {}", changes, current);
+                        return Mono.just(current);
+                    }
+                    return repository.update(current.updateBy(changes));
+                });
+    }
+}
@@ -0,0 +1,13 @@
+-- Columns named as by Hibernate in the servlet application, duration in nanoseconds
+create table if not exists pomodoro (
+    id              uuid                     not null primary key,
+    user            varchar(255)             not null,
+    name            varchar(255),
+    duration        bigint                   not null,
+    started         timestamp with time zone,
+    ended           timestamp with time zone,
+    client_sequence bigint,
+    version         bigint                   not null
+);
+
+create index if not exists pomodoro_user_ended on pomodoro (user, ended desc);
@@ -0,0 +1,114 @@
+package com.ksy.shortbreak.reactive.api;
+
+import com.ksy.shortbreak.api.PomodoroDto;
+import com.ksy.shortbreak.reactive.ReactiveApplication;
+import com.ksy.shortbreak.reactive.service.ReactivePomodoroService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ReactiveApplication.class)
+@AutoConfigureWebTestClient
+public class ReactivePomodoroControllerTest {
+    private static final String USER_1 = "Alice";
+    private static final String USER_2 = "Bob";
+    private static final String USER_3 = "Carol";
+
+    private @Autowired WebTestClient client;
+    private @Autowired ReactivePomodoroService service;
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void newPomodoro_noAdditionalDataSpecified_newPomodoroSavedWithDefaultDurationAndReturned() {
+        // when
+        var pomodoro = client.post().uri("/pomodoro/new")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PomodoroDto.class).returnResult().getResponseBody();
+
+        // then
+        var saved = service.pomodorosOfUser(USER_1, 0, 1000).filter(p -> p.getId().equals(pomodoro.getId())).blockFirst();
+        assertEquals(USER_1, saved.getUser());
+        assertEquals(PomodoroDto.ofPomodoro(saved), pomodoro);
+    }
+
+    @Test
+    @WithMockUser(value = USER_2, roles = "USER")
+    public void updatePomodoro_startedAndEndedThenRenamed_historyHasUpdatedPomodoro() {
+        // given
+        var started = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(MILLIS).minusMinutes(25);
+        var id = service.initialize(USER_2).block().getId();
+
+        // when
+        update(BodyInserters.fromFormData("id", id.toString()).with("sequence", "1")
+                .with("started", started.toString()).with("durationMinutes", "25"));
+        update(BodyInserters.fromFormData("id", id.toString()).with("sequence", "2")
+                .with("ended", started.plusMinutes(25).toString()));
+        update(BodyInserters.fromFormData("id", id.toString()).with("sequence", "3").with("name", "Reading"));
+
+        // then
+        client.get().uri("/pomodoro/history?page=0&size=10")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.total").isEqualTo(1)
+                .jsonPath("$.pomodoros[0].id").isEqualTo(id.toString())
+                .jsonPath("$.pomodoros[0].name").isEqualTo("Reading")
+                .jsonPath("$.pomodoros[0].durationMinutes").isEqualTo(25)
+                .jsonPath("$.pomodoros[0].sequence").isEqualTo(3);
+        var pomodoro = service.pomodorosOfUser(USER_2, 0, 1).blockFirst();
+        assertEquals(Duration.ofMinutes(25), pomodoro.getTiming().getDuration());
+        assertEquals(started.toInstant(), pomodoro.getTiming().getStarted().toInstant());
+        assertEquals(3, pomodoro.getVersion());
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void updatePomodoro_endedBeforeStarted_badRequestAndPomodoroNotChanged() {
+        // given
+        var started = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(MILLIS);
+        var id = service.initialize(USER_1).block().getId();
+        update(BodyInserters.fromFormData("id", id.toString()).with("started", started.toString()));
+
+        // when
+        client.post().uri("/pomodoro/update")
+                .body(BodyInserters.fromFormData("id", id.toString()).with("ended", started.minusMinutes(1).toString()))
+                .exchange()
+
+        // then
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void updatePomodoro_pomodoroOfAnotherUser_forbidden() {
+        // given
+        var id = service.initialize(USER_3).block().getId();
+
+        // when
+        client.post().uri("/pomodoro/update")
+                .body(BodyInserters.fromFormData("id", id.toString()).with("name", "Stolen"))
+                .exchange()
+
+        // then
+                .expectStatus().isForbidden();
+    }
+
+    private void update(BodyInserters.FormInserter<String> form) {
+        client.post().uri("/pomodoro/update").body(form).exchange().expectStatus().isOk();
+    }
+}
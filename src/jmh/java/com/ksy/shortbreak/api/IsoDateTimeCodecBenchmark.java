@@ -0,0 +1,46 @@
+package com.ksy.shortbreak.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link IsoDateTimeCodec} with the JDK {@link OffsetDateTime} parsing and formatting.
+ * Run with {@code ./gradlew jmh}, allocation rates are reported with {@code -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IsoDateTimeCodecBenchmark {
+    @Param({
+            "2019-06-24T10:15:30.123Z",                // Date.toISOString() sent by the client
+            "2019-06-24T10:15:30.123456789+03:00"      // OffsetDateTime.toString() rendered by the server
+    })
+    private String text;
+
+    private OffsetDateTime dateTime;
+
+    public @Setup void setUp() { dateTime = OffsetDateTime.parse(text); }
+
+    public @Benchmark OffsetDateTime parseJdk() { return OffsetDateTime.parse(text); }
+
+    public @Benchmark OffsetDateTime parseCodec() { return IsoDateTimeCodec.parse(text); }
+
+    public @Benchmark String formatJdk() { return dateTime.toString(); }
+
+    public @Benchmark String formatCodec() { return IsoDateTimeCodec.format(dateTime); }
+}
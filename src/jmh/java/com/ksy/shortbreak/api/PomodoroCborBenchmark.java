@@ -0,0 +1,79 @@
+package com.ksy.shortbreak.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares {@link PomodoroCbor} with JSON written by the object mapper Spring Boot configures: writing a history page
+ * and reading an update. Payload sizes, plain and gzipped as by {@code server.compression}, are printed on setup.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PomodoroCborBenchmark {
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private PomodoroPageDto page;
+    private byte[] updateJson;
+    private byte[] updateCbor;
+
+    public @Setup void setUp() throws IOException {
+        var random = new Random(20190624L);
+        var pomodoros = new ArrayList<PomodoroDto>();
+        var ended = OffsetDateTime.parse("2019-06-24T10:15:30.123+03:00");
+        for (var i = 0; i < pageSize; i++, ended = ended.minusMinutes(30 + random.nextInt(600)))
+            pomodoros.add(new PomodoroDto().setId(new UUID(random.nextLong(), random.nextLong())).setName("Pomodoro " + i)
+                    .setDurationSeconds(1500).setStarted(ended.minusMinutes(25).toString()).setEnded(ended.toString()).setSequence((long) i));
+        page = PomodoroPageDto.of(pomodoros, 1000, 0, pageSize);
+        var update = pomodoros.get(0);
+        updateJson = json.writeValueAsBytes(update);
+        updateCbor = PomodoroCbor.encode(update);
+
+        var pageJson = json.writeValueAsBytes(page);
+        var pageCbor = PomodoroCbor.encode(page);
+        System.out.printf("%npage of %d: JSON %d bytes, %d gzipped; CBOR %d bytes, %d gzipped; update: JSON %d bytes, CBOR %d bytes%n",
+                pageSize, pageJson.length, gzipped(pageJson), pageCbor.length, gzipped(pageCbor), updateJson.length, updateCbor.length);
+    }
+
+    public @Benchmark byte[] writePageJson() throws IOException { return json.writeValueAsBytes(page); }
+
+    public @Benchmark byte[] writePageCbor() { return PomodoroCbor.encode(page); }
+
+    public @Benchmark PomodoroDto readUpdateJson() throws IOException { return json.readValue(updateJson, PomodoroDto.class); }
+
+    public @Benchmark PomodoroDto readUpdateCbor() { return PomodoroCbor.decodePomodoro(updateCbor); }
+
+    private static int gzipped(byte[] bytes) throws IOException {
+        var out = new ByteArrayOutputStream();
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+}
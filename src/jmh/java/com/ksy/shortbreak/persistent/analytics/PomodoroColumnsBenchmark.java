@@ -0,0 +1,52 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation of a year of a million completed pomodoros of a thousand users, on and off heap.
+ * Memory taken by the columns is printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PomodoroColumnsBenchmark {
+    private static final int POMODOROS = 1_000_000;
+    private static final int USERS = 1_000;
+    private static final long YEAR_MILLIS = 365L * 24 * 3_600_000;
+
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private PomodoroColumns columns;
+
+    public @Setup void setUp() {
+        var random = new Random(20190624L);
+        columns = new PomodoroColumns(offHeap);
+        for (var i = 0; i < POMODOROS; i++) {
+            var ended = (long) i * (YEAR_MILLIS / POMODOROS);  // mostly appended in order as pomodoros complete
+            columns.put("user-" + random.nextInt(USERS), new UUID(random.nextLong(), random.nextLong()), ended, 1200 + random.nextInt(600), 1500);
+        }
+        System.out.printf("%n%d rows take %d bytes, %.1f per row%n", columns.rows(), columns.memoryBytes(), (double) columns.memoryBytes() / columns.rows());
+    }
+
+    public @Benchmark FocusSummary userQuarter() { return columns.summarize("user-42", YEAR_MILLIS / 4, YEAR_MILLIS / 2); }
+
+    public @Benchmark FocusSummary allUsersYear() { return columns.summarize(0, YEAR_MILLIS); }
+}
@@ -0,0 +1,108 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get the state of {@code pomodoros} pomodoros, each saved three times (initialized, started, stopped), back
+ * after restart: replaying the whole log, loading a snapshot, and opening an H2 file database holding the same rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PomodoroRecoveryBenchmark {
+    @Param({"100000"})
+    private int pomodoros;
+
+    @Param({"log", "snapshot", "h2"})
+    private String source;
+
+    private Path directory;
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        directory = Files.createTempDirectory("pomodoro-recovery");
+        if (source.equals("h2")) createDatabase();
+        else createLog(source.equals("snapshot"));
+    }
+
+    public @Benchmark long recover() throws Exception {
+        if (source.equals("h2")) {
+            try (var connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("db"), "sa", "");
+                 var count = connection.createStatement().executeQuery("select count(*) from pomodoro")) {
+                count.next();
+                return count.getLong(1);
+            }
+        }
+
+        var log = new PomodoroLog(directory, 64 << 20, FsyncPolicy.NEVER, Duration.ofSeconds(1));
+        var count = new LogPomodoroRepo(log, Long.MAX_VALUE).count();
+        log.close();
+        return count;
+    }
+
+    private void createLog(boolean snapshot) throws Exception {
+        var repo = new LogPomodoroRepo(new PomodoroLog(directory, 64 << 20, FsyncPolicy.NEVER, Duration.ofSeconds(1)), Long.MAX_VALUE);
+        for (var i = 0; i < pomodoros; i++) {
+            var pomodoro = repo.save(Pomodoro.builder().id(UUID.randomUUID()).user("user-" + i % 100).name("pomodoro " + i)
+                    .timing(Pomodoro.Timing.of()).build());
+            var started = OffsetDateTime.now();
+            pomodoro = repo.save(pomodoro.updateBy(changes(pomodoro, started, null)));
+            repo.save(pomodoro.updateBy(changes(pomodoro, null, started.plusMinutes(25))));
+        }
+        if (snapshot) repo.close();
+    }
+
+    private void createDatabase() throws Exception {
+        try (var connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("db"), "sa", "")) {
+            connection.createStatement().execute("create table pomodoro (id binary(255) not null, client_sequence bigint, "
+                    + "name varchar(255), duration bigint not null, ended timestamp, started timestamp, "
+                    + "user varchar(255) not null, version bigint not null, primary key (id))");
+            connection.setAutoCommit(false);
+            try (var insert = connection.prepareStatement("insert into pomodoro values (?, null, ?, ?, ?, ?, ?, 2)")) {
+                for (var i = 0; i < pomodoros; i++) {
+                    var started = OffsetDateTime.now();
+                    var id = UUID.randomUUID();
+                    insert.setBytes(1, ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array());
+                    insert.setString(2, "pomodoro " + i);
+                    insert.setLong(3, Duration.ofMinutes(25).toNanos());
+                    insert.setTimestamp(4, Timestamp.from(started.plusMinutes(25).toInstant()));
+                    insert.setTimestamp(5, Timestamp.from(started.toInstant()));
+                    insert.setString(6, "user-" + i % 100);
+                    insert.addBatch();
+                    if (i % 1000 == 999) insert.executeBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static Pomodoro changes(Pomodoro pomodoro, OffsetDateTime started, OffsetDateTime ended) {
+        return Pomodoro.builder().id(pomodoro.getId()).user(pomodoro.getUser())
+                .timing(Pomodoro.Timing.of(null, started, ended)).build();
+    }
+}
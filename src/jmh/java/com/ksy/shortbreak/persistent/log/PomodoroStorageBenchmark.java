@@ -0,0 +1,84 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.Application;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Update throughput of the JPA repository over in-memory H2 against the log storage with different fsync policies:
+ * every operation reads a pomodoro by id and saves it changed, as {@code PomodoroService.update} does.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PomodoroStorageBenchmark {
+    private static final int POMODOROS = 10_000;
+
+    @Param({"jpa", "log-always", "log-interval", "log-never"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private PomodoroRepo repository;
+    private List<UUID> ids;
+    private long sequence;
+
+    public @Setup(Level.Trial) void setUp() throws Exception {
+        var type = storage.startsWith("log") ? "log" : "jpa";
+        var fsync = storage.startsWith("log-") ? storage.substring("log-".length()) : "never";
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "shortbreak.storage.type=" + type,
+                        "shortbreak.storage.log.directory=" + Files.createTempDirectory("pomodoro-log"),
+                        "shortbreak.storage.log.fsync=" + fsync,
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + storage,
+                        "logging.level.root=WARN",
+                        "logging.level.com.ksy=WARN")
+                .run();
+        repository = context.getBean(PomodoroRepo.class);
+        ids = repository.saveAll(IntStream.range(0, POMODOROS)
+                .mapToObj(i -> Pomodoro.builder().id(UUID.randomUUID()).user("user-" + i % 100).name("pomodoro " + i)
+                        .timing(Pomodoro.Timing.of()).build())
+                .collect(toList()))
+                .stream().map(Pomodoro::getId).collect(toList());
+    }
+
+    public @TearDown(Level.Trial) void tearDown() { context.close(); }
+
+    public @Benchmark Pomodoro update() {
+        var id = ids.get((int) (sequence % POMODOROS));
+        var pomodoro = repository.findById(id).orElseThrow();
+        var changes = Pomodoro.builder().id(id).user(pomodoro.getUser()).name("renamed " + sequence)
+                .timing(Pomodoro.Timing.of(null, OffsetDateTime.now(), null)).clientSequence(++sequence).build();
+        return repository.save(pomodoro.updateBy(changes));
+    }
+}
@@ -0,0 +1,80 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.analytics.ActivePomodoros;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+public final class ActivePomodorosDto {
+    private final int count;
+    private final List<ActiveDto> pomodoros;
+
+    /** @param count of all running pomodoros, listed ones may be limited */
+    public static ActivePomodorosDto of(int count, List<ActivePomodoros.Active> pomodoros) {
+        return new ActivePomodorosDto(count, requireNonNull(pomodoros).stream().map(ActiveDto::of).collect(toList()));
+    }
+
+    public int getCount() { return count; }
+
+    public List<ActiveDto> getPomodoros() { return pomodoros; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ActivePomodorosDto)) return false;
+        var that = (ActivePomodorosDto) o;
+        return count == that.count && pomodoros.equals(that.pomodoros);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(count, pomodoros); }
+
+    @Override
+    public String toString() { return "ActivePomodorosDto{count=" + count + ", pomodoros=" + pomodoros + '}'; }
+
+    private ActivePomodorosDto(int count, List<ActiveDto> pomodoros) {
+        this.count = count;
+        this.pomodoros = pomodoros;
+    }
+
+    public static final class ActiveDto {
+        private final String user;
+        private final String started;
+        private final String ends;
+
+        static ActiveDto of(ActivePomodoros.Active active) {
+            return new ActiveDto(active.getUser(), IsoDateTimeCodec.format(active.getStarted().atOffset(ZoneOffset.UTC)),
+                    IsoDateTimeCodec.format(active.getEnds().atOffset(ZoneOffset.UTC)));
+        }
+
+        public String getUser() { return user; }
+
+        public String getStarted() { return started; }
+
+        public String getEnds() { return ends; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ActiveDto)) return false;
+            var that = (ActiveDto) o;
+            return user.equals(that.user) && started.equals(that.started) && ends.equals(that.ends);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(user, started, ends); }
+
+        @Override
+        public String toString() { return "ActiveDto{user='" + user + "', started='" + started + "', ends='" + ends + "'}"; }
+
+        private ActiveDto(String user, String started, String ends) {
+            this.user = user;
+            this.started = started;
+            this.ends = ends;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.service.DatabaseExecutor;
+import com.ksy.shortbreak.service.PomodoroService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.annotation.security.RolesAllowed;
+import javax.validation.Valid;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Variants of {@link PomodoroController} endpoints releasing the web server thread while the repository works, so
+ * a slow database doesn't take threads serving anything else. When the {@link DatabaseExecutor} is saturated,
+ * requests are answered by 503 at once.
+ */
+@RequestMapping("/pomodoro/async")
+public @Controller class AsyncPomodoroController {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncPomodoroController.class);
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final PomodoroService service;
+    private final DatabaseExecutor executor;
+
+    public @Autowired AsyncPomodoroController(PomodoroService service, DatabaseExecutor executor) {
+        this.service = service;
+        this.executor = executor;
+    }
+
+    @RolesAllowed("USER")
+    @PostMapping("/new")
+    public CompletableFuture<ModelAndView> newPomodoro() {
+        return executor.supply(() -> PomodoroDto.ofPomodoro(service.initialize()))
+                .thenApply(pomodoro -> new ModelAndView("new_pomodoro", "pomodoro", pomodoro));
+    }
+
+    @RolesAllowed("USER")
+    @PostMapping("/update")
+    public CompletableFuture<ResponseEntity<Void>> updatePomodoro(@Valid PomodoroDto dto) {
+        LOG.debug("Updating pomodoro = {}", dto);
+        var pomodoro = dto.toPomodoro();
+        return executor.supply(() -> service.update(pomodoro)).thenApply(updated -> ResponseEntity.ok().build());
+    }
+
+    @RolesAllowed("USER")
+    @GetMapping("/all")
+    public CompletableFuture<ModelAndView> userPomodoros(@RequestParam int page, @RequestParam int size) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        return executor.supply(() -> {
+            var pomodoros = service.pomodorosOfUser(user, page, size).stream().map(PomodoroDto::ofPomodoro).collect(toList());
+            var total = service.countPomodorosOfUser(user);
+            return new ModelAndView("user_pomodoros", Map.of("pomodoros", pomodoros, "total", total, "page", page, "size", size));
+        });
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Void> onSaturated(RejectedExecutionException e) {
+        LOG.debug("Request rejected, database executor is saturated");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS).build();
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void onConcurrentUpdate(DataAccessException e) {
+        LOG.debug("Concurrent update rejected: {}", e.getMessage());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.service.PomodoroBackups;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/** Online backups of the database, downloaded as files to keep them off the node */
+@ConditionalOnProperty(name = "shortbreak.storage.type", havingValue = "jpa", matchIfMissing = true)
+@RequestMapping("/admin/backups")
+public @Controller class BackupAdminController {
+    private static final Logger LOG = LoggerFactory.getLogger(BackupAdminController.class);
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final PomodoroBackups backups;
+
+    public @Autowired BackupAdminController(PomodoroBackups backups) {
+        this.backups = backups;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody List<String> files() {
+        return backups.files().stream().map(file -> file.getFileName().toString()).collect(toList());
+    }
+
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody Map<String, Object> backup() {
+        LOG.debug("Backing up pomodoros");
+        var file = backups.backup();
+        return Map.of("file", file.getFileName().toString());
+    }
+
+    /**
+     * Sends the file by the connector from the page cache to the socket when Tomcat supports sendfile, e.g. over plain
+     * HTTP by the NIO connector. Otherwise the file is copied to the response stream through a buffer, as a servlet
+     * stream is no file channel to transfer to.
+     */
+    @GetMapping("/files/{name:.+}")
+    public void download(@PathVariable String name, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        var found = backups.file(name);
+        if (found.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        var file = found.get();
+        var size = Files.size(file);
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment").filename(name).build().toString());
+        response.setContentLengthLong(size);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+        Files.copy(file, response.getOutputStream());
+    }
+}
@@ -0,0 +1,144 @@
+package com.ksy.shortbreak.api;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Fixed-layout ISO-8601 codec for the timestamps exchanged with the web client.
+ * <p>
+ * Parsing recognizes {@code yyyy-MM-ddTHH:mm[:ss[.S{1,9}]](Z|+HH:MM|-HH:MM)}, which covers both {@code Date.toISOString()}
+ * and {@link OffsetDateTime#toString()}, without going through {@link java.time.format.DateTimeFormatter}.
+ * Anything outside of that layout is delegated to {@link OffsetDateTime#parse(CharSequence)}, so results and
+ * errors are always the same as the JDK ones.
+ * <p>
+ * Formatting produces exactly {@link OffsetDateTime#toString()} for years 0..9999.
+ */
+public final class IsoDateTimeCodec {
+    private static final int MIN_LENGTH = "yyyy-MM-ddTHH:mmZ".length();
+    private static final int MAX_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSSSSSSSS+HH:MM".length();
+    private static final int MAX_FORMATTED_LENGTH = "yyyy-MM-ddTHH:mm:ss.SSSSSSSSS+HH:MM:SS".length();
+
+    public static OffsetDateTime parse(String text) {
+        var parsed = parseFixedLayout(text);
+        return parsed != null ? parsed : OffsetDateTime.parse(text);
+    }
+
+    public static String format(OffsetDateTime dateTime) {
+        var year = dateTime.getYear();
+        if (year < 0 || year > 9999) return dateTime.toString();
+
+        var buffer = new char[MAX_FORMATTED_LENGTH];
+        var position = 0;
+        position = writeDigits(buffer, position, year, 4);
+        buffer[position++] = '-';
+        position = writeDigits(buffer, position, dateTime.getMonthValue(), 2);
+        buffer[position++] = '-';
+        position = writeDigits(buffer, position, dateTime.getDayOfMonth(), 2);
+        buffer[position++] = 'T';
+        position = writeDigits(buffer, position, dateTime.getHour(), 2);
+        buffer[position++] = ':';
+        position = writeDigits(buffer, position, dateTime.getMinute(), 2);
+
+        var second = dateTime.getSecond();
+        var nano = dateTime.getNano();
+        if (second > 0 || nano > 0) {
+            buffer[position++] = ':';
+            position = writeDigits(buffer, position, second, 2);
+            if (nano > 0) {
+                buffer[position++] = '.';
+                if (nano % 1_000_000 == 0) position = writeDigits(buffer, position, nano / 1_000_000, 3);
+                else if (nano % 1_000 == 0) position = writeDigits(buffer, position, nano / 1_000, 6);
+                else position = writeDigits(buffer, position, nano, 9);
+            }
+        }
+
+        var offset = dateTime.getOffset().getId();
+        offset.getChars(0, offset.length(), buffer, position);
+        return new String(buffer, 0, position + offset.length());
+    }
+
+    private static OffsetDateTime parseFixedLayout(String text) {
+        var length = text.length();
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return null;
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T' || text.charAt(13) != ':') return null;
+
+        var year = readDigits(text, 0, 4);
+        var month = readDigits(text, 5, 2);
+        var day = readDigits(text, 8, 2);
+        var hour = readDigits(text, 11, 2);
+        var minute = readDigits(text, 14, 2);
+        if ((year | month | day | hour | minute) < 0) return null;
+
+        var position = 16;
+        var second = 0;
+        var nano = 0;
+        if (text.charAt(position) == ':') {
+            if (position + 3 > length) return null;
+            second = readDigits(text, position + 1, 2);
+            if (second < 0) return null;
+            position += 3;
+
+            if (position < length && text.charAt(position) == '.') {
+                var fractionStart = ++position;
+                while (position < length && isDigit(text.charAt(position))) position++;
+                var fractionLength = position - fractionStart;
+                if (fractionLength < 1 || fractionLength > 9) return null;
+                nano = readDigits(text, fractionStart, fractionLength);
+                for (var i = fractionLength; i < 9; i++) nano *= 10;
+            }
+        }
+
+        var offset = readOffset(text, position);
+        if (offset == null) return null;
+
+        try {
+            return OffsetDateTime.of(LocalDateTime.of(year, month, day, hour, minute, second, nano), offset);
+        } catch (DateTimeException e) {
+            return null;  // out of range fields, let the JDK parser report them
+        }
+    }
+
+    private static ZoneOffset readOffset(String text, int position) {
+        var remaining = text.length() - position;
+        if (remaining == 1 && text.charAt(position) == 'Z') return ZoneOffset.UTC;
+        if (remaining != 6 || text.charAt(position + 3) != ':') return null;
+
+        var sign = text.charAt(position);
+        if (sign != '+' && sign != '-') return null;
+        var hours = readDigits(text, position + 1, 2);
+        var minutes = readDigits(text, position + 4, 2);
+        if ((hours | minutes) < 0 || minutes > 59) return null;
+
+        var totalSeconds = hours * 3600 + minutes * 60;
+        try {
+            return ZoneOffset.ofTotalSeconds(sign == '-' ? -totalSeconds : totalSeconds);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /** @return parsed non negative value or -1 if one of characters is not a digit */
+    private static int readDigits(String text, int from, int count) {
+        var value = 0;
+        for (var i = from; i < from + count; i++) {
+            var c = text.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+
+    private static int writeDigits(char[] buffer, int position, int value, int width) {
+        for (var i = position + width - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + width;
+    }
+
+    private IsoDateTimeCodec() {}
+}
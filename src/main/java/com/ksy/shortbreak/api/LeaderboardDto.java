@@ -0,0 +1,76 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.analytics.Leaderboards;
+
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+public final class LeaderboardDto {
+    private final List<EntryDto> top;
+    private final EntryDto me;
+
+    /** @param me entry of the current user, null if the user is not ranked */
+    public static LeaderboardDto of(List<Leaderboards.Entry> top, Leaderboards.Entry me) {
+        return new LeaderboardDto(requireNonNull(top).stream().map(EntryDto::of).collect(toList()), me != null ? EntryDto.of(me) : null);
+    }
+
+    public List<EntryDto> getTop() { return top; }
+
+    public EntryDto getMe() { return me; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LeaderboardDto)) return false;
+        var that = (LeaderboardDto) o;
+        return top.equals(that.top) && Objects.equals(me, that.me);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(top, me); }
+
+    @Override
+    public String toString() { return "LeaderboardDto{top=" + top + ", me=" + me + '}'; }
+
+    private LeaderboardDto(List<EntryDto> top, EntryDto me) {
+        this.top = top;
+        this.me = me;
+    }
+
+    public static final class EntryDto {
+        private final int rank;
+        private final String user;
+        private final long focusedSeconds;
+
+        static EntryDto of(Leaderboards.Entry entry) { return new EntryDto(entry.getRank(), entry.getUser(), entry.getFocusedSeconds()); }
+
+        public int getRank() { return rank; }
+
+        public String getUser() { return user; }
+
+        public long getFocusedSeconds() { return focusedSeconds; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof EntryDto)) return false;
+            var that = (EntryDto) o;
+            return rank == that.rank && focusedSeconds == that.focusedSeconds && user.equals(that.user);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(rank, user, focusedSeconds); }
+
+        @Override
+        public String toString() { return "EntryDto{rank=" + rank + ", user='" + user + "', focusedSeconds=" + focusedSeconds + '}'; }
+
+        private EntryDto(int rank, String user, long focusedSeconds) {
+            this.rank = rank;
+            this.user = user;
+            this.focusedSeconds = focusedSeconds;
+        }
+    }
+}
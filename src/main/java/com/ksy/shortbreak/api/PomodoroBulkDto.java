@@ -0,0 +1,102 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/** Filter of pomodoros of a bulk change, with the new name or duration for a rename or a re-time */
+public final class PomodoroBulkDto {
+    private List<UUID> ids;
+    private String endedFrom;
+    private String endedTo;
+    private String nameContains;
+    private String name;
+    private Integer durationSeconds;
+
+    public PomodoroBulkDto() {}
+
+    public List<UUID> getIds() { return ids; }
+
+    public String getEndedFrom() { return endedFrom; }
+
+    public String getEndedTo() { return endedTo; }
+
+    public String getNameContains() { return nameContains; }
+
+    public String getName() { return name; }
+
+    public Integer getDurationSeconds() { return durationSeconds; }
+
+    public PomodoroBulkDto setIds(List<UUID> ids) { this.ids = ids; return this; }
+
+    public PomodoroBulkDto setEndedFrom(String endedFrom) { this.endedFrom = endedFrom; return this; }
+
+    public PomodoroBulkDto setEndedTo(String endedTo) { this.endedTo = endedTo; return this; }
+
+    public PomodoroBulkDto setNameContains(String nameContains) { this.nameContains = nameContains; return this; }
+
+    public PomodoroBulkDto setName(String name) { this.name = name; return this; }
+
+    public PomodoroBulkDto setDurationSeconds(Integer durationSeconds) { this.durationSeconds = durationSeconds; return this; }
+
+    /** @throws IllegalArgumentException if no criterion is given or a time is malformed */
+    public PomodoroFilter toFilter() {
+        if (ids != null && ids.contains(null)) throw new IllegalArgumentException("Null ID in filter: " + this);
+        return PomodoroFilter.of(ids != null ? new HashSet<>(ids) : null, parse(endedFrom), parse(endedTo), nameContains);
+    }
+
+    /** @throws IllegalArgumentException if the name is missing */
+    public String toName() {
+        if (name == null) throw new IllegalArgumentException("Name is required: " + this);
+        return name;
+    }
+
+    /** @throws IllegalArgumentException if the duration is missing or not positive */
+    public Duration toDuration() {
+        if (durationSeconds == null || durationSeconds <= 0) throw new IllegalArgumentException("Positive duration is required: " + this);
+        return Duration.ofSeconds(durationSeconds);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroBulkDto)) return false;
+        var that = (PomodoroBulkDto) o;
+        return Objects.equals(ids, that.ids) &&
+                Objects.equals(endedFrom, that.endedFrom) &&
+                Objects.equals(endedTo, that.endedTo) &&
+                Objects.equals(nameContains, that.nameContains) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(durationSeconds, that.durationSeconds);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(ids, endedFrom, endedTo, nameContains, name, durationSeconds); }
+
+    @Override
+    public String toString() {
+        return "PomodoroBulkDto{" +
+                "ids=" + ids +
+                ", endedFrom='" + endedFrom + '\'' +
+                ", endedTo='" + endedTo + '\'' +
+                ", nameContains='" + nameContains + '\'' +
+                ", name='" + name + '\'' +
+                ", durationSeconds=" + durationSeconds +
+                '}';
+    }
+
+    private OffsetDateTime parse(String time) {
+        if (time == null || time.isBlank()) return null;
+        try {
+            return IsoDateTimeCodec.parse(time);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Malformed ended time in filter: " + this, e);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.ksy.shortbreak.api;
+
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * CBOR (RFC 8949) codec of pomodoros and history pages for native clients, readable by any CBOR library.
+ * <p>
+ * Objects are maps with small integer keys, like protobuf field numbers, and absent fields are left out. A pomodoro
+ * is {@code 1: id, 2: name, 3: duration seconds, 4: started, 5: ended, 6: sequence}: the id is a 16-byte string
+ * tagged 37 (UUID), time stamps are epoch seconds tagged 1, an integer for whole seconds or a float64, precise to
+ * microseconds, otherwise. A page is {@code 1: array of pomodoros, 2: total, 3: page, 4: size}. Decoding skips unknown
+ * keys, so clients may be older or newer than the server; indefinite lengths aren't supported.
+ * <p>
+ * Time stamps are instants: they are formatted back at UTC and don't keep the offsets of the JSON form.
+ */
+public final class PomodoroCbor {
+    public static final String MEDIA_TYPE_VALUE = "application/cbor";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final int UNSIGNED = 0, NEGATIVE = 1, BYTES = 2, TEXT = 3, ARRAY = 4, MAP = 5, TAG = 6, SIMPLE = 7;
+    private static final int EPOCH_TAG = 1, UUID_TAG = 37;
+    private static final int FLOAT64 = 27, NULL = 22;
+    private static final int ID = 1, NAME = 2, DURATION = 3, STARTED = 4, ENDED = 5, SEQUENCE = 6;
+    private static final int POMODOROS = 1, TOTAL = 2, PAGE = 3, SIZE = 4;
+
+    public static byte[] encode(PomodoroDto pomodoro) {
+        var out = new Output(64);
+        write(out, pomodoro);
+        return out.toByteArray();
+    }
+
+    public static byte[] encode(PomodoroPageDto page) {
+        var out = new Output(16 + page.getPomodoros().size() * 64);
+        out.head(MAP, 4);
+        out.head(UNSIGNED, POMODOROS).head(ARRAY, page.getPomodoros().size());
+        for (var pomodoro : page.getPomodoros()) write(out, pomodoro);
+        out.head(UNSIGNED, TOTAL).integer(page.getTotal());
+        out.head(UNSIGNED, PAGE).integer(page.getPage());
+        out.head(UNSIGNED, SIZE).integer(page.getSize());
+        return out.toByteArray();
+    }
+
+    /** @throws IllegalArgumentException if the bytes are not a CBOR pomodoro */
+    public static PomodoroDto decodePomodoro(byte[] bytes) {
+        var in = new Input(bytes);
+        var pomodoro = read(in);
+        in.end();
+        return pomodoro;
+    }
+
+    /** @throws IllegalArgumentException if the bytes are not a CBOR page of pomodoros */
+    public static PomodoroPageDto decodePage(byte[] bytes) {
+        var in = new Input(bytes);
+        var pomodoros = new ArrayList<PomodoroDto>();
+        long total = 0;
+        int page = 0, size = 0;
+        for (long i = 0, fields = in.length(MAP); i < fields; i++) {
+            switch ((int) in.integer()) {
+                case POMODOROS:
+                    for (long j = 0, length = in.length(ARRAY); j < length; j++) pomodoros.add(read(in));
+                    break;
+                case TOTAL: total = in.integer(); break;
+                case PAGE: page = (int) in.integer(); break;
+                case SIZE: size = (int) in.integer(); break;
+                default: in.skip();
+            }
+        }
+        in.end();
+        return PomodoroPageDto.of(pomodoros, total, page, size);
+    }
+
+    private static void write(Output out, PomodoroDto pomodoro) {
+        var duration = durationSeconds(pomodoro);
+        var fields = (pomodoro.getId() != null ? 1 : 0) + (pomodoro.getName() != null ? 1 : 0) + (duration != null ? 1 : 0)
+                + (isPresent(pomodoro.getStarted()) ? 1 : 0) + (isPresent(pomodoro.getEnded()) ? 1 : 0) + (pomodoro.getSequence() != null ? 1 : 0);
+        out.head(MAP, fields);
+        if (pomodoro.getId() != null) out.head(UNSIGNED, ID).head(TAG, UUID_TAG).uuid(pomodoro.getId());
+        if (pomodoro.getName() != null) out.head(UNSIGNED, NAME).text(pomodoro.getName());
+        if (duration != null) out.head(UNSIGNED, DURATION).integer(duration);
+        if (isPresent(pomodoro.getStarted())) out.head(UNSIGNED, STARTED).epoch(IsoDateTimeCodec.parse(pomodoro.getStarted()).toInstant());
+        if (isPresent(pomodoro.getEnded())) out.head(UNSIGNED, ENDED).epoch(IsoDateTimeCodec.parse(pomodoro.getEnded()).toInstant());
+        if (pomodoro.getSequence() != null) out.head(UNSIGNED, SEQUENCE).integer(pomodoro.getSequence());
+    }
+
+    private static PomodoroDto read(Input in) {
+        var pomodoro = new PomodoroDto();
+        for (long i = 0, fields = in.length(MAP); i < fields; i++) {
+            var key = (int) in.integer();
+            if (in.isNull()) continue;
+            switch (key) {
+                case ID: pomodoro.setId(in.uuid()); break;
+                case NAME: pomodoro.setName(in.text()); break;
+                case DURATION:
+                    var duration = in.integer();
+                    if (duration < 0 || duration > Integer.MAX_VALUE) throw new IllegalArgumentException("Invalid duration " + duration);
+                    pomodoro.setDurationHours((int) (duration / 3600)).setDurationMinutes((int) (duration % 3600 / 60)).setDurationSeconds((int) (duration % 60));
+                    break;
+                case STARTED: pomodoro.setStarted(IsoDateTimeCodec.format(OffsetDateTime.ofInstant(in.epoch(), ZoneOffset.UTC))); break;
+                case ENDED: pomodoro.setEnded(IsoDateTimeCodec.format(OffsetDateTime.ofInstant(in.epoch(), ZoneOffset.UTC))); break;
+                case SEQUENCE: pomodoro.setSequence(in.integer()); break;
+                default: in.skip();
+            }
+        }
+        return pomodoro;
+    }
+
+    private static Long durationSeconds(PomodoroDto pomodoro) {
+        if (pomodoro.getDurationHours() == null && pomodoro.getDurationMinutes() == null && pomodoro.getDurationSeconds() == null) return null;
+        return 3600L * valueOf(pomodoro.getDurationHours()) + 60L * valueOf(pomodoro.getDurationMinutes()) + valueOf(pomodoro.getDurationSeconds());
+    }
+
+    private static int valueOf(Integer part) { return part != null ? part : 0; }
+
+    private static boolean isPresent(String dateTime) { return dateTime != null && !dateTime.isBlank(); }
+
+    private static final class Output {
+        private byte[] bytes;
+        private int position;
+
+        Output(int capacity) { bytes = new byte[capacity]; }
+
+        Output head(int major, long value) {
+            ensure(9);
+            var type = major << 5;
+            if (value < 24) {
+                bytes[position++] = (byte) (type | value);
+            } else if (value <= 0xff) {
+                bytes[position++] = (byte) (type | 24);
+                bytes[position++] = (byte) value;
+            } else if (value <= 0xffff) {
+                bytes[position++] = (byte) (type | 25);
+                bigEndian(value, 2);
+            } else if (value <= 0xffffffffL) {
+                bytes[position++] = (byte) (type | 26);
+                bigEndian(value, 4);
+            } else {
+                bytes[position++] = (byte) (type | 27);
+                bigEndian(value, 8);
+            }
+            return this;
+        }
+
+        Output integer(long value) { return value >= 0 ? head(UNSIGNED, value) : head(NEGATIVE, -1 - value); }
+
+        Output text(String value) {
+            var utf8 = value.getBytes(UTF_8);
+            head(TEXT, utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, position, utf8.length);
+            position += utf8.length;
+            return this;
+        }
+
+        Output uuid(UUID id) {
+            head(BYTES, 16);
+            ensure(16);
+            bigEndian(id.getMostSignificantBits(), 8);
+            bigEndian(id.getLeastSignificantBits(), 8);
+            return this;
+        }
+
+        Output epoch(Instant instant) {
+            head(TAG, EPOCH_TAG);
+            if (instant.getNano() == 0) return integer(instant.getEpochSecond());
+            ensure(9);
+            bytes[position++] = (byte) (SIMPLE << 5 | FLOAT64);
+            bigEndian(Double.doubleToLongBits(instant.getEpochSecond() + instant.getNano() / 1e9), 8);
+            return this;
+        }
+
+        byte[] toByteArray() { return Arrays.copyOf(bytes, position); }
+
+        private void bigEndian(long value, int length) {
+            for (var shift = (length - 1) * 8; shift >= 0; shift -= 8) bytes[position++] = (byte) (value >>> shift);
+        }
+
+        private void ensure(int length) {
+            if (position + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+        }
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) { this.bytes = bytes; }
+
+        long length(int major) {
+            var initial = next();
+            if (initial >>> 5 != major) throw new IllegalArgumentException("Expected major type " + major + " at " + (position - 1));
+            return argument(initial);
+        }
+
+        long integer() {
+            var initial = next();
+            var value = argument(initial);
+            if (value < 0) throw new IllegalArgumentException("Integer out of range at " + position);
+            switch (initial >>> 5) {
+                case UNSIGNED: return value;
+                case NEGATIVE: return -1 - value;
+                default: throw new IllegalArgumentException("Expected an integer at " + (position - 1));
+            }
+        }
+
+        boolean isNull() {
+            if (position < bytes.length && (bytes[position] & 0xff) == (SIMPLE << 5 | NULL)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        String text() {
+            var length = (int) length(TEXT);
+            var value = new String(bytes, position, available(length), UTF_8);
+            position += length;
+            return value;
+        }
+
+        UUID uuid() {
+            if (peekMajor() == TAG && length(TAG) != UUID_TAG) throw new IllegalArgumentException("Expected a UUID at " + position);
+            if (length(BYTES) != 16) throw new IllegalArgumentException("Expected 16 bytes of UUID at " + position);
+            available(16);
+            return new UUID(bigEndian(8), bigEndian(8));
+        }
+
+        Instant epoch() {
+            if (peekMajor() == TAG && length(TAG) != EPOCH_TAG) throw new IllegalArgumentException("Expected epoch time at " + position);
+            if (peekMajor() != SIMPLE) return Instant.ofEpochSecond(integer());
+            if (next() != (SIMPLE << 5 | FLOAT64)) throw new IllegalArgumentException("Expected float64 epoch time at " + (position - 1));
+            available(8);
+            var seconds = Double.longBitsToDouble(bigEndian(8));
+            if (!Double.isFinite(seconds)) throw new IllegalArgumentException("Invalid epoch time " + seconds);
+            var whole = (long) Math.floor(seconds);
+            return Instant.ofEpochSecond(whole, Math.round((seconds - whole) * 1e6) * 1000);
+        }
+
+        /** Skips a whole item of any type */
+        void skip() {
+            var initial = next();
+            var major = initial >>> 5;
+            var argument = argument(initial);
+            switch (major) {
+                case BYTES: case TEXT: available((int) argument); position += (int) argument; break;
+                case ARRAY: for (long i = 0; i < argument; i++) skip(); break;
+                case MAP: for (long i = 0; i < argument * 2; i++) skip(); break;
+                case TAG: skip(); break;
+                default: break;  // the argument is the value, also of floats
+            }
+        }
+
+        void end() {
+            if (position != bytes.length) throw new IllegalArgumentException("Unexpected " + (bytes.length - position) + " bytes after the item");
+        }
+
+        private int peekMajor() {
+            available(1);
+            return (bytes[position] & 0xff) >>> 5;
+        }
+
+        private int next() {
+            available(1);
+            return bytes[position++] & 0xff;
+        }
+
+        private long argument(int initial) {
+            var additional = initial & 0x1f;
+            if (additional < 24) return additional;
+            switch (additional) {
+                case 24: available(1); return bigEndian(1);
+                case 25: available(2); return bigEndian(2);
+                case 26: available(4); return bigEndian(4);
+                case 27: available(8); return bigEndian(8);
+                default: throw new IllegalArgumentException("Unsupported argument " + additional + " at " + (position - 1));
+            }
+        }
+
+        private long bigEndian(int length) {
+            var value = 0L;
+            for (var i = 0; i < length; i++) value = value << 8 | bytes[position++] & 0xff;
+            return value;
+        }
+
+        private int available(int length) {
+            if (length < 0 || length > bytes.length - position) throw new IllegalArgumentException("Truncated item at " + position);
+            return length;
+        }
+    }
+
+    private PomodoroCbor() {}
+}
@@ -0,0 +1,34 @@
+package com.ksy.shortbreak.api;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+
+/** Reads and writes {@link PomodoroDto} and {@link PomodoroPageDto} as {@link PomodoroCbor} */
+public class PomodoroCborConverter extends AbstractHttpMessageConverter<Object> {
+    public PomodoroCborConverter() { super(PomodoroCbor.MEDIA_TYPE); }
+
+    @Override
+    protected boolean supports(Class<?> clazz) { return clazz == PomodoroDto.class || clazz == PomodoroPageDto.class; }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        var bytes = StreamUtils.copyToByteArray(inputMessage.getBody());
+        try {
+            return clazz == PomodoroDto.class ? PomodoroCbor.decodePomodoro(bytes) : PomodoroCbor.decodePage(bytes);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed CBOR: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, HttpOutputMessage outputMessage) throws IOException {
+        var bytes = object instanceof PomodoroDto ? PomodoroCbor.encode((PomodoroDto) object) : PomodoroCbor.encode((PomodoroPageDto) object);
+        outputMessage.getHeaders().setContentLength(bytes.length);
+        outputMessage.getBody().write(bytes);
+    }
+}
@@ -1,30 +1,85 @@
 package com.ksy.shortbreak.api;
 
+import com.ksy.shortbreak.persistent.analytics.Leaderboards;
+import com.ksy.shortbreak.persistent.search.NameIndex;
+import com.ksy.shortbreak.service.PomodoroActivity;
+import com.ksy.shortbreak.service.PomodoroBulk;
+import com.ksy.shortbreak.service.PomodoroEvent;
+import com.ksy.shortbreak.service.PomodoroEventResult;
+import com.ksy.shortbreak.service.PomodoroHeatmap;
+import com.ksy.shortbreak.service.PomodoroLeaderboards;
+import com.ksy.shortbreak.service.PomodoroSearch;
 import com.ksy.shortbreak.service.PomodoroService;
+import com.ksy.shortbreak.service.PomodoroStats;
+import com.ksy.shortbreak.service.Teams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.annotation.security.RolesAllowed;
 import javax.validation.Valid;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Supplier;
 
 import static java.util.stream.Collectors.toList;
 
 @RequestMapping("/pomodoro")
 public @Controller class PomodoroController {
     private static final Logger LOG = LoggerFactory.getLogger(PomodoroController.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_BULK_IDS = 1000;
+    private static final CacheControl HISTORY_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    private static final int MAX_STATS_BUCKETS = 1000;
+    private static final int MAX_LEADERBOARD_SIZE = 100;
+    private static final int MAX_ACTIVE_LISTED = 100;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
 
     private final PomodoroService service;
+    private final PomodoroStats stats;
+    private final PomodoroHeatmap heatmap;
+    private final PomodoroLeaderboards leaderboards;
+    private final PomodoroActivity activity;
+    private final Teams teams;
+    private final PomodoroSearch search;
+    private final PomodoroBulk bulk;
 
-    public @Autowired PomodoroController(PomodoroService service) {
+    public @Autowired PomodoroController(PomodoroService service, PomodoroStats stats, PomodoroHeatmap heatmap,
+                                         PomodoroLeaderboards leaderboards, PomodoroActivity activity, Teams teams,
+                                         PomodoroSearch search, PomodoroBulk bulk) {
         this.service = service;
+        this.stats = stats;
+        this.heatmap = heatmap;
+        this.leaderboards = leaderboards;
+        this.activity = activity;
+        this.teams = teams;
+        this.search = search;
+        this.bulk = bulk;
     }
 
     @RolesAllowed("USER")
@@ -37,6 +92,14 @@ public @Controller class PomodoroController {
         return "new_pomodoro";
     }
 
+    /** CBOR variant of {@link #newPomodoro} for native clients */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/new", produces = PomodoroCbor.MEDIA_TYPE_VALUE)
+    public @ResponseBody PomodoroDto newPomodoroCbor() {
+        LOG.debug("Registering new pomodoro");
+        return PomodoroDto.ofPomodoro(service.initialize());
+    }
+
     @RolesAllowed("USER")
     @PostMapping("/update")
     public void updatePomodoro(@Valid PomodoroDto dto, Model model) {
@@ -46,6 +109,16 @@ public @Controller class PomodoroController {
         LOG.debug("Pomodoro updated");
     }
 
+    /** CBOR variant of {@link #updatePomodoro} for native clients */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/update", consumes = PomodoroCbor.MEDIA_TYPE_VALUE)
+    public ResponseEntity<Void> updatePomodoroCbor(@Valid @RequestBody PomodoroDto dto) {
+        LOG.debug("Updating pomodoro = {}", dto);
+        service.update(dto.toPomodoro());
+        LOG.debug("Pomodoro updated");
+        return ResponseEntity.noContent().build();
+    }
+
     @RolesAllowed("USER")
     @GetMapping({"/all"})
     public String userPomodoros(@RequestParam int page, @RequestParam int size, Model model) {
@@ -67,5 +140,224 @@ public @Controller class PomodoroController {
         return "user_pomodoros";
     }
 
+    /**
+     * JSON or CBOR variant of {@link #userPomodoros}. Response carries strong ETag of the user history state,
+     * so revalidation of unchanged history is answered by 304 without querying the repository.
+     */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/history", produces = {MediaType.APPLICATION_JSON_VALUE, PomodoroCbor.MEDIA_TYPE_VALUE})
+    public @ResponseBody ResponseEntity<PomodoroPageDto> userPomodorosHistory(@RequestParam int page,
+                                                                              @RequestParam int size,
+                                                                              WebRequest request) {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        var user = authentication.getName();
+        var cbor = prefersCbor(request);
+        var eTag = '"' + service.historyTagOfUser(user) + '-' + page + '-' + size + (cbor ? "-cbor" : "") + '"';
+        if (request.checkNotModified(eTag)) {
+            LOG.debug("History of {} not modified since {}", user, eTag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(HISTORY_CACHE_CONTROL).varyBy(HttpHeaders.ACCEPT).build();
+        }
+
+        var pomodoros = service.pomodorosOfUser(user, page, size)
+                .stream()
+                .map(PomodoroDto::ofPomodoro)
+                .collect(toList());
+        var totalPomodoros = service.countPomodorosOfUser(user);
+
+        LOG.debug("Got {} pomodoros of {} with tag {}", pomodoros.size(), user, eTag);
+        return ResponseEntity.ok()
+                .contentType(cbor ? PomodoroCbor.MEDIA_TYPE : MediaType.APPLICATION_JSON_UTF8)
+                .eTag(eTag)
+                .cacheControl(HISTORY_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(PomodoroPageDto.of(pomodoros, totalPomodoros, page, size));
+    }
+
+    /**
+     * Applies ordered timer events queued by a client, e.g. while it was offline, in a single request.
+     * Every event gets its own result, so the whole batch is rejected only if it is malformed.
+     */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<List<PomodoroEventResult>> applyEvents(@RequestBody List<PomodoroEventDto> dtos) {
+        LOG.debug("Applying {} events", dtos.size());
+        if (dtos.size() > MAX_BATCH_SIZE) return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+
+        List<PomodoroEvent> events;
+        try {
+            events = dtos.stream().map(PomodoroEventDto::toEvent).collect(toList());
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Malformed batch: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(service.apply(events));
+    }
+
+    /**
+     * Renames every pomodoro of the user matching the filter of ids, ended time range and name, in bounded batches.
+     * Unknown ids are ignored, ids of pomodoros of another user reject the whole change, and archived pomodoros
+     * matching the filter reject it as a conflict.
+     * @return number of renamed pomodoros
+     */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/bulk/rename", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<Long> renamePomodoros(@RequestBody PomodoroBulkDto dto) {
+        LOG.debug("Renaming pomodoros by {}", dto);
+        return changeAll(dto, () -> bulk.rename(dto.toFilter(), dto.toName()));
+    }
+
+    /**
+     * Sets the duration of every pomodoro of the user matching the filter, like {@link #renamePomodoros}
+     * @return number of changed pomodoros
+     */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/bulk/retime", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<Long> retimePomodoros(@RequestBody PomodoroBulkDto dto) {
+        LOG.debug("Re-timing pomodoros by {}", dto);
+        return changeAll(dto, () -> bulk.retime(dto.toFilter(), dto.toDuration()));
+    }
+
+    /**
+     * Deletes every pomodoro of the user matching the filter, like {@link #renamePomodoros}, so a retry deletes
+     * only what is left
+     * @return number of deleted pomodoros
+     */
+    @RolesAllowed("USER")
+    @PostMapping(value = "/bulk/delete", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<Long> deletePomodoros(@RequestBody PomodoroBulkDto dto) {
+        LOG.debug("Deleting pomodoros by {}", dto);
+        return changeAll(dto, () -> bulk.delete(dto.toFilter()));
+    }
+
+    /**
+     * Focus statistics of the user for pomodoros ended from {@code from} inclusive to {@code to} exclusive,
+     * with focused time by consecutive periods of ISO-8601 {@code bucket} starting at {@code from}.
+     */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<PomodoroStatsDto> userStats(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+                                                                    @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+                                                                    @RequestParam(defaultValue = "P1D") String bucket) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        Duration bucketDuration;
+        try {
+            bucketDuration = Duration.parse(bucket);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (to.isBefore(from) || bucketDuration.toMillis() <= 0
+                || Duration.between(from, to).toMillis() / bucketDuration.toMillis() >= MAX_STATS_BUCKETS)
+            return ResponseEntity.badRequest().build();
+
+        var summary = stats.summaryOfUser(user, from, to);
+        LOG.debug("Stats of {} from {} to {}: {}", user, from, to, summary);
+        return ResponseEntity.ok(PomodoroStatsDto.of(summary, stats.focusedSecondsOfUser(user, from, to, bucketDuration)));
+    }
+
+    /** Numbers of completed pomodoros of the user by day of the year, with active days and streaks */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/heatmap", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<PomodoroHeatmapDto> userHeatmap(@RequestParam int year) {
+        if (year < Year.MIN_VALUE || year > Year.MAX_VALUE) return ResponseEntity.badRequest().build();
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        return ResponseEntity.ok(PomodoroHeatmapDto.of(heatmap.yearOfUser(user, year)));
+    }
+
+    /**
+     * Users with the most focused time in the current or a {@code previous} period, all of them or within a team of
+     * the user, and rank of the user there.
+     */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/leaderboard", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<LeaderboardDto> leaderboard(@RequestParam Leaderboards.Period period,
+                                                                    @RequestParam(defaultValue = "0") int previous,
+                                                                    @RequestParam(required = false) String team,
+                                                                    @RequestParam(defaultValue = "10") int limit) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (previous < 0 || limit < 1 || limit > MAX_LEADERBOARD_SIZE) return ResponseEntity.badRequest().build();
+        if (team != null && !teams.isMember(user, team)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+
+        return ResponseEntity.ok(LeaderboardDto.of(
+                leaderboards.top(team, period, previous, limit),
+                leaderboards.entryOf(user, team, period, previous)));
+    }
+
+    /** Pomodoros running now, of all users or within a team of the user, earlier started first */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/active", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<ActivePomodorosDto> activePomodoros(@RequestParam(required = false) String team,
+                                                                            @RequestParam(defaultValue = "50") int limit) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (limit < 1 || limit > MAX_ACTIVE_LISTED) return ResponseEntity.badRequest().build();
+        if (team != null && !teams.isMember(user, team)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+
+        return ResponseEntity.ok(ActivePomodorosDto.of(activity.count(team), activity.list(team, limit)));
+    }
+
+    /** Number of pomodoros running now, of all users or within a team of the user */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/active/count", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<Integer> activePomodorosCount(@RequestParam(required = false) String team) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (team != null && !teams.isMember(user, team)) return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        return ResponseEntity.ok(activity.count(team));
+    }
+
+    /**
+     * Pomodoros of the user having words starting with every word of the query in their names, recently ended or
+     * started first. The next page is requested by {@code after} of the previous one.
+     */
+    @RolesAllowed("USER")
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody ResponseEntity<PomodoroSearchDto> searchPomodoros(@RequestParam String q,
+                                                                           @RequestParam(required = false) String after,
+                                                                           @RequestParam(defaultValue = "20") int size) {
+        var user = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) return ResponseEntity.badRequest().build();
+        NameIndex.Hit cursor;
+        try {
+            cursor = after != null ? PomodoroSearchDto.cursorOf(after) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        var hits = search.search(user, q, cursor, size);
+        LOG.debug("Found {} pomodoros of {} by '{}'", hits.size(), user, q);
+        return ResponseEntity.ok(PomodoroSearchDto.of(hits, size));
+    }
+
+    @ExceptionHandler({OptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public void onConcurrentUpdate(DataAccessException e) {
+        LOG.debug("Concurrent update rejected: {}", e.getMessage());
+    }
+
+    private static ResponseEntity<Long> changeAll(PomodoroBulkDto dto, Supplier<Long> change) {
+        if (dto.getIds() != null && dto.getIds().size() > MAX_BULK_IDS) return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        try {
+            return ResponseEntity.ok(change.get());
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Malformed bulk change: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            LOG.debug("Rejected bulk change: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /** @return true if CBOR is accepted before JSON, the ETag of a page differs by the representation */
+    private static boolean prefersCbor(WebRequest request) {
+        var accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null) return false;
+        var types = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(types);
+        for (var type : types) {
+            if (type.isCompatibleWith(MediaType.APPLICATION_JSON)) return false;
+            if (type.isCompatibleWith(PomodoroCbor.MEDIA_TYPE)) return true;
+        }
+        return false;
+    }
+
     // todo: get pomidoro by ID
 }
@@ -4,7 +4,6 @@ import com.ksy.shortbreak.persistent.entity.Pomodoro;
 
 import javax.validation.constraints.NotNull;
 import java.time.Duration;
-import java.time.OffsetDateTime;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -18,6 +17,7 @@ public final class PomodoroDto {
     private Integer durationHours;
     private String started;
     private String ended;
+    private Long sequence;
 
     public PomodoroDto() {}
 
@@ -35,6 +35,8 @@ public final class PomodoroDto {
 
     public String getEnded() { return ended; }
 
+    public Long getSequence() { return sequence; }
+
     public PomodoroDto setId(UUID id) { this.id = id; return this; }
 
     public PomodoroDto setName(String name) { this.name = name; return this; }
@@ -49,25 +51,31 @@ public final class PomodoroDto {
 
     public PomodoroDto setEnded(String ended) { this.ended = ended; return this; }
 
-    public Pomodoro toPomodoro() {
+    public PomodoroDto setSequence(Long sequence) { this.sequence = sequence; return this; }
+
+    public Pomodoro toPomodoro() { return toPomodoro(null); }
+
+    /** @param user owner of the pomodoro, the authenticated user of the current thread if null */
+    public Pomodoro toPomodoro(String user) {
         var duration = calculateDuration();
         var timing = Pomodoro.Timing.of(
                 duration,
-                started == null || started.isBlank() ? null : OffsetDateTime.parse(started),
-                ended == null || ended.isBlank() ? null : OffsetDateTime.parse(ended));
-        return Pomodoro.builder().id(id).name(name).timing(timing).build();
+                started == null || started.isBlank() ? null : IsoDateTimeCodec.parse(started),
+                ended == null || ended.isBlank() ? null : IsoDateTimeCodec.parse(ended));
+        return Pomodoro.builder().id(id).user(user).name(name).timing(timing).clientSequence(sequence).build();
     }
 
     public static PomodoroDto ofPomodoro(Pomodoro pomodoro) {
         requireNonNull(pomodoro);
         var dto = new PomodoroDto()
                 .setId(pomodoro.getId())
-                .setName(pomodoro.getName());
+                .setName(pomodoro.getName())
+                .setSequence(pomodoro.getClientSequence());
         if (pomodoro.getTiming() != null) {
             var started = pomodoro.getTiming().getStarted();
             var ended = pomodoro.getTiming().getEnded();
-            dto.setStarted(started != null ? started.toString() : null)
-                    .setEnded(ended != null ? ended.toString() : null);
+            dto.setStarted(started != null ? IsoDateTimeCodec.format(started) : null)
+                    .setEnded(ended != null ? IsoDateTimeCodec.format(ended) : null);
 
             var duration = pomodoro.getTiming().getDuration();
             if (duration != null) {
@@ -90,11 +98,12 @@ public final class PomodoroDto {
                 Objects.equals(id, that.id) &&
                 Objects.equals(name, that.name) &&
                 Objects.equals(started, that.started) &&
-                Objects.equals(ended, that.ended);
+                Objects.equals(ended, that.ended) &&
+                Objects.equals(sequence, that.sequence);
     }
 
     @Override
-    public int hashCode() { return Objects.hash(id, name, durationSeconds, durationMinutes, durationHours, started, ended); }
+    public int hashCode() { return Objects.hash(id, name, durationSeconds, durationMinutes, durationHours, started, ended, sequence); }
 
     @Override
     public String toString() {
@@ -106,6 +115,7 @@ public final class PomodoroDto {
                 ", durationHours=" + durationHours +
                 ", started='" + started + '\'' +
                 ", ended='" + ended + '\'' +
+                ", sequence=" + sequence +
                 '}';
     }
 
@@ -0,0 +1,99 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.service.PomodoroEvent;
+
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+public final class PomodoroEventDto {
+    private PomodoroEvent.Type type;
+    private UUID id;
+    private String name;
+    private Integer durationSeconds;
+    private String at;
+    private Long sequence;
+
+    public PomodoroEventDto() {}
+
+    public PomodoroEvent.Type getType() { return type; }
+
+    public UUID getId() { return id; }
+
+    public String getName() { return name; }
+
+    public Integer getDurationSeconds() { return durationSeconds; }
+
+    public String getAt() { return at; }
+
+    public Long getSequence() { return sequence; }
+
+    public PomodoroEventDto setType(PomodoroEvent.Type type) { this.type = type; return this; }
+
+    public PomodoroEventDto setId(UUID id) { this.id = id; return this; }
+
+    public PomodoroEventDto setName(String name) { this.name = name; return this; }
+
+    public PomodoroEventDto setDurationSeconds(Integer durationSeconds) { this.durationSeconds = durationSeconds; return this; }
+
+    public PomodoroEventDto setAt(String at) { this.at = at; return this; }
+
+    public PomodoroEventDto setSequence(Long sequence) { this.sequence = sequence; return this; }
+
+    /** @throws IllegalArgumentException if fields required by the event type are missing or malformed */
+    public PomodoroEvent toEvent() {
+        if (type == null || id == null) throw new IllegalArgumentException("Type and ID of event are required: " + this);
+        switch (type) {
+            case CREATE:
+                return PomodoroEvent.create(id, name, durationSeconds == null ? null : Duration.ofSeconds(durationSeconds), sequence);
+            case RENAME:
+                if (name == null) throw new IllegalArgumentException("Name is required: " + this);
+                return PomodoroEvent.rename(id, name, sequence);
+            case START:
+                return PomodoroEvent.start(id, parseAt(), sequence);
+            case STOP:
+                return PomodoroEvent.stop(id, parseAt(), sequence);
+            default:
+                throw new IllegalArgumentException("Unexpected event type: " + this);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroEventDto)) return false;
+        var that = (PomodoroEventDto) o;
+        return type == that.type &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(durationSeconds, that.durationSeconds) &&
+                Objects.equals(at, that.at) &&
+                Objects.equals(sequence, that.sequence);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(type, id, name, durationSeconds, at, sequence); }
+
+    @Override
+    public String toString() {
+        return "PomodoroEventDto{" +
+                "type=" + type +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", durationSeconds=" + durationSeconds +
+                ", at='" + at + '\'' +
+                ", sequence=" + sequence +
+                '}';
+    }
+
+    private OffsetDateTime parseAt() {
+        if (at == null || at.isBlank()) throw new IllegalArgumentException("Time of event is required: " + this);
+        try {
+            return IsoDateTimeCodec.parse(at);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Malformed time of event: " + this, e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.analytics.PomodoroHeatmaps;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public final class PomodoroHeatmapDto {
+    private final int year;
+    private final int[] countsByDay;
+    private final long total;
+    private final int activeDays;
+    private final int longestStreak;
+    private final int currentStreak;
+
+    public static PomodoroHeatmapDto of(PomodoroHeatmaps.Heatmap heatmap) {
+        return new PomodoroHeatmapDto(heatmap.getYear(), heatmap.getCounts(), heatmap.getTotal(), heatmap.getActiveDays(),
+                heatmap.getLongestStreak(), heatmap.getCurrentStreak());
+    }
+
+    public int getYear() { return year; }
+
+    public int[] getCountsByDay() { return countsByDay; }
+
+    public long getTotal() { return total; }
+
+    public int getActiveDays() { return activeDays; }
+
+    public int getLongestStreak() { return longestStreak; }
+
+    public int getCurrentStreak() { return currentStreak; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroHeatmapDto)) return false;
+        var that = (PomodoroHeatmapDto) o;
+        return year == that.year &&
+                total == that.total &&
+                activeDays == that.activeDays &&
+                longestStreak == that.longestStreak &&
+                currentStreak == that.currentStreak &&
+                Arrays.equals(countsByDay, that.countsByDay);
+    }
+
+    @Override
+    public int hashCode() { return 31 * Objects.hash(year, total, activeDays, longestStreak, currentStreak) + Arrays.hashCode(countsByDay); }
+
+    @Override
+    public String toString() {
+        return "PomodoroHeatmapDto{year=" + year + ", total=" + total + ", activeDays=" + activeDays +
+                ", longestStreak=" + longestStreak + ", currentStreak=" + currentStreak + '}';
+    }
+
+    private PomodoroHeatmapDto(int year, int[] countsByDay, long total, int activeDays, int longestStreak, int currentStreak) {
+        this.year = year;
+        this.countsByDay = countsByDay;
+        this.total = total;
+        this.activeDays = activeDays;
+        this.longestStreak = longestStreak;
+        this.currentStreak = currentStreak;
+    }
+}
@@ -0,0 +1,49 @@
+package com.ksy.shortbreak.api;
+
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+public final class PomodoroPageDto {
+    private final List<PomodoroDto> pomodoros;
+    private final long total;
+    private final int page;
+    private final int size;
+
+    public static PomodoroPageDto of(List<PomodoroDto> pomodoros, long total, int page, int size) {
+        return new PomodoroPageDto(requireNonNull(pomodoros), total, page, size);
+    }
+
+    public List<PomodoroDto> getPomodoros() { return pomodoros; }
+
+    public long getTotal() { return total; }
+
+    public int getPage() { return page; }
+
+    public int getSize() { return size; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroPageDto)) return false;
+        var that = (PomodoroPageDto) o;
+        return total == that.total &&
+                page == that.page &&
+                size == that.size &&
+                Objects.equals(pomodoros, that.pomodoros);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(pomodoros, total, page, size); }
+
+    @Override
+    public String toString() { return "PomodoroPageDto{pomodoros=" + pomodoros + ", total=" + total + ", page=" + page + ", size=" + size + '}'; }
+
+    private PomodoroPageDto(List<PomodoroDto> pomodoros, long total, int page, int size) {
+        this.pomodoros = pomodoros;
+        this.total = total;
+        this.page = page;
+        this.size = size;
+    }
+}
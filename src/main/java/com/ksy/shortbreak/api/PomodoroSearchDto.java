@@ -0,0 +1,95 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.search.NameIndex;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+public final class PomodoroSearchDto {
+    private static final char CURSOR_SEPARATOR = '_';
+
+    private final List<HitDto> pomodoros;
+    private final String next;
+
+    /** @param limit of the page, there may be a next page only if the page is full */
+    public static PomodoroSearchDto of(List<NameIndex.Hit> hits, int limit) {
+        var last = hits.size() == limit ? hits.get(hits.size() - 1) : null;
+        return new PomodoroSearchDto(requireNonNull(hits).stream().map(HitDto::of).collect(toList()),
+                last != null ? last.getRecency() + "" + CURSOR_SEPARATOR + last.getId() : null);
+    }
+
+    /** @throws IllegalArgumentException if the cursor is not {@link #getNext()} of a page */
+    public static NameIndex.Hit cursorOf(String next) {
+        var separator = next.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) throw new IllegalArgumentException("Malformed cursor " + next);
+        return NameIndex.Hit.of(UUID.fromString(next.substring(separator + 1)), null, Long.parseLong(next.substring(0, separator)));
+    }
+
+    public List<HitDto> getPomodoros() { return pomodoros; }
+
+    /** @return cursor of the next page, null if there is none */
+    public String getNext() { return next; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroSearchDto)) return false;
+        var that = (PomodoroSearchDto) o;
+        return pomodoros.equals(that.pomodoros) && Objects.equals(next, that.next);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(pomodoros, next); }
+
+    @Override
+    public String toString() { return "PomodoroSearchDto{pomodoros=" + pomodoros + ", next='" + next + "'}"; }
+
+    private PomodoroSearchDto(List<HitDto> pomodoros, String next) {
+        this.pomodoros = pomodoros;
+        this.next = next;
+    }
+
+    public static final class HitDto {
+        private final String id;
+        private final String name;
+        private final String at;
+
+        static HitDto of(NameIndex.Hit hit) {
+            var at = hit.getRecency() != 0 ? IsoDateTimeCodec.format(Instant.ofEpochMilli(hit.getRecency()).atOffset(ZoneOffset.UTC)) : null;
+            return new HitDto(hit.getId().toString(), hit.getName(), at);
+        }
+
+        public String getId() { return id; }
+
+        public String getName() { return name; }
+
+        /** @return ended or started time, null if the pomodoro wasn't started */
+        public String getAt() { return at; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof HitDto)) return false;
+            var that = (HitDto) o;
+            return id.equals(that.id) && Objects.equals(name, that.name) && Objects.equals(at, that.at);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(id, name, at); }
+
+        @Override
+        public String toString() { return "HitDto{id='" + id + "', name='" + name + "', at='" + at + "'}"; }
+
+        private HitDto(String id, String name, String at) {
+            this.id = id;
+            this.name = name;
+            this.at = at;
+        }
+    }
+}
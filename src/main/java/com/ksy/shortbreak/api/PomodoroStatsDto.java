@@ -0,0 +1,55 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.analytics.FocusSummary;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+public final class PomodoroStatsDto {
+    private final long pomodoros;
+    private final long focusedSeconds;
+    private final long plannedSeconds;
+    private final long[] focusedSecondsByBucket;
+
+    public static PomodoroStatsDto of(FocusSummary summary, long[] focusedSecondsByBucket) {
+        return new PomodoroStatsDto(summary.getPomodoros(), summary.getFocusedSeconds(), summary.getPlannedSeconds(),
+                requireNonNull(focusedSecondsByBucket));
+    }
+
+    public long getPomodoros() { return pomodoros; }
+
+    public long getFocusedSeconds() { return focusedSeconds; }
+
+    public long getPlannedSeconds() { return plannedSeconds; }
+
+    public long[] getFocusedSecondsByBucket() { return focusedSecondsByBucket; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroStatsDto)) return false;
+        var that = (PomodoroStatsDto) o;
+        return pomodoros == that.pomodoros &&
+                focusedSeconds == that.focusedSeconds &&
+                plannedSeconds == that.plannedSeconds &&
+                Arrays.equals(focusedSecondsByBucket, that.focusedSecondsByBucket);
+    }
+
+    @Override
+    public int hashCode() { return 31 * Objects.hash(pomodoros, focusedSeconds, plannedSeconds) + Arrays.hashCode(focusedSecondsByBucket); }
+
+    @Override
+    public String toString() {
+        return "PomodoroStatsDto{pomodoros=" + pomodoros + ", focusedSeconds=" + focusedSeconds + ", plannedSeconds=" + plannedSeconds +
+                ", focusedSecondsByBucket=" + Arrays.toString(focusedSecondsByBucket) + '}';
+    }
+
+    private PomodoroStatsDto(long pomodoros, long focusedSeconds, long plannedSeconds, long[] focusedSecondsByBucket) {
+        this.pomodoros = pomodoros;
+        this.focusedSeconds = focusedSeconds;
+        this.plannedSeconds = plannedSeconds;
+        this.focusedSecondsByBucket = focusedSecondsByBucket;
+    }
+}
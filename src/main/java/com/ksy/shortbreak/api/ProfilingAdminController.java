@@ -0,0 +1,109 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.service.FlightRecordings;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.stream.Collectors.toList;
+
+/** Flight recordings of a live node, downloaded as streamed files to open in JDK Mission Control */
+@RequestMapping("/admin/profiling")
+public @Controller class ProfilingAdminController {
+    private static final Logger LOG = LoggerFactory.getLogger(ProfilingAdminController.class);
+    private static final MediaType JFR = MediaType.APPLICATION_OCTET_STREAM;
+
+    private final FlightRecordings recordings;
+
+    public @Autowired ProfilingAdminController(FlightRecordings recordings) {
+        this.recordings = recordings;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody Map<String, Object> recordings() {
+        var state = new LinkedHashMap<String, Object>();
+        state.put("available", FlightRecordings.isAvailable());
+        state.put("continuous", recordings.isContinuous());
+        state.put("recordings", recordings.recordings().stream().map(ProfilingAdminController::describe).collect(toList()));
+        state.put("files", recordings.files().stream().map(file -> file.getFileName().toString()).collect(toList()));
+        return state;
+    }
+
+    /** @param duration ISO-8601, the recording runs until stopped without it */
+    @PostMapping(value = "/start", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> start(@RequestParam(required = false) String settings,
+                                                     @RequestParam(required = false) String duration) {
+        if (!FlightRecordings.isAvailable()) return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).build();
+        return ResponseEntity.ok(describe(recordings.start(settings, duration != null ? Duration.parse(duration) : null)));
+    }
+
+    @PostMapping(value = "/{id}/stop", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> stop(@PathVariable long id) {
+        return recordings.stop(id)
+                .map(file -> ResponseEntity.ok(Map.<String, Object>of("file", file.getFileName().toString())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping(value = "/rotate", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> rotate() {
+        return recordings.rotate()
+                .map(file -> ResponseEntity.ok(Map.<String, Object>of("file", file.getFileName().toString())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /** Streams the file from disk, ranges are supported to resume a download */
+    @GetMapping("/files/{name:.+}")
+    public ResponseEntity<Resource> download(@PathVariable String name) {
+        return recordings.file(name)
+                .map(file -> ResponseEntity.ok()
+                        .contentType(JFR)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment").filename(name).build().toString())
+                        .body((Resource) new FileSystemResource(file)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /** On-demand recordings are kept until deleted, continuous ones are also deleted by rotation */
+    @DeleteMapping("/files/{name:.+}")
+    public ResponseEntity<Void> delete(@PathVariable String name) {
+        return recordings.delete(name) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler({IllegalArgumentException.class, DateTimeParseException.class})
+    public ResponseEntity<String> onInvalidRequest(RuntimeException e) {
+        LOG.debug("Invalid profiling request: {}", e.getMessage());
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private static Map<String, Object> describe(Recording recording) {
+        var description = new LinkedHashMap<String, Object>();
+        description.put("id", recording.getId());
+        description.put("name", recording.getName());
+        description.put("state", recording.getState());
+        description.put("started", recording.getStartTime());
+        description.put("duration", recording.getDuration());
+        description.put("file", recording.getDestination() != null ? recording.getDestination().getFileName().toString() : null);
+        return description;
+    }
+}
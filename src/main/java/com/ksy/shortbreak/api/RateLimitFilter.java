@@ -0,0 +1,56 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.service.limit.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests of a user to an endpoint beyond its rate limit by 429 with Retry-After in seconds, before they take
+ * a connection. Runs after authentication, requests without it are left to security.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final UrlPathHelper paths = new UrlPathHelper();
+    private final Map<String, RateLimiter> limiters;
+
+    /** @param limiters by Ant path patterns, the first matching one is applied */
+    public RateLimitFilter(Map<String, RateLimiter> limiters) { this.limiters = new LinkedHashMap<>(limiters); }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        var limiter = authentication != null && authentication.isAuthenticated() ? limiterOf(paths.getPathWithinApplication(request)) : null;
+        var wait = limiter != null ? limiter.acquire(authentication.getName(), System.nanoTime()) : 0;
+        if (wait == 0) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        var retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        LOG.debug("Rate limit of {} exceeded by {}, retry after {}s", request.getRequestURI(), authentication.getName(), retryAfter);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+    }
+
+    private RateLimiter limiterOf(String path) {
+        for (var limiter : limiters.entrySet()) if (matcher.match(limiter.getKey(), path)) return limiter.getValue();
+        return null;
+    }
+}
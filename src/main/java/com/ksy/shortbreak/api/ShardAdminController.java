@@ -0,0 +1,40 @@
+package com.ksy.shortbreak.api;
+
+import com.ksy.shortbreak.persistent.shard.ShardRebalancer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Map;
+
+@ConditionalOnProperty("shortbreak.sharding.enabled")
+@RequestMapping("/admin/shards")
+public @Controller class ShardAdminController {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardAdminController.class);
+
+    private final ShardRebalancer rebalancer;
+
+    public @Autowired ShardAdminController(ShardRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody Map<String, Long> pomodorosByShard() {
+        return rebalancer.pomodorosByShard();
+    }
+
+    @PostMapping(value = "/rebalance", produces = MediaType.APPLICATION_JSON_VALUE)
+    public @ResponseBody Map<String, Integer> rebalance() {
+        LOG.debug("Rebalancing shards");
+        var moved = rebalancer.rebalance();
+        LOG.debug("Moved pomodoros = {}", moved);
+        return moved;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.analytics.ActivePomodoros;
+import com.ksy.shortbreak.persistent.analytics.Leaderboards;
+import com.ksy.shortbreak.persistent.analytics.PomodoroColumns;
+import com.ksy.shortbreak.persistent.analytics.PomodoroHeatmaps;
+import com.ksy.shortbreak.service.PomodoroActivity;
+import com.ksy.shortbreak.service.PomodoroLeaderboards;
+import com.ksy.shortbreak.service.Teams;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@EnableConfigurationProperties(AnalyticsProperties.class)
+public @Configuration class Analytics {
+    @Bean
+    public PomodoroColumns pomodoroColumns(AnalyticsProperties properties) {
+        return new PomodoroColumns(properties.isOffHeap());
+    }
+
+    @Bean
+    public PomodoroHeatmaps pomodoroHeatmaps(AnalyticsProperties properties) {
+        return new PomodoroHeatmaps(properties.getZone());
+    }
+
+    @Bean
+    public Teams teams(AnalyticsProperties properties) {
+        return new Teams(properties.getTeams());
+    }
+
+    @Bean
+    public PomodoroLeaderboards pomodoroLeaderboards(AnalyticsProperties properties, Teams teams) {
+        var leaderboards = new Leaderboards(Clock.system(properties.getZone()), properties.getLeaderboardPeriods());
+        return new PomodoroLeaderboards(leaderboards, teams);
+    }
+
+    @Bean
+    public PomodoroActivity pomodoroActivity(Teams teams) {
+        return new PomodoroActivity(new ActivePomodoros(), teams, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,36 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+/** In-memory statistics of completed pomodoros, see {@link com.ksy.shortbreak.persistent.analytics}. */
+@ConfigurationProperties("shortbreak.analytics")
+public class AnalyticsProperties {
+    /** Whether columns are kept in direct buffers, limited by -XX:MaxDirectMemorySize instead of the heap */
+    private boolean offHeap;
+    /** Time zone splitting completed pomodoros by days of heatmaps */
+    private ZoneId zone = ZoneId.systemDefault();
+    /** Periods of every kind kept by leaderboards, including the current one */
+    private int leaderboardPeriods = 2;
+    /** Users of teams having their own leaderboards and lists of running pomodoros */
+    private Map<String, List<String>> teams = Map.of();
+
+    public boolean isOffHeap() { return offHeap; }
+
+    public void setOffHeap(boolean offHeap) { this.offHeap = offHeap; }
+
+    public ZoneId getZone() { return zone; }
+
+    public void setZone(ZoneId zone) { this.zone = zone; }
+
+    public int getLeaderboardPeriods() { return leaderboardPeriods; }
+
+    public void setLeaderboardPeriods(int leaderboardPeriods) { this.leaderboardPeriods = leaderboardPeriods; }
+
+    public Map<String, List<String>> getTeams() { return teams; }
+
+    public void setTeams(Map<String, List<String>> teams) { this.teams = teams; }
+}
@@ -0,0 +1,40 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.service.HistoryVersions;
+import com.ksy.shortbreak.service.PomodoroArchiver;
+import com.ksy.shortbreak.service.PomodoroIds;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+
+@EnableScheduling
+@EnableConfigurationProperties(ArchiveProperties.class)
+public @Configuration class Archive {
+    @Bean
+    public PomodoroArchive pomodoroArchive(ArchiveProperties properties) {
+        if (properties.getDirectory() == null) {
+            if (properties.isEnabled()) throw new IllegalStateException("shortbreak.archive.directory is required to archive");
+            return PomodoroArchive.empty();
+        }
+        return new PomodoroArchive(Paths.get(properties.getDirectory()));
+    }
+
+    @Bean
+    @ConditionalOnProperty("shortbreak.archive.enabled")
+    public PomodoroArchiver pomodoroArchiver(PomodoroRepo repository, PomodoroArchive archive,
+                                             HistoryVersions historyVersions, PomodoroIds ids, PlatformTransactionManager transactionManager,
+                                             ObjectProvider<Shards> shards, ArchiveProperties properties) {
+        return new PomodoroArchiver(repository, archive, historyVersions, ids, new TransactionTemplate(transactionManager),
+                shards.getIfAvailable(), properties.getOlderThan(), properties.getBatchSize());
+    }
+}
@@ -0,0 +1,36 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Cold tier of completed pomodoros, see {@link com.ksy.shortbreak.persistent.archive.PomodoroArchive}. */
+@ConfigurationProperties("shortbreak.archive")
+public class ArchiveProperties {
+    /** Whether completed pomodoros are moved to the archive, archived ones are read while directory is set */
+    private boolean enabled;
+    private String directory;
+    private Duration olderThan = Duration.ofDays(30);
+    private Duration interval = Duration.ofHours(1);
+    private int batchSize = 1000;
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public String getDirectory() { return directory; }
+
+    public void setDirectory(String directory) { this.directory = directory; }
+
+    public Duration getOlderThan() { return olderThan; }
+
+    public void setOlderThan(Duration olderThan) { this.olderThan = olderThan; }
+
+    public Duration getInterval() { return interval; }
+
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public int getBatchSize() { return batchSize; }
+
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
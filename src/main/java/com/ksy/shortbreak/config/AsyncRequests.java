@@ -0,0 +1,16 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.DatabaseExecutor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@EnableConfigurationProperties(AsyncRequestsProperties.class)
+public @Configuration class AsyncRequests {
+    @Bean
+    public DatabaseExecutor databaseExecutor(AsyncRequestsProperties properties,
+                                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        return new DatabaseExecutor(properties.getThreads() > 0 ? properties.getThreads() : poolSize, properties.getQueueCapacity());
+    }
+}
@@ -0,0 +1,20 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Executor of repository work of asynchronous requests, see {@link com.ksy.shortbreak.service.DatabaseExecutor}. */
+@ConfigurationProperties("shortbreak.async")
+public class AsyncRequestsProperties {
+    /** Threads taking connections, the maximum size of the primary pool if not set: more would only wait for one */
+    private int threads;
+    /** Requests waiting for a thread, further ones are rejected with 503 at once */
+    private int queueCapacity = 100;
+
+    public int getThreads() { return threads; }
+
+    public void setThreads(int threads) { this.threads = threads; }
+
+    public int getQueueCapacity() { return queueCapacity; }
+
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+}
@@ -0,0 +1,27 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.service.PomodoroBackups;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+
+/** Backups of the database, the log storage has snapshots of its own. */
+@EnableScheduling
+@ConditionalOnProperty(name = "shortbreak.storage.type", havingValue = "jpa", matchIfMissing = true)
+@EnableConfigurationProperties(BackupProperties.class)
+public @Configuration class Backup {
+    @Bean
+    public PomodoroBackups pomodoroBackups(DataSource dataSource, ObjectProvider<Shards> shards, BackupProperties properties) {
+        return new PomodoroBackups(dataSource, shards.getIfAvailable(), Paths.get(properties.getDirectory()),
+                properties.getCopyTo() != null ? Paths.get(properties.getCopyTo()) : null, properties.getKeep(),
+                (int) properties.getChunkSize().toBytes(), properties.isScheduled(),
+                properties.getRestoreFrom() != null ? Paths.get(properties.getRestoreFrom()) : null);
+    }
+}
@@ -0,0 +1,51 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** Online backups of the database, see {@link com.ksy.shortbreak.service.PomodoroBackups}. */
+@ConfigurationProperties("shortbreak.backup")
+public class BackupProperties {
+    /** Whether a backup is taken every interval, they are taken on demand at /admin/backups otherwise */
+    private boolean scheduled;
+    private String directory = "backups";
+    /** Directory every backup is also copied to, e.g. on another disk */
+    private String copyTo;
+    private Duration interval = Duration.ofHours(1);
+    /** Files kept in the directory, older ones are deleted */
+    private int keep = 24;
+    /** Rows deflated at once, also the JDBC batch of a restore */
+    private DataSize chunkSize = DataSize.ofMegabytes(1);
+    /** Backup file restored on start into an empty database */
+    private String restoreFrom;
+
+    public boolean isScheduled() { return scheduled; }
+
+    public void setScheduled(boolean scheduled) { this.scheduled = scheduled; }
+
+    public String getDirectory() { return directory; }
+
+    public void setDirectory(String directory) { this.directory = directory; }
+
+    public String getCopyTo() { return copyTo; }
+
+    public void setCopyTo(String copyTo) { this.copyTo = copyTo; }
+
+    public Duration getInterval() { return interval; }
+
+    public void setInterval(Duration interval) { this.interval = interval; }
+
+    public int getKeep() { return keep; }
+
+    public void setKeep(int keep) { this.keep = keep; }
+
+    public DataSize getChunkSize() { return chunkSize; }
+
+    public void setChunkSize(DataSize chunkSize) { this.chunkSize = chunkSize; }
+
+    public String getRestoreFrom() { return restoreFrom; }
+
+    public void setRestoreFrom(String restoreFrom) { this.restoreFrom = restoreFrom; }
+}
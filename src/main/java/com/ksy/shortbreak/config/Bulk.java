@@ -0,0 +1,26 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.service.HistoryVersions;
+import com.ksy.shortbreak.service.PomodoroBulk;
+import com.ksy.shortbreak.service.PomodoroIds;
+import com.ksy.shortbreak.service.PomodoroListeners;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@EnableConfigurationProperties(BulkProperties.class)
+public @Configuration class Bulk {
+    @Bean
+    public PomodoroBulk pomodoroBulk(PomodoroRepo repository, PomodoroArchive archive, ObjectProvider<Shards> shards,
+                                     HistoryVersions historyVersions, PomodoroListeners listeners, PomodoroIds ids,
+                                     PlatformTransactionManager transactionManager, BulkProperties properties) {
+        return new PomodoroBulk(repository, archive, shards.getIfAvailable(), historyVersions, listeners, ids,
+                new TransactionTemplate(transactionManager), properties.getBatchSize());
+    }
+}
@@ -0,0 +1,14 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Bulk changes of pomodoros, see {@link com.ksy.shortbreak.service.PomodoroBulk}. */
+@ConfigurationProperties("shortbreak.bulk")
+public class BulkProperties {
+    /** Pomodoros locked and changed by a transaction */
+    private int batchSize = 500;
+
+    public int getBatchSize() { return batchSize; }
+
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+}
@@ -0,0 +1,88 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.persistent.trace.QueryTracer;
+import com.ksy.shortbreak.service.HistoryVersions;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+/**
+ * Primary pool is configured by the usual {@code spring.datasource.*} properties. When
+ * {@code shortbreak.datasource.read.url} is set, {@code @Transactional(readOnly = true)} paths read from that replica,
+ * except for users who wrote after the last heartbeat the replica has got: they read their own writes from the
+ * primary, as do all reads while the replica is more than {@code shortbreak.datasource.read.max-lag} behind or its
+ * lag is unknown, see {@link ReplicaLag}. Writes are only known to the node which committed them, so with several
+ * nodes behind a balancer, reading own writes requires sticky sessions routing every user to the same node. With
+ * sharding enabled, pools of shards are used instead, see {@link Sharding}.
+ * <p>
+ * Pools are not exposed as beans: Spring Boot initializes every {@link DataSource} bean through the primary one,
+ * which would be a circular reference here. Pools are traced by the {@link QueryTracer} if there is one, under the
+ * routing, so connection waits are the ones of the pools.
+ */
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public @Configuration class DataSources {
+    private HikariDataSource primaryPool;
+    private HikariDataSource replicaPool;
+    private ReplicaLag replicaLag;
+
+    @Bean(destroyMethod = "")
+    public DataSource dataSource(DataSourceProperties properties, ReadReplicaProperties replica,
+                                 ObjectProvider<Shards> shards, ObjectProvider<QueryTracer> tracer,
+                                 HistoryVersions historyVersions, Environment environment) {
+        var shardsPools = shards.getIfAvailable();
+        if (shardsPools != null) {
+            if (replica.isEnabled()) throw new IllegalStateException("Read replica is not supported with sharding");
+            return shardsPools.routingDataSource();
+        }
+
+        primaryPool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primaryPool));
+        var primary = traced(primaryPool, tracer.getIfAvailable());
+        if (!replica.isEnabled()) return primary;
+
+        replicaPool = replicaPool(replica);
+        replicaLag = new ReplicaLag(primaryPool, replicaPool, historyVersions, replica.getMaxLag());
+        replicaLag.start(replica.getHeartbeatEvery());
+        var routing = new ReadWriteRoutingDataSource(primary, traced(replicaPool, tracer.getIfAvailable()), () -> {
+            var authentication = SecurityContextHolder.getContext().getAuthentication();
+            return replicaLag.allows(authentication != null ? authentication.getName() : null);
+        });
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @PreDestroy
+    public void closePools() {
+        if (replicaLag != null) replicaLag.close();
+        if (replicaPool != null) replicaPool.close();
+        if (primaryPool != null) primaryPool.close();
+    }
+
+    private static DataSource traced(DataSource pool, QueryTracer tracer) {
+        return tracer != null ? tracer.trace(pool) : pool;
+    }
+
+    private static HikariDataSource replicaPool(ReadReplicaProperties replica) {
+        var dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        if (replica.getDriverClassName() != null) dataSource.setDriverClassName(replica.getDriverClassName());
+        dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        dataSource.setReadOnly(true);
+        dataSource.setInitializationFailTimeout(-1);  // replica being down must not prevent start, reads fall back
+        return dataSource;
+    }
+}
@@ -0,0 +1,31 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.PomodoroListeners;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@EnableConfigurationProperties(EventsProperties.class)
+public @Configuration class Events {
+    @Bean
+    public MeterBinder pomodoroEventMetrics(PomodoroListeners listeners) {
+        return registry -> {
+            for (var listener : listeners.names()) {
+                Gauge.builder("pomodoro.events.lag", listeners, it -> it.lagOf(listener))
+                        .description("Published changes of pomodoros the listener hasn't processed yet")
+                        .tag("listener", listener)
+                        .register(registry);
+            }
+            FunctionCounter.builder("pomodoro.events.published", listeners, PomodoroListeners::published).register(registry);
+            FunctionCounter.builder("pomodoro.events.dropped", listeners, PomodoroListeners::dropped)
+                    .description("Changes of pomodoros not passed to listeners as the slowest of them was too far behind")
+                    .register(registry);
+            FunctionCounter.builder("pomodoro.events.resynced", listeners, PomodoroListeners::resynced)
+                    .description("Users whose stored pomodoros were passed to listeners again after a dropped change")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.bus.WaitStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Delivery of committed changes of pomodoros to listeners, see {@link com.ksy.shortbreak.service.PomodoroListeners}. */
+@ConfigurationProperties("shortbreak.events")
+public class EventsProperties {
+    /** Changes not yet processed by the slowest listener, rounded up to a power of two */
+    private int capacity = 65536;
+    /** How idle listeners wait for changes, from the lowest latency to the lowest CPU usage */
+    private WaitStrategy waitStrategy = WaitStrategy.SLEEPING;
+    /**
+     * How long a write waits for the slowest listener to free room in the ring before its change is dropped, zero
+     * for never, so listeners don't add latency to writes
+     */
+    private Duration publishTimeout = Duration.ZERO;
+
+    public int getCapacity() { return capacity; }
+
+    public void setCapacity(int capacity) { this.capacity = capacity; }
+
+    public WaitStrategy getWaitStrategy() { return waitStrategy; }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) { this.waitStrategy = waitStrategy; }
+
+    public Duration getPublishTimeout() { return publishTimeout; }
+
+    public void setPublishTimeout(Duration publishTimeout) { this.publishTimeout = publishTimeout; }
+}
@@ -0,0 +1,92 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.filter.CountingBloomFilter;
+import com.ksy.shortbreak.persistent.log.LogPomodoroRepo;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.service.PomodoroIds;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ids are added by a Hibernate listener of inserts, so pomodoros saved by the repository directly are known too. The
+ * log storage isn't filtered: its inserts aren't seen by Hibernate, and its lookups are in memory anyway.
+ */
+@EnableConfigurationProperties(IdFilterProperties.class)
+public @Configuration class IdFilter {
+    private static final Logger LOG = LoggerFactory.getLogger(IdFilter.class);
+
+    @Bean
+    public PomodoroIds pomodoroIds(PomodoroRepo repository, ObjectProvider<Shards> shards,
+                                   PlatformTransactionManager transactionManager, IdFilterProperties properties) {
+        var readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        CountingBloomFilter filter = null;
+        if (properties.isEnabled() && !(repository instanceof LogPomodoroRepo)) {
+            filter = CountingBloomFilter.of(properties.getExpectedIds(), properties.getFalsePositiveRate(), properties.getMaxMemory().toBytes());
+            LOG.info("Id filter {} for {} ids", filter, properties.getExpectedIds());
+        }
+        return new PomodoroIds(repository, shards.getIfAvailable(), readTransaction, filter);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer pomodoroIdsOfInserts(ObjectProvider<PomodoroIds> ids) {
+        Integrator integrator = new Integrator() {
+            @Override
+            public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry registry) {
+                registry.getService(EventListenerRegistry.class).appendListeners(EventType.POST_INSERT, new PostInsertEventListener() {
+                    @Override
+                    public void onPostInsert(PostInsertEvent event) {
+                        if (event.getEntity() instanceof Pomodoro) ids.getObject().added(((Pomodoro) event.getEntity()).getId());
+                    }
+
+                    /** Still abstract in Hibernate 5.3, {@code requiresPostCommitHandling} delegates to it */
+                    @Override
+                    @SuppressWarnings("deprecation")
+                    public boolean requiresPostCommitHanding(EntityPersister persister) { return false; }
+                });
+            }
+
+            @Override
+            public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry registry) {}
+        };
+        return Integrators.adding(integrator);
+    }
+
+    @Bean
+    public MeterBinder pomodoroIdFilterMetrics(PomodoroIds ids) {
+        return registry -> {
+            if (!ids.isEnabled()) return;
+            Gauge.builder("pomodoro.ids.filter.size", ids, PomodoroIds::size).register(registry);
+            Gauge.builder("pomodoro.ids.filter.memory", ids, PomodoroIds::memoryBytes).baseUnit("bytes").register(registry);
+            Gauge.builder("pomodoro.ids.filter.false.positive.rate", ids, PomodoroIds::falsePositiveRate)
+                    .description("Estimated share of unknown ids looked up in the repository anyway")
+                    .register(registry);
+            FunctionCounter.builder("pomodoro.ids.filter.rejected", ids, PomodoroIds::rejected)
+                    .description("Updates rejected without a lookup as their ids are definitely unknown")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/** Filter of existing pomodoro ids rejecting updates of unknown ones, see {@link com.ksy.shortbreak.service.PomodoroIds}. */
+@ConfigurationProperties("shortbreak.id-filter")
+public class IdFilterProperties {
+    private boolean enabled = true;
+    /** Pomodoros in the repository the false positive rate is kept for, it grows beyond */
+    private long expectedIds = 1_000_000;
+    /** Share of unknown ids looked up in the repository anyway */
+    private double falsePositiveRate = 0.01;
+    /** Limit of the filter, the false positive rate is higher if it needs more */
+    private DataSize maxMemory = DataSize.ofMegabytes(16);
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public long getExpectedIds() { return expectedIds; }
+
+    public void setExpectedIds(long expectedIds) { this.expectedIds = expectedIds; }
+
+    public double getFalsePositiveRate() { return falsePositiveRate; }
+
+    public void setFalsePositiveRate(double falsePositiveRate) { this.falsePositiveRate = falsePositiveRate; }
+
+    public DataSize getMaxMemory() { return maxMemory; }
+
+    public void setMaxMemory(DataSize maxMemory) { this.maxMemory = maxMemory; }
+}
@@ -2,6 +2,9 @@ package com.ksy.shortbreak.config;
 
 import com.ksy.shortbreak.persistent.entity.Pomodoro;
 import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.ShardContext;
+import com.ksy.shortbreak.service.PomodoroBackups;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,20 +18,30 @@ import static java.util.UUID.randomUUID;
 
 public @Configuration class InitialData {
     private final PomodoroRepo pomodoroRepository;
+    private final ObjectProvider<PomodoroBackups> backups;
 
-    public @Autowired InitialData(PomodoroRepo pomodoroRepository) {
+    public @Autowired InitialData(PomodoroRepo pomodoroRepository, ObjectProvider<PomodoroBackups> backups) {
         this.pomodoroRepository = pomodoroRepository;
+        this.backups = backups;
     }
 
     @Transactional
     private @PostConstruct void createData() {
+        if (pomodoroRepository.count() > 0) return;  // kept by a persistent storage
+        var backups = this.backups.getIfAvailable();
+        if (backups != null && backups.restoreOnStart()) return;
+
         IntStream.range(0, 56)
                 .mapToObj(i -> pomodoroOfUser("ksy", i))
-                .forEach(pomodoroRepository::save);
+                .forEach(this::save);
 
         IntStream.range(0, 31)
                 .mapToObj(i -> pomodoroOfUser("bob", i))
-                .forEach(pomodoroRepository::save);
+                .forEach(this::save);
+    }
+
+    private Pomodoro save(Pomodoro pomodoro) {
+        return ShardContext.callAsUser(pomodoro.getUser(), () -> pomodoroRepository.save(pomodoro));
     }
 
     private Pomodoro pomodoroOfUser(String user, int id) {
@@ -0,0 +1,26 @@
+package com.ksy.shortbreak.config;
+
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Hibernate takes a single {@link IntegratorProvider}, so customizers adding integrators extend the one set before */
+final class Integrators {
+    private static final String PROVIDER = "hibernate.integrator_provider";
+
+    static HibernatePropertiesCustomizer adding(Integrator integrator) {
+        return properties -> {
+            var previous = (IntegratorProvider) properties.get(PROVIDER);
+            properties.put(PROVIDER, (IntegratorProvider) () -> {
+                var integrators = new ArrayList<Integrator>(previous != null ? previous.getIntegrators() : List.of());
+                integrators.add(integrator);
+                return integrators;
+            });
+        };
+    }
+
+    private Integrators() {}
+}
@@ -0,0 +1,28 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.log.LogPomodoroRepo;
+import com.ksy.shortbreak.persistent.log.PomodoroLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Paths;
+
+/**
+ * With {@code shortbreak.storage.type=log} pomodoros are stored in an append-only log instead of the database,
+ * the JPA repository stays in the context but isn't used.
+ */
+@ConditionalOnProperty(name = "shortbreak.storage.type", havingValue = "log")
+@EnableConfigurationProperties(LogStorageProperties.class)
+public @Configuration class LogStorage {
+    @Bean
+    @Primary
+    public LogPomodoroRepo logPomodoroRepo(LogStorageProperties properties) {
+        if (properties.getDirectory() == null) throw new IllegalStateException("shortbreak.storage.log.directory is required");
+        var log = new PomodoroLog(Paths.get(properties.getDirectory()), (int) properties.getSegmentSize().toBytes(),
+                properties.getFsync(), properties.getFsyncInterval());
+        return new LogPomodoroRepo(log, properties.getSnapshotEvery());
+    }
+}
@@ -0,0 +1,38 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.log.FsyncPolicy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/** Log storage of pomodoros, see {@link com.ksy.shortbreak.persistent.log.LogPomodoroRepo}. */
+@ConfigurationProperties("shortbreak.storage.log")
+public class LogStorageProperties {
+    private String directory;
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+    private FsyncPolicy fsync = FsyncPolicy.ALWAYS;
+    private Duration fsyncInterval = Duration.ofMillis(100);
+    /** Number of changes after which a snapshot is taken */
+    private long snapshotEvery = 100_000;
+
+    public String getDirectory() { return directory; }
+
+    public void setDirectory(String directory) { this.directory = directory; }
+
+    public DataSize getSegmentSize() { return segmentSize; }
+
+    public void setSegmentSize(DataSize segmentSize) { this.segmentSize = segmentSize; }
+
+    public FsyncPolicy getFsync() { return fsync; }
+
+    public void setFsync(FsyncPolicy fsync) { this.fsync = fsync; }
+
+    public Duration getFsyncInterval() { return fsyncInterval; }
+
+    public void setFsyncInterval(Duration fsyncInterval) { this.fsyncInterval = fsyncInterval; }
+
+    public long getSnapshotEvery() { return snapshotEvery; }
+
+    public void setSnapshotEvery(long snapshotEvery) { this.snapshotEvery = snapshotEvery; }
+}
@@ -0,0 +1,28 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.FlightRecordings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.nio.file.Paths;
+
+@EnableScheduling
+@EnableConfigurationProperties(ProfilingProperties.class)
+public @Configuration class Profiling {
+    private static final Logger LOG = LoggerFactory.getLogger(Profiling.class);
+
+    @Bean
+    public FlightRecordings flightRecordings(ProfilingProperties properties) {
+        var recordings = new FlightRecordings(Paths.get(properties.getDirectory()), properties.getSettings(),
+                properties.getMaxSize().toBytes(), properties.getKeep());
+        if (properties.isContinuous()) {
+            if (FlightRecordings.isAvailable()) recordings.startContinuous();
+            else LOG.warn("Flight recorder is not available, continuous recording isn't started");
+        }
+        return recordings;
+    }
+}
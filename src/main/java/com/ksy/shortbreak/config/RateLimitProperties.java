@@ -0,0 +1,49 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Per user limits of requests to endpoints, see {@link com.ksy.shortbreak.service.limit.RateLimiter}. */
+@ConfigurationProperties("shortbreak.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    /** Users tracked by an endpoint, refilled buckets are evicted beyond it and then further users are not limited */
+    private int maxUsers = 100_000;
+    /** The first endpoint matching a request is applied, requests to other ones are not limited */
+    private List<Endpoint> endpoints = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getMaxUsers() { return maxUsers; }
+
+    public void setMaxUsers(int maxUsers) { this.maxUsers = maxUsers; }
+
+    public List<Endpoint> getEndpoints() { return endpoints; }
+
+    public void setEndpoints(List<Endpoint> endpoints) { this.endpoints = endpoints; }
+
+    public static class Endpoint {
+        /** Ant pattern of the path */
+        private String path;
+        /** Sustained rate of requests of a user */
+        private double permitsPerSecond = 1;
+        /** Requests of a user admitted at once after a pause */
+        private int burst = 10;
+
+        public String getPath() { return path; }
+
+        public void setPath(String path) { this.path = path; }
+
+        public double getPermitsPerSecond() { return permitsPerSecond; }
+
+        public void setPermitsPerSecond(double permitsPerSecond) { this.permitsPerSecond = permitsPerSecond; }
+
+        public int getBurst() { return burst; }
+
+        public void setBurst(int burst) { this.burst = burst; }
+    }
+}
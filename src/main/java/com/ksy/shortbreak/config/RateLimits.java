@@ -0,0 +1,52 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.api.RateLimitFilter;
+import com.ksy.shortbreak.service.limit.RateLimiter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@EnableConfigurationProperties(RateLimitProperties.class)
+@ConditionalOnProperty(name = "shortbreak.rate-limit.enabled", matchIfMissing = true)
+public @Configuration class RateLimits {
+    private final Map<String, RateLimiter> limiters = new LinkedHashMap<>();
+
+    public @Autowired RateLimits(RateLimitProperties properties) {
+        for (var endpoint : properties.getEndpoints())
+            limiters.put(endpoint.getPath(), new RateLimiter(endpoint.getPermitsPerSecond(), endpoint.getBurst(), properties.getMaxUsers()));
+    }
+
+    /** Right after security, which sets the user */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter() {
+        var registration = new FilterRegistrationBean<>(new RateLimitFilter(limiters));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER + 1);
+        return registration;
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics() {
+        return registry -> limiters.forEach((endpoint, limiter) -> {
+            FunctionCounter.builder("http.rate.limit.admitted", limiter, RateLimiter::admitted).tag("endpoint", endpoint).register(registry);
+            FunctionCounter.builder("http.rate.limit.rejected", limiter, RateLimiter::rejected)
+                    .description("Requests answered by 429 as the user exceeded the rate limit of the endpoint")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            FunctionCounter.builder("http.rate.limit.untracked", limiter, RateLimiter::untracked)
+                    .description("Requests admitted without limiting as too many users are tracked")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            Gauge.builder("http.rate.limit.users", limiter, RateLimiter::keys).tag("endpoint", endpoint).register(registry);
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Read-only replica used by {@code @Transactional(readOnly = true)} paths, disabled while URL is not set. */
+@ConfigurationProperties("shortbreak.datasource.read")
+public class ReadReplicaProperties {
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+    private int maximumPoolSize = 10;
+    /** Reads go to the primary while the last heartbeat the replica has got is older, or there is none. */
+    private Duration maxLag = Duration.ofSeconds(5);
+    /** How often replication is checked by a heartbeat written to the primary and read from the replica */
+    private Duration heartbeatEvery = Duration.ofSeconds(1);
+
+    public boolean isEnabled() { return url != null && !url.isBlank(); }
+
+    public String getUrl() { return url; }
+
+    public void setUrl(String url) { this.url = url; }
+
+    public String getUsername() { return username; }
+
+    public void setUsername(String username) { this.username = username; }
+
+    public String getPassword() { return password; }
+
+    public void setPassword(String password) { this.password = password; }
+
+    public String getDriverClassName() { return driverClassName; }
+
+    public void setDriverClassName(String driverClassName) { this.driverClassName = driverClassName; }
+
+    public int getMaximumPoolSize() { return maximumPoolSize; }
+
+    public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+
+    public Duration getMaxLag() { return maxLag; }
+
+    public void setMaxLag(Duration maxLag) { this.maxLag = maxLag; }
+
+    public Duration getHeartbeatEvery() { return heartbeatEvery; }
+
+    public void setHeartbeatEvery(Duration heartbeatEvery) { this.heartbeatEvery = heartbeatEvery; }
+}
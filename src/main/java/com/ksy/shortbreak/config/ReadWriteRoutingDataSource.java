@@ -0,0 +1,59 @@
+package com.ksy.shortbreak.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Routes connections of read-only transactions to the replica and everything else to the primary.
+ * <p>
+ * Must be wrapped into {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: transaction
+ * managers take a connection before the read-only flag of the transaction is exposed, the proxy defers it until
+ * the first statement. Reads fall back to the primary when {@code replicaAllowed} says the replica may be stale
+ * for the current caller, or when the replica does not give a connection.
+ */
+final class ReadWriteRoutingDataSource extends AbstractDataSource {
+    private static final Logger LOG = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final BooleanSupplier replicaAllowed;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, BooleanSupplier replicaAllowed) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaAllowed = replicaAllowed;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!readsFromReplica()) return primary.getConnection();
+        try {
+            return replica.getConnection();
+        } catch (SQLException e) {
+            LOG.warn("Replica is unavailable, reading from primary: {}", e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!readsFromReplica()) return primary.getConnection(username, password);
+        try {
+            return replica.getConnection(username, password);
+        } catch (SQLException e) {
+            LOG.warn("Replica is unavailable, reading from primary: {}", e.getMessage());
+            return primary.getConnection(username, password);
+        }
+    }
+
+    private boolean readsFromReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaAllowed.getAsBoolean();
+    }
+}
@@ -0,0 +1,101 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.HistoryVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replication progress measured by a heartbeat: every interval the node reads its row of {@code replica_heartbeat}
+ * from the replica and then writes the current {@link System#nanoTime()} to it on the primary. A write committed
+ * before a heartbeat was written is replicated before it, so once the replica shows the heartbeat, writes of a user
+ * made before it can be read there.
+ * <p>
+ * The replica is allowed for a user who hasn't written since the replicated heartbeat, and only while that heartbeat
+ * is at most {@code maxLag} old. A replica without a heartbeat yet, one failing to answer or one further behind is
+ * not trusted, so its reads go to the primary.
+ * <p>
+ * Writes of a user are tracked by {@link HistoryVersions} of this node only: a user served by several nodes may read
+ * from the replica on one node before a write made through another one is replicated, unless sessions are sticky.
+ */
+final class ReplicaLag implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaLag.class);
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final HistoryVersions historyVersions;
+    private final Duration maxLag;
+    private final String node = UUID.randomUUID().toString();
+    private final ScheduledExecutorService heartbeats;
+    private boolean created;
+    private volatile boolean replicated;
+    private volatile long replicatedNanos;
+
+    ReplicaLag(DataSource primary, DataSource replica, HistoryVersions historyVersions, Duration maxLag) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.historyVersions = historyVersions;
+        this.maxLag = maxLag;
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "replica-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Starts beating, the first heartbeat creates the table on the primary if needed */
+    void start(Duration interval) {
+        heartbeats.scheduleWithFixedDelay(this::beat, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /** @param user null for reads of no user, which only need the replica to be within the max lag */
+    boolean allows(String user) {
+        if (!replicated) return false;
+        var replicatedNanos = this.replicatedNanos;
+        if (System.nanoTime() - replicatedNanos > maxLag.toNanos()) return false;
+        return user == null || !historyVersions.changedSince(user, replicatedNanos);
+    }
+
+    /** Reads the heartbeat the replica has got, then writes the next one to the primary */
+    void beat() {
+        try {
+            List<Long> beats = replica.queryForList("select beat from replica_heartbeat where node = ?", Long.class, node);
+            if (!beats.isEmpty()) {
+                replicatedNanos = beats.get(0);
+                replicated = true;
+            }
+        } catch (DataAccessException e) {
+            LOG.debug("Replica heartbeat is unavailable: {}", e.getMessage());
+        }
+        try {
+            if (!created) {
+                primary.execute("create table if not exists replica_heartbeat (node varchar(36) primary key, beat bigint not null)");
+                created = true;
+            }
+            var beat = System.nanoTime();
+            if (primary.update("update replica_heartbeat set beat = ? where node = ?", beat, node) == 0)
+                primary.update("insert into replica_heartbeat (node, beat) values (?, ?)", node, beat);
+        } catch (DataAccessException e) {
+            LOG.warn("Unable to write replica heartbeat: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        try {
+            primary.update("delete from replica_heartbeat where node = ?", node);
+        } catch (DataAccessException e) {
+            LOG.debug("Unable to delete replica heartbeat: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.PomodoroSearch;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@EnableConfigurationProperties(SearchProperties.class)
+public @Configuration class Search {
+    @Bean
+    public PomodoroSearch pomodoroSearch(SearchProperties properties) {
+        return new PomodoroSearch(properties.getFile() != null ? Paths.get(properties.getFile()) : null);
+    }
+}
@@ -0,0 +1,14 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Search of pomodoros by name, see {@link com.ksy.shortbreak.persistent.search.NameIndex}. */
+@ConfigurationProperties("shortbreak.search")
+public class SearchProperties {
+    /** File the index is loaded from on start and written to after replay and on shutdown, in memory only if not set */
+    private String file;
+
+    public String getFile() { return file; }
+
+    public void setFile(String file) { this.file = file; }
+}
@@ -11,6 +11,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 @EnableWebSecurity
 public @Configuration class Security extends WebSecurityConfigurerAdapter {
     private static final String USER_ROLE_VALUE = "USER";
+    private static final String ADMIN_ROLE_VALUE = "ADMIN";
     public static final GrantedAuthority USER_ROLE = new SimpleGrantedAuthority("ROLE_" + USER_ROLE_VALUE);
 
     @Override
@@ -20,13 +21,15 @@ public @Configuration class Security extends WebSecurityConfigurerAdapter {
                 .and()
                 .withUser("bob").password("{noop}123").roles(USER_ROLE_VALUE)
                 .and()
-                .withUser("admin").password("{noop}admin").roles(USER_ROLE_VALUE, "ADMIN");
+                .withUser("admin").password("{noop}admin").roles(USER_ROLE_VALUE, ADMIN_ROLE_VALUE);
     }
 
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
                 .authorizeRequests()
+                .antMatchers("/admin/**").hasRole(ADMIN_ROLE_VALUE)
+                .antMatchers("/actuator/**").hasRole(ADMIN_ROLE_VALUE)
                 .anyRequest()
                 .authenticated()
                 .and()
@@ -0,0 +1,44 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.shard.ShardSchemaIntegrator;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.persistent.trace.QueryTracer;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+
+/**
+ * With {@code shortbreak.sharding.enabled} pomodoros are stored in {@code shortbreak.sharding.shards} instead of
+ * {@code spring.datasource}, every user in the shard picked by hash of the user name.
+ */
+@ConditionalOnProperty("shortbreak.sharding.enabled")
+@EnableConfigurationProperties(ShardingProperties.class)
+public @Configuration class Sharding {
+    @Bean
+    public Shards shards(ShardingProperties properties, ObjectProvider<QueryTracer> tracer) {
+        var tracing = tracer.getIfAvailable();
+        var dataSources = new LinkedHashMap<String, DataSource>();
+        for (var shard : properties.getShards()) {
+            var dataSource = new HikariDataSource();
+            dataSource.setPoolName(shard.getName());
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            dataSources.put(shard.getName(), tracing != null ? tracing.trace(dataSource) : dataSource);
+        }
+        return new Shards(dataSources, properties.getVirtualNodes());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(Shards shards) {
+        return Integrators.adding(new ShardSchemaIntegrator(shards));
+    }
+}
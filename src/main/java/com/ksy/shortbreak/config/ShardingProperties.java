@@ -0,0 +1,55 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Databases the pomodoros are distributed over by users, see {@link com.ksy.shortbreak.persistent.shard.ShardRing}. */
+@ConfigurationProperties("shortbreak.sharding")
+public class ShardingProperties {
+    private boolean enabled;
+    private int virtualNodes = 128;
+    private List<Shard> shards = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getVirtualNodes() { return virtualNodes; }
+
+    public void setVirtualNodes(int virtualNodes) { this.virtualNodes = virtualNodes; }
+
+    public List<Shard> getShards() { return shards; }
+
+    public void setShards(List<Shard> shards) { this.shards = shards; }
+
+    public static class Shard {
+        /** Identifies the shard on the ring, renaming a shard moves its users */
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+
+        public String getName() { return name; }
+
+        public void setName(String name) { this.name = name; }
+
+        public String getUrl() { return url; }
+
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+
+        public void setPassword(String password) { this.password = password; }
+
+        public int getMaximumPoolSize() { return maximumPoolSize; }
+
+        public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+    }
+}
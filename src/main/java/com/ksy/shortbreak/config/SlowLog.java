@@ -0,0 +1,26 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.persistent.trace.QueryTracer;
+import com.ksy.shortbreak.service.TransactionSpans;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Pools are traced where they are created, see {@link DataSources} and {@link Sharding}. The tracer is a meter binder
+ * without dependencies, so pools don't wait for the registry and its binders, some of which need the repository.
+ */
+@ConditionalOnProperty(name = "shortbreak.slow-log.enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SlowLogProperties.class)
+public @Configuration class SlowLog {
+    @Bean
+    public QueryTracer queryTracer(SlowLogProperties properties) {
+        return new QueryTracer(properties.getStatementThreshold(), properties.getTransactionThreshold(), properties.getMaxSqlLength());
+    }
+
+    @Bean
+    public TransactionSpans transactionSpans(QueryTracer tracer) {
+        return new TransactionSpans(tracer);
+    }
+}
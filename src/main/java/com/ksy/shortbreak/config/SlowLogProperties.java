@@ -0,0 +1,31 @@
+package com.ksy.shortbreak.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/** Histograms and log of slow statements and transactions, see {@link com.ksy.shortbreak.persistent.trace.QueryTracer}. */
+@ConfigurationProperties("shortbreak.slow-log")
+public class SlowLogProperties {
+    private boolean enabled = true;
+    private Duration statementThreshold = Duration.ofMillis(100);
+    private Duration transactionThreshold = Duration.ofMillis(300);
+    /** Longer statements are cut in the log */
+    private int maxSqlLength = 1000;
+
+    public boolean isEnabled() { return enabled; }
+
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public Duration getStatementThreshold() { return statementThreshold; }
+
+    public void setStatementThreshold(Duration statementThreshold) { this.statementThreshold = statementThreshold; }
+
+    public Duration getTransactionThreshold() { return transactionThreshold; }
+
+    public void setTransactionThreshold(Duration transactionThreshold) { this.transactionThreshold = transactionThreshold; }
+
+    public int getMaxSqlLength() { return maxSqlLength; }
+
+    public void setMaxSqlLength(int maxSqlLength) { this.maxSqlLength = maxSqlLength; }
+}
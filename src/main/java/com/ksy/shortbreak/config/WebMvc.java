@@ -1,17 +1,147 @@
 package com.ksy.shortbreak.config;
 
+import com.ksy.shortbreak.api.PomodoroCborConverter;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.ResourceUrlEncodingFilter;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+
+/**
+ * Static resources are served through a versioned resource chain: {@code <c:url>} in JSPs is rewritten by
+ * {@link ResourceUrlEncodingFilter} to content-hash URLs, which are cached by browsers as immutable for a year.
+ * Gzip and brotli variants are precompressed at build time (see {@code precompressStaticResources} task).
+ * <p>
+ * Pomodoros and history pages are also written as CBOR to clients accepting {@code application/cbor}.
+ */
 public @Configuration class WebMvc implements WebMvcConfigurer {
+    private static final Pattern CONTENT_VERSIONED_PATH = Pattern.compile(".*-[0-9a-f]{32}\\.[^/.]+$");
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            CacheControl.maxAge(365, DAYS).cachePublic().getHeaderValue() + ", immutable";
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry
                 .addResourceHandler("/webjars/**")
-                .addResourceLocations("/webjars/");
+                .addResourceLocations("/webjars/", "classpath:/META-INF/resources/webjars/")
+                .resourceChain(true)
+                .addResolver(new ImmutableResourceResolver())
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
 
         registry.addResourceHandler("/resources/**")
-                .addResourceLocations("classpath:/static/");
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(true)
+                .addResolver(new ImmutableResourceResolver())
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new PomodoroCborConverter());
+    }
+
+    @Bean
+    public ResourceUrlEncodingFilter resourceUrlEncodingFilter() { return new ResourceUrlEncodingFilter(); }
+
+    /**
+     * Only content-hash URLs can be cached forever, plain ones are left for revalidation by Last-Modified. The header
+     * is set once the resource is resolved with the hash stripped from its name, i.e. the hash matched the content,
+     * so a 404 or a stale hash is never cached. Spring 5.1 {@link CacheControl} has no {@code immutable} directive,
+     * so the header is passed as a header of the resource, which {@code ResourceHttpRequestHandler} sets last.
+     */
+    private static final class ImmutableResourceResolver extends AbstractResourceResolver {
+        @Override
+        protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                                   List<? extends Resource> locations, ResourceResolverChain chain) {
+            var resource = chain.resolveResource(request, requestPath, locations);
+            if (resource == null || !CONTENT_VERSIONED_PATH.matcher(requestPath).matches()
+                    || requestPath.endsWith('/' + resource.getFilename())) return resource;
+            return new ImmutableResource(resource);
+        }
+
+        @Override
+        protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                                ResourceResolverChain chain) {
+            return chain.resolveUrlPath(resourceUrlPath, locations);
+        }
+    }
+
+    private static final class ImmutableResource extends AbstractResource implements HttpResource {
+        private final Resource original;
+
+        ImmutableResource(Resource original) { this.original = original; }
+
+        @Override
+        public boolean exists() { return original.exists(); }
+
+        @Override
+        public boolean isReadable() { return original.isReadable(); }
+
+        @Override
+        public boolean isOpen() { return original.isOpen(); }
+
+        @Override
+        public boolean isFile() { return original.isFile(); }
+
+        @Override
+        public URL getURL() throws IOException { return original.getURL(); }
+
+        @Override
+        public URI getURI() throws IOException { return original.getURI(); }
+
+        @Override
+        public File getFile() throws IOException { return original.getFile(); }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException { return original.readableChannel(); }
+
+        @Override
+        public long contentLength() throws IOException { return original.contentLength(); }
+
+        @Override
+        public long lastModified() throws IOException { return original.lastModified(); }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException { return original.createRelative(relativePath); }
+
+        @Override
+        public String getFilename() { return original.getFilename(); }
+
+        @Override
+        public String getDescription() { return original.getDescription(); }
+
+        @Override
+        public InputStream getInputStream() throws IOException { return original.getInputStream(); }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            var headers = original instanceof HttpResource ? ((HttpResource) original).getResponseHeaders() : new HttpHeaders();
+            headers.set(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL);
+            return headers;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Running pomodoros by id and by user.
+ * <p>
+ * A pomodoro is running from its start until it is stopped or its planned end, started time plus duration, whichever
+ * comes first: a pomodoro of a client gone without stopping it expires by itself. Expired pomodoros are never returned
+ * and are evicted on reads in the order of their planned ends, so eviction takes only the expired ones. All the
+ * structures are concurrent, so reads don't block writes and each other.
+ */
+public class ActivePomodoros {
+    private static final Comparator<Active> BY_STARTED = Comparator.comparing(Active::getStarted).thenComparing(Active::getId);
+    private static final Comparator<Active> BY_ENDS = Comparator.comparing(Active::getEnds).thenComparing(Active::getId);
+
+    private final ConcurrentMap<UUID, Active> byId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<UUID>> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Active> byEnds = new ConcurrentSkipListSet<>(BY_ENDS);
+
+    /** Registers the running pomodoro, or replaces its state if it is already registered */
+    public void start(String user, UUID id, OffsetDateTime started, OffsetDateTime ends) {
+        var active = new Active(requireNonNull(user), requireNonNull(id), started.toInstant(), ends.toInstant());
+        var replaced = byId.put(id, active);
+        if (replaced != null) unlink(replaced);
+        byEnds.add(active);
+        byUser.compute(user, (ignored, ids) -> {
+            if (ids == null) ids = ConcurrentHashMap.newKeySet();
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    public void stop(UUID id) {
+        var stopped = byId.remove(requireNonNull(id));
+        if (stopped != null) unlink(stopped);
+    }
+
+    public int count(Instant now) {
+        evictEndedBefore(now);
+        return byId.size();
+    }
+
+    public int countOf(Collection<String> users, Instant now) {
+        evictEndedBefore(now);
+        var count = 0;
+        for (var user : users) {
+            var ids = byUser.get(user);
+            if (ids != null) count += ids.size();
+        }
+        return count;
+    }
+
+    /** @return at most {@code limit} running pomodoros of all users, earlier started first */
+    public List<Active> list(Instant now, int limit) {
+        evictEndedBefore(now);
+        return earliestStarted(byId.values(), now, limit);
+    }
+
+    /** @return at most {@code limit} running pomodoros of the users, earlier started first */
+    public List<Active> listOf(Collection<String> users, Instant now, int limit) {
+        evictEndedBefore(now);
+        var active = new ArrayList<Active>();
+        for (var user : users) {
+            var ids = byUser.get(user);
+            if (ids == null) continue;
+            for (var id : ids) {
+                var pomodoro = byId.get(id);
+                if (pomodoro != null) active.add(pomodoro);
+            }
+        }
+        return earliestStarted(active, now, limit);
+    }
+
+    /** Stops all running pomodoros of the user */
+    public void removeUser(String user) {
+        var ids = byUser.get(requireNonNull(user));
+        if (ids != null) for (var id : ids) stop(id);
+    }
+
+    public void clear() {
+        byId.clear();
+        byUser.clear();
+        byEnds.clear();
+    }
+
+    private void evictEndedBefore(Instant now) {
+        for (var active : byEnds) {
+            if (active.ends.isAfter(now)) return;
+            byEnds.remove(active);
+            if (byId.remove(active.id, active)) unlinkUser(active);
+        }
+    }
+
+    private void unlink(Active active) {
+        byEnds.remove(active);
+        unlinkUser(active);
+    }
+
+    private void unlinkUser(Active active) {
+        byUser.computeIfPresent(active.user, (ignored, ids) -> {
+            if (!byId.containsKey(active.id)) ids.remove(active.id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static List<Active> earliestStarted(Collection<Active> active, Instant now, int limit) {
+        return active.stream()
+                .filter(pomodoro -> pomodoro.ends.isAfter(now))
+                .sorted(BY_STARTED)
+                .limit(limit)
+                .collect(toList());
+    }
+
+    public static final class Active {
+        private final String user;
+        private final UUID id;
+        private final Instant started;
+        private final Instant ends;
+
+        public String getUser() { return user; }
+
+        public UUID getId() { return id; }
+
+        public Instant getStarted() { return started; }
+
+        /** @return planned end, the pomodoro is not running since then */
+        public Instant getEnds() { return ends; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Active)) return false;
+            var that = (Active) o;
+            return user.equals(that.user) && id.equals(that.id) && started.equals(that.started) && ends.equals(that.ends);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(user, id, started, ends); }
+
+        @Override
+        public String toString() { return "Active{user='" + user + "', id=" + id + ", started=" + started + ", ends=" + ends + '}'; }
+
+        private Active(String user, UUID id, Instant started, Instant ends) {
+            this.user = user;
+            this.id = id;
+            this.started = started;
+            this.ends = ends;
+        }
+    }
+}
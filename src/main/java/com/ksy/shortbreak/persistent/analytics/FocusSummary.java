@@ -0,0 +1,41 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.util.Objects;
+
+public final class FocusSummary {
+    private final long pomodoros;
+    private final long focusedSeconds;
+    private final long plannedSeconds;
+
+    public static FocusSummary of(long pomodoros, long focusedSeconds, long plannedSeconds) {
+        return new FocusSummary(pomodoros, focusedSeconds, plannedSeconds);
+    }
+
+    public long getPomodoros() { return pomodoros; }
+
+    public long getFocusedSeconds() { return focusedSeconds; }
+
+    public long getPlannedSeconds() { return plannedSeconds; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FocusSummary)) return false;
+        var that = (FocusSummary) o;
+        return pomodoros == that.pomodoros &&
+                focusedSeconds == that.focusedSeconds &&
+                plannedSeconds == that.plannedSeconds;
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(pomodoros, focusedSeconds, plannedSeconds); }
+
+    @Override
+    public String toString() { return "FocusSummary{pomodoros=" + pomodoros + ", focusedSeconds=" + focusedSeconds + ", plannedSeconds=" + plannedSeconds + '}'; }
+
+    private FocusSummary(long pomodoros, long focusedSeconds, long plannedSeconds) {
+        this.pomodoros = pomodoros;
+        this.focusedSeconds = focusedSeconds;
+        this.plannedSeconds = plannedSeconds;
+    }
+}
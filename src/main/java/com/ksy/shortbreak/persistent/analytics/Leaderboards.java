@@ -0,0 +1,196 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Focused time of users by periods, globally and within teams, ranked as it is added.
+ * <p>
+ * Only the current and {@code retainedPeriods - 1} previous periods of every kind are kept, older time is ignored,
+ * so boards of a period are created as it starts and dropped once it gets old. Users with the same time are ranked
+ * by name.
+ */
+public class Leaderboards {
+    public enum Period {
+        DAY, WEEK, MONTH;
+
+        public LocalDate startOf(LocalDate day) {
+            switch (this) {
+                case DAY: return day;
+                case WEEK: return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH: return day.withDayOfMonth(1);
+                default: throw new IllegalStateException("Unexpected period " + this);
+            }
+        }
+
+        LocalDate minus(LocalDate start, int periods) {
+            switch (this) {
+                case DAY: return start.minusDays(periods);
+                case WEEK: return start.minusWeeks(periods);
+                case MONTH: return start.minusMonths(periods);
+                default: throw new IllegalStateException("Unexpected period " + this);
+            }
+        }
+    }
+
+    private final Clock clock;
+    private final int retainedPeriods;
+    private final ConcurrentMap<Board, RankedScores> boards = new ConcurrentHashMap<>();
+
+    /** @param clock time zone of the clock splits time by days */
+    public Leaderboards(Clock clock, int retainedPeriods) {
+        if (retainedPeriods < 1) throw new IllegalArgumentException("At least the current period should be retained");
+        this.clock = requireNonNull(clock);
+        this.retainedPeriods = retainedPeriods;
+    }
+
+    /**
+     * Adds focused time, negative to take it back, of the user to the global board and the boards of the teams.
+     * @param ended time the focused time is counted at
+     */
+    public void add(String user, Collection<String> teams, OffsetDateTime ended, long seconds) {
+        requireNonNull(user);
+        var day = ended.atZoneSameInstant(clock.getZone()).toLocalDate();
+        var today = LocalDate.now(clock);
+        for (var period : Period.values()) {
+            var start = period.startOf(day);
+            if (start.isBefore(oldestRetained(period, today))) continue;
+            add(new Board(null, period, start), user, seconds, today);
+            for (var team : teams) add(new Board(requireNonNull(team), period, start), user, seconds, today);
+        }
+    }
+
+    /**
+     * @param team null for the global board
+     * @param previous number of periods before the current one
+     * @return entries from the 1-based rank {@code from}, at most {@code limit}
+     */
+    public List<Entry> top(String team, Period period, int previous, int from, int limit) {
+        var scores = boards.get(board(team, period, previous));
+        if (scores == null) return List.of();
+        synchronized (scores) {
+            var range = scores.range(from, limit);
+            var rank = from;
+            var entries = new ArrayList<Entry>(range.size());
+            for (var score : range) entries.add(Entry.of(rank++, score.getKey(), score.getValue()));
+            return entries;
+        }
+    }
+
+    /** @return rank and time of the user in the period, null if the user has no time there */
+    public Entry entryOf(String team, Period period, int previous, String user) {
+        var scores = boards.get(board(team, period, previous));
+        if (scores == null) return null;
+        synchronized (scores) {
+            var rank = scores.rankOf(requireNonNull(user));
+            return rank > 0 ? Entry.of(rank, user, scores.scoreOf(user)) : null;
+        }
+    }
+
+    /** Takes back all focused time of the user from every board */
+    public void removeUser(String user) {
+        requireNonNull(user);
+        for (var scores : boards.values()) {
+            synchronized (scores) {
+                scores.add(user, -scores.scoreOf(user));
+            }
+        }
+    }
+
+    public void clear() { boards.clear(); }
+
+    private void add(Board board, String user, long seconds, LocalDate today) {
+        var scores = boards.get(board);
+        if (scores == null) {
+            if (seconds <= 0) return;
+            scores = boards.computeIfAbsent(board, ignored -> new RankedScores());
+            evictOlderThan(today);
+        }
+        synchronized (scores) {
+            scores.add(user, seconds);
+        }
+    }
+
+    private Board board(String team, Period period, int previous) {
+        return new Board(team, period, period.minus(period.startOf(LocalDate.now(clock)), previous));
+    }
+
+    private void evictOlderThan(LocalDate today) {
+        boards.keySet().removeIf(board -> board.start.isBefore(oldestRetained(board.period, today)));
+    }
+
+    private LocalDate oldestRetained(Period period, LocalDate today) {
+        return period.minus(period.startOf(today), retainedPeriods - 1);
+    }
+
+    public static final class Entry {
+        private final int rank;
+        private final String user;
+        private final long focusedSeconds;
+
+        public static Entry of(int rank, String user, long focusedSeconds) { return new Entry(rank, requireNonNull(user), focusedSeconds); }
+
+        public int getRank() { return rank; }
+
+        public String getUser() { return user; }
+
+        public long getFocusedSeconds() { return focusedSeconds; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Entry)) return false;
+            var that = (Entry) o;
+            return rank == that.rank && focusedSeconds == that.focusedSeconds && user.equals(that.user);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(rank, user, focusedSeconds); }
+
+        @Override
+        public String toString() { return "Entry{rank=" + rank + ", user='" + user + "', focusedSeconds=" + focusedSeconds + '}'; }
+
+        private Entry(int rank, String user, long focusedSeconds) {
+            this.rank = rank;
+            this.user = user;
+            this.focusedSeconds = focusedSeconds;
+        }
+    }
+
+    private static final class Board {
+        final String team;
+        final Period period;
+        final LocalDate start;
+
+        Board(String team, Period period, LocalDate start) {
+            this.team = team;
+            this.period = period;
+            this.start = start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Board)) return false;
+            var that = (Board) o;
+            return Objects.equals(team, that.team) && period == that.period && start.equals(that.start);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(team, period, start); }
+
+        @Override
+        public String toString() { return (team != null ? team : "global") + '/' + period + '/' + start; }
+    }
+}
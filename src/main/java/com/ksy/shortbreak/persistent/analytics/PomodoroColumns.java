@@ -0,0 +1,336 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * In-memory columns of completed pomodoros for aggregations over long periods and many users.
+ * <p>
+ * Every user has its own partition of primitive columns sorted by ended time: ended epoch millis, focused and planned
+ * seconds and the two halves of the id, {@value #ROW_BYTES} bytes per row, so a million pomodoros take 32 MB plus up
+ * to a half of that of not yet used capacity. A time range of a partition is found by binary search and aggregated
+ * by plain counted loops over arrays, which the JIT unrolls and vectorizes. Off-heap columns are kept in direct
+ * buffers to not grow the heap scanned by GC, at the cost of bounds checked access.
+ * <p>
+ * Ended times of ids are kept on the heap in an open addressing table of primitive arrays, 38 to 75 bytes per row, so
+ * a replaced or removed row is found by binary search instead of a scan. Rows put in ended order, as on replay, are
+ * appended without moving others.
+ */
+public class PomodoroColumns {
+    static final int ROW_BYTES = Long.BYTES * 3 + Integer.BYTES * 2;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean offHeap;
+    private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    public PomodoroColumns(boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Adds a completed pomodoro or replaces the row of the same id.
+     * @param focusedSeconds time between started and ended
+     * @param plannedSeconds duration the pomodoro was started for
+     */
+    public void put(String user, UUID id, long endedMillis, int focusedSeconds, int plannedSeconds) {
+        partitions.computeIfAbsent(requireNonNull(user), ignored -> new Partition(offHeap))
+                .put(id.getMostSignificantBits(), id.getLeastSignificantBits(), endedMillis, focusedSeconds, plannedSeconds);
+    }
+
+    /** Removes the row of a deleted pomodoro, if any */
+    public void remove(String user, UUID id) {
+        var partition = partitions.get(requireNonNull(user));
+        if (partition != null) partition.remove(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    }
+
+    /** Removes all rows of the user */
+    public void removeUser(String user) { partitions.remove(requireNonNull(user)); }
+
+    /** @return totals of pomodoros of the user ended from {@code fromMillis} inclusive to {@code toMillis} exclusive */
+    public FocusSummary summarize(String user, long fromMillis, long toMillis) {
+        var partition = partitions.get(requireNonNull(user));
+        var totals = new long[3];
+        if (partition != null) partition.summarize(fromMillis, toMillis, totals);
+        return FocusSummary.of(totals[0], totals[1], totals[2]);
+    }
+
+    /** @return totals of pomodoros of all users ended from {@code fromMillis} inclusive to {@code toMillis} exclusive */
+    public FocusSummary summarize(long fromMillis, long toMillis) {
+        var totals = new long[3];
+        for (var partition : partitions.values()) partition.summarize(fromMillis, toMillis, totals);
+        return FocusSummary.of(totals[0], totals[1], totals[2]);
+    }
+
+    /** @return focused seconds of the user by consecutive buckets of {@code bucketMillis} starting at {@code fromMillis} */
+    public long[] focusedByBucket(String user, long fromMillis, long toMillis, long bucketMillis) {
+        if (bucketMillis <= 0 || toMillis < fromMillis) throw new IllegalArgumentException("Invalid buckets of " + bucketMillis + " ms from " + fromMillis + " to " + toMillis);
+        var buckets = (toMillis - fromMillis + bucketMillis - 1) / bucketMillis;
+        if (buckets > Integer.MAX_VALUE) throw new IllegalArgumentException("Too many buckets: " + buckets);
+        var focused = new long[(int) buckets];
+        var partition = partitions.get(requireNonNull(user));
+        if (partition != null) partition.focusedByBucket(fromMillis, toMillis, bucketMillis, focused);
+        return focused;
+    }
+
+    public long rows() {
+        var rows = 0L;
+        for (var partition : partitions.values()) rows += partition.size();
+        return rows;
+    }
+
+    /** @return bytes allocated by the columns and their id tables, including not yet used capacity */
+    public long memoryBytes() {
+        var bytes = 0L;
+        for (var partition : partitions.values()) bytes += partition.memoryBytes();
+        return bytes;
+    }
+
+    public void clear() { partitions.clear(); }
+
+    /** Columns of one user, rows are ordered by ended time, the same time in the order of insertion. */
+    private static final class Partition {
+        private final boolean offHeap;
+        private LongBuffer ended;
+        private LongBuffer idHigh;
+        private LongBuffer idLow;
+        private IntBuffer focused;
+        private IntBuffer planned;
+        private final RowIds ids = new RowIds();
+        private int size;
+
+        Partition(boolean offHeap) {
+            this.offHeap = offHeap;
+            allocate(INITIAL_CAPACITY);
+        }
+
+        synchronized int size() { return size; }
+
+        synchronized long memoryBytes() { return (long) ended.capacity() * ROW_BYTES + ids.memoryBytes(); }
+
+        synchronized void put(long high, long low, long endedMillis, int focusedSeconds, int plannedSeconds) {
+            var existing = indexOf(high, low);
+            ids.put(high, low, endedMillis);
+            int row;
+            if (existing >= 0) {
+                // only rows between the previous and the new place move
+                row = upperBound(endedMillis);
+                if (row > existing) {
+                    row--;
+                    for (var i = existing; i < row; i++) move(i + 1, i);
+                } else {
+                    for (var i = existing; i > row; i--) move(i - 1, i);
+                }
+            } else {
+                if (size == ended.capacity()) grow();
+                row = upperBound(endedMillis);
+                for (var i = size; i > row; i--) move(i - 1, i);
+                size++;
+            }
+            ended.put(row, endedMillis);
+            idHigh.put(row, high);
+            idLow.put(row, low);
+            focused.put(row, focusedSeconds);
+            planned.put(row, plannedSeconds);
+        }
+
+        synchronized void remove(long high, long low) {
+            var existing = indexOf(high, low);
+            if (existing >= 0) remove(existing);
+            ids.remove(high, low);
+        }
+
+        synchronized void summarize(long fromMillis, long toMillis, long[] totals) {
+            var from = lowerBound(fromMillis);
+            var to = lowerBound(toMillis);
+            if (from >= to) return;
+            totals[0] += to - from;
+            totals[1] += sum(focused, from, to);
+            totals[2] += sum(planned, from, to);
+        }
+
+        synchronized void focusedByBucket(long fromMillis, long toMillis, long bucketMillis, long[] buckets) {
+            var to = lowerBound(toMillis);
+            for (var row = lowerBound(fromMillis); row < to; row++)
+                buckets[(int) ((ended.get(row) - fromMillis) / bucketMillis)] += focused.get(row);
+        }
+
+        private static long sum(IntBuffer column, int from, int to) {
+            var sum = 0L;
+            if (column.hasArray()) {
+                var values = column.array();
+                for (var i = from; i < to; i++) sum += values[i];
+            } else {
+                for (var i = from; i < to; i++) sum += column.get(i);
+            }
+            return sum;
+        }
+
+        /** @return row of the id among rows of its ended time, -1 if it has none */
+        private int indexOf(long high, long low) {
+            var slot = ids.slotOf(high, low);
+            if (slot < 0) return -1;
+            var endedMillis = ids.ended(slot);
+            for (var row = lowerBound(endedMillis); row < size && ended.get(row) == endedMillis; row++)
+                if (idLow.get(row) == low && idHigh.get(row) == high) return row;
+            return -1;
+        }
+
+        private void remove(int row) {
+            for (var i = row + 1; i < size; i++) move(i, i - 1);
+            size--;
+        }
+
+        private void move(int from, int to) {
+            ended.put(to, ended.get(from));
+            idHigh.put(to, idHigh.get(from));
+            idLow.put(to, idLow.get(from));
+            focused.put(to, focused.get(from));
+            planned.put(to, planned.get(from));
+        }
+
+        /** @return first row ended at or after the time */
+        private int lowerBound(long millis) {
+            int low = 0, high = size;
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if (ended.get(middle) < millis) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        /** @return first row ended after the time */
+        private int upperBound(long millis) {
+            if (size == 0 || ended.get(size - 1) <= millis) return size;  // usual case: the latest completed pomodoro
+            int low = 0, high = size;
+            while (low < high) {
+                var middle = (low + high) >>> 1;
+                if (ended.get(middle) <= millis) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+
+        private void grow() {
+            var previousEnded = ended;
+            var previousIdHigh = idHigh;
+            var previousIdLow = idLow;
+            var previousFocused = focused;
+            var previousPlanned = planned;
+
+            allocate(ended.capacity() + (ended.capacity() >> 1));
+            ended.put(previousEnded.limit(size)).clear();
+            idHigh.put(previousIdHigh.limit(size)).clear();
+            idLow.put(previousIdLow.limit(size)).clear();
+            focused.put(previousFocused.limit(size)).clear();
+            planned.put(previousPlanned.limit(size)).clear();
+        }
+
+        private void allocate(int capacity) {
+            ended = longs(capacity);
+            idHigh = longs(capacity);
+            idLow = longs(capacity);
+            focused = ints(capacity);
+            planned = ints(capacity);
+        }
+
+        private LongBuffer longs(int capacity) {
+            return offHeap ? ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                    : LongBuffer.allocate(capacity);
+        }
+
+        private IntBuffer ints(int capacity) {
+            return offHeap ? ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+                    : IntBuffer.allocate(capacity);
+        }
+    }
+
+    /**
+     * Ended time by id, a linear probing table of the halves of ids and ended times in parallel arrays, kept at most
+     * two thirds full. Removal shifts back following entries of the same probe sequence, so no tombstones are left.
+     */
+    private static final class RowIds {
+        private static final long[] EMPTY = new long[0];
+
+        private long[] highs = EMPTY;
+        private long[] lows = EMPTY;
+        private long[] endeds = EMPTY;
+        private boolean[] used = new boolean[0];
+        private int size;
+
+        long memoryBytes() { return (long) used.length * (Long.BYTES * 3 + 1); }
+
+        /** @return slot of the id, -1 if absent */
+        int slotOf(long high, long low) {
+            if (size == 0) return -1;
+            for (var slot = home(high, low, used.length); used[slot]; slot = (slot + 1) & (used.length - 1))
+                if (lows[slot] == low && highs[slot] == high) return slot;
+            return -1;
+        }
+
+        long ended(int slot) { return endeds[slot]; }
+
+        void put(long high, long low, long endedMillis) {
+            if ((size + 1) * 3 > used.length * 2) resize(Math.max(16, used.length * 2));
+            var slot = home(high, low, used.length);
+            while (used[slot] && !(lows[slot] == low && highs[slot] == high)) slot = (slot + 1) & (used.length - 1);
+            if (!used[slot]) size++;
+            set(slot, high, low, endedMillis);
+        }
+
+        void remove(long high, long low) {
+            var slot = slotOf(high, low);
+            if (slot < 0) return;
+            var mask = used.length - 1;
+            var next = (slot + 1) & mask;
+            while (used[next]) {
+                var home = home(highs[next], lows[next], used.length);
+                // entry can fill the gap if its home isn't cyclically within (gap, next]
+                if (((next - home) & mask) >= ((next - slot) & mask)) {
+                    set(slot, highs[next], lows[next], endeds[next]);
+                    slot = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[slot] = false;
+            size--;
+        }
+
+        private void set(int slot, long high, long low, long endedMillis) {
+            used[slot] = true;
+            highs[slot] = high;
+            lows[slot] = low;
+            endeds[slot] = endedMillis;
+        }
+
+        private void resize(int capacity) {
+            var previousHighs = highs;
+            var previousLows = lows;
+            var previousEndeds = endeds;
+            var previousUsed = used;
+            highs = new long[capacity];
+            lows = new long[capacity];
+            endeds = new long[capacity];
+            used = new boolean[capacity];
+            for (var slot = 0; slot < previousUsed.length; slot++) {
+                if (!previousUsed[slot]) continue;
+                var target = home(previousHighs[slot], previousLows[slot], capacity);
+                while (used[target]) target = (target + 1) & (capacity - 1);
+                set(target, previousHighs[slot], previousLows[slot], previousEndeds[slot]);
+            }
+        }
+
+        /** Ids are random, so their low bits are spread enough after mixing the halves */
+        private static int home(long high, long low, int capacity) {
+            var hash = (high ^ low) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & (capacity - 1);
+        }
+    }
+}
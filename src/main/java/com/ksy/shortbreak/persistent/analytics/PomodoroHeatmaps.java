@@ -0,0 +1,155 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Numbers of completed pomodoros by day of year for every user, in the configured time zone.
+ * <p>
+ * A year of a user is 366 short counters and a bitmap of days having any pomodoro, under 1 KB, so the whole year
+ * with streaks is served by one lookup of the user. Counters saturate at {@link Short#MAX_VALUE}.
+ */
+public class PomodoroHeatmaps {
+    private static final int DAYS = 366;
+
+    private final ZoneId zone;
+    private final ConcurrentMap<String, UserYears> users = new ConcurrentHashMap<>();
+
+    public PomodoroHeatmaps(ZoneId zone) {
+        this.zone = requireNonNull(zone);
+    }
+
+    public ZoneId zone() { return zone; }
+
+    public void add(String user, OffsetDateTime ended) {
+        users.computeIfAbsent(requireNonNull(user), ignored -> new UserYears()).change(dayOf(ended), 1);
+    }
+
+    public void remove(String user, OffsetDateTime ended) {
+        var years = users.get(requireNonNull(user));
+        if (years != null) years.change(dayOf(ended), -1);
+    }
+
+    /** @param today the day a current streak should reach, or the day before if there is no pomodoro today yet */
+    public Heatmap yearOf(String user, int year, LocalDate today) {
+        var years = users.get(requireNonNull(user));
+        return years != null ? years.heatmap(year, today) : Heatmap.empty(year);
+    }
+
+    /** Removes all counts of the user */
+    public void removeUser(String user) { users.remove(requireNonNull(user)); }
+
+    public void clear() { users.clear(); }
+
+    private LocalDate dayOf(OffsetDateTime ended) { return ended.atZoneSameInstant(zone).toLocalDate(); }
+
+    private static final class Year {
+        final short[] counts = new short[DAYS];
+        final BitSet days = new BitSet(DAYS);
+    }
+
+    private static final class UserYears {
+        private final Map<Integer, Year> years = new HashMap<>();
+
+        synchronized void change(LocalDate day, int delta) {
+            var year = years.computeIfAbsent(day.getYear(), ignored -> new Year());
+            var index = day.getDayOfYear() - 1;
+            var count = Math.max(0, Math.min(Short.MAX_VALUE, year.counts[index] + delta));
+            year.counts[index] = (short) count;
+            year.days.set(index, count > 0);
+        }
+
+        synchronized Heatmap heatmap(int number, LocalDate today) {
+            var year = years.get(number);
+            var current = currentStreak(today);
+            if (year == null) return Heatmap.empty(number).withCurrentStreak(current);
+
+            var counts = new int[LocalDate.ofYearDay(number, 1).lengthOfYear()];
+            var total = 0L;
+            for (var day = 0; day < counts.length; day++) total += counts[day] = year.counts[day];
+            return new Heatmap(number, counts, total, year.days.cardinality(), longestStreak(year.days), current);
+        }
+
+        private static int longestStreak(BitSet days) {
+            var longest = 0;
+            for (var start = days.nextSetBit(0); start >= 0; ) {
+                var end = days.nextClearBit(start);
+                longest = Math.max(longest, end - start);
+                start = days.nextSetBit(end);
+            }
+            return longest;
+        }
+
+        /** Consecutive active days up to today or yesterday, continued to the previous years */
+        private int currentStreak(LocalDate today) {
+            var year = years.get(today.getYear());
+            var last = today.getDayOfYear() - 1;
+            if (year == null || !year.days.get(last)) {
+                var yesterday = today.minusDays(1);
+                year = years.get(yesterday.getYear());
+                last = yesterday.getDayOfYear() - 1;
+                if (year == null || !year.days.get(last)) return 0;
+                today = yesterday;
+            }
+
+            var streak = 0;
+            for (var number = today.getYear(); year != null; year = years.get(--number)) {
+                var first = year.days.previousClearBit(last) + 1;
+                streak += last - first + 1;
+                if (first > 0) break;
+                last = LocalDate.ofYearDay(number - 1, 1).lengthOfYear() - 1;
+                if (!years.containsKey(number - 1) || !years.get(number - 1).days.get(last)) break;
+            }
+            return streak;
+        }
+    }
+
+    /** Heatmap of a year, counts are indexed by day of year starting from 0 */
+    public static final class Heatmap {
+        private final int year;
+        private final int[] counts;
+        private final long total;
+        private final int activeDays;
+        private final int longestStreak;
+        private final int currentStreak;
+
+        static Heatmap empty(int year) {
+            return new Heatmap(year, new int[LocalDate.ofYearDay(year, 1).lengthOfYear()], 0, 0, 0, 0);
+        }
+
+        public int getYear() { return year; }
+
+        public int[] getCounts() { return counts; }
+
+        public long getTotal() { return total; }
+
+        public int getActiveDays() { return activeDays; }
+
+        /** @return the longest run of active days within the year */
+        public int getLongestStreak() { return longestStreak; }
+
+        /** @return run of active days up to today or yesterday, regardless of the year */
+        public int getCurrentStreak() { return currentStreak; }
+
+        Heatmap withCurrentStreak(int currentStreak) {
+            return new Heatmap(year, counts, total, activeDays, longestStreak, currentStreak);
+        }
+
+        private Heatmap(int year, int[] counts, long total, int activeDays, int longestStreak, int currentStreak) {
+            this.year = year;
+            this.counts = counts;
+            this.total = total;
+            this.activeDays = activeDays;
+            this.longestStreak = longestStreak;
+            this.currentStreak = currentStreak;
+        }
+    }
+}
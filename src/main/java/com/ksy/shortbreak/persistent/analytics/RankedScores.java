@@ -0,0 +1,156 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Scores of users ordered by score descending, then by user, with O(log n) update, rank and access by rank.
+ * <p>
+ * Indexable skip list: every link knows how many nodes it skips, so a rank is a sum of links passed on the way to
+ * the node. Not thread safe.
+ */
+final class RankedScores {
+    private static final int MAX_LEVEL = 32;
+
+    private final Node head = new Node(null, 0, MAX_LEVEL);
+    private final Map<String, Long> scores = new HashMap<>();
+    private int level = 1;
+    private int size;
+
+    int size() { return size; }
+
+    long scoreOf(String user) { return scores.getOrDefault(user, 0L); }
+
+    /** Adds delta to the score of the user, the user is removed once the score isn't positive */
+    void add(String user, long delta) {
+        var previous = scores.get(user);
+        var score = (previous != null ? previous : 0) + delta;
+        if (previous != null) delete(user, previous);
+        if (score > 0) {
+            insert(user, score);
+            scores.put(user, score);
+        } else {
+            scores.remove(user);
+        }
+    }
+
+    /** @return 1-based rank of the user, 0 if the user has no score */
+    int rankOf(String user) {
+        var score = scores.get(user);
+        if (score == null) return 0;
+        var rank = 0;
+        var node = head;
+        for (var i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && !after(node.next[i], score, user)) {
+                rank += node.span[i];
+                node = node.next[i];
+            }
+            if (user.equals(node.user)) return rank;
+        }
+        throw new IllegalStateException("Score of " + user + " is not linked");
+    }
+
+    /** @return users with scores from the 1-based rank {@code from}, at most {@code limit} */
+    List<Map.Entry<String, Long>> range(int from, int limit) {
+        var range = new ArrayList<Map.Entry<String, Long>>(Math.max(0, Math.min(limit, size - from + 1)));
+        if (from < 1 || from > size) return range;
+        var node = head;
+        var traversed = 0;
+        for (var i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && traversed + node.span[i] <= from) {
+                traversed += node.span[i];
+                node = node.next[i];
+            }
+        }
+        for (; node != null && range.size() < limit; node = node.next[0]) range.add(Map.entry(node.user, node.score));
+        return range;
+    }
+
+    private void insert(String user, long score) {
+        var update = new Node[MAX_LEVEL];
+        var rank = new int[MAX_LEVEL];
+        var node = head;
+        for (var i = level - 1; i >= 0; i--) {
+            rank[i] = i == level - 1 ? 0 : rank[i + 1];
+            while (node.next[i] != null && before(node.next[i], score, user)) {
+                rank[i] += node.span[i];
+                node = node.next[i];
+            }
+            update[i] = node;
+        }
+
+        var nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (var i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+
+        var inserted = new Node(user, score, nodeLevel);
+        for (var i = 0; i < nodeLevel; i++) {
+            inserted.next[i] = update[i].next[i];
+            update[i].next[i] = inserted;
+            inserted.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (var i = nodeLevel; i < level; i++) update[i].span[i]++;
+        size++;
+    }
+
+    private void delete(String user, long score) {
+        var update = new Node[MAX_LEVEL];
+        var node = head;
+        for (var i = level - 1; i >= 0; i--) {
+            while (node.next[i] != null && before(node.next[i], score, user)) node = node.next[i];
+            update[i] = node;
+        }
+
+        var deleted = node.next[0];
+        for (var i = 0; i < level; i++) {
+            if (update[i].next[i] == deleted) {
+                update[i].span[i] += deleted.span[i] - 1;
+                update[i].next[i] = deleted.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        while (level > 1 && head.next[level - 1] == null) level--;
+        size--;
+    }
+
+    /** @return true if the node is ordered before the score of the user */
+    private static boolean before(Node node, long score, String user) {
+        return node.score > score || node.score == score && node.user.compareTo(user) < 0;
+    }
+
+    private static boolean after(Node node, long score, String user) {
+        return node.score < score || node.score == score && node.user.compareTo(user) > 0;
+    }
+
+    private static int randomLevel() {
+        var level = 1;
+        while (level < MAX_LEVEL && ThreadLocalRandom.current().nextInt(4) == 0) level++;
+        return level;
+    }
+
+    private static final class Node {
+        final String user;
+        final long score;
+        final Node[] next;
+        /** Numbers of nodes skipped by the links, the last of them included */
+        final int[] span;
+
+        Node(String user, long score, int level) {
+            this.user = user;
+            this.score = score;
+            this.next = new Node[level];
+            this.span = new int[level];
+        }
+    }
+}
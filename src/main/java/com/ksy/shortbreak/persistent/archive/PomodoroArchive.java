@@ -0,0 +1,224 @@
+package com.ksy.shortbreak.persistent.archive;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+import static java.util.Comparator.nullsLast;
+import static java.util.Comparator.reverseOrder;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Cold tier of completed pomodoros: append-only {@link Segment} files in a directory per user, read through memory
+ * mapping. Headers of segments of a user are indexed in memory on the first access, so counting is free and reading
+ * the newest pomodoros decodes only segments that can contain them.
+ * <p>
+ * Without a directory the archive is always empty.
+ */
+public class PomodoroArchive {
+    /** Order of history, the same as of {@code PomodoroRepo.findAllByUserOrderByTimingEndedDesc} */
+    public static final Comparator<Pomodoro> ENDED_DESC =
+            comparing(pomodoro -> pomodoro.getTiming().getEnded(), nullsLast(reverseOrder()));
+
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroArchive.class);
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})\\.pseg");
+
+    private final Path directory;
+    private final ConcurrentMap<String, List<SegmentFile>> segmentsByUser = new ConcurrentHashMap<>();
+
+    public PomodoroArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    public static PomodoroArchive empty() { return new PomodoroArchive(null); }
+
+    public boolean isEnabled() { return directory != null; }
+
+    /** @return users having archived pomodoros */
+    public List<String> users() {
+        if (!isEnabled() || !Files.isDirectory(directory)) return emptyList();
+        var users = new ArrayList<String>();
+        try (var directories = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (var userDirectory : directories) users.add(userOf(userDirectory));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list users of " + directory, e);
+        }
+        return users;
+    }
+
+    public long count(String user) {
+        var count = 0L;
+        for (var segment : segmentsOf(user)) count += segment.header.rows;
+        return count;
+    }
+
+    /** @return at most {@code limit} newest by ended time archived pomodoros of the user */
+    public List<Pomodoro> newest(String user, int limit) {
+        var segments = new ArrayList<>(segmentsOf(user));
+        if (segments.isEmpty() || limit <= 0) return emptyList();
+        segments.sort(comparingLong((SegmentFile segment) -> segment.header.maxEndedNanos).reversed());
+
+        // lazy k-way merge: a segment is decoded only when its newest pomodoro may be the next one
+        var cursors = new PriorityQueue<Cursor>(Comparator.comparingLong(Cursor::endedNanos).reversed());
+        var unopened = 0;
+        var newest = new ArrayList<Pomodoro>(Math.min(limit, 1024));
+        while (newest.size() < limit) {
+            while (unopened < segments.size()
+                    && (cursors.isEmpty() || segments.get(unopened).header.maxEndedNanos >= cursors.peek().endedNanos()))
+                cursors.add(new Cursor(segments.get(unopened++).read(user)));
+            var cursor = cursors.poll();
+            if (cursor == null) break;
+            newest.add(cursor.segment.pomodoro(cursor.row++));
+            if (cursor.row < cursor.segment.rows()) cursors.add(cursor);
+        }
+        return newest;
+    }
+
+    /** @return ids of pomodoros of the last appended segment of the user */
+    public Set<UUID> idsOfLastSegment(String user) {
+        var segments = segmentsOf(user);
+        if (segments.isEmpty()) return Set.of();
+        var segment = segments.get(segments.size() - 1).read(user);
+        var ids = new HashSet<UUID>(segment.rows() * 2);
+        for (var row = 0; row < segment.rows(); row++) ids.add(segment.id(row));
+        return ids;
+    }
+
+    /**
+     * Durably writes the completed pomodoros of the user as a new segment, visible to readers once this returns.
+     * @return the segment, to be {@link #discard(String, Path) discarded} if the pomodoros can't be removed from the hot tier
+     */
+    public synchronized Path append(String user, List<Pomodoro> pomodoros) {
+        if (!isEnabled()) throw new IllegalStateException("Archive directory is not configured");
+        var encoded = Segment.encode(pomodoros);
+        var segments = segmentsOf(user);
+        var sequence = segments.isEmpty() ? 1 : segments.get(segments.size() - 1).sequence + 1;
+        var userDirectory = userDirectory(user);
+        var path = userDirectory.resolve(String.format("segment-%010d.pseg", sequence));
+        try {
+            Files.createDirectories(userDirectory);
+            var temporary = userDirectory.resolve(path.getFileName() + ".tmp");
+            Files.deleteIfExists(temporary);
+            try (var channel = FileChannel.open(temporary, CREATE_NEW, WRITE)) {
+                while (encoded.hasRemaining()) channel.write(encoded);
+                channel.force(true);
+            }
+            Files.move(temporary, path, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write segment " + path, e);
+        }
+
+        var appended = new ArrayList<>(segments);
+        appended.add(new SegmentFile(path, sequence, Segment.header(encoded.rewind())));
+        segmentsByUser.put(user, unmodifiableList(appended));
+        LOG.debug("Archived {} pomodoros of {} to {}", pomodoros.size(), user, path);
+        return path;
+    }
+
+    public synchronized void discard(String user, Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to discard segment " + segment, e);
+        }
+        var remaining = new ArrayList<>(segmentsOf(user));
+        remaining.removeIf(file -> file.path.equals(segment));
+        segmentsByUser.put(user, unmodifiableList(remaining));
+    }
+
+    private List<SegmentFile> segmentsOf(String user) {
+        requireNonNull(user);
+        if (!isEnabled()) return emptyList();
+        return segmentsByUser.computeIfAbsent(user, this::loadSegments);
+    }
+
+    private List<SegmentFile> loadSegments(String user) {
+        var userDirectory = userDirectory(user);
+        if (!Files.isDirectory(userDirectory)) return emptyList();
+        var segments = new ArrayList<SegmentFile>();
+        try (var files = Files.newDirectoryStream(userDirectory)) {
+            for (var file : files) {
+                var matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) segments.add(new SegmentFile(file, Long.parseLong(matcher.group(1)), Segment.header(map(file))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list segments of " + user, e);
+        }
+        segments.sort(comparingLong(segment -> segment.sequence));
+        return unmodifiableList(segments);
+    }
+
+    /** Directory name is hex of the user name, so any user name is a valid and distinct file name */
+    private Path userDirectory(String user) {
+        var name = new StringBuilder();
+        for (var b : user.getBytes(UTF_8)) name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return directory.resolve(name.toString());
+    }
+
+    private static String userOf(Path userDirectory) {
+        var name = userDirectory.getFileName().toString();
+        var bytes = new byte[name.length() / 2];
+        for (var i = 0; i < bytes.length; i++)
+            bytes[i] = (byte) (Character.digit(name.charAt(2 * i), 16) << 4 | Character.digit(name.charAt(2 * i + 1), 16));
+        return new String(bytes, UTF_8);
+    }
+
+    private static ByteBuffer map(Path file) {
+        try (var channel = FileChannel.open(file, READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map segment " + file, e);
+        }
+    }
+
+    private static final class SegmentFile {
+        private final Path path;
+        private final long sequence;
+        private final Segment.Header header;
+
+        private SegmentFile(Path path, long sequence, Segment.Header header) {
+            this.path = path;
+            this.sequence = sequence;
+            this.header = header;
+        }
+
+        private Segment read(String user) { return Segment.decode(user, map(path)); }
+    }
+
+    private static final class Cursor {
+        private final Segment segment;
+        private int row;
+
+        private Cursor(Segment segment) {
+            this.segment = segment;
+        }
+
+        private long endedNanos() { return segment.endedNanos(row); }
+    }
+}
@@ -0,0 +1,268 @@
+package com.ksy.shortbreak.persistent.archive;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Immutable, deflated, columnar block of completed pomodoros of one user, sorted by ended time descending.
+ * <p>
+ * Layout: header {@code magic, format, rows, max ended, min ended, payload length, deflated length, payload CRC32},
+ * then the deflated payload of columns: most and least significant bits of ids, zigzag varint deltas of ended
+ * nanos since epoch, presence bitmap and varint started-to-ended nanos, varint durations, presence bitmap and
+ * varint client sequences, presence bitmap, varint UTF-8 lengths and bytes of names.
+ */
+final class Segment {
+    private static final int MAGIC = 0x50534547;  // PSEG
+    private static final byte FORMAT = 1;
+    static final int HEADER_LENGTH = 4 + 1 + 4 + 8 + 8 + 4 + 4 + 4;
+
+    private final String user;
+    private final long[] idMost;
+    private final long[] idLeast;
+    private final long[] ended;
+    private final long[] started;
+    private final boolean[] hasStarted;
+    private final long[] duration;
+    private final Long[] clientSequence;
+    private final String[] name;
+
+    private Segment(String user, int rows) {
+        this.user = user;
+        idMost = new long[rows];
+        idLeast = new long[rows];
+        ended = new long[rows];
+        started = new long[rows];
+        hasStarted = new boolean[rows];
+        duration = new long[rows];
+        clientSequence = new Long[rows];
+        name = new String[rows];
+    }
+
+    int rows() { return ended.length; }
+
+    long endedNanos(int row) { return ended[row]; }
+
+    UUID id(int row) { return new UUID(idMost[row], idLeast[row]); }
+
+    /** @return pomodoro as Hibernate reads it: with time stamps in the default zone of the JVM */
+    Pomodoro pomodoro(int row) {
+        return Pomodoro.builder()
+                .id(id(row))
+                .user(user)
+                .name(name[row])
+                .timing(Pomodoro.Timing.of(Duration.ofNanos(duration[row]),
+                        hasStarted[row] ? dateTime(ended[row] - started[row]) : null,
+                        dateTime(ended[row])))
+                .clientSequence(clientSequence[row])
+                .build();
+    }
+
+    /** @param pomodoros completed pomodoros of the same user */
+    static ByteBuffer encode(List<Pomodoro> pomodoros) {
+        if (pomodoros.isEmpty()) throw new IllegalArgumentException("Empty segment");
+        var sorted = pomodoros.stream().sorted(PomodoroArchive.ENDED_DESC).toArray(Pomodoro[]::new);
+        var rows = sorted.length;
+
+        var columns = new Columns();
+        for (var pomodoro : sorted) columns.writeLong(pomodoro.getId().getMostSignificantBits());
+        for (var pomodoro : sorted) columns.writeLong(pomodoro.getId().getLeastSignificantBits());
+        var previous = 0L;
+        for (var pomodoro : sorted) {
+            var ended = nanos(requireEnded(pomodoro));
+            columns.writeVarLong(ended - previous);
+            previous = ended;
+        }
+        columns.writeBitmap(sorted, pomodoro -> pomodoro.getTiming().getStarted() != null);
+        for (var pomodoro : sorted) {
+            var started = pomodoro.getTiming().getStarted();
+            if (started != null) columns.writeVarLong(nanos(pomodoro.getTiming().getEnded()) - nanos(started));
+        }
+        for (var pomodoro : sorted) columns.writeVarLong(pomodoro.getTiming().getDuration().toNanos());
+        columns.writeBitmap(sorted, pomodoro -> pomodoro.getClientSequence() != null);
+        for (var pomodoro : sorted)
+            if (pomodoro.getClientSequence() != null) columns.writeVarLong(pomodoro.getClientSequence());
+        columns.writeBitmap(sorted, pomodoro -> pomodoro.getName() != null);
+        var names = new byte[rows][];
+        for (var row = 0; row < rows; row++) {
+            if (sorted[row].getName() == null) continue;
+            names[row] = sorted[row].getName().getBytes(UTF_8);
+            columns.writeVarLong(names[row].length);
+        }
+        for (var bytes : names) if (bytes != null) columns.write(bytes, 0, bytes.length);
+
+        var payload = columns.toByteArray();
+        var deflated = deflate(payload);
+        var crc = new CRC32();
+        crc.update(payload);
+
+        return ByteBuffer.allocate(HEADER_LENGTH + deflated.length)
+                .putInt(MAGIC)
+                .put(FORMAT)
+                .putInt(rows)
+                .putLong(nanos(sorted[0].getTiming().getEnded()))
+                .putLong(nanos(sorted[rows - 1].getTiming().getEnded()))
+                .putInt(payload.length)
+                .putInt(deflated.length)
+                .putInt((int) crc.getValue())
+                .put(deflated)
+                .flip();
+    }
+
+    static Header header(ByteBuffer buffer) {
+        var header = buffer.duplicate();
+        if (header.remaining() < HEADER_LENGTH || header.getInt() != MAGIC) throw new IllegalStateException("Not a segment");
+        var format = header.get();
+        if (format != FORMAT) throw new IllegalStateException("Unsupported segment format " + format);
+        return new Header(header.getInt(), header.getLong(), header.getLong(), header.getInt(), header.getInt(), header.getInt());
+    }
+
+    /** @param buffer whole segment, usually mapped from its file */
+    static Segment decode(String user, ByteBuffer buffer) {
+        var header = header(buffer);
+        var payload = inflate(buffer.duplicate().position(HEADER_LENGTH).limit(HEADER_LENGTH + header.deflatedLength),
+                header.payloadLength);
+        var crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != header.crc) throw new IllegalStateException("Corrupted segment of " + user);
+
+        var rows = header.rows;
+        var segment = new Segment(user, rows);
+        for (var row = 0; row < rows; row++) segment.idMost[row] = payload.getLong();
+        for (var row = 0; row < rows; row++) segment.idLeast[row] = payload.getLong();
+        var previous = 0L;
+        for (var row = 0; row < rows; row++) segment.ended[row] = previous += readVarLong(payload);
+        readBitmap(payload, segment.hasStarted);
+        for (var row = 0; row < rows; row++) if (segment.hasStarted[row]) segment.started[row] = readVarLong(payload);
+        for (var row = 0; row < rows; row++) segment.duration[row] = readVarLong(payload);
+        var present = new boolean[rows];
+        readBitmap(payload, present);
+        for (var row = 0; row < rows; row++) if (present[row]) segment.clientSequence[row] = readVarLong(payload);
+        readBitmap(payload, present);
+        var nameLengths = new int[rows];
+        for (var row = 0; row < rows; row++) if (present[row]) nameLengths[row] = (int) readVarLong(payload);
+        for (var row = 0; row < rows; row++) {
+            if (!present[row]) continue;
+            segment.name[row] = new String(payload.array(), payload.arrayOffset() + payload.position(), nameLengths[row], UTF_8);
+            payload.position(payload.position() + nameLengths[row]);
+        }
+        return segment;
+    }
+
+    private static OffsetDateTime requireEnded(Pomodoro pomodoro) {
+        var ended = pomodoro.getTiming().getEnded();
+        if (ended == null) throw new IllegalArgumentException("Unable to archive not completed pomodoro " + pomodoro);
+        return ended;
+    }
+
+    private static long nanos(OffsetDateTime dateTime) {
+        var instant = dateTime.toInstant();
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    private static OffsetDateTime dateTime(long nanos) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(0, nanos), ZoneId.systemDefault());
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            var deflated = new ByteArrayOutputStream(payload.length / 2 + 64);
+            var chunk = new byte[8192];
+            while (!deflater.finished()) deflated.write(chunk, 0, deflater.deflate(chunk));
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer deflated, int payloadLength) {
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(deflated);
+            var payload = ByteBuffer.allocate(payloadLength);
+            while (!inflater.finished() && payload.hasRemaining())
+                if (inflater.inflate(payload) == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+            if (!inflater.finished() || payload.hasRemaining()) throw new IllegalStateException("Truncated segment");
+            return payload.flip();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        var zigzag = 0L;
+        for (var shift = 0; ; shift += 7) {
+            var b = buffer.get();
+            zigzag |= (long) (b & 0x7f) << shift;
+            if (b >= 0) break;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void readBitmap(ByteBuffer buffer, boolean[] bits) {
+        for (var i = 0; i < bits.length; i += 8) {
+            var b = buffer.get();
+            for (var bit = 0; bit < 8 && i + bit < bits.length; bit++) bits[i + bit] = (b & (1 << bit)) != 0;
+        }
+    }
+
+    static final class Header {
+        final int rows;
+        final long maxEndedNanos;
+        final long minEndedNanos;
+        final int payloadLength;
+        final int deflatedLength;
+        final int crc;
+
+        private Header(int rows, long maxEndedNanos, long minEndedNanos, int payloadLength, int deflatedLength, int crc) {
+            this.rows = rows;
+            this.maxEndedNanos = maxEndedNanos;
+            this.minEndedNanos = minEndedNanos;
+            this.payloadLength = payloadLength;
+            this.deflatedLength = deflatedLength;
+            this.crc = crc;
+        }
+    }
+
+    private static final class Columns extends ByteArrayOutputStream {
+        void writeLong(long value) {
+            for (var shift = 56; shift >= 0; shift -= 8) write((int) (value >>> shift));
+        }
+
+        void writeVarLong(long value) {
+            var zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7fL) != 0) {
+                write((int) (zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            write((int) zigzag);
+        }
+
+        void writeBitmap(Pomodoro[] pomodoros, Predicate<Pomodoro> bit) {
+            for (var i = 0; i < pomodoros.length; i += 8) {
+                var b = 0;
+                for (var j = 0; j < 8 && i + j < pomodoros.length; j++) if (bit.test(pomodoros[i + j])) b |= 1 << j;
+                write(b);
+            }
+        }
+    }
+}
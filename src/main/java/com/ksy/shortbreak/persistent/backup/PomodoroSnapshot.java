@@ -0,0 +1,272 @@
+package com.ksy.shortbreak.persistent.backup;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * File of rows of the pomodoro table as they are stored, so restoring them takes no entity mapping and restores equal
+ * column values whatever the default zone of the JVM is.
+ * <p>
+ * Layout: header {@code magic, format}, then chunks of {@code rows, payload length, deflated length, payload CRC32}
+ * and the deflated payload, then an end chunk of zero rows followed by the total number of rows. A payload is rows of
+ * {@link #COLUMNS}: id bytes, version, a bitmap of null columns, the user, and the name, duration, started, ended and
+ * client sequence unless they are null. Chunks are deflated one by one, so neither writing nor reading holds more than
+ * a chunk in memory, and a file without the end chunk is never read as complete.
+ */
+public final class PomodoroSnapshot {
+    private static final int MAGIC = 0x53424253;  // SBBS
+    private static final byte FORMAT = 1;
+    private static final int HEADER_LENGTH = 4 + 1;
+    private static final int CHUNK_HEADER_LENGTH = 4 + 4 + 4 + 4;
+    private static final int ID_LENGTH = 16;
+    private static final int NAME = 1, DURATION = 2, STARTED = 4, ENDED = 8, CLIENT_SEQUENCE = 16;
+
+    /** Columns of rows in {@link #SELECT}, {@link #INSERT} and {@link #read(Path, Consumer)} */
+    public static final List<String> COLUMNS = List.of("id", "version", "user", "name", "duration", "started", "ended", "client_sequence");
+    public static final String SELECT = "select p.id, p.version, p.user, p.name, p.duration, p.started, p.ended, p.client_sequence from pomodoro p";
+    public static final String INSERT = "insert into pomodoro (" + String.join(", ", COLUMNS) + ") values (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Starts a snapshot written to a temporary file next to the path, which replaces the path on {@link Writer#commit()}
+     * @param chunkBytes of rows deflated at once
+     */
+    public static Writer writer(Path path, int chunkBytes) {
+        try {
+            return new Writer(path, chunkBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write snapshot " + path, e);
+        }
+    }
+
+    /**
+     * Reads rows chunk by chunk, the consumer gets values in the order of {@link #COLUMNS}
+     * @return number of rows
+     * @throws IllegalStateException if the file is not a complete snapshot
+     */
+    public static long read(Path path, Consumer<List<Object[]>> chunks) {
+        try (var channel = FileChannel.open(path, READ)) {
+            var header = readFully(channel, ByteBuffer.allocate(HEADER_LENGTH));
+            if (header.getInt() != MAGIC || header.get() != FORMAT) throw new IllegalStateException("Unknown format of snapshot " + path);
+
+            var inflater = new Inflater();
+            try {
+                var rows = 0L;
+                for (var chunkHeader = ByteBuffer.allocate(CHUNK_HEADER_LENGTH); ; chunkHeader.clear()) {
+                    readFully(channel, chunkHeader);
+                    var chunkRows = chunkHeader.getInt();
+                    if (chunkRows == 0) {
+                        var total = readFully(channel, ByteBuffer.allocate(Long.BYTES)).getLong();
+                        if (total != rows) throw new IllegalStateException("Corrupted snapshot " + path);
+                        return rows;
+                    }
+                    var payload = ByteBuffer.allocate(chunkHeader.getInt());
+                    var deflated = readFully(channel, ByteBuffer.allocate(chunkHeader.getInt()));
+                    var expectedCrc = chunkHeader.getInt();
+
+                    inflater.reset();
+                    inflater.setInput(deflated);
+                    while (payload.hasRemaining() && !inflater.finished())
+                        if (inflater.inflate(payload) == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    payload.flip();
+                    var crc = new CRC32();
+                    crc.update(payload.duplicate());
+                    if (payload.remaining() != payload.capacity() || (int) crc.getValue() != expectedCrc)
+                        throw new IllegalStateException("Corrupted snapshot " + path);
+
+                    var decoded = new ArrayList<Object[]>(chunkRows);
+                    for (var i = 0; i < chunkRows; i++) decoded.add(decode(payload));
+                    chunks.accept(decoded);
+                    rows += chunkRows;
+                }
+            } finally {
+                inflater.end();
+            }
+        } catch (EOFException e) {
+            throw new IllegalStateException("Incomplete snapshot " + path, e);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted snapshot " + path, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read snapshot " + path, e);
+        }
+    }
+
+    /** @return user of a row read from a snapshot */
+    public static String userOf(Object[] row) { return (String) row[2]; }
+
+    private static Object[] decode(ByteBuffer buffer) {
+        var id = new byte[ID_LENGTH];
+        buffer.get(id);
+        var version = buffer.getLong();
+        var nulls = buffer.get();
+        var user = getString(buffer);
+        var name = (nulls & NAME) == 0 ? getString(buffer) : null;
+        var duration = (nulls & DURATION) == 0 ? buffer.getLong() : null;
+        var started = (nulls & STARTED) == 0 ? getDateTime(buffer) : null;
+        var ended = (nulls & ENDED) == 0 ? getDateTime(buffer) : null;
+        var clientSequence = (nulls & CLIENT_SEQUENCE) == 0 ? buffer.getLong() : null;
+        return new Object[]{id, version, user, name, duration, started, ended, clientSequence};
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static LocalDateTime getDateTime(ByteBuffer buffer) {
+        return LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) if (channel.read(buffer) < 0) throw new EOFException();
+        return buffer.flip();
+    }
+
+    /** Rows of a snapshot being written, the file is left as it was unless the snapshot is committed. */
+    public static final class Writer implements AutoCloseable {
+        private final Path path;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private final ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_LENGTH);
+        private ByteBuffer payload;
+        private ByteBuffer deflated;
+        private int chunkRows;
+        private long rows;
+        private boolean committed;
+
+        private Writer(Path path, int chunkBytes) throws IOException {
+            this.path = path;
+            this.temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            this.payload = ByteBuffer.allocate(chunkBytes);
+            this.deflated = ByteBuffer.allocateDirect(chunkBytes + chunkBytes / 100 + 64);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            this.channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE);
+            writeFully(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).put(FORMAT).flip());
+        }
+
+        /** Adds the current row of a result set of {@link #SELECT} */
+        public void add(ResultSet row) throws SQLException {
+            var id = row.getBytes(1);
+            if (id.length != ID_LENGTH) throw new IllegalStateException("Unexpected id of " + id.length + " bytes");
+            var user = row.getString(3).getBytes(UTF_8);
+            var name = row.getString(4);
+            var nameBytes = name != null ? name.getBytes(UTF_8) : null;
+            var duration = row.getObject(5, Long.class);
+            var started = row.getObject(6, LocalDateTime.class);
+            var ended = row.getObject(7, LocalDateTime.class);
+            var clientSequence = row.getObject(8, Long.class);
+
+            var length = ID_LENGTH + 8 + 1 + 4 + user.length + 4 + (nameBytes != null ? nameBytes.length : 0) + 8 + 12 + 12 + 8;
+            if (payload.remaining() < length) {
+                flushChunk();
+                if (payload.capacity() < length) payload = ByteBuffer.allocate(length);
+            }
+            payload.put(id).putLong(row.getLong(2))
+                    .put((byte) ((nameBytes == null ? NAME : 0) | (duration == null ? DURATION : 0) | (started == null ? STARTED : 0)
+                            | (ended == null ? ENDED : 0) | (clientSequence == null ? CLIENT_SEQUENCE : 0)))
+                    .putInt(user.length).put(user);
+            if (nameBytes != null) payload.putInt(nameBytes.length).put(nameBytes);
+            if (duration != null) payload.putLong(duration);
+            if (started != null) putDateTime(started);
+            if (ended != null) putDateTime(ended);
+            if (clientSequence != null) payload.putLong(clientSequence);
+            chunkRows++;
+            rows++;
+        }
+
+        /**
+         * Durably replaces the file by the snapshot
+         * @return number of rows
+         */
+        public long commit() {
+            try {
+                flushChunk();
+                writeFully(header.clear().putInt(0).putInt(0).putInt(0).putInt(0).flip(), ByteBuffer.allocate(Long.BYTES).putLong(rows).flip());
+                channel.force(true);
+                channel.close();
+                Files.move(temporary, path, ATOMIC_MOVE);
+                committed = true;
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write snapshot " + path, e);
+            }
+        }
+
+        /** Discards the snapshot unless it is committed */
+        @Override
+        public void close() {
+            deflater.end();
+            try {
+                channel.close();
+                if (!committed) Files.deleteIfExists(temporary);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to discard snapshot " + temporary, e);
+            }
+        }
+
+        private void putDateTime(LocalDateTime dateTime) {
+            payload.putLong(dateTime.toEpochSecond(ZoneOffset.UTC)).putInt(dateTime.getNano());
+        }
+
+        private void flushChunk() {
+            if (chunkRows == 0) return;
+            payload.flip();
+            var crc = new CRC32();
+            crc.update(payload.duplicate());
+            var length = payload.remaining();
+
+            deflater.reset();
+            deflater.setInput(payload);
+            deflater.finish();
+            deflated.clear();
+            while (!deflater.finished()) {
+                if (!deflated.hasRemaining()) {
+                    var larger = ByteBuffer.allocateDirect(deflated.capacity() * 2);
+                    deflated = larger.put(deflated.flip());
+                }
+                deflater.deflate(deflated);
+            }
+            deflated.flip();
+
+            try {
+                writeFully(header.clear().putInt(chunkRows).putInt(length).putInt(deflated.remaining()).putInt((int) crc.getValue()).flip(), deflated);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to write snapshot " + path, e);
+            }
+            payload.clear();
+            chunkRows = 0;
+        }
+
+        private void writeFully(ByteBuffer... buffers) throws IOException {
+            var remaining = 0L;
+            for (var buffer : buffers) remaining += buffer.remaining();
+            while (remaining > 0) remaining -= channel.write(buffers);
+        }
+    }
+
+    private PomodoroSnapshot() {}
+}
@@ -0,0 +1,15 @@
+package com.ksy.shortbreak.persistent.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.UUIDGenerator;
+
+import java.io.Serializable;
+
+/** Keeps UUID generated by client for a new entity (see batch ingestion), generates random one otherwise. */
+public class ClientUuidGenerator extends UUIDGenerator {
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        var id = session.getEntityPersister(null, object).getIdentifier(object, session);
+        return id != null ? id : super.generate(session, object);
+    }
+}
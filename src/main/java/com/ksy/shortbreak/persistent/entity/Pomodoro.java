@@ -1,6 +1,7 @@
 package com.ksy.shortbreak.persistent.entity;
 
 import org.hibernate.annotations.GenericGenerator;
+import org.springframework.data.domain.Persistable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,13 +18,16 @@ import static com.ksy.shortbreak.config.Security.USER_ROLE;
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static java.util.Objects.requireNonNull;
 
-public final @Entity class Pomodoro {
+public final @Entity class Pomodoro implements Persistable<UUID> {
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", strategy = "com.ksy.shortbreak.persistent.entity.ClientUuidGenerator")
     private @Id UUID id;
     private @Column(nullable = false) String user;
     private @Column String name;
     private @Embedded Timing timing;
+    private @Column Long clientSequence;
+    /** Null until inserted, so a pomodoro with an id of the client is inserted without a lookup by merge */
+    private @Version Long version;
 
     public static Pomodoro of(Pomodoro pomodoro) {
         return Pomodoro.builder()
@@ -31,6 +35,8 @@ public final @Entity class Pomodoro {
                 .user(pomodoro.getUser())
                 .name(pomodoro.getName())
                 .timing(Timing.of(pomodoro.getTiming()))
+                .clientSequence(pomodoro.getClientSequence())
+                .version(pomodoro.version)
                 .build();
     }
 
@@ -38,9 +44,18 @@ public final @Entity class Pomodoro {
         if (!this.id.equals(update.id)) throw new IllegalArgumentException("ID should be same");
         if (update.name != null) this.setName(update.name);
         this.timing.updateBy(update.timing);
+        if (update.clientSequence != null) this.clientSequence = update.clientSequence;
         return this;
     }
 
+    /**
+     * Client numbers its updates of a pomodoro by increasing sequence, so retried or reordered update
+     * is recognized as already applied if its sequence is not after the last applied one.
+     */
+    public boolean hasApplied(Pomodoro update) {
+        return update.clientSequence != null && clientSequence != null && update.clientSequence <= clientSequence;
+    }
+
     public static Builder builder() { return new Builder(); }
 
     public UUID getId() { return id; }
@@ -51,6 +66,14 @@ public final @Entity class Pomodoro {
 
     public Timing getTiming() { return timing; }
 
+    public Long getClientSequence() { return clientSequence; }
+
+    /** @return 0 until inserted */
+    public long getVersion() { return version != null ? version : 0; }
+
+    @Override
+    public boolean isNew() { return version == null; }
+
     public void setName(String name) { this.name = requireNonNull(name); }
 
     @Override
@@ -61,14 +84,17 @@ public final @Entity class Pomodoro {
         return Objects.equals(this.id, that.id) &&
                 Objects.equals(this.user, that.user) &&
                 Objects.equals(this.name, that.name) &&
-                Objects.equals(this.timing, that.timing);
+                Objects.equals(this.timing, that.timing) &&
+                Objects.equals(this.clientSequence, that.clientSequence);
     }
 
     @Override
-    public int hashCode() { return Objects.hash(id, user, name, timing); }
+    public int hashCode() { return Objects.hash(id, user, name, timing, clientSequence); }
 
     @Override
-    public String toString() { return "Pomodoro{id=" + id + ", name='" + name + "', timing=" + timing + '}'; }
+    public String toString() {
+        return "Pomodoro{id=" + id + ", name='" + name + "', timing=" + timing + ", clientSequence=" + clientSequence + ", version=" + version + '}';
+    }
 
     public static final @Embeddable class Timing {
         static final Duration DEFAULT_DURATION = Duration.of(5, SECONDS);  // TODO: move to config
@@ -147,12 +173,12 @@ public final @Entity class Pomodoro {
         private static void verifyDuration(Duration duration) {
             if (duration == null) return;
             if (duration.isNegative() || duration.isZero())
-                throw new IllegalArgumentException("Pomodoro duration should be positive");
+                throw TimingRejectedEvent.rejected("duration", "Pomodoro duration should be positive");
         }
 
         private static void verifyStartedAndEnded(OffsetDateTime started, OffsetDateTime ended) {
             if (started != null && ended != null && started.isAfter(ended))
-                throw new IllegalArgumentException("Unable to set started = " + started + " that is after ended = " + ended);
+                throw TimingRejectedEvent.rejected("startedAndEnded", "Unable to set started = " + started + " that is after ended = " + ended);
         }
     }
 
@@ -161,6 +187,8 @@ public final @Entity class Pomodoro {
         private String user;
         private String name;
         private Timing timing;
+        private Long clientSequence;
+        private Long version;
 
         public Builder id(UUID id) { this.id = id; return this; }
 
@@ -170,6 +198,11 @@ public final @Entity class Pomodoro {
 
         public Builder timing(Timing timing) { this.timing = timing; return this; }
 
+        public Builder clientSequence(Long clientSequence) { this.clientSequence = clientSequence; return this; }
+
+        /** Only for storages managing the version themselves, JPA sets it on its own */
+        public Builder version(Long version) { this.version = version; return this; }
+
         public Pomodoro build() { return new Pomodoro(this); }
 
         private Builder() {}
@@ -180,6 +213,8 @@ public final @Entity class Pomodoro {
         name = builder.name;
         user = builder.user;
         timing = builder.timing;
+        clientSequence = builder.clientSequence;
+        version = builder.version;
 
         if (timing == null) throw new NullPointerException("Timing have to be specified");
         if (user == null) user = getCurrentUser();
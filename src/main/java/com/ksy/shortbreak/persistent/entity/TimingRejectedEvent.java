@@ -0,0 +1,33 @@
+package com.ksy.shortbreak.persistent.entity;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** JFR event of a {@link Pomodoro.Timing} change failed validation, with the stack of the caller */
+@Name("com.ksy.shortbreak.TimingRejected")
+@Label("Timing Rejected")
+@Category({"ShortBreak", "Validation"})
+@Description("Duration, started or ended time of a pomodoro failed validation")
+@StackTrace
+final class TimingRejectedEvent extends Event {
+    @Label("Check")
+    String check;
+
+    @Label("Message")
+    String message;
+
+    /** @return the exception to throw */
+    static IllegalArgumentException rejected(String check, String message) {
+        var event = new TimingRejectedEvent();
+        if (event.shouldCommit()) {
+            event.check = check;
+            event.message = message;
+            event.commit();
+        }
+        return new IllegalArgumentException(message);
+    }
+}
@@ -0,0 +1,135 @@
+package com.ksy.shortbreak.persistent.filter;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Set of ids answering "definitely absent" or "maybe present", with removal.
+ * <p>
+ * Every id increments {@code k} of {@code m} 4-bit counters, sixteen in a long, updated by CAS without locks; positions
+ * are derived from two mixes of the id bits, so client generated ids that aren't random are spread too. An id is maybe
+ * present if none of its counters is zero. A counter reaching 15 stays there, as after an overflow it can't tell how
+ * many ids share it: such a position is never decremented and only adds false positives. So an id is never reported
+ * absent while it is added and not removed, as long as only added ids are removed.
+ */
+public class CountingBloomFilter {
+    private static final int COUNTERS_PER_LONG = 16;
+    private static final long MAX_COUNT = 15;
+
+    private final AtomicLongArray counters;
+    private final long m;
+    private final int k;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * @param maxBytes counters are limited to, then the false positive rate at the capacity is higher
+     * @throws IllegalArgumentException if the capacity is not positive or the rate is not between 0 and 1
+     */
+    public static CountingBloomFilter of(long capacity, double falsePositiveRate, long maxBytes) {
+        if (capacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1 || maxBytes < 8)
+            throw new IllegalArgumentException("Invalid filter of " + capacity + " ids with false positive rate " + falsePositiveRate + " in " + maxBytes + " bytes");
+        var optimal = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        var m = Math.max(COUNTERS_PER_LONG, Math.min(optimal, maxBytes * 2));
+        var longs = Math.min(Integer.MAX_VALUE - 8, (m + COUNTERS_PER_LONG - 1) / COUNTERS_PER_LONG);
+        m = longs * COUNTERS_PER_LONG;
+        var k = (int) Math.max(1, Math.min(16, Math.round((double) m / capacity * Math.log(2))));
+        return new CountingBloomFilter((int) longs, m, k);
+    }
+
+    public void add(UUID id) {
+        var h1 = firstHash(id);
+        var h2 = secondHash(id);
+        for (var i = 0; i < k; i++) increment(Math.floorMod(h1 + i * h2, m));
+        size.incrementAndGet();
+    }
+
+    /** Only an added id may be removed, otherwise counters of other ids are decremented and they may be reported absent */
+    public void remove(UUID id) {
+        var h1 = firstHash(id);
+        var h2 = secondHash(id);
+        for (var i = 0; i < k; i++) decrement(Math.floorMod(h1 + i * h2, m));
+        size.decrementAndGet();
+    }
+
+    /** @return false if the id is definitely not added */
+    public boolean mightContain(UUID id) {
+        requireNonNull(id);
+        var h1 = firstHash(id);
+        var h2 = secondHash(id);
+        for (var i = 0; i < k; i++) if (countAt(Math.floorMod(h1 + i * h2, m)) == 0) return false;
+        return true;
+    }
+
+    /** Not atomic: ids added concurrently may be partially cleared */
+    public void clear() {
+        for (var i = 0; i < counters.length(); i++) counters.set(i, 0);
+        size.set(0);
+    }
+
+    /** @return number of added and not removed ids */
+    public long size() { return Math.max(0, size.get()); }
+
+    public long counters() { return m; }
+
+    public int hashes() { return k; }
+
+    public long memoryBytes() { return (long) counters.length() * Long.BYTES; }
+
+    /** @return probability that an absent id is reported maybe present with the current number of ids */
+    public double falsePositiveRate() { return Math.pow(1 - Math.exp(-(double) k * size() / m), k); }
+
+    @Override
+    public String toString() {
+        return "CountingBloomFilter{ids=" + size() + ", counters=" + m + ", hashes=" + k + ", bytes=" + memoryBytes() + '}';
+    }
+
+    private long countAt(long position) {
+        return counters.get((int) (position / COUNTERS_PER_LONG)) >>> shiftOf(position) & MAX_COUNT;
+    }
+
+    private void increment(long position) {
+        var index = (int) (position / COUNTERS_PER_LONG);
+        var shift = shiftOf(position);
+        long current;
+        do {
+            current = counters.get(index);
+            if ((current >>> shift & MAX_COUNT) == MAX_COUNT) return;
+        } while (!counters.compareAndSet(index, current, current + (1L << shift)));
+    }
+
+    private void decrement(long position) {
+        var index = (int) (position / COUNTERS_PER_LONG);
+        var shift = shiftOf(position);
+        long current;
+        do {
+            current = counters.get(index);
+            var count = current >>> shift & MAX_COUNT;
+            if (count == 0 || count == MAX_COUNT) return;
+        } while (!counters.compareAndSet(index, current, current - (1L << shift)));
+    }
+
+    private static int shiftOf(long position) { return (int) (position % COUNTERS_PER_LONG) * 4; }
+
+    private static long firstHash(UUID id) { return mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits())); }
+
+    private static long secondHash(UUID id) { return mix(id.getLeastSignificantBits() + 0x9e3779b97f4a7c15L) | 1; }
+
+    /** Finalizer of MurmurHash3 */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb93e07fb6f53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private CountingBloomFilter(int longs, long m, int k) {
+        this.counters = new AtomicLongArray(longs);
+        this.m = m;
+        this.k = k;
+    }
+}
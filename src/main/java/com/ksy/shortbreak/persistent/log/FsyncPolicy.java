@@ -0,0 +1,11 @@
+package com.ksy.shortbreak.persistent.log;
+
+/** When appended records are forced to the disk, records not forced yet may be lost with the OS, not with the JVM. */
+public enum FsyncPolicy {
+    /** Before a write returns, nothing acknowledged is lost */
+    ALWAYS,
+    /** Periodically in background, writes of the last interval may be lost */
+    INTERVAL,
+    /** When the OS decides to */
+    NEVER
+}
@@ -0,0 +1,437 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * {@link PomodoroRepo} kept in memory and made durable by appending every change to a {@link PomodoroLog}: a write
+ * is one sequential append instead of a select and an update of a table and its indexes. State is recovered on
+ * start from the latest snapshot and the log after it, snapshots are taken in background every
+ * {@code snapshotEvery} changes and on close.
+ * <p>
+ * Pomodoros are indexed by id and by user in history order. Callers get copies, so changes are stored only by
+ * saving them, and versions are checked on save like {@code @Version} does. Changes are not transactional: every
+ * save is durable on its own according to the fsync policy of the log, regardless of the surrounding transaction.
+ */
+public class LogPomodoroRepo implements PomodoroRepo, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(LogPomodoroRepo.class);
+    private static final Comparator<Pomodoro> HISTORY_ORDER = PomodoroArchive.ENDED_DESC.thenComparing(Pomodoro::getId);
+
+    private final PomodoroLog log;
+    private final long snapshotEvery;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Pomodoro> pomodoros = new HashMap<>();
+    private final Map<String, NavigableSet<Pomodoro>> pomodorosByUser = new HashMap<>();
+    private final ExecutorService snapshots = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "pomodoro-log-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private long changesSinceSnapshot;
+
+    public LogPomodoroRepo(PomodoroLog log, long snapshotEvery) {
+        this.log = log;
+        this.snapshotEvery = snapshotEvery;
+        log.recover(this::index, id -> unindex(pomodoros.get(id)));
+        LOG.info("Loaded {} pomodoros of {} users", pomodoros.size(), pomodorosByUser.size());
+    }
+
+    @Override
+    public List<Pomodoro> findAllByUserOrderByTimingEndedDesc(String user, Pageable pageable) {
+        return read(() -> {
+            var history = pomodorosByUser.getOrDefault(user, new TreeSet<>());
+            var page = history.stream();
+            if (pageable.isPaged()) page = page.skip(pageable.getOffset()).limit(pageable.getPageSize());
+            return page.map(Pomodoro::of).collect(toList());
+        });
+    }
+
+    @Override
+    public long countByUser(String user) {
+        return read(() -> {
+            var history = pomodorosByUser.get(user);
+            return history != null ? (long) history.size() : 0L;
+        });
+    }
+
+    @Override
+    public List<String> findAllUsers() { return read(() -> new ArrayList<>(pomodorosByUser.keySet())); }
+
+    @Override
+    public List<UUID> findAllIdsByUser(String user) {
+        return read(() -> pomodorosByUser.getOrDefault(user, new TreeSet<>()).stream().map(Pomodoro::getId).collect(toList()));
+    }
+
+    @Override
+    public List<String> findUsersWithPomodorosEndedBefore(OffsetDateTime ended) {
+        return read(() -> pomodorosByUser.entrySet().stream()
+                .filter(history -> oldestEnded(history.getValue()).filter(ended::isAfter).isPresent())
+                .map(Map.Entry::getKey)
+                .collect(toList()));
+    }
+
+    @Override
+    public List<Pomodoro> findAllByUserAndTimingEndedBeforeOrderByTimingEndedAsc(String user, OffsetDateTime ended, Pageable pageable) {
+        return read(() -> {
+            var history = pomodorosByUser.getOrDefault(user, new TreeSet<>());
+            var page = history.descendingSet().stream()
+                    .filter(pomodoro -> pomodoro.getTiming().getEnded() != null)
+                    .takeWhile(pomodoro -> pomodoro.getTiming().getEnded().isBefore(ended));
+            if (pageable.isPaged()) page = page.skip(pageable.getOffset()).limit(pageable.getPageSize());
+            return page.map(Pomodoro::of).collect(toList());
+        });
+    }
+
+    @Override
+    public int deleteAllByIdIn(Collection<UUID> ids) {
+        return write(() -> {
+            var deleted = 0;
+            for (var id : ids) if (delete(id)) deleted++;
+            return deleted;
+        });
+    }
+
+    /** Pomodoros are not locked, a change of them in between fails by their version only once they are saved */
+    @Override
+    public List<Pomodoro> findAllMatchingForUpdate(String user, PomodoroFilter filter, UUID after, int limit) {
+        return read(() -> pomodorosByUser.getOrDefault(user, new TreeSet<>()).stream()
+                .filter(pomodoro -> after == null || pomodoro.getId().compareTo(after) > 0)
+                .filter(filter::matches)
+                .sorted(comparing(Pomodoro::getId))
+                .limit(limit)
+                .map(Pomodoro::of)
+                .collect(toList()));
+    }
+
+    @Override
+    public long countByIdInAndUserNot(Collection<UUID> ids, String user) {
+        return read(() -> ids.stream().map(pomodoros::get).filter(pomodoro -> pomodoro != null && !pomodoro.getUser().equals(user)).count());
+    }
+
+    @Override
+    public int renameAllByUserAndIdIn(String user, Collection<UUID> ids, String name) {
+        requireNonNull(name);
+        return updateAllOfUser(user, ids, pomodoro -> pomodoro.setName(name));
+    }
+
+    @Override
+    public int updateDurationOfAllByUserAndIdIn(String user, Collection<UUID> ids, Duration duration) {
+        requireNonNull(duration);
+        return updateAllOfUser(user, ids, pomodoro -> pomodoro.getTiming().setDuration(duration));
+    }
+
+    @Override
+    public int deleteAllByUserAndIdIn(String user, Collection<UUID> ids) {
+        return write(() -> {
+            var deleted = 0;
+            for (var id : ids) {
+                var current = pomodoros.get(id);
+                if (current != null && current.getUser().equals(user) && delete(id)) deleted++;
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public <S extends Pomodoro> S save(S pomodoro) {
+        requireNonNull(pomodoro);
+        return write(() -> store(pomodoro));
+    }
+
+    @Override
+    public <S extends Pomodoro> S saveAndFlush(S pomodoro) { return save(pomodoro); }
+
+    @Override
+    public <S extends Pomodoro> List<S> saveAll(Iterable<S> pomodoros) {
+        return write(() -> {
+            var saved = new ArrayList<S>();
+            for (var pomodoro : pomodoros) saved.add(store(pomodoro));
+            return saved;
+        });
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public Optional<Pomodoro> findById(UUID id) {
+        return read(() -> Optional.ofNullable(pomodoros.get(id)).map(Pomodoro::of));
+    }
+
+    @Override
+    public Pomodoro getOne(UUID id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Unable to find Pomodoro with id " + id));
+    }
+
+    @Override
+    public boolean existsById(UUID id) { return read(() -> pomodoros.containsKey(id)); }
+
+    @Override
+    public List<Pomodoro> findAll() { return read(() -> pomodoros.values().stream().map(Pomodoro::of).collect(toList())); }
+
+    @Override
+    public List<Pomodoro> findAll(Sort sort) { return read(() -> sorted(pomodoros.values(), sort).map(Pomodoro::of).collect(toList())); }
+
+    @Override
+    public Page<Pomodoro> findAll(Pageable pageable) { return read(() -> page(new ArrayList<>(pomodoros.values()), pageable)); }
+
+    @Override
+    public List<Pomodoro> findAllById(Iterable<UUID> ids) {
+        return read(() -> {
+            var found = new ArrayList<Pomodoro>();
+            for (var id : ids) {
+                var pomodoro = pomodoros.get(id);
+                if (pomodoro != null) found.add(Pomodoro.of(pomodoro));
+            }
+            return found;
+        });
+    }
+
+    @Override
+    public long count() { return read(() -> (long) pomodoros.size()); }
+
+    @Override
+    public void deleteById(UUID id) {
+        if (!write(() -> delete(id))) throw new EmptyResultDataAccessException("No Pomodoro with id " + id + " exists", 1);
+    }
+
+    @Override
+    public void delete(Pomodoro pomodoro) { write(() -> delete(pomodoro.getId())); }
+
+    @Override
+    public void deleteAll(Iterable<? extends Pomodoro> pomodoros) {
+        write(() -> {
+            for (var pomodoro : pomodoros) delete(pomodoro.getId());
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteInBatch(Iterable<Pomodoro> pomodoros) { deleteAll(pomodoros); }
+
+    @Override
+    public void deleteAll() { deleteAllInBatch(); }
+
+    @Override
+    public void deleteAllInBatch() { write(() -> deleteAllByIdIn(new ArrayList<>(pomodoros.keySet()))); }
+
+    @Override
+    public <S extends Pomodoro> Optional<S> findOne(Example<S> example) {
+        var found = findAll(example);
+        if (found.size() > 1) throw new IncorrectResultSizeDataAccessException(1, found.size());
+        return found.stream().findFirst();
+    }
+
+    @Override
+    public <S extends Pomodoro> List<S> findAll(Example<S> example) { return findAll(example, Sort.unsorted()); }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Pomodoro> List<S> findAll(Example<S> example, Sort sort) {
+        return read(() -> sorted(matching(example), sort).map(pomodoro -> (S) Pomodoro.of(pomodoro)).collect(toList()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Pomodoro> Page<S> findAll(Example<S> example, Pageable pageable) {
+        return read(() -> (Page<S>) page(matching(example), pageable));
+    }
+
+    @Override
+    public <S extends Pomodoro> long count(Example<S> example) { return read(() -> (long) matching(example).size()); }
+
+    @Override
+    public <S extends Pomodoro> boolean exists(Example<S> example) {
+        return read(() -> pomodoros.values().stream().anyMatch(PomodoroQueries.predicate(example)));
+    }
+
+    @Override
+    public void close() {
+        snapshots.shutdown();
+        try {
+            snapshots.awaitTermination(1, MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.readLock().lock();
+        try {
+            log.snapshot(log.position(), new ArrayList<>(pomodoros.values()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        log.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends Pomodoro> S store(S pomodoro) {
+        var id = pomodoro.getId() != null ? pomodoro.getId() : UUID.randomUUID();
+        var current = pomodoros.get(id);
+        if (current != null && current.getVersion() != pomodoro.getVersion())
+            throw new ObjectOptimisticLockingFailureException(Pomodoro.class, id);
+
+        var stored = Pomodoro.builder()
+                .id(id)
+                .version(current != null ? current.getVersion() + 1 : 0)
+                .user(pomodoro.getUser())
+                .name(pomodoro.getName())
+                .timing(Pomodoro.Timing.of(pomodoro.getTiming()))
+                .clientSequence(pomodoro.getClientSequence())
+                .build();
+        log.appendSaved(stored);
+        log.flush();
+        index(stored);
+        changed();
+        return (S) Pomodoro.of(stored);
+    }
+
+    private int updateAllOfUser(String user, Collection<UUID> ids, Consumer<Pomodoro> change) {
+        return write(() -> {
+            var updated = 0;
+            for (var id : ids) {
+                var current = pomodoros.get(id);
+                if (current == null || !current.getUser().equals(user)) continue;
+                var changed = Pomodoro.of(current);
+                change.accept(changed);
+                store(changed);
+                updated++;
+            }
+            return updated;
+        });
+    }
+
+    private boolean delete(UUID id) {
+        var current = pomodoros.get(id);
+        if (current == null) return false;
+        log.appendDeleted(id);
+        log.flush();
+        unindex(current);
+        changed();
+        return true;
+    }
+
+    private void index(Pomodoro pomodoro) {
+        var previous = pomodoros.put(pomodoro.getId(), pomodoro);
+        if (previous != null) removeFromHistory(previous);
+        pomodorosByUser.computeIfAbsent(pomodoro.getUser(), user -> new TreeSet<>(HISTORY_ORDER)).add(pomodoro);
+    }
+
+    private void unindex(Pomodoro pomodoro) {
+        if (pomodoro == null) return;
+        pomodoros.remove(pomodoro.getId());
+        removeFromHistory(pomodoro);
+    }
+
+    private void removeFromHistory(Pomodoro pomodoro) {
+        var history = pomodorosByUser.get(pomodoro.getUser());
+        history.remove(pomodoro);
+        if (history.isEmpty()) pomodorosByUser.remove(pomodoro.getUser());
+    }
+
+    /** Called under the write lock, snapshot is taken once writes of the current change are over */
+    private void changed() {
+        if (++changesSinceSnapshot < snapshotEvery || !snapshotting.compareAndSet(false, true)) return;
+        changesSinceSnapshot = 0;
+        snapshots.execute(() -> {
+            try {
+                long position;
+                List<Pomodoro> state;
+                lock.readLock().lock();
+                try {
+                    position = log.position();
+                    state = new ArrayList<>(pomodoros.values());
+                } finally {
+                    lock.readLock().unlock();
+                }
+                log.snapshot(position, state);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to take snapshot of pomodoro log", e);
+            } finally {
+                snapshotting.set(false);
+            }
+        });
+    }
+
+    private static Optional<OffsetDateTime> oldestEnded(NavigableSet<Pomodoro> history) {
+        return history.descendingSet().stream()
+                .map(pomodoro -> pomodoro.getTiming().getEnded())
+                .filter(Objects::nonNull)
+                .findFirst();
+    }
+
+    private <T> T read(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T write(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Called under the lock, pomodoros of an unsorted sort are in id order so pages are stable */
+    private static Stream<Pomodoro> sorted(Collection<Pomodoro> pomodoros, Sort sort) {
+        var comparator = PomodoroQueries.comparator(sort);
+        return pomodoros.stream().sorted(comparator != null ? comparator.thenComparing(Pomodoro::getId) : comparing(Pomodoro::getId));
+    }
+
+    /** Called under the lock */
+    private static Page<Pomodoro> page(List<Pomodoro> pomodoros, Pageable pageable) {
+        var page = sorted(pomodoros, pageable.getSort());
+        if (pageable.isPaged()) page = page.skip(pageable.getOffset()).limit(pageable.getPageSize());
+        return new PageImpl<>(page.map(Pomodoro::of).collect(toList()), pageable, pomodoros.size());
+    }
+
+    /** Called under the lock */
+    private List<Pomodoro> matching(Example<? extends Pomodoro> example) {
+        return pomodoros.values().stream().filter(PomodoroQueries.predicate(example)).collect(toList());
+    }
+}
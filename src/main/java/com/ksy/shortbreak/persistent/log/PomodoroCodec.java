@@ -0,0 +1,100 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** Binary form of a pomodoro in log records and snapshots, time stamps keep their offsets to be restored as equal. */
+final class PomodoroCodec {
+    private static final int NULL_LENGTH = -1;
+    private static final int DATE_TIME_LENGTH = 1 + 8 + 4 + 4;
+
+    /** @return upper bound of the encoded length */
+    static int maxLength(Pomodoro pomodoro) {
+        return 16 + 8 + length(pomodoro.getUser()) + length(pomodoro.getName()) + 8
+                + DATE_TIME_LENGTH * 2 + 1 + 8;
+    }
+
+    static void encode(Pomodoro pomodoro, ByteBuffer buffer) {
+        encode(pomodoro.getId(), buffer);
+        buffer.putLong(pomodoro.getVersion());
+        putString(buffer, pomodoro.getUser());
+        putString(buffer, pomodoro.getName());
+        buffer.putLong(pomodoro.getTiming().getDuration().toNanos());
+        putDateTime(buffer, pomodoro.getTiming().getStarted());
+        putDateTime(buffer, pomodoro.getTiming().getEnded());
+        buffer.put((byte) (pomodoro.getClientSequence() != null ? 1 : 0));
+        buffer.putLong(pomodoro.getClientSequence() != null ? pomodoro.getClientSequence() : 0);
+    }
+
+    static Pomodoro decode(ByteBuffer buffer) {
+        var id = decodeId(buffer);
+        var version = buffer.getLong();
+        var user = getString(buffer);
+        var name = getString(buffer);
+        var duration = Duration.ofNanos(buffer.getLong());
+        var started = getDateTime(buffer);
+        var ended = getDateTime(buffer);
+        var hasClientSequence = buffer.get() != 0;
+        var clientSequence = buffer.getLong();
+        return Pomodoro.builder()
+                .id(id)
+                .version(version)
+                .user(user)
+                .name(name)
+                .timing(Pomodoro.Timing.of(duration, started, ended))
+                .clientSequence(hasClientSequence ? clientSequence : null)
+                .build();
+    }
+
+    static void encode(UUID id, ByteBuffer buffer) {
+        buffer.putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits());
+    }
+
+    static UUID decodeId(ByteBuffer buffer) { return new UUID(buffer.getLong(), buffer.getLong()); }
+
+    private static int length(String value) { return 4 + (value != null ? value.length() * 3 : 0); }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        var bytes = value.getBytes(UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        if (length == NULL_LENGTH) return null;
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void putDateTime(ByteBuffer buffer, OffsetDateTime dateTime) {
+        if (dateTime == null) {
+            buffer.put((byte) 0).putLong(0).putInt(0).putInt(0);
+            return;
+        }
+        var instant = dateTime.toInstant();
+        buffer.put((byte) 1).putLong(instant.getEpochSecond()).putInt(instant.getNano()).putInt(dateTime.getOffset().getTotalSeconds());
+    }
+
+    private static OffsetDateTime getDateTime(ByteBuffer buffer) {
+        var present = buffer.get() != 0;
+        var epochSecond = buffer.getLong();
+        var nano = buffer.getInt();
+        var offset = buffer.getInt();
+        return present ? OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneOffset.ofTotalSeconds(offset)) : null;
+    }
+
+    private PomodoroCodec() {}
+}
@@ -0,0 +1,300 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Append-only log of saved and deleted pomodoros in memory-mapped segment files, plus snapshots of the whole state.
+ * <p>
+ * A record is {@code length, CRC32, type, body}, its length is written last, so a record torn by a crash is either
+ * invisible or fails its checksum, and the log ends before it. Segments are preallocated and named by the global log
+ * position of their first record. A snapshot named by the log position it covers replaces all segments before it.
+ * <p>
+ * Appending is not thread safe, the caller serializes appends with its own state changes.
+ */
+public class PomodoroLog implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroLog.class);
+    private static final byte SAVED = 1;
+    private static final byte DELETED = 2;
+    private static final int RECORD_HEADER_LENGTH = 4 + 4;
+    private static final int SNAPSHOT_MAGIC = 0x50534e50;  // PSNP
+    private static final Pattern SEGMENT_NAME = Pattern.compile("log-(\\d{20})\\.seg");
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d{20})\\.snap");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsync;
+    private final ScheduledExecutorService syncer;
+
+    private long segmentBase;
+    private MappedByteBuffer segment;
+    private volatile boolean unsynced;
+
+    public PomodoroLog(Path directory, int segmentSize, FsyncPolicy fsync, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        if (fsync != FsyncPolicy.INTERVAL) syncer = null;
+        else {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "pomodoro-log-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            var interval = fsyncInterval.toMillis();
+            syncer.scheduleWithFixedDelay(this::syncIfNeeded, interval, interval, MILLISECONDS);
+        }
+    }
+
+    /** Passes the state of the latest valid snapshot and then records after it, must be called before appending. */
+    public synchronized void recover(Consumer<Pomodoro> saved, Consumer<UUID> deleted) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create log directory " + directory, e);
+        }
+
+        var snapshotPosition = 0L;
+        for (var snapshot : files(SNAPSHOT_NAME, true)) {
+            try {
+                readSnapshot(snapshot.path).forEach(saved);
+                snapshotPosition = snapshot.position;
+                break;
+            } catch (IllegalStateException e) {
+                LOG.warn("Skipping snapshot {}: {}", snapshot.path, e.getMessage());
+            }
+        }
+
+        var segments = files(SEGMENT_NAME, false);
+        var end = snapshotPosition;
+        for (var i = 0; i < segments.size(); i++) {
+            var file = segments.get(i);
+            if (i + 1 < segments.size() && segments.get(i + 1).position <= snapshotPosition) continue;
+            var buffer = map(file.path, FileChannel.MapMode.READ_WRITE, size(file.path));
+            var offset = replay(buffer, (int) Math.max(0, snapshotPosition - file.position), saved, deleted);
+            end = Math.max(end, file.position + offset);
+            buffer.position(offset);
+            segmentBase = file.position;
+            segment = buffer;
+        }
+        if (segment == null || segmentBase + segment.position() != end) openSegment(end);
+        LOG.info("Recovered pomodoro log {} from snapshot at {} up to {}", directory, snapshotPosition, end);
+    }
+
+    public void appendSaved(Pomodoro pomodoro) {
+        var body = reserve(1 + PomodoroCodec.maxLength(pomodoro));
+        PomodoroCodec.encode(pomodoro, body.put(SAVED));
+        commitRecord(body);
+    }
+
+    public void appendDeleted(UUID id) {
+        var body = reserve(1 + 16);
+        PomodoroCodec.encode(id, body.put(DELETED));
+        commitRecord(body);
+    }
+
+    /** Makes appended records durable according to the fsync policy */
+    public void flush() {
+        if (fsync == FsyncPolicy.ALWAYS) segment.force();
+        else unsynced = true;
+    }
+
+    /** @return position after the last appended record */
+    public long position() { return segmentBase + segment.position(); }
+
+    /**
+     * Writes the state as of {@code position} and deletes segments and snapshots it replaces.
+     * Can run concurrently with appends.
+     */
+    public void snapshot(long position, Collection<Pomodoro> state) {
+        var length = 4 + 8 + 4 + 4L;
+        for (var pomodoro : state) length += 4 + PomodoroCodec.maxLength(pomodoro);
+        if (length > Integer.MAX_VALUE) throw new IllegalStateException("Snapshot of " + state.size() + " pomodoros is too large");
+
+        var buffer = ByteBuffer.allocate((int) length).putInt(SNAPSHOT_MAGIC).putLong(position).putInt(state.size());
+        for (var pomodoro : state) {
+            var start = buffer.position();
+            PomodoroCodec.encode(pomodoro, buffer.position(start + 4));
+            buffer.putInt(start, buffer.position() - start - 4);
+        }
+        var crc = new CRC32();
+        crc.update(buffer.duplicate().flip());
+        buffer.putInt((int) crc.getValue()).flip();
+
+        var path = directory.resolve(String.format("snapshot-%020d.snap", position));
+        var temporary = directory.resolve(path.getFileName() + ".tmp");
+        try {
+            Files.deleteIfExists(temporary);
+            try (var channel = FileChannel.open(temporary, CREATE_NEW, WRITE)) {
+                while (buffer.hasRemaining()) channel.write(buffer);
+                channel.force(true);
+            }
+            Files.move(temporary, path, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write snapshot " + path, e);
+        }
+        LOG.debug("Written snapshot of {} pomodoros at {}", state.size(), position);
+        deleteReplacedBy(position);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (syncer != null) syncer.shutdownNow();
+        if (segment != null) segment.force();
+    }
+
+    private ByteBuffer reserve(int maxBodyLength) {
+        if (RECORD_HEADER_LENGTH + maxBodyLength > segmentSize) throw new IllegalArgumentException("Record exceeds segment size");
+        if (segment.remaining() < RECORD_HEADER_LENGTH + maxBodyLength) openSegment(position());
+        return segment.duplicate().position(segment.position() + RECORD_HEADER_LENGTH).slice();
+    }
+
+    private void commitRecord(ByteBuffer body) {
+        var length = body.position();
+        var crc = new CRC32();
+        crc.update(body.flip());
+        var start = segment.position();
+        segment.putInt(start + 4, (int) crc.getValue());
+        segment.putInt(start, length);
+        segment.position(start + RECORD_HEADER_LENGTH + length);
+    }
+
+    private synchronized void openSegment(long position) {
+        if (segment != null) segment.force();
+        segmentBase = position;
+        segment = map(directory.resolve(String.format("log-%020d.seg", position)), FileChannel.MapMode.READ_WRITE, segmentSize);
+    }
+
+    private synchronized void syncIfNeeded() {
+        if (!unsynced) return;
+        unsynced = false;
+        segment.force();
+    }
+
+    /** @return offset after the last valid record */
+    private static int replay(ByteBuffer buffer, int offset, Consumer<Pomodoro> saved, Consumer<UUID> deleted) {
+        while (offset + RECORD_HEADER_LENGTH <= buffer.limit()) {
+            var length = buffer.getInt(offset);
+            if (length == 0) return offset;
+            if (length < 0 || offset + RECORD_HEADER_LENGTH + length > buffer.limit()) return truncate(buffer, offset);
+            var body = buffer.duplicate().position(offset + RECORD_HEADER_LENGTH).limit(offset + RECORD_HEADER_LENGTH + length).slice();
+            var crc = new CRC32();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) return truncate(buffer, offset);
+
+            var type = body.get();
+            if (type == SAVED) saved.accept(PomodoroCodec.decode(body));
+            else if (type == DELETED) deleted.accept(PomodoroCodec.decodeId(body));
+            else return truncate(buffer, offset);
+            offset += RECORD_HEADER_LENGTH + length;
+        }
+        // full segment, the rest is too short for a header and never written
+        return offset;
+    }
+
+    /** Clears torn tail of a crashed write, so records appended over it aren't followed by garbage */
+    private static int truncate(ByteBuffer buffer, int offset) {
+        LOG.warn("Pomodoro log is truncated at offset {}", offset);
+        for (var i = offset; i < buffer.limit(); i++) buffer.put(i, (byte) 0);
+        return offset;
+    }
+
+    private static List<Pomodoro> readSnapshot(Path path) {
+        var buffer = map(path, FileChannel.MapMode.READ_ONLY, size(path));
+        if (buffer.limit() < 4 + 8 + 4 + 4 || buffer.getInt(0) != SNAPSHOT_MAGIC) throw new IllegalStateException("Not a snapshot");
+        var crc = new CRC32();
+        crc.update(buffer.duplicate().limit(buffer.limit() - 4));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) throw new IllegalStateException("Corrupted snapshot");
+
+        var count = buffer.position(4 + 8).getInt();
+        var state = new ArrayList<Pomodoro>(count);
+        for (var i = 0; i < count; i++) {
+            var length = buffer.getInt();
+            state.add(PomodoroCodec.decode(buffer.slice().limit(length)));
+            buffer.position(buffer.position() + length);
+        }
+        return state;
+    }
+
+    private synchronized void deleteReplacedBy(long position) {
+        var segments = files(SEGMENT_NAME, false);
+        for (var i = 0; i + 1 < segments.size() && segments.get(i + 1).position <= position; i++) delete(segments.get(i).path);
+        for (var snapshot : files(SNAPSHOT_NAME, false)) if (snapshot.position < position) delete(snapshot.path);
+    }
+
+    private List<PositionedFile> files(Pattern name, boolean latestFirst) {
+        var files = new ArrayList<PositionedFile>();
+        try (var paths = Files.newDirectoryStream(directory)) {
+            for (var path : paths) {
+                var matcher = name.matcher(path.getFileName().toString());
+                if (matcher.matches()) files.add(new PositionedFile(path, Long.parseLong(matcher.group(1))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list " + directory, e);
+        }
+        var order = comparingLong((PositionedFile file) -> file.position);
+        files.sort(latestFirst ? order.reversed() : order);
+        return files;
+    }
+
+    private static MappedByteBuffer map(Path path, FileChannel.MapMode mode, long size) {
+        try (var channel = mode == FileChannel.MapMode.READ_ONLY ? FileChannel.open(path, READ) : FileChannel.open(path, READ, WRITE, CREATE)) {
+            return channel.map(mode, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map " + path, e);
+        }
+    }
+
+    private static long size(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read size of " + path, e);
+        }
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOG.warn("Unable to delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class PositionedFile {
+        private final Path path;
+        private final long position;
+
+        private PositionedFile(Path path, long position) {
+            this.path = path;
+            this.position = position;
+        }
+    }
+}
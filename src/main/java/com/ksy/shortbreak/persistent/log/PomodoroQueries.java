@@ -0,0 +1,117 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.support.ExampleMatcherAccessor;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.Comparator.nullsLast;
+
+/**
+ * Sorting and query by example of pomodoros in memory with the semantics of the JPA repository: unknown properties
+ * fail with {@code PropertyReferenceException}, nulls sort first in ascending order like in H2, and an example
+ * matches by its non-null properties, embedded timing included, according to its {@link ExampleMatcher}.
+ */
+final class PomodoroQueries {
+    private static final List<String> PROPERTIES = List.of(
+            "id", "user", "name", "timing.duration", "timing.started", "timing.ended", "clientSequence", "version");
+
+    /** @return null for an unsorted sort, so the storage keeps its own order */
+    static Comparator<Pomodoro> comparator(Sort sort) {
+        Comparator<Pomodoro> comparator = null;
+        for (var order : sort) {
+            var next = comparator(order);
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    static Predicate<Pomodoro> predicate(Example<? extends Pomodoro> example) {
+        var matcher = example.getMatcher();
+        var accessor = new ExampleMatcherAccessor(matcher);
+        Pomodoro probe = example.getProbe();
+        var criteria = new ArrayList<Predicate<Pomodoro>>();
+        for (var path : PROPERTIES) {
+            if (accessor.isIgnoredPath(path)) continue;
+            var value = accessor.getValueTransformerForPath(path).apply(Optional.ofNullable(valueOf(probe, path))).orElse(null);
+            if (value == null) {
+                if (accessor.getNullHandler() == ExampleMatcher.NullHandler.INCLUDE)
+                    criteria.add(pomodoro -> valueOf(pomodoro, path) == null);
+                continue;
+            }
+            criteria.add(value instanceof String
+                    ? pomodoro -> matches((String) valueOf(pomodoro, path), (String) value, accessor.getStringMatcherForPath(path), accessor.isIgnoreCaseForPath(path))
+                    : pomodoro -> same(valueOf(pomodoro, path), value));
+        }
+        if (matcher.isAllMatching()) return pomodoro -> criteria.stream().allMatch(criterion -> criterion.test(pomodoro));
+        return pomodoro -> criteria.isEmpty() || criteria.stream().anyMatch(criterion -> criterion.test(pomodoro));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Pomodoro> comparator(Sort.Order order) {
+        var path = PropertyPath.from(order.getProperty(), Pomodoro.class).toDotPath();
+        if (!PROPERTIES.contains(path)) throw new InvalidDataAccessApiUsageException("Unable to sort pomodoros by " + path);
+        Comparator<Object> values = order.isIgnoreCase()
+                ? (first, second) -> first.toString().compareToIgnoreCase(second.toString())
+                : (Comparator) naturalOrder();
+        Comparator<Object> ordered = order.isAscending() ? values : values.reversed();
+        var nullsLast = order.getNullHandling() == Sort.NullHandling.NULLS_LAST
+                || order.getNullHandling() == Sort.NullHandling.NATIVE && order.isDescending();
+        var comparator = nullsLast ? nullsLast(ordered) : nullsFirst(ordered);
+        return (first, second) -> comparator.compare(valueOf(first, path), valueOf(second, path));
+    }
+
+    private static Object valueOf(Pomodoro pomodoro, String path) {
+        var timing = pomodoro.getTiming();
+        switch (path) {
+            case "id": return pomodoro.getId();
+            case "user": return pomodoro.getUser();
+            case "name": return pomodoro.getName();
+            case "timing.duration": return timing != null ? timing.getDuration() : null;
+            case "timing.started": return timing != null ? timing.getStarted() : null;
+            case "timing.ended": return timing != null ? timing.getEnded() : null;
+            case "clientSequence": return pomodoro.getClientSequence();
+            case "version": return pomodoro.isNew() ? null : pomodoro.getVersion();
+            default: throw new IllegalArgumentException("Unknown property " + path);
+        }
+    }
+
+    private static boolean matches(String value, String example, ExampleMatcher.StringMatcher matcher, boolean ignoreCase) {
+        if (value == null) return false;
+        if (ignoreCase) {
+            value = value.toLowerCase(Locale.ROOT);
+            example = example.toLowerCase(Locale.ROOT);
+        }
+        switch (matcher) {
+            case DEFAULT:
+            case EXACT: return value.equals(example);
+            case STARTING: return value.startsWith(example);
+            case ENDING: return value.endsWith(example);
+            case CONTAINING: return value.contains(example);
+            default: throw new InvalidDataAccessApiUsageException("Unsupported string matcher " + matcher);
+        }
+    }
+
+    /** Times are equal as instants, as they are in the database */
+    private static boolean same(Object value, Object example) {
+        if (value instanceof OffsetDateTime && example instanceof OffsetDateTime)
+            return ((OffsetDateTime) value).isEqual((OffsetDateTime) example);
+        return Objects.equals(value, example);
+    }
+
+    private PomodoroQueries() {}
+}
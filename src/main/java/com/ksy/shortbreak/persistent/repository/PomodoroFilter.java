@@ -0,0 +1,84 @@
+package com.ksy.shortbreak.persistent.repository;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import java.time.OffsetDateTime;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Pomodoros of a user matching every given criterion: one of the ids, ended from {@code endedFrom} inclusive to
+ * {@code endedTo} exclusive, and a name containing {@code nameContains} regardless of case. A pomodoro never ended
+ * doesn't match a time range, and one without a name doesn't match a name.
+ */
+public final class PomodoroFilter {
+    private final Set<UUID> ids;
+    private final OffsetDateTime endedFrom;
+    private final OffsetDateTime endedTo;
+    private final String nameContains;
+
+    /**
+     * @param ids null for any id
+     * @param endedFrom null for no lower bound
+     * @param endedTo null for no upper bound
+     * @param nameContains null for any name
+     * @throws IllegalArgumentException if no criterion is given, so every pomodoro is never matched by mistake, or the
+     * range is empty
+     */
+    public static PomodoroFilter of(Set<UUID> ids, OffsetDateTime endedFrom, OffsetDateTime endedTo, String nameContains) {
+        if (ids == null && endedFrom == null && endedTo == null && (nameContains == null || nameContains.isEmpty()))
+            throw new IllegalArgumentException("Filter of pomodoros requires a criterion");
+        if (endedFrom != null && endedTo != null && !endedFrom.isBefore(endedTo))
+            throw new IllegalArgumentException("Empty range of ended time from " + endedFrom + " to " + endedTo);
+        return new PomodoroFilter(ids != null ? Set.copyOf(ids) : null, endedFrom, endedTo,
+                nameContains != null && !nameContains.isEmpty() ? nameContains : null);
+    }
+
+    /** @return null for any id */
+    public Set<UUID> getIds() { return ids; }
+
+    public OffsetDateTime getEndedFrom() { return endedFrom; }
+
+    public OffsetDateTime getEndedTo() { return endedTo; }
+
+    public String getNameContains() { return nameContains; }
+
+    /** Same criteria as the repository query, for storages filtering pomodoros themselves */
+    public boolean matches(Pomodoro pomodoro) {
+        if (ids != null && !ids.contains(pomodoro.getId())) return false;
+        var ended = pomodoro.getTiming().getEnded();
+        if ((endedFrom != null || endedTo != null) && ended == null) return false;
+        if (endedFrom != null && ended.isBefore(endedFrom)) return false;
+        if (endedTo != null && !ended.isBefore(endedTo)) return false;
+        return nameContains == null || pomodoro.getName() != null
+                && pomodoro.getName().toLowerCase(Locale.ROOT).contains(nameContains.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroFilter)) return false;
+        var that = (PomodoroFilter) o;
+        return Objects.equals(ids, that.ids) &&
+                Objects.equals(endedFrom, that.endedFrom) &&
+                Objects.equals(endedTo, that.endedTo) &&
+                Objects.equals(nameContains, that.nameContains);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(ids, endedFrom, endedTo, nameContains); }
+
+    @Override
+    public String toString() {
+        return "PomodoroFilter{ids=" + ids + ", endedFrom=" + endedFrom + ", endedTo=" + endedTo + ", nameContains='" + nameContains + "'}";
+    }
+
+    private PomodoroFilter(Set<UUID> ids, OffsetDateTime endedFrom, OffsetDateTime endedTo, String nameContains) {
+        this.ids = ids;
+        this.endedFrom = endedFrom;
+        this.endedTo = endedTo;
+        this.nameContains = nameContains;
+    }
+}
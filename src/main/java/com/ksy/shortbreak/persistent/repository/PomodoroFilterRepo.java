@@ -0,0 +1,16 @@
+package com.ksy.shortbreak.persistent.repository;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import java.util.List;
+import java.util.UUID;
+
+/** Queries of {@link PomodoroRepo} by criteria known only at runtime, implemented by {@link PomodoroFilterRepoImpl} */
+public interface PomodoroFilterRepo {
+    /**
+     * Next batch of pomodoros of the user matching the filter in id order, locked until the end of the transaction,
+     * so they are changed by set-based statements without concurrent changes in between
+     * @param after the last id of the previous batch, null for the first batch
+     */
+    List<Pomodoro> findAllMatchingForUpdate(String user, PomodoroFilter filter, UUID after, int limit);
+}
@@ -0,0 +1,47 @@
+package com.ksy.shortbreak.persistent.repository;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.Predicate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/** Picked up by Spring Data as the implementation of {@link PomodoroFilterRepo} by its name */
+class PomodoroFilterRepoImpl implements PomodoroFilterRepo {
+    private @PersistenceContext EntityManager entityManager;
+
+    @Override
+    public List<Pomodoro> findAllMatchingForUpdate(String user, PomodoroFilter filter, UUID after, int limit) {
+        if (filter.getIds() != null && filter.getIds().isEmpty()) return List.of();
+
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(Pomodoro.class);
+        var pomodoro = query.from(Pomodoro.class);
+        var id = pomodoro.<UUID>get("id");
+        var ended = pomodoro.get("timing").<OffsetDateTime>get("ended");
+
+        var predicates = new ArrayList<Predicate>();
+        predicates.add(builder.equal(pomodoro.get("user"), user));
+        if (after != null) predicates.add(builder.greaterThan(id, after));
+        if (filter.getIds() != null) predicates.add(id.in(filter.getIds()));
+        if (filter.getEndedFrom() != null) predicates.add(builder.greaterThanOrEqualTo(ended, filter.getEndedFrom()));
+        if (filter.getEndedTo() != null) predicates.add(builder.lessThan(ended, filter.getEndedTo()));
+        if (filter.getNameContains() != null)
+            predicates.add(builder.like(builder.lower(pomodoro.get("name")), '%' + escapeLike(filter.getNameContains().toLowerCase(Locale.ROOT)) + '%', '\\'));
+
+        return entityManager.createQuery(query.select(pomodoro).where(predicates.toArray(new Predicate[0])).orderBy(builder.asc(id)))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
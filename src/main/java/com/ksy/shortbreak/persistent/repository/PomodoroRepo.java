@@ -3,13 +3,49 @@ package com.ksy.shortbreak.persistent.repository;
 import com.ksy.shortbreak.persistent.entity.Pomodoro;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
-public @Repository interface PomodoroRepo extends JpaRepository<Pomodoro, UUID> {
+public @Repository interface PomodoroRepo extends JpaRepository<Pomodoro, UUID>, PomodoroFilterRepo {
     List<Pomodoro> findAllByUserOrderByTimingEndedDesc(String user, Pageable pageable);
 
     long countByUser(String user);
+
+    @Query("select distinct p.user from Pomodoro p")
+    List<String> findAllUsers();
+
+    @Query("select p.id from Pomodoro p where p.user = :user")
+    List<UUID> findAllIdsByUser(@Param("user") String user);
+
+    @Query("select distinct p.user from Pomodoro p where p.timing.ended < :ended")
+    List<String> findUsersWithPomodorosEndedBefore(@Param("ended") OffsetDateTime ended);
+
+    List<Pomodoro> findAllByUserAndTimingEndedBeforeOrderByTimingEndedAsc(String user, OffsetDateTime ended, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Pomodoro p where p.id in :ids")
+    int deleteAllByIdIn(@Param("ids") Collection<UUID> ids);
+
+    long countByIdInAndUserNot(Collection<UUID> ids, String user);
+
+    /** Bulk statements bypass {@code @Version}, so they increment it themselves to fail concurrent updates */
+    @Modifying
+    @Query("update Pomodoro p set p.name = :name, p.version = p.version + 1 where p.user = :user and p.id in :ids")
+    int renameAllByUserAndIdIn(@Param("user") String user, @Param("ids") Collection<UUID> ids, @Param("name") String name);
+
+    @Modifying
+    @Query("update Pomodoro p set p.timing.duration = :duration, p.version = p.version + 1 where p.user = :user and p.id in :ids")
+    int updateDurationOfAllByUserAndIdIn(@Param("user") String user, @Param("ids") Collection<UUID> ids, @Param("duration") Duration duration);
+
+    @Modifying
+    @Query("delete from Pomodoro p where p.user = :user and p.id in :ids")
+    int deleteAllByUserAndIdIn(@Param("user") String user, @Param("ids") Collection<UUID> ids);
 }
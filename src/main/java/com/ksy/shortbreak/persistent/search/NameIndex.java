@@ -0,0 +1,367 @@
+package com.ksy.shortbreak.persistent.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inverted index of names of pomodoros, separate for every user.
+ * <p>
+ * Every named pomodoro of a user gets a number, and every token of the names of the user has sorted numbers of the
+ * pomodoros having it. A query matches pomodoros having, for every token of the query, a token starting with it: the
+ * tokens of a prefix are a range of the sorted dictionary, their numbers are OR-ed into a bitmap, and the bitmaps of
+ * query tokens are AND-ed. Matches are ranked by recency, then by id descending, and only the page is kept in a heap,
+ * so a page after a keyset cursor costs the same as the first one.
+ * <p>
+ * The index is written to a file as is: pomodoros, then the dictionary with varint deltas of numbers and a CRC32, so
+ * loading it takes no tokenizing and no repository reads. Putting an unchanged pomodoro is a lookup by id.
+ */
+public class NameIndex {
+    private static final int MAGIC = 0x53424e58;  // SBNX
+    private static final byte FORMAT = 1;
+
+    private final ConcurrentMap<String, UserIndex> users = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes a new pomodoro, or reindexes a renamed one
+     * @param recency ranks matches, greater first
+     * @return false if the pomodoro is already indexed with the name and recency
+     */
+    public boolean put(String user, UUID id, String name, long recency) {
+        return users.computeIfAbsent(requireNonNull(user), ignored -> new UserIndex()).put(requireNonNull(id), name, recency);
+    }
+
+    /** @return false if the pomodoro is not indexed */
+    public boolean remove(String user, UUID id) {
+        var index = users.get(requireNonNull(user));
+        return index != null && index.remove(requireNonNull(id));
+    }
+
+    /**
+     * Removes pomodoros of an index read from a file which were not put since, e.g. deleted before a crash kept the
+     * file from being written
+     * @return number of removed pomodoros
+     */
+    public long removeNotPutSinceRead() {
+        var removed = 0L;
+        for (var index : users.values()) removed += index.removeNotPut();
+        return removed;
+    }
+
+    /**
+     * @param after the last hit of the previous page, null for the first page
+     * @return at most {@code limit} pomodoros of the user matching every token of the query as a prefix
+     */
+    public List<Hit> search(String user, String query, Hit after, int limit) {
+        var index = users.get(requireNonNull(user));
+        var tokens = Tokenizer.tokens(query);
+        if (index == null || tokens.isEmpty() || limit < 1) return List.of();
+        return index.search(tokens, after, limit);
+    }
+
+    /** @return number of indexed pomodoros */
+    public long size() {
+        var size = 0L;
+        for (var index : users.values()) size += index.size();
+        return size;
+    }
+
+    /** Removes all documents of the user */
+    public void removeUser(String user) { users.remove(requireNonNull(user)); }
+
+    public void clear() { users.clear(); }
+
+    /** Durably replaces the file by the current state of the index */
+    public void write(Path path) {
+        var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            try (var channel = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                var crc = new CRC32();
+                var out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)), crc));
+                out.writeInt(MAGIC);
+                out.writeByte(FORMAT);
+                var snapshot = new HashMap<>(users);
+                writeVarInt(out, snapshot.size());
+                for (var user : snapshot.entrySet()) {
+                    out.writeUTF(user.getKey());
+                    user.getValue().write(out);
+                }
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temporary, path, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write name index " + path, e);
+        }
+    }
+
+    /** @throws IllegalStateException if the file is not a complete index */
+    public static NameIndex read(Path path) {
+        var index = new NameIndex();
+        var crc = new CRC32();
+        try (var in = new DataInputStream(new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT) throw new IllegalStateException("Unknown format of name index " + path);
+            var users = readVarInt(in);
+            for (var i = 0; i < users; i++) index.users.put(in.readUTF(), UserIndex.read(in));
+            var expected = (int) crc.getValue();
+            if (in.readInt() != expected) throw new IllegalStateException("Corrupted name index " + path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read name index " + path, e);
+        }
+        return index;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        var value = 0;
+        for (var shift = 0; ; shift += 7) {
+            var b = in.readByte();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) return value;
+        }
+    }
+
+    /** Pomodoro matching a query, also a keyset cursor of the next page */
+    public static final class Hit {
+        private static final Comparator<Hit> ORDER = Comparator.comparingLong(Hit::getRecency).thenComparing(Hit::getId);
+
+        private final UUID id;
+        private final String name;
+        private final long recency;
+
+        /** @param name not needed for a cursor */
+        public static Hit of(UUID id, String name, long recency) { return new Hit(requireNonNull(id), name, recency); }
+
+        public UUID getId() { return id; }
+
+        public String getName() { return name; }
+
+        public long getRecency() { return recency; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Hit)) return false;
+            var that = (Hit) o;
+            return recency == that.recency && id.equals(that.id) && Objects.equals(name, that.name);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(id, name, recency); }
+
+        @Override
+        public String toString() { return "Hit{id=" + id + ", name='" + name + "', recency=" + recency + '}'; }
+
+        private Hit(UUID id, String name, long recency) {
+            this.id = id;
+            this.name = name;
+            this.recency = recency;
+        }
+    }
+
+    private static final class Doc {
+        final UUID id;
+        String name;
+        long recency;
+        /** False for a doc read from a file until it is put again */
+        boolean put = true;
+
+        Doc(UUID id, String name, long recency) {
+            this.id = id;
+            this.name = name;
+            this.recency = recency;
+        }
+
+        Hit hit() { return new Hit(id, name, recency); }
+    }
+
+    /** Sorted distinct numbers of pomodoros */
+    private static final class Postings {
+        int[] numbers = new int[4];
+        int size;
+
+        void add(int number) {
+            var position = Arrays.binarySearch(numbers, 0, size, number);
+            if (position >= 0) return;
+            position = -position - 1;
+            if (size == numbers.length) numbers = Arrays.copyOf(numbers, size + (size >> 1) + 1);
+            System.arraycopy(numbers, position, numbers, position + 1, size - position);
+            numbers[position] = number;
+            size++;
+        }
+
+        /** @return true if no numbers are left */
+        boolean remove(int number) {
+            var position = Arrays.binarySearch(numbers, 0, size, number);
+            if (position >= 0) System.arraycopy(numbers, position + 1, numbers, position, --size - position);
+            return size == 0;
+        }
+    }
+
+    private static final class UserIndex {
+        private final List<Doc> docs = new ArrayList<>();
+        private final Map<UUID, Integer> numbers = new HashMap<>();
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+        synchronized int size() { return docs.size(); }
+
+        synchronized boolean put(UUID id, String name, long recency) {
+            var number = numbers.get(id);
+            if (number == null) {
+                var tokens = Tokenizer.tokens(name);
+                if (tokens.isEmpty()) return false;
+                number = docs.size();
+                docs.add(new Doc(id, name, recency));
+                numbers.put(id, number);
+                for (var token : tokens) terms.computeIfAbsent(token, ignored -> new Postings()).add(number);
+                return true;
+            }
+
+            var doc = docs.get(number);
+            doc.put = true;
+            if (Objects.equals(doc.name, name) && doc.recency == recency) return false;
+            if (!Objects.equals(doc.name, name)) {
+                unindex(number, doc.name);
+                for (var token : Tokenizer.tokens(name)) terms.computeIfAbsent(token, ignored -> new Postings()).add(number);
+                doc.name = name;
+            }
+            doc.recency = recency;
+            return true;
+        }
+
+        /** The last doc takes the number of the removed one, so numbers stay dense */
+        synchronized boolean remove(UUID id) {
+            var number = numbers.remove(id);
+            if (number == null) return false;
+            unindex(number, docs.get(number).name);
+            var last = docs.size() - 1;
+            var moved = docs.remove(last);
+            if (number != last) {
+                unindex(last, moved.name);
+                docs.set(number, moved);
+                numbers.put(moved.id, number);
+                for (var token : Tokenizer.tokens(moved.name)) terms.computeIfAbsent(token, ignored -> new Postings()).add(number);
+            }
+            return true;
+        }
+
+        synchronized int removeNotPut() {
+            var removed = 0;
+            for (var number = docs.size() - 1; number >= 0; number--) {
+                if (docs.get(number).put) continue;
+                remove(docs.get(number).id);
+                removed++;
+            }
+            return removed;
+        }
+
+        private void unindex(int number, String name) {
+            for (var token : Tokenizer.tokens(name)) {
+                var postings = terms.get(token);
+                if (postings != null && postings.remove(number)) terms.remove(token);
+            }
+        }
+
+        synchronized List<Hit> search(Iterable<String> tokens, Hit after, int limit) {
+            BitSet matched = null;
+            for (var token : tokens) {
+                var any = new BitSet(docs.size());
+                for (var postings : terms.subMap(token, true, token + Character.MAX_VALUE, false).values())
+                    for (var i = 0; i < postings.size; i++) any.set(postings.numbers[i]);
+                if (matched == null) matched = any;
+                else matched.and(any);
+                if (matched.isEmpty()) return List.of();
+            }
+
+            var page = new PriorityQueue<Hit>(limit + 1, Hit.ORDER);
+            for (var number = matched.nextSetBit(0); number >= 0; number = matched.nextSetBit(number + 1)) {
+                var hit = docs.get(number).hit();
+                if (after != null && Hit.ORDER.compare(hit, after) >= 0) continue;
+                page.add(hit);
+                if (page.size() > limit) page.poll();
+            }
+            var hits = new ArrayList<>(page);
+            hits.sort(Hit.ORDER.reversed());
+            return hits;
+        }
+
+        synchronized void write(DataOutputStream out) throws IOException {
+            writeVarInt(out, docs.size());
+            for (var doc : docs) {
+                out.writeLong(doc.id.getMostSignificantBits());
+                out.writeLong(doc.id.getLeastSignificantBits());
+                out.writeLong(doc.recency);
+                out.writeUTF(doc.name);
+            }
+            writeVarInt(out, terms.size());
+            for (var term : terms.entrySet()) {
+                out.writeUTF(term.getKey());
+                var postings = term.getValue();
+                writeVarInt(out, postings.size);
+                for (int i = 0, previous = 0; i < postings.size; previous = postings.numbers[i++])
+                    writeVarInt(out, postings.numbers[i] - previous);
+            }
+        }
+
+        static UserIndex read(DataInputStream in) throws IOException {
+            var index = new UserIndex();
+            var docs = readVarInt(in);
+            for (var number = 0; number < docs; number++) {
+                var id = new UUID(in.readLong(), in.readLong());
+                var recency = in.readLong();
+                var doc = new Doc(id, in.readUTF(), recency);
+                doc.put = false;
+                index.docs.add(doc);
+                index.numbers.put(doc.id, number);
+            }
+            var terms = readVarInt(in);
+            for (var i = 0; i < terms; i++) {
+                var term = in.readUTF();
+                var postings = new Postings();
+                postings.size = readVarInt(in);
+                postings.numbers = new int[Math.max(postings.size, 1)];
+                for (int j = 0, previous = 0; j < postings.size; j++) previous = postings.numbers[j] = previous + readVarInt(in);
+                index.terms.put(term, postings);
+            }
+            return index;
+        }
+    }
+}
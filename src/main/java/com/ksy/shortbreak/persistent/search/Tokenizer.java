@@ -0,0 +1,33 @@
+package com.ksy.shortbreak.persistent.search;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/** Splits text to lower case words of letters and digits without diacritics, so "Café" is found by "cafe". */
+final class Tokenizer {
+    static final int MAX_TOKEN_LENGTH = 32;
+
+    /** @return distinct tokens in the order of appearance, longer ones cut to {@value #MAX_TOKEN_LENGTH} chars */
+    static Set<String> tokens(String text) {
+        var tokens = new LinkedHashSet<String>();
+        if (text == null) return tokens;
+        var normalized = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        var token = new StringBuilder(MAX_TOKEN_LENGTH);
+        for (var i = 0; i < normalized.length(); i++) {
+            var c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(c)) {
+                if (token.length() < MAX_TOKEN_LENGTH) token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) tokens.add(token.toString());
+        return tokens;
+    }
+
+    private Tokenizer() {}
+}
@@ -0,0 +1,44 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Principal;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Decides shard of connections taken by the current thread: the explicitly pinned shard, otherwise shard of the
+ * explicitly set user, otherwise shard of the authenticated user. Data of one user never spans shards, so
+ * everything done on behalf of the authenticated user needs no setup.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<String> USER = new ThreadLocal<>();
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    /** Runs action on shard of the user, for code working with data of a user it isn't authenticated as */
+    public static <T> T callAsUser(String user, Supplier<T> action) { return callWith(USER, user, action); }
+
+    /** Runs action on the shard regardless of the user, for maintenance of shards as a whole */
+    public static <T> T callOnShard(String shard, Supplier<T> action) { return callWith(SHARD, shard, action); }
+
+    static String pinnedShard() { return SHARD.get(); }
+
+    static String currentUser() {
+        var user = USER.get();
+        if (user != null) return user;
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication()).map(Principal::getName).orElse(null);
+    }
+
+    private static <T> T callWith(ThreadLocal<String> holder, String value, Supplier<T> action) {
+        var previous = holder.get();
+        holder.set(value);
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) holder.set(previous);
+            else holder.remove();
+        }
+    }
+
+    private ShardContext() {}
+}
@@ -0,0 +1,108 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.String.join;
+import static java.util.Collections.nCopies;
+
+/**
+ * Moves pomodoros of users to shards the ring assigns them to, needed after shards were added or removed.
+ * <p>
+ * Rows are copied to the target shard in one transaction and only then deleted from the source one in another, so
+ * an interrupted run leaves duplicates at worst, which the next run skips when copying. Until a user is moved, the
+ * user sees no history on the new shard, so it runs as soon as the application is started.
+ */
+@ConditionalOnProperty("shortbreak.sharding.enabled")
+public @Component class ShardRebalancer {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardRebalancer.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final Shards shards;
+
+    public @Autowired ShardRebalancer(Shards shards) {
+        this.shards = shards;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceOnStart() {
+        var moved = rebalance();
+        if (!moved.isEmpty()) LOG.info("Rebalanced shards, moved pomodoros: {}", moved);
+    }
+
+    /** @return numbers of moved pomodoros by moved users */
+    public synchronized Map<String, Integer> rebalance() {
+        var moved = new LinkedHashMap<String, Integer>();
+        for (var source : shards.names()) {
+            var users = jdbc(source).queryForList("select distinct p.user from pomodoro p", String.class);
+            for (var user : users) {
+                var target = shards.ring().shardOf(user);
+                if (!target.equals(source)) moved.merge(user, move(user, source, target), Integer::sum);
+            }
+        }
+        return moved;
+    }
+
+    /** @return numbers of pomodoros by shards */
+    public Map<String, Long> pomodorosByShard() {
+        var counts = new LinkedHashMap<String, Long>();
+        for (var shard : shards.names())
+            counts.put(shard, jdbc(shard).queryForObject("select count(*) from pomodoro", Long.class));
+        return counts;
+    }
+
+    private int move(String user, String source, String target) {
+        var sourceJdbc = jdbc(source);
+        var targetJdbc = jdbc(target);
+        var rows = sourceJdbc.queryForList("select * from pomodoro p where p.user = ?", user);
+        if (rows.isEmpty()) return 0;
+
+        var columns = new ArrayList<>(rows.get(0).keySet());
+        var insert = "insert into pomodoro (" + join(", ", columns) + ") values (" + join(", ", nCopies(columns.size(), "?")) + ")";
+        var ids = new ArrayList<Object[]>(rows.size());
+        transaction(target).execute(status -> {
+            var inserted = new ArrayList<Object[]>();
+            for (var row : rows) {
+                var id = row.get("ID");
+                ids.add(new Object[]{id});
+                var exists = targetJdbc.queryForObject("select count(*) from pomodoro p where p.id = ?", Long.class, id) > 0;
+                if (!exists) inserted.add(row.values().toArray());
+            }
+            for (var batch : batches(inserted)) targetJdbc.batchUpdate(insert, batch);
+            return null;
+        });
+        transaction(source).execute(status -> {
+            for (var batch : batches(ids)) sourceJdbc.batchUpdate("delete from pomodoro p where p.id = ?", batch);
+            return null;
+        });
+
+        LOG.debug("Moved {} pomodoros of {} from {} to {}", rows.size(), user, source, target);
+        return rows.size();
+    }
+
+    private JdbcTemplate jdbc(String shard) { return new JdbcTemplate(shards.dataSource(shard)); }
+
+    private TransactionTemplate transaction(String shard) {
+        return new TransactionTemplate(new DataSourceTransactionManager(shards.dataSource(shard)));
+    }
+
+    private static List<List<Object[]>> batches(List<Object[]> rows) {
+        var batches = new ArrayList<List<Object[]>>();
+        for (var from = 0; from < rows.size(); from += BATCH_SIZE)
+            batches.add(rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        return batches;
+    }
+}
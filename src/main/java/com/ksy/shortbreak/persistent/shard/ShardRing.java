@@ -0,0 +1,55 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Consistent hash ring of shard names. Every shard owns {@code virtualNodes} points of the ring, a key belongs to the
+ * shard owning the first point at or after hash of the key. Adding a shard to N existing ones moves only about
+ * 1/(N + 1) of keys, all of them to the new shard.
+ * <p>
+ * Points depend only on shard names, so the order shards are listed in doesn't matter.
+ */
+public final class ShardRing {
+    private final List<String> shards;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public ShardRing(Collection<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard is required");
+        if (virtualNodes < 1) throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        this.shards = shards.stream().distinct().sorted().collect(toUnmodifiableList());
+        if (this.shards.size() != shards.size()) throw new IllegalArgumentException("Shard names must be unique: " + shards);
+
+        for (var shard : this.shards)
+            for (var node = 0; node < virtualNodes; node++)
+                ring.putIfAbsent(hash(shard + '#' + node), shard);
+    }
+
+    public String shardOf(String key) {
+        var point = ring.ceilingEntry(hash(key));
+        return point != null ? point.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** @return shard names in sorted order */
+    public List<String> shards() { return shards; }
+
+    /** FNV-1a spread over the whole ring by the murmur3 finalizer, stable across JVMs unlike {@link String#hashCode()}. */
+    static long hash(String key) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
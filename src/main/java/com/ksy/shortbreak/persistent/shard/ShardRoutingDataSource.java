@@ -0,0 +1,23 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Connection is routed when a transaction begins, so the whole transaction stays on the shard of its user.
+ * Connections taken without any user, like schema checks on startup, go to the first shard.
+ */
+final class ShardRoutingDataSource extends AbstractRoutingDataSource {
+    private final ShardRing ring;
+
+    ShardRoutingDataSource(ShardRing ring) {
+        this.ring = ring;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        var shard = ShardContext.pinnedShard();
+        if (shard != null) return shard;
+        var user = ShardContext.currentUser();
+        return user != null ? ring.shardOf(user) : null;
+    }
+}
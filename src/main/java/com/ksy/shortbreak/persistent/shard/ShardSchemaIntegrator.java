@@ -0,0 +1,44 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Hibernate manages schema of the database it gets connections of without a user, the first shard only.
+ * Applies the same {@code hibernate.hbm2ddl.auto} management to every shard by updating their schemas.
+ */
+public class ShardSchemaIntegrator implements Integrator {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardSchemaIntegrator.class);
+    private static final Set<String> SCHEMA_UPDATING_ACTIONS = Set.of("update", "create", "create-drop");
+
+    private final Shards shards;
+
+    public ShardSchemaIntegrator(Shards shards) {
+        this.shards = shards;
+    }
+
+    @Override
+    public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                          SessionFactoryServiceRegistry serviceRegistry) {
+        var action = String.valueOf(sessionFactory.getProperties().get(AvailableSettings.HBM2DDL_AUTO));
+        if (!SCHEMA_UPDATING_ACTIONS.contains(action)) return;
+
+        shards.forEachShard(shard -> {
+            LOG.debug("Updating schema of shard {}", shard);
+            new SchemaUpdate().execute(EnumSet.of(TargetType.DATABASE), metadata, serviceRegistry);
+        });
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {}
+}
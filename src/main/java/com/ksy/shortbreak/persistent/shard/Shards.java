@@ -0,0 +1,53 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.util.Collections.unmodifiableMap;
+
+/** Data sources of all shards and the ring distributing users over them. */
+public class Shards implements Closeable {
+    private final Map<String, DataSource> dataSources;
+    private final ShardRing ring;
+
+    public Shards(Map<String, DataSource> dataSources, int virtualNodes) {
+        this.dataSources = unmodifiableMap(new LinkedHashMap<>(dataSources));
+        this.ring = new ShardRing(dataSources.keySet(), virtualNodes);
+    }
+
+    public ShardRing ring() { return ring; }
+
+    public List<String> names() { return ring.shards(); }
+
+    public DataSource dataSource(String shard) {
+        var dataSource = dataSources.get(shard);
+        if (dataSource == null) throw new IllegalArgumentException("Unknown shard " + shard);
+        return dataSource;
+    }
+
+    /** @return data source routing connections to shard of the current user, see {@link ShardContext} */
+    public DataSource routingDataSource() {
+        var routing = new ShardRoutingDataSource(ring);
+        routing.setTargetDataSources(new LinkedHashMap<>(dataSources));
+        routing.setDefaultTargetDataSource(dataSource(names().get(0)));
+        routing.setLenientFallback(false);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    /** Runs action for every shard with connections of the current thread pinned to that shard. */
+    public void forEachShard(Consumer<String> action) {
+        for (var shard : names()) ShardContext.callOnShard(shard, () -> { action.accept(shard); return null; });
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var dataSource : dataSources.values())
+            if (dataSource instanceof Closeable) ((Closeable) dataSource).close();
+    }
+}
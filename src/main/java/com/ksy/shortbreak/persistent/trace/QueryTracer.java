@@ -0,0 +1,195 @@
+package com.ksy.shortbreak.persistent.trace;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Times statements of {@link #trace(DataSource) traced} pools and {@link #begin(String) spans} of transactions,
+ * attributing statements to the span of their thread. Every statement, transaction and connection wait is recorded in
+ * a histogram: {@code db.statement} by call site and operation, {@code db.transaction} by method and outcome and
+ * {@code db.connection.wait} by call site. Those over their thresholds are also written to the {@value #LOGGER} log
+ * as {@code key=value} pairs, bind parameters as types only.
+ * <p>
+ * Metrics are recorded once bound to a registry, statements of the start before that are only logged. Outside a span
+ * the call site of a slow statement is the nearest application frame of the stack, walked only for the log.
+ */
+public class QueryTracer implements MeterBinder {
+    public static final String LOGGER = "com.ksy.shortbreak.slow";
+    private static final Logger LOG = LoggerFactory.getLogger(LOGGER);
+    private static final String NO_SPAN = "none";
+    private static final ThreadLocal<Span> SPAN = new ThreadLocal<>();
+
+    private final long statementThreshold;
+    private final long transactionThreshold;
+    private final int maxSqlLength;
+    private final Consumer<String> slowLog;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public QueryTracer(Duration statementThreshold, Duration transactionThreshold, int maxSqlLength) {
+        this(statementThreshold, transactionThreshold, maxSqlLength, LOG::warn);
+    }
+
+    /** @param slowLog takes records of statements and transactions over their thresholds */
+    public QueryTracer(Duration statementThreshold, Duration transactionThreshold, int maxSqlLength, Consumer<String> slowLog) {
+        this.statementThreshold = statementThreshold.toNanos();
+        this.transactionThreshold = transactionThreshold.toNanos();
+        this.maxSqlLength = maxSqlLength;
+        this.slowLog = slowLog;
+    }
+
+    /** @return the pool with its connections and statements traced, closing it closes the pool */
+    public DataSource trace(DataSource pool) { return new TracedDataSource(pool, this); }
+
+    @Override
+    public void bindTo(MeterRegistry registry) { this.registry = registry; }
+
+    /**
+     * Starts a span of the current thread, statements are attributed to it until it is {@link Span#end() ended}.
+     * Statements of a nested span are attributed to the innermost one and counted in the outer ones too.
+     */
+    public Span begin(String method) {
+        var span = new Span(method, SPAN.get());
+        SPAN.set(span);
+        return span;
+    }
+
+    void connectionAcquired(long waitNanos) {
+        var span = SPAN.get();
+        if (span != null) span.connectionWait += waitNanos;
+        record("db.connection.wait", waitNanos, "call.site", span != null ? span.method : NO_SPAN);
+    }
+
+    void statement(String sql, String parameters, long rows, long elapsedNanos, long connectionWaitNanos) {
+        var span = SPAN.get();
+        if (span != null) {
+            span.statements++;
+            span.rows += rows;
+        }
+        var operation = operationOf(sql);
+        record("db.statement", elapsedNanos, "call.site", span != null ? span.method : NO_SPAN, "operation", operation);
+        if (elapsedNanos < statementThreshold) return;
+
+        slowLog.accept(new StringBuilder("slow_statement")
+                .append(" elapsed_ms=").append(millis(elapsedNanos))
+                .append(" threshold_ms=").append(millis(statementThreshold))
+                .append(" call_site=").append(span != null ? span.method : callSite())
+                .append(" operation=").append(operation)
+                .append(" rows=").append(rows)
+                .append(" connection_wait_ms=").append(millis(connectionWaitNanos))
+                .append(" params=").append(quoted(parameters))
+                .append(" sql=").append(quoted(sql.length() > maxSqlLength ? sql.substring(0, maxSqlLength) + "..." : sql))
+                .toString());
+    }
+
+    private void transaction(Span span, long elapsedNanos) {
+        record("db.transaction", elapsedNanos, "method", span.method, "outcome", span.failure == null ? "success" : "failure");
+        if (elapsedNanos < transactionThreshold) return;
+
+        var record = new StringBuilder("slow_transaction")
+                .append(" elapsed_ms=").append(millis(elapsedNanos))
+                .append(" threshold_ms=").append(millis(transactionThreshold))
+                .append(" method=").append(span.method)
+                .append(" statements=").append(span.statements)
+                .append(" rows=").append(span.rows)
+                .append(" connection_wait_ms=").append(millis(span.connectionWait));
+        if (span.failure != null) record.append(" failure=").append(span.failure.getClass().getName());
+        slowLog.accept(record.toString());
+    }
+
+    private void record(String name, long nanos, String... tags) {
+        var registry = this.registry;
+        if (registry == null) return;
+        timers.computeIfAbsent(name + String.join(",", tags), ignored -> Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String operationOf(String sql) {
+        var start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) start++;
+        var end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) end++;
+        var operation = sql.substring(start, end).toLowerCase(Locale.ROOT);
+        switch (operation) {
+            case "select":
+            case "insert":
+            case "update":
+            case "delete":
+            case "merge":
+            case "call":
+                return operation;
+            default:
+                return "other";
+        }
+    }
+
+    /** @return the nearest frame of the application outside of tracing and proxies */
+    private static String callSite() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith("com.ksy.shortbreak.")
+                        && !isTracing(frame.getClassName())
+                        && !frame.getClassName().contains("$$"))
+                .findFirst()
+                .map(frame -> frame.getClassName().substring(frame.getClassName().lastIndexOf('.') + 1) + "." + frame.getMethodName())
+                .orElse(NO_SPAN));
+    }
+
+    private static boolean isTracing(String className) {
+        var outer = className.contains("$") ? className.substring(0, className.indexOf('$')) : className;
+        return outer.equals(QueryTracer.class.getName()) || outer.equals(TracedDataSource.class.getName());
+    }
+
+    private static String millis(long nanos) { return String.format(Locale.ROOT, "%.1f", nanos / 1e6); }
+
+    private static String quoted(String value) {
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", " ").replace("\r", " ") + '"';
+    }
+
+    /** Transaction of a method on a thread, ended on the same thread */
+    public final class Span {
+        private final String method;
+        private final Span parent;
+        private final long started = System.nanoTime();
+        private int statements;
+        private long rows;
+        private long connectionWait;
+        private Throwable failure;
+
+        public void failed(Throwable failure) { this.failure = failure; }
+
+        public void end() {
+            var elapsed = System.nanoTime() - started;
+            if (parent != null) {
+                parent.statements += statements;
+                parent.rows += rows;
+                parent.connectionWait += connectionWait;
+            }
+            if (SPAN.get() == this) {
+                if (parent != null) SPAN.set(parent);
+                else SPAN.remove();
+            }
+            transaction(this, elapsed);
+        }
+
+        private Span(String method, Span parent) {
+            this.method = method;
+            this.parent = parent;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.ksy.shortbreak.persistent.trace;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Pool with connections timed from the request to the pool until they are given, and statements timed from execution
+ * until their results are read. Rows are the update counts of writes and rows read of queries, time of a query
+ * includes reading of its rows, but not the work of the caller between them.
+ */
+class TracedDataSource extends DelegatingDataSource implements Closeable {
+    private static final Set<String> EXECUTIONS = Set.of("execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final QueryTracer tracer;
+
+    TracedDataSource(DataSource pool, QueryTracer tracer) {
+        super(pool);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        var started = System.nanoTime();
+        var connection = super.getConnection();
+        return traced(connection, System.nanoTime() - started);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        var started = System.nanoTime();
+        var connection = super.getConnection(username, password);
+        return traced(connection, System.nanoTime() - started);
+    }
+
+    @Override
+    public void close() throws IOException {
+        var pool = getTargetDataSource();
+        if (pool instanceof Closeable) ((Closeable) pool).close();
+    }
+
+    private Connection traced(Connection connection, long wait) {
+        tracer.connectionAcquired(wait);
+        return proxy(Connection.class, connection, (method, args) -> {
+            var result = invoke(connection, method, args);
+            if (result instanceof Statement && method.getName().startsWith("prepare"))
+                return statement((Statement) result, (String) args[0], wait);
+            if (result instanceof Statement) return statement((Statement) result, null, wait);
+            return result;
+        });
+    }
+
+    private Statement statement(Statement statement, String sql, long connectionWait) {
+        var traced = new TracedStatement(statement, sql, connectionWait);
+        var type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return proxy(type, statement, traced::handle);
+    }
+
+    /** Proxies are equal only to themselves, other methods are handled */
+    private static <T> T proxy(Class<? extends T> type, T target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(TracedDataSource.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals("equals") && method.getParameterCount() == 1) return proxy == args[0];
+            if (method.getName().equals("hashCode") && method.getParameterCount() == 0) return System.identityHashCode(proxy);
+            return handler.invoke(method, args);
+        }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface Handler {
+        Object invoke(Method method, Object[] args) throws Throwable;
+    }
+
+    /** Statement of a thread, a query is recorded when its rows are read, on close of its result or the next execution */
+    private final class TracedStatement {
+        private final Statement statement;
+        private final String preparedSql;
+        private final long connectionWait;
+        private final Map<Integer, String> parameters = new TreeMap<>();
+        private String batchParameters;
+        private int batched;
+        private String querySql;
+        private String queryParameters;
+        private long queryNanos;
+        private long queryRows;
+
+        TracedStatement(Statement statement, String preparedSql, long connectionWait) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+            this.connectionWait = connectionWait;
+        }
+
+        Object handle(Method method, Object[] args) throws Throwable {
+            var name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], shapeOf(name, args[1]));
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                if (batched++ == 0) batchParameters = shape();
+            } else if (name.equals("clearBatch")) {
+                batched = 0;
+            } else if (name.equals("close")) {
+                endQuery();
+            } else if (EXECUTIONS.contains(name)) {
+                return execute(method, args);
+            } else if (name.equals("getResultSet")) {
+                var result = (ResultSet) invoke(statement, method, args);
+                return result != null && querySql != null ? rows(result) : result;
+            }
+            return invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            endQuery();
+            var sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : preparedSql;
+            var batch = method.getName().contains("Batch");
+            var parameters = batch ? batched + " x " + batchParameters : shape();
+            var started = System.nanoTime();
+            var result = invoke(statement, method, args);
+            var elapsed = System.nanoTime() - started;
+
+            if (result instanceof ResultSet || Boolean.TRUE.equals(result)) {
+                querySql = sql;
+                queryParameters = parameters;
+                queryNanos = elapsed;
+                queryRows = 0;
+                return result instanceof ResultSet ? rows((ResultSet) result) : result;
+            }
+            tracer.statement(sql, parameters, rowsOf(result), elapsed, connectionWait);
+            if (batch) batched = 0;
+            return result;
+        }
+
+        private ResultSet rows(ResultSet resultSet) {
+            return proxy(ResultSet.class, resultSet, (method, args) -> {
+                if (method.getName().equals("next")) {
+                    var started = System.nanoTime();
+                    var result = invoke(resultSet, method, args);
+                    queryNanos += System.nanoTime() - started;
+                    if (Boolean.TRUE.equals(result)) queryRows++;
+                    return result;
+                }
+                if (method.getName().equals("close")) endQuery();
+                return invoke(resultSet, method, args);
+            });
+        }
+
+        private void endQuery() {
+            if (querySql == null) return;
+            tracer.statement(querySql, queryParameters, queryRows, queryNanos, connectionWait);
+            querySql = null;
+        }
+
+        private String shape() {
+            return parameters.values().stream().collect(joining(", ", "(", ")"));
+        }
+
+        private long rowsOf(Object result) throws SQLException {
+            if (result instanceof Integer || result instanceof Long) return ((Number) result).longValue();
+            if (Boolean.FALSE.equals(result)) return Math.max(0, statement.getUpdateCount());
+            var rows = 0L;
+            if (result instanceof int[]) for (var count : (int[]) result) rows += Math.max(0, count);
+            if (result instanceof long[]) for (var count : (long[]) result) rows += Math.max(0, count);
+            return rows;
+        }
+
+        private String shapeOf(String setter, Object value) {
+            if (setter.equals("setNull") || value == null) return "null";
+            if (setter.equals("setObject")) return value.getClass().getSimpleName();
+            return setter.substring(3);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ksy.shortbreak.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/** Defers side effects of a write until its transaction is committed, or runs them at once outside of a transaction. */
+final class AfterCommit {
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() { action.run(); }
+        });
+    }
+
+    private AfterCommit() {}
+}
@@ -0,0 +1,42 @@
+package com.ksy.shortbreak.service;
+
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool running repository work of asynchronous requests, so a slow database holds its threads instead of
+ * the threads of the web server.
+ * <p>
+ * Work runs with the security context of the submitting thread, so the user, its shard and read routing are the same
+ * as on the request thread. A full queue rejects work at once rather than piling up requests the database can't
+ * serve. Not a {@link java.util.concurrent.Executor} bean, so it is never picked up as the default executor.
+ */
+public class DatabaseExecutor implements AutoCloseable {
+    private final ExecutorService executor;
+
+    public DatabaseExecutor(int threads, int queueCapacity) {
+        var number = new AtomicInteger();
+        var pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            var thread = new Thread(runnable, "database-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.executor = new DelegatingSecurityContextExecutorService(pool);
+    }
+
+    /** @throws RejectedExecutionException if the queue is full */
+    public <T> CompletableFuture<T> supply(Supplier<T> work) throws RejectedExecutionException {
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    @Override
+    public void close() { executor.shutdown(); }
+}
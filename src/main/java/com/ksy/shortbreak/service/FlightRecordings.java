@@ -0,0 +1,214 @@
+package com.ksy.shortbreak.service;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Java Flight Recorder recordings written to files of a directory, started on demand or running continuously.
+ * <p>
+ * A continuous recording is rotated by starting the next one before stopping the current one, so files follow each
+ * other without gaps and every file covers one interval; only the newest {@code keep} of its files are kept. An
+ * on-demand recording is written when it is stopped or its duration elapses, and its file is kept until it is
+ * {@link #delete(String) deleted}, as rotation tells continuous files by their prefix. Recordings are kept on disk by JFR while they run,
+ * up to {@code maxSize}, so they don't grow the heap.
+ */
+public class FlightRecordings implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(FlightRecordings.class);
+    private static final Pattern FILE = Pattern.compile("[\\w-]+\\.jfr");
+    private static final String CONTINUOUS = "continuous";
+    private static final String ON_DEMAND = "recording";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final String settings;
+    private final long maxSize;
+    private final int keep;
+    private final Map<Long, Recording> onDemand = new ConcurrentHashMap<>();
+    private Recording continuous;
+
+    /** @param settings JFR settings of recordings started without them, e.g. "default" or "profile" */
+    public FlightRecordings(Path directory, String settings, long maxSize, int keep) {
+        if (keep < 1) throw new IllegalArgumentException("Invalid number of kept recordings " + keep);
+        this.directory = directory;
+        this.settings = settings;
+        this.maxSize = maxSize;
+        this.keep = keep;
+        configurationOf(settings);
+    }
+
+    public static boolean isAvailable() { return FlightRecorder.isAvailable(); }
+
+    public synchronized boolean isContinuous() { return continuous != null; }
+
+    /** Starts the continuous recording if it isn't running */
+    public synchronized void startContinuous() {
+        if (continuous == null) continuous = start(CONTINUOUS, configurationOf(settings), null);
+    }
+
+    /**
+     * Writes the continuous recording since the previous rotation into a file, if it is running
+     * @return the file
+     */
+    @Scheduled(initialDelayString = "${shortbreak.profiling.rotate-every:PT10M}", fixedDelayString = "${shortbreak.profiling.rotate-every:PT10M}")
+    public synchronized Optional<Path> rotate() {
+        if (continuous == null) return Optional.empty();
+        var previous = continuous;
+        continuous = start(CONTINUOUS, configurationOf(settings), null);
+        previous.stop();
+        previous.close();
+        prune();
+        LOG.debug("Rotated continuous recording into {}", previous.getDestination());
+        return Optional.of(previous.getDestination());
+    }
+
+    /**
+     * @param settings null for the configured ones
+     * @param duration until the recording is stopped and written, null to run until {@link #stop(long)}
+     * @throws IllegalArgumentException if there are no such settings
+     */
+    public Recording start(String settings, Duration duration) {
+        var configuration = configurationOf(settings != null ? settings : this.settings);
+        var recording = start(ON_DEMAND, configuration, duration);
+        onDemand.put(recording.getId(), recording);
+        LOG.info("Started recording {} with {} settings for {}", recording.getId(), configuration.getName(), duration);
+        return recording;
+    }
+
+    /** @return the file the recording is written to, empty if there is no such on-demand recording */
+    public Optional<Path> stop(long id) {
+        var recording = onDemand.remove(id);
+        if (recording == null) return Optional.empty();
+        if (recording.getState() == RecordingState.RUNNING) recording.stop();
+        recording.close();
+        LOG.info("Stopped recording {} into {}", id, recording.getDestination());
+        return Optional.of(recording.getDestination());
+    }
+
+    /** @return the continuous recording and ones started on demand still running, those written after their duration are closed */
+    public List<Recording> recordings() {
+        onDemand.values().removeIf(recording -> {
+            if (recording.getState() == RecordingState.RUNNING || recording.getState() == RecordingState.DELAYED) return false;
+            recording.close();
+            return true;
+        });
+        var recordings = onDemand.values().stream().sorted(Comparator.comparingLong(Recording::getId)).collect(toList());
+        synchronized (this) {
+            if (continuous != null) recordings.add(0, continuous);
+        }
+        return recordings;
+    }
+
+    /** @return written recordings, newer first, without files JFR already created for running ones */
+    public List<Path> files() {
+        if (!Files.isDirectory(directory)) return List.of();
+        var running = recordings().stream().map(Recording::getDestination).collect(toSet());
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> FILE.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file))
+                    .filter(file -> !running.contains(file))
+                    .sorted(Comparator.comparing(FlightRecordings::lastModified).thenComparing(Path::getFileName).reversed())
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list recordings in " + directory, e);
+        }
+    }
+
+    /** @return written recording with the file name, empty if there is none, e.g. it's not written yet or is a path */
+    public Optional<Path> file(String name) {
+        if (!FILE.matcher(name).matches()) return Optional.empty();
+        var file = directory.resolve(name);
+        return files().contains(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /** @return false if there is no such written recording */
+    public boolean delete(String name) {
+        var file = file(name);
+        if (file.isEmpty()) return false;
+        try {
+            Files.deleteIfExists(file.get());
+            LOG.info("Deleted recording {}", file.get());
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete recording " + file.get(), e);
+        }
+    }
+
+    /** Writes the running recordings */
+    @Override
+    public synchronized void close() {
+        for (var id : List.copyOf(onDemand.keySet())) stop(id);
+        if (continuous != null) {
+            continuous.stop();
+            continuous.close();
+            continuous = null;
+        }
+    }
+
+    private Recording start(String prefix, Configuration configuration, Duration duration) {
+        try {
+            Files.createDirectories(directory);
+            var recording = new Recording(configuration);
+            recording.setName(prefix);
+            recording.setToDisk(true);
+            recording.setMaxSize(maxSize);
+            recording.setDuration(duration);
+            recording.setDestination(directory.resolve(prefix + "-" + TIME.format(LocalDateTime.now()) + "-" + recording.getId() + ".jfr"));
+            recording.start();
+            return recording;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to start recording into " + directory, e);
+        }
+    }
+
+    /** Deletes written files of the continuous recording beyond the kept number, oldest first */
+    private void prune() {
+        var files = files().stream().filter(file -> file.getFileName().toString().startsWith(CONTINUOUS + '-')).collect(toList());
+        for (var file : files.subList(Math.min(keep, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);
+                LOG.debug("Deleted recording {}", file);
+            } catch (IOException e) {
+                LOG.warn("Unable to delete recording {}", file, e);
+            }
+        }
+    }
+
+    private static Configuration configurationOf(String settings) {
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown recording settings " + settings, e);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
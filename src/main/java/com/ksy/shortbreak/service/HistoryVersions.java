@@ -0,0 +1,46 @@
+package com.ksy.shortbreak.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Per-user version of pomodoros history, bumped after every committed write of the user.
+ * Versions live in memory only, so {@link #tag(String)} includes start time of the application
+ * to never match a tag issued before restart.
+ */
+public @Component class HistoryVersions {
+    private final long epoch = System.currentTimeMillis();
+    private final ConcurrentMap<String, Version> versions = new ConcurrentHashMap<>();
+
+    public long versionOf(String user) {
+        var version = versions.get(requireNonNull(user));
+        return version != null ? version.value.get() : 0;
+    }
+
+    public void bump(String user) {
+        var version = versions.computeIfAbsent(requireNonNull(user), ignored -> new Version());
+        version.changedAtNanos = System.nanoTime();
+        version.value.incrementAndGet();
+    }
+
+    /** @return true if history of the user was changed after the {@link System#nanoTime()} */
+    public boolean changedSince(String user, long nanoTime) {
+        var version = versions.get(requireNonNull(user));
+        return version != null && version.value.get() > 0 && version.changedAtNanos - nanoTime >= 0;
+    }
+
+    /** @return opaque value identifying current state of history of the user */
+    public String tag(String user) {
+        return Long.toHexString(epoch) + '-' + Integer.toHexString(user.hashCode()) + '-' + Long.toHexString(versionOf(user));
+    }
+
+    private static final class Version {
+        private final AtomicLong value = new AtomicLong();
+        private volatile long changedAtNanos;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.ActivePomodoros;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Pomodoros running now, of all users or of a team, kept from starts and stops of pomodoros without querying the
+ * repository. A pomodoro stops running at its planned end even if it is not stopped.
+ */
+public class PomodoroActivity implements PomodoroListener {
+    private final ActivePomodoros active;
+    private final Teams teams;
+    private final Clock clock;
+
+    public PomodoroActivity(ActivePomodoros active, Teams teams, Clock clock) {
+        this.active = active;
+        this.teams = teams;
+        this.clock = clock;
+    }
+
+    @Override
+    public void changed(PomodoroChange change) {
+        var pomodoro = change.getPomodoro();
+        var timing = pomodoro.getTiming();
+        if (change.is(PomodoroChange.Type.DELETED)) {
+            active.stop(pomodoro.getId());
+        } else if (timing.getEnded() != null) {
+            if (change.getPrevious() != null) active.stop(pomodoro.getId());
+        } else if (timing.getStarted() != null) {
+            var ends = timing.getStarted().plus(timing.getDuration());
+            if (ends.toInstant().isAfter(clock.instant())) active.start(pomodoro.getUser(), pomodoro.getId(), timing.getStarted(), ends);
+            else active.stop(pomodoro.getId());
+        }
+    }
+
+    @Override
+    public void reset(String user) { active.removeUser(user); }
+
+    /** @param team null for all users */
+    public int count(String team) {
+        return team == null ? active.count(clock.instant()) : active.countOf(teams.membersOf(team), clock.instant());
+    }
+
+    /**
+     * @param team null for all users
+     * @return at most {@code limit} running pomodoros, earlier started first
+     */
+    public List<ActivePomodoros.Active> list(String team, int limit) {
+        return team == null ? active.list(clock.instant(), limit) : active.listOf(teams.membersOf(team), clock.instant(), limit);
+    }
+}
@@ -0,0 +1,101 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Moves pomodoros completed longer than {@code olderThan} ago from the hot table to the {@link PomodoroArchive}.
+ * <p>
+ * A segment is written before the archived rows are deleted in the same transaction and is discarded if the
+ * transaction doesn't commit. If the application stops between the two, the rows stay in both tiers until the next
+ * run deletes them without archiving again.
+ */
+public class PomodoroArchiver {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroArchiver.class);
+
+    private final PomodoroRepo repository;
+    private final PomodoroArchive archive;
+    private final HistoryVersions historyVersions;
+    private final PomodoroIds ids;
+    private final TransactionTemplate transactions;
+    private final Shards shards;
+    private final Duration olderThan;
+    private final int batchSize;
+
+    /** @param shards to archive pomodoros of every shard, null without sharding */
+    public PomodoroArchiver(PomodoroRepo repository, PomodoroArchive archive, HistoryVersions historyVersions,
+                            PomodoroIds ids, TransactionTemplate transactions, Shards shards, Duration olderThan, int batchSize) {
+        this.repository = repository;
+        this.archive = archive;
+        this.historyVersions = historyVersions;
+        this.ids = ids;
+        this.transactions = transactions;
+        this.shards = shards;
+        this.olderThan = olderThan;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${shortbreak.archive.interval:PT1H}", fixedDelayString = "${shortbreak.archive.interval:PT1H}")
+    public void archive() {
+        var ended = OffsetDateTime.now().minus(olderThan);
+        var archived = new AtomicInteger();
+        if (shards == null) archived.addAndGet(archiveEndedBefore(ended));
+        else shards.forEachShard(shard -> archived.addAndGet(archiveEndedBefore(ended)));
+        LOG.info("Archived {} pomodoros ended before {}", archived, ended);
+    }
+
+    private int archiveEndedBefore(OffsetDateTime ended) {
+        var archived = 0;
+        for (var user : repository.findUsersWithPomodorosEndedBefore(ended)) {
+            int batch;
+            do {
+                batch = transactions.execute(status -> archiveBatch(user, ended));
+                archived += batch;
+            } while (batch == batchSize);
+        }
+        return archived;
+    }
+
+    private int archiveBatch(String user, OffsetDateTime ended) {
+        var pomodoros = repository.findAllByUserAndTimingEndedBeforeOrderByTimingEndedAsc(user, ended, PageRequest.of(0, batchSize));
+        if (pomodoros.isEmpty()) return 0;
+
+        var archivedBefore = archive.idsOfLastSegment(user);
+        var notArchived = pomodoros.stream().filter(pomodoro -> !archivedBefore.contains(pomodoro.getId())).collect(toList());
+        if (!notArchived.isEmpty()) {
+            var segment = archive.append(user, notArchived);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) archive.discard(user, segment);
+                }
+            });
+        }
+
+        var deleted = pomodoros.stream().map(Pomodoro::getId).collect(toSet());
+        repository.deleteAllByIdIn(deleted);
+        AfterCommit.run(() -> {
+            historyVersions.bump(user);
+            ids.removed(deleted);
+        });
+        LOG.debug("Archived {} pomodoros of {}", pomodoros.size(), user);
+        return pomodoros.size();
+    }
+}
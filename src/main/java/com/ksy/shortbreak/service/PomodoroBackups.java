@@ -0,0 +1,209 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.backup.PomodoroSnapshot;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Online backups of the pomodoro table into {@link PomodoroSnapshot} files of a directory, taken on demand or on schedule.
+ * <p>
+ * A snapshot is one read-only repeatable read transaction per database, so it is consistent for every database (shard)
+ * and takes no locks: writers keep going against MVCC versions newer than the snapshot. Rows are streamed into
+ * deflated chunks as they are read. A finished file is copied to {@code copyTo} by {@link FileChannel#transferTo}, which
+ * the kernel copies without passing the bytes through the heap, and only the newest {@code keep} files are kept.
+ * <p>
+ * A snapshot is restored into an empty database on start, before anything reads pomodoros: rows are inserted by JDBC
+ * batches of a chunk in one transaction per database, bypassing entity mapping and listeners, which build their state
+ * from the restored rows afterwards. With sharding, a row goes to the shard of its user on the current ring.
+ */
+public class PomodoroBackups {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroBackups.class);
+    private static final Pattern FILE = Pattern.compile("pomodoros-[\\w-]+\\.snap");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Map<String, DataSource> dataSources = new LinkedHashMap<>();
+    private final Shards shards;
+    private final Path directory;
+    private final Path copyTo;
+    private final int keep;
+    private final int chunkBytes;
+    private final boolean scheduled;
+    private final Path restoreFrom;
+
+    /**
+     * @param shards to back up and restore every shard, null without sharding
+     * @param copyTo directory every backup is also copied to, null to keep backups in the directory only
+     * @param scheduled whether {@link #scheduledBackup()} takes backups
+     * @param restoreFrom backup restored by {@link #restoreOnStart()}, null to restore none
+     */
+    public PomodoroBackups(DataSource dataSource, Shards shards, Path directory, Path copyTo, int keep, int chunkBytes,
+                           boolean scheduled, Path restoreFrom) {
+        if (keep < 1 || chunkBytes < 1) throw new IllegalArgumentException("Invalid backups of " + chunkBytes + " bytes chunks kept by " + keep);
+        if (shards == null) dataSources.put("", dataSource);
+        else for (var shard : shards.names()) dataSources.put(shard, shards.dataSource(shard));
+        this.shards = shards;
+        this.directory = directory;
+        this.copyTo = copyTo;
+        this.keep = keep;
+        this.chunkBytes = chunkBytes;
+        this.scheduled = scheduled;
+        this.restoreFrom = restoreFrom;
+    }
+
+    @Scheduled(initialDelayString = "${shortbreak.backup.interval:PT1H}", fixedDelayString = "${shortbreak.backup.interval:PT1H}")
+    public void scheduledBackup() {
+        if (scheduled) backup();
+    }
+
+    /** @return the written backup file */
+    public synchronized Path backup() {
+        var started = System.nanoTime();
+        var file = directory.resolve("pomodoros-" + TIME.format(LocalDateTime.now()) + ".snap");
+        long rows;
+        try (var writer = PomodoroSnapshot.writer(file, chunkBytes)) {
+            for (var dataSource : dataSources.values()) snapshot(dataSource, writer);
+            rows = writer.commit();
+        }
+        if (copyTo != null) copy(file, copyTo.resolve(file.getFileName()));
+        prune();
+        LOG.info("Backed up {} pomodoros into {} of {} bytes in {} ms", rows, file, size(file), (System.nanoTime() - started) / 1_000_000);
+        return file;
+    }
+
+    /** @return written backups, newer first */
+    public List<Path> files() {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> FILE.matcher(file.getFileName().toString()).matches() && Files.isRegularFile(file))
+                    .sorted(Comparator.comparing(Path::getFileName).reversed())
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list backups in " + directory, e);
+        }
+    }
+
+    /** @return written backup with the file name, empty if there is none, e.g. it's being written or is a path */
+    public Optional<Path> file(String name) {
+        if (!FILE.matcher(name).matches()) return Optional.empty();
+        var file = directory.resolve(name);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    /** @return true if the configured backup is restored, to be called while the database is empty */
+    public boolean restoreOnStart() {
+        if (restoreFrom == null) return false;
+        if (!Files.isRegularFile(restoreFrom)) throw new IllegalStateException("No backup " + restoreFrom + " to restore");
+        restore(restoreFrom);
+        return true;
+    }
+
+    /**
+     * Inserts pomodoros of the snapshot into databases without pomodoros
+     * @return number of restored pomodoros
+     * @throws IllegalStateException if a database has pomodoros or the file is not a complete snapshot, nothing is
+     * restored into that database then
+     */
+    public long restore(Path file) {
+        var started = System.nanoTime();
+        var restored = new AtomicLong();
+        for (var target : dataSources.entrySet()) {
+            var jdbc = new JdbcTemplate(target.getValue());
+            transactions(target.getValue()).execute(status -> {
+                if (jdbc.queryForObject("select count(*) from pomodoro", Long.class) > 0)
+                    throw new IllegalStateException("Pomodoros are restored only into an empty database");
+                return PomodoroSnapshot.read(file, chunk -> {
+                    var rows = shards == null ? chunk : chunk.stream()
+                            .filter(row -> shards.ring().shardOf(PomodoroSnapshot.userOf(row)).equals(target.getKey()))
+                            .collect(toList());
+                    if (!rows.isEmpty()) jdbc.batchUpdate(PomodoroSnapshot.INSERT, rows);
+                    restored.addAndGet(rows.size());
+                });
+            });
+        }
+        LOG.info("Restored {} pomodoros from {} in {} ms", restored, file, (System.nanoTime() - started) / 1_000_000);
+        return restored.get();
+    }
+
+    private void snapshot(DataSource dataSource, PomodoroSnapshot.Writer writer) {
+        var transaction = transactions(dataSource);
+        transaction.setReadOnly(true);
+        transaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        var jdbc = new JdbcTemplate(dataSource);
+        jdbc.setFetchSize(1000);
+        transaction.execute(status -> {
+            jdbc.query(PomodoroSnapshot.SELECT, writer::add);
+            return null;
+        });
+    }
+
+    /** Copies the file within the kernel, the target appears only once it is complete */
+    private static void copy(Path source, Path target) {
+        var temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            try (var in = FileChannel.open(source, READ); var out = FileChannel.open(temporary, CREATE, TRUNCATE_EXISTING, WRITE)) {
+                for (long position = 0, size = in.size(); position < size; )
+                    position += in.transferTo(position, size - position, out);
+                out.force(true);
+            }
+            Files.move(temporary, target, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to copy backup " + source + " to " + target, e);
+        }
+    }
+
+    /** Deletes backups beyond the kept number, oldest first */
+    private void prune() {
+        var files = files();
+        for (var file : files.subList(Math.min(keep, files.size()), files.size())) {
+            try {
+                Files.deleteIfExists(file);
+                LOG.debug("Deleted backup {}", file);
+            } catch (IOException e) {
+                LOG.warn("Unable to delete backup {}", file, e);
+            }
+        }
+    }
+
+    private static TransactionTemplate transactions(DataSource dataSource) {
+        return new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
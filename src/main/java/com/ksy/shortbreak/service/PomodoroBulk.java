@@ -0,0 +1,189 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Renames, re-times or deletes every pomodoro of the current user matching a {@link PomodoroFilter}.
+ * <p>
+ * Pomodoros are changed by batches of {@code batchSize} in a transaction each, so a large cleanup neither holds
+ * locks nor grows a transaction beyond a batch: matching rows are selected for update in id order after the last one
+ * of the previous batch, and the ones that change are updated or deleted by a single set-based statement. The
+ * selected states are what listeners, history versions and {@link PomodoroIds} are told about after the commit, as
+ * locked rows can't change in between. A failed batch leaves previous batches applied, and a repeated operation
+ * only changes what is left.
+ * <p>
+ * Ownership follows {@link PomodoroService#update(Pomodoro)}: only pomodoros of the current user are matched, and
+ * given ids of pomodoros of another user reject the whole operation, while unknown ids, e.g. of already deleted
+ * pomodoros, are ignored.
+ * <p>
+ * Archived pomodoros are in append-only segments, so an operation matching any archived pomodoro of the user is
+ * rejected as a whole by {@link IllegalStateException} before anything changes, rather than it changes only the
+ * pomodoros not archived yet.
+ */
+public class PomodoroBulk {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroBulk.class);
+
+    private final PomodoroRepo repository;
+    private final PomodoroArchive archive;
+    private final Shards shards;
+    private final HistoryVersions historyVersions;
+    private final PomodoroListeners listeners;
+    private final PomodoroIds pomodoroIds;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+
+    /** @param shards null if not sharded */
+    public PomodoroBulk(PomodoroRepo repository, PomodoroArchive archive, Shards shards, HistoryVersions historyVersions,
+                        PomodoroListeners listeners, PomodoroIds pomodoroIds, TransactionTemplate transactions, int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Invalid batch size " + batchSize);
+        this.repository = repository;
+        this.archive = archive;
+        this.shards = shards;
+        this.historyVersions = historyVersions;
+        this.listeners = listeners;
+        this.pomodoroIds = pomodoroIds;
+        this.transactions = transactions;
+        this.batchSize = batchSize;
+    }
+
+    /** @return number of renamed pomodoros, ones already having the name are not changed */
+    public long rename(PomodoroFilter filter, String name) throws AccessDeniedException {
+        requireNonNull(name);
+        return PomodoroOperationEvent.record("renameAll", currentUser(), () -> update(filter,
+                pomodoro -> !name.equals(pomodoro.getName()),
+                (user, ids) -> repository.renameAllByUserAndIdIn(user, ids, name),
+                pomodoro -> pomodoro.setName(name)));
+    }
+
+    /** @return number of pomodoros changed to the duration, ones already having it are not changed */
+    public long retime(PomodoroFilter filter, Duration duration) throws AccessDeniedException {
+        var timing = Pomodoro.Timing.of(duration);
+        return PomodoroOperationEvent.record("retimeAll", currentUser(), () -> update(filter,
+                pomodoro -> !timing.getDuration().equals(pomodoro.getTiming().getDuration()),
+                (user, ids) -> repository.updateDurationOfAllByUserAndIdIn(user, ids, timing.getDuration()),
+                pomodoro -> pomodoro.getTiming().setDuration(timing.getDuration())));
+    }
+
+    /** @return number of deleted pomodoros */
+    public long delete(PomodoroFilter filter) throws AccessDeniedException {
+        return PomodoroOperationEvent.record("deleteAll", currentUser(), () -> apply(filter, (user, batch) -> {
+            var ids = batch.stream().map(Pomodoro::getId).collect(toSet());
+            var deleted = repository.deleteAllByUserAndIdIn(user, ids);
+            AfterCommit.run(() -> pomodoroIds.removed(ids));
+            listeners.deleted(batch);
+            return deleted;
+        }));
+    }
+
+    private long update(PomodoroFilter filter, Predicate<Pomodoro> changes, Statement statement, Consumer<Pomodoro> change) {
+        return apply(filter, (user, batch) -> {
+            var changed = batch.stream().filter(changes).collect(toList());
+            if (changed.isEmpty()) return 0;
+            var updated = statement.execute(user, changed.stream().map(Pomodoro::getId).collect(toSet()));
+            for (var previous : changed) {
+                var pomodoro = Pomodoro.of(previous);
+                change.accept(pomodoro);
+                listeners.saved(previous, pomodoro);
+            }
+            return updated;
+        });
+    }
+
+    private long apply(PomodoroFilter filter, Batch batch) {
+        requireNonNull(filter);
+        var user = currentUser();
+        if (user == null) throw new AccessDeniedException("Unable to change pomodoros of unauthenticated user");
+        verifyOwnership(filter, user);
+        verifyNotArchived(filter, user);
+
+        var started = System.nanoTime();
+        var changed = 0L;
+        UUID after = null;
+        while (true) {
+            var cursor = after;
+            var result = transactions.execute(status -> {
+                var pomodoros = repository.findAllMatchingForUpdate(user, filter, cursor, batchSize).stream()
+                        .map(Pomodoro::of)
+                        .collect(toList());
+                if (pomodoros.isEmpty()) return new BatchResult(null, 0);
+                var applied = batch.apply(user, pomodoros);
+                if (applied > 0) AfterCommit.run(() -> historyVersions.bump(user));
+                return new BatchResult(pomodoros.size() == batchSize ? pomodoros.get(pomodoros.size() - 1).getId() : null, applied);
+            });
+            changed += result.changed;
+            if (result.last == null) break;
+            after = result.last;
+        }
+        LOG.debug("Changed {} pomodoros of {} matching {} in {} ms", changed, user, filter, (System.nanoTime() - started) / 1_000_000);
+        return changed;
+    }
+
+    /**
+     * Unknown ids are skipped by {@link PomodoroIds} without a lookup, so forged ids cost nothing. Pomodoros of another
+     * user are stored on the shard of that user, so known ids are looked up on every shard.
+     */
+    private void verifyOwnership(PomodoroFilter filter, String user) {
+        if (filter.getIds() == null) return;
+        var known = filter.getIds().stream().filter(pomodoroIds::mightExist).collect(toSet());
+        if (known.isEmpty()) return;
+        var ofOthers = new AtomicLong();
+        if (shards == null) ofOthers.set(repository.countByIdInAndUserNot(known, user));
+        else shards.forEachShard(shard -> ofOthers.addAndGet(repository.countByIdInAndUserNot(known, user)));
+        if (ofOthers.get() > 0)
+            throw new AccessDeniedException("Unable to change pomodoros matching " + filter + " by user " + user);
+    }
+
+    private void verifyNotArchived(PomodoroFilter filter, String user) {
+        if (archive.count(user) == 0) return;
+        var archived = archive.newest(user, Integer.MAX_VALUE).stream().filter(filter::matches).count();
+        if (archived > 0)
+            throw new IllegalStateException("Unable to change " + archived + " archived pomodoros of " + user + " matching " + filter);
+    }
+
+    private static String currentUser() {
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication()).map(Principal::getName).orElse(null);
+    }
+
+    private interface Statement {
+        int execute(String user, Set<UUID> ids);
+    }
+
+    private interface Batch {
+        /** @param pomodoros copies of the selected states */
+        int apply(String user, List<Pomodoro> pomodoros);
+    }
+
+    private static final class BatchResult {
+        /** Id the next batch starts after, null if it's the last batch */
+        final UUID last;
+        final int changed;
+
+        BatchResult(UUID last, int changed) {
+            this.last = last;
+            this.changed = changed;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+/** Committed change of a pomodoro, published to {@link PomodoroListener}s. Both states must not be changed. */
+public final class PomodoroChange {
+    public enum Type {
+        /** The pomodoro is new */
+        INITIALIZED,
+        STARTED,
+        RENAMED,
+        ENDED,
+        /** Duration, or already set started or ended time, is corrected */
+        RETIMED,
+        /** The pomodoro is deleted, both states are its last one */
+        DELETED
+    }
+
+    private final Pomodoro previous;
+    private final Pomodoro pomodoro;
+    private final Set<Type> types;
+
+    /** @param previous state before the change, null for a new pomodoro */
+    public static PomodoroChange of(Pomodoro previous, Pomodoro pomodoro) {
+        return new PomodoroChange(previous, requireNonNull(pomodoro), typesOf(previous, pomodoro));
+    }
+
+    /** @param pomodoro the last state of a deleted pomodoro */
+    public static PomodoroChange deleted(Pomodoro pomodoro) {
+        return new PomodoroChange(requireNonNull(pomodoro), pomodoro, unmodifiableSet(EnumSet.of(Type.DELETED)));
+    }
+
+    /** @return null for a new pomodoro and on replay */
+    public Pomodoro getPrevious() { return previous; }
+
+    public Pomodoro getPomodoro() { return pomodoro; }
+
+    /** @return empty if the change is not visible to listeners, e.g. only a client sequence is updated */
+    public Set<Type> getTypes() { return types; }
+
+    public boolean is(Type type) { return types.contains(type); }
+
+    @Override
+    public String toString() { return "PomodoroChange{" + types + ", pomodoro=" + pomodoro + '}'; }
+
+    private static Set<Type> typesOf(Pomodoro previous, Pomodoro pomodoro) {
+        var types = EnumSet.noneOf(Type.class);
+        var timing = pomodoro.getTiming();
+        var previousTiming = previous != null ? previous.getTiming() : null;
+        var previousStarted = previousTiming != null ? previousTiming.getStarted() : null;
+        var previousEnded = previousTiming != null ? previousTiming.getEnded() : null;
+
+        if (previous == null) types.add(Type.INITIALIZED);
+        if (previousStarted == null && timing.getStarted() != null) types.add(Type.STARTED);
+        if (previous != null && !Objects.equals(previous.getName(), pomodoro.getName())) types.add(Type.RENAMED);
+        if (previousEnded == null && timing.getEnded() != null) types.add(Type.ENDED);
+        if (previousTiming != null && (!Objects.equals(previousTiming.getDuration(), timing.getDuration())
+                || previousStarted != null && !previousStarted.equals(timing.getStarted())
+                || previousEnded != null && !previousEnded.equals(timing.getEnded())))
+            types.add(Type.RETIMED);
+        return unmodifiableSet(types);
+    }
+
+    private PomodoroChange(Pomodoro previous, Pomodoro pomodoro, Set<Type> types) {
+        this.previous = previous;
+        this.pomodoro = pomodoro;
+        this.types = types;
+    }
+}
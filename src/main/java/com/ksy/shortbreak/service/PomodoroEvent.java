@@ -0,0 +1,79 @@
+package com.ksy.shortbreak.service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+/** Single timer action of a client, applied as part of a batch by {@link PomodoroService#apply}. */
+public final class PomodoroEvent {
+    public enum Type { CREATE, RENAME, START, STOP }
+
+    private final Type type;
+    private final UUID id;
+    private final String name;
+    private final Duration duration;
+    private final OffsetDateTime at;
+    private final Long sequence;
+
+    /** @param id generated by client, so retried creation is recognized */
+    public static PomodoroEvent create(UUID id, String name, Duration duration, Long sequence) {
+        return new PomodoroEvent(Type.CREATE, id, name, duration, null, sequence);
+    }
+
+    public static PomodoroEvent rename(UUID id, String name, Long sequence) {
+        return new PomodoroEvent(Type.RENAME, id, requireNonNull(name), null, null, sequence);
+    }
+
+    public static PomodoroEvent start(UUID id, OffsetDateTime at, Long sequence) {
+        return new PomodoroEvent(Type.START, id, null, null, requireNonNull(at), sequence);
+    }
+
+    public static PomodoroEvent stop(UUID id, OffsetDateTime at, Long sequence) {
+        return new PomodoroEvent(Type.STOP, id, null, null, requireNonNull(at), sequence);
+    }
+
+    public Type getType() { return type; }
+
+    public UUID getId() { return id; }
+
+    public String getName() { return name; }
+
+    public Duration getDuration() { return duration; }
+
+    public OffsetDateTime getAt() { return at; }
+
+    public Long getSequence() { return sequence; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroEvent)) return false;
+        var that = (PomodoroEvent) o;
+        return type == that.type &&
+                Objects.equals(id, that.id) &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(duration, that.duration) &&
+                Objects.equals(at, that.at) &&
+                Objects.equals(sequence, that.sequence);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(type, id, name, duration, at, sequence); }
+
+    @Override
+    public String toString() {
+        return "PomodoroEvent{type=" + type + ", id=" + id + ", name='" + name + "', duration=" + duration + ", at=" + at + ", sequence=" + sequence + '}';
+    }
+
+    private PomodoroEvent(Type type, UUID id, String name, Duration duration, OffsetDateTime at, Long sequence) {
+        this.type = type;
+        this.id = requireNonNull(id);
+        this.name = name;
+        this.duration = duration;
+        this.at = at;
+        this.sequence = sequence;
+    }
+}
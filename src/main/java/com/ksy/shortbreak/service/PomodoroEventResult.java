@@ -0,0 +1,49 @@
+package com.ksy.shortbreak.service;
+
+import java.util.Objects;
+import java.util.UUID;
+
+public final class PomodoroEventResult {
+    public enum Status {
+        APPLIED,
+        /** already applied before, e.g. event is retried by client */
+        IGNORED,
+        REJECTED
+    }
+
+    private final UUID id;
+    private final Status status;
+    private final String message;
+
+    public static PomodoroEventResult applied(UUID id) { return new PomodoroEventResult(id, Status.APPLIED, null); }
+
+    public static PomodoroEventResult ignored(UUID id) { return new PomodoroEventResult(id, Status.IGNORED, null); }
+
+    public static PomodoroEventResult rejected(UUID id, String message) { return new PomodoroEventResult(id, Status.REJECTED, message); }
+
+    public UUID getId() { return id; }
+
+    public Status getStatus() { return status; }
+
+    public String getMessage() { return message; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PomodoroEventResult)) return false;
+        var that = (PomodoroEventResult) o;
+        return Objects.equals(id, that.id) && status == that.status && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(id, status, message); }
+
+    @Override
+    public String toString() { return "PomodoroEventResult{id=" + id + ", status=" + status + ", message='" + message + "'}"; }
+
+    private PomodoroEventResult(UUID id, Status status, String message) {
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+}
@@ -0,0 +1,40 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.PomodoroHeatmaps;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Calendar of completed pomodoros by day, moved to another day when ended time of a pomodoro is changed and removed
+ * when it is deleted.
+ */
+public @Service class PomodoroHeatmap implements PomodoroListener {
+    private final PomodoroHeatmaps heatmaps;
+
+    public @Autowired PomodoroHeatmap(PomodoroHeatmaps heatmaps) {
+        this.heatmaps = heatmaps;
+    }
+
+    @Override
+    public void changed(PomodoroChange change) {
+        var previous = change.getPrevious();
+        var pomodoro = change.getPomodoro();
+        var previousEnded = previous != null ? previous.getTiming().getEnded() : null;
+        var ended = change.is(PomodoroChange.Type.DELETED) ? null : pomodoro.getTiming().getEnded();
+        if (Objects.equals(previousEnded, ended)) return;
+        if (previousEnded != null) heatmaps.remove(previous.getUser(), previousEnded);
+        if (ended != null) heatmaps.add(pomodoro.getUser(), ended);
+    }
+
+    @Override
+    public void reset(String user) { heatmaps.removeUser(user); }
+
+    public PomodoroHeatmaps.Heatmap yearOfUser(String user, int year) {
+        return heatmaps.yearOf(requireNonNull(user), year, LocalDate.now(heatmaps.zone()));
+    }
+}
@@ -0,0 +1,131 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.filter.CountingBloomFilter;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.ShardContext;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Ids of pomodoros in the repository, so updates of ids never initialized, e.g. forged or of deleted pomodoros, are
+ * rejected without a lookup.
+ * <p>
+ * Ids are added on every insert, before the commit: a rolled back insert only leaves a false positive. Until the ids
+ * stored before the start are loaded every id may exist, and removals are skipped: an id removed before it is loaded
+ * would decrement counters of other ids, while a skipped removal only leaves a false positive too.
+ */
+public class PomodoroIds {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroIds.class);
+
+    private final PomodoroRepo repository;
+    private final Shards shards;
+    private final TransactionTemplate readTransaction;
+    private final CountingBloomFilter filter;
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean loaded;
+
+    /**
+     * @param shards to load ids of every shard, null without sharding
+     * @param readTransaction of its own, so shards are looked up from a transaction bound to another shard
+     * @param filter null to look up every id
+     */
+    public PomodoroIds(PomodoroRepo repository, Shards shards, TransactionTemplate readTransaction, CountingBloomFilter filter) {
+        this.repository = repository;
+        this.shards = shards;
+        this.readTransaction = readTransaction;
+        this.filter = filter;
+    }
+
+    /**
+     * Loads ids of pomodoros stored before the start, before requests are served. Ids added before, e.g. of initial
+     * data, are cleared as they are committed by now and loaded again.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void load() {
+        if (filter == null || loaded) return;
+        var started = System.nanoTime();
+        filter.clear();
+        var ids = new AtomicLong();
+        if (shards == null) ids.addAndGet(loadRepository());
+        else shards.forEachShard(shard -> ids.addAndGet(loadRepository()));
+        loaded = true;
+        LOG.info("Loaded {} pomodoro ids into {} in {} ms, false positive rate {}", ids, filter,
+                (System.nanoTime() - started) / 1_000_000, filter.falsePositiveRate());
+    }
+
+    /** @return false if no pomodoro with the id is in the repository */
+    public boolean mightExist(UUID id) {
+        requireNonNull(id);
+        if (filter == null || !loaded || filter.mightContain(id)) return true;
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Looks up ids on shards other than the one of the user, as a lookup in a transaction only sees the shard of the
+     * user while ids are unique across shards. Only ids which might exist are looked up, so new ids mostly aren't.
+     *
+     * @return ids of the given stored on other shards, none without sharding
+     */
+    public Set<UUID> storedOnOtherShards(Collection<UUID> ids, String user) {
+        if (shards == null) return Set.of();
+        var known = ids.stream().filter(this::mightExist).collect(toSet());
+        if (known.isEmpty()) return Set.of();
+        var shardOfUser = shards.ring().shardOf(user);
+        var stored = new HashSet<UUID>();
+        for (var shard : shards.names()) {
+            if (shard.equals(shardOfUser)) continue;
+            var pomodoros = ShardContext.callOnShard(shard, () -> readTransaction.execute(status -> repository.findAllById(known)));
+            pomodoros.stream().map(Pomodoro::getId).forEach(stored::add);
+        }
+        return stored;
+    }
+
+    public void added(UUID id) {
+        if (filter != null) filter.add(requireNonNull(id));
+    }
+
+    /** Call only after the pomodoros are deleted by a committed transaction */
+    public void removed(Collection<UUID> ids) {
+        if (filter == null || !loaded) return;
+        for (var id : ids) filter.remove(id);
+    }
+
+    public boolean isEnabled() { return filter != null; }
+
+    /** @return number of ids in the filter */
+    public long size() { return filter != null ? filter.size() : 0; }
+
+    public long memoryBytes() { return filter != null ? filter.memoryBytes() : 0; }
+
+    /** @return estimated share of unknown ids looked up anyway with the current number of ids */
+    public double falsePositiveRate() { return filter != null ? filter.falsePositiveRate() : 1; }
+
+    /** @return lookups of ids answered as definitely unknown */
+    public long rejected() { return rejected.sum(); }
+
+    private long loadRepository() {
+        var loaded = 0L;
+        for (var user : repository.findAllUsers()) {
+            var ids = readTransaction.execute(status -> repository.findAllIdsByUser(user));
+            ids.forEach(filter::add);
+            loaded += ids.size();
+        }
+        return loaded;
+    }
+}
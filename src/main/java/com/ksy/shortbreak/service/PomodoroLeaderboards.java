@@ -0,0 +1,52 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.Leaderboards;
+
+import java.util.List;
+
+import static com.ksy.shortbreak.service.PomodoroChange.Type.DELETED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.ENDED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.RETIMED;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rankings of users by focused time of completed pomodoros for the current and previous days, weeks and months,
+ * globally and within configured teams. A pomodoro counts at its ended time, a corrected one is moved and a deleted
+ * one is subtracted.
+ */
+public class PomodoroLeaderboards implements PomodoroListener {
+    private final Leaderboards leaderboards;
+    private final Teams teams;
+
+    public PomodoroLeaderboards(Leaderboards leaderboards, Teams teams) {
+        this.leaderboards = leaderboards;
+        this.teams = teams;
+    }
+
+    @Override
+    public void changed(PomodoroChange change) {
+        if (!change.is(ENDED) && !change.is(RETIMED) && !change.is(DELETED)) return;
+        var previous = change.getPrevious();
+        var pomodoro = change.getPomodoro();
+        if (previous != null && previous.getTiming().getEnded() != null)
+            leaderboards.add(previous.getUser(), teams.teamsOf(previous.getUser()), previous.getTiming().getEnded(), -PomodoroStats.focusedSeconds(previous.getTiming()));
+        if (!change.is(DELETED) && pomodoro.getTiming().getEnded() != null)
+            leaderboards.add(pomodoro.getUser(), teams.teamsOf(pomodoro.getUser()), pomodoro.getTiming().getEnded(), PomodoroStats.focusedSeconds(pomodoro.getTiming()));
+    }
+
+    @Override
+    public void reset(String user) { leaderboards.removeUser(user); }
+
+    /**
+     * @param team null for all users
+     * @param previous number of periods before the current one
+     */
+    public List<Leaderboards.Entry> top(String team, Leaderboards.Period period, int previous, int limit) {
+        return leaderboards.top(team, period, previous, 1, limit);
+    }
+
+    /** @return rank of the user, null if the user has no focused time in the period */
+    public Leaderboards.Entry entryOf(String user, String team, Leaderboards.Period period, int previous) {
+        return leaderboards.entryOf(team, period, previous, requireNonNull(user));
+    }
+}
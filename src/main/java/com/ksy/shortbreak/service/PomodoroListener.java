@@ -0,0 +1,20 @@
+package com.ksy.shortbreak.service;
+
+/**
+ * Keeps derived in-memory state of pomodoros, e.g. statistics, up to date. Listener beans get every pomodoro stored
+ * before the application is started and then every committed change, on a thread of their own, see
+ * {@link PomodoroListeners}.
+ */
+public interface PomodoroListener {
+    /** Changes are passed one by one in the order of publishing, after commits */
+    void changed(PomodoroChange change);
+
+    /** Called once all stored pomodoros are passed to {@link #changed(PomodoroChange)} on start */
+    default void replayed() {}
+
+    /**
+     * Forgets everything of the user, called in the order of changes before stored pomodoros of the user are passed
+     * again, e.g. after a change of the user was dropped. Listeners keeping state by user must override it.
+     */
+    default void reset(String user) {}
+}
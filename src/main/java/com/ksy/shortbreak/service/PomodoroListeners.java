@@ -0,0 +1,314 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.config.EventsProperties;
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.ShardContext;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import com.ksy.shortbreak.service.bus.EventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * Passes committed changes of pomodoros to {@link PomodoroListener} beans.
+ * <p>
+ * Listeners are filled on context refresh, before the web server is started, by replaying every pomodoro of the
+ * archive and then of the repository (of every shard), user by user, oldest ended first so ordered stores append
+ * them. Pomodoros left in the repository by an interrupted archiving are replayed once. Then every listener gets
+ * changes published after commits on its own thread from an {@link EventBus}, so listeners never add latency to
+ * writes: by default a write doesn't wait for a listener a whole ring behind, its change is dropped, counted and
+ * logged, and the user is resynced in the background: listeners {@link PomodoroListener#reset(String) forget} the
+ * user and get the stored pomodoros of the user again, with changes published meanwhile held back and passed after
+ * them, so a drop delays the views of the user rather than diverges them. As on replay, a change committed just
+ * before the stored pomodoros are read may be passed twice. A failure of a listener is logged and doesn't affect the
+ * write or other listeners.
+ */
+public @Component class PomodoroListeners {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroListeners.class);
+    private static final Duration RESYNC_DELAY = Duration.ofSeconds(1);
+
+    private final List<PomodoroListener> listeners;
+    private final PomodoroRepo repository;
+    private final PomodoroArchive archive;
+    private final Shards shards;
+    private final TransactionTemplate readTransaction;
+    private final EventBus<Object> bus;
+    private final Duration publishTimeout;
+    private final AtomicBoolean replayed = new AtomicBoolean();
+    private final Set<String> stale = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService resyncs;
+    private final AtomicBoolean resyncScheduled = new AtomicBoolean();
+    private final AtomicLong resynced = new AtomicLong();
+    private volatile boolean delivering;
+
+    public @Autowired PomodoroListeners(ObjectProvider<PomodoroListener> listeners, PomodoroRepo repository,
+                                        PomodoroArchive archive, ObjectProvider<Shards> shards,
+                                        PlatformTransactionManager transactionManager, EventsProperties properties) {
+        this.listeners = listeners.orderedStream().collect(toList());
+        this.bus = new EventBus<>("pomodoro-events", properties.getCapacity(), properties.getWaitStrategy(), subscribers(this.listeners));
+        this.publishTimeout = properties.getPublishTimeout();
+        this.repository = repository;
+        this.archive = archive;
+        this.shards = shards.getIfAvailable();
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.resyncs = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "pomodoro-resync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Publishes the change of the pomodoro to listeners once the current transaction is committed
+     * @param previous copy of the state before the change, null for a new pomodoro
+     */
+    public void saved(Pomodoro previous, Pomodoro pomodoro) {
+        if (listeners.isEmpty()) return;
+        var change = PomodoroChange.of(previous, Pomodoro.of(pomodoro));
+        if (change.getTypes().isEmpty()) return;
+        AfterCommit.run(() -> publish(change));
+    }
+
+    /**
+     * Publishes deletion of the pomodoros to listeners once the current transaction is committed
+     * @param pomodoros copies of the last states of deleted pomodoros
+     */
+    public void deleted(List<Pomodoro> pomodoros) {
+        if (listeners.isEmpty() || pomodoros.isEmpty()) return;
+        var changes = pomodoros.stream().map(PomodoroChange::deleted).collect(toList());
+        AfterCommit.run(() -> changes.forEach(this::publish));
+    }
+
+    /** Replays stored pomodoros to listeners and then starts delivery of changes published since the replay started */
+    @EventListener(ContextRefreshedEvent.class)
+    public void replay() {
+        if (listeners.isEmpty() || !replayed.compareAndSet(false, true)) return;
+
+        var published = bus.cursor();
+        var started = System.nanoTime();
+        var pomodoros = new AtomicLong();
+        for (var user : archive.users()) {
+            var notArchived = notDeletedAfterArchiving(user);
+            for (var pomodoro : oldestFirst(archive.newest(user, Integer.MAX_VALUE))) {
+                if (notArchived.contains(pomodoro.getId())) continue;
+                dispatch(PomodoroChange.of(null, pomodoro));
+                pomodoros.incrementAndGet();
+            }
+        }
+        if (shards == null) pomodoros.addAndGet(replayRepository());
+        else shards.forEachShard(shard -> pomodoros.addAndGet(replayRepository()));
+
+        for (var listener : listeners) listener.replayed();
+        LOG.info("Replayed {} pomodoros to {} listeners in {} ms", pomodoros, listeners.size(), (System.nanoTime() - started) / 1_000_000);
+        bus.start(published);
+        delivering = true;
+    }
+
+    /** @return true if changes published so far are processed by all listeners within the timeout */
+    public boolean awaitDelivered(Duration timeout) { return bus.awaitDelivered(timeout); }
+
+    /** @return names of listeners, simple names of their classes */
+    public Set<String> names() { return bus.subscribers(); }
+
+    public long lagOf(String listener) { return bus.lagOf(listener); }
+
+    public long published() { return bus.published(); }
+
+    public long dropped() { return bus.dropped(); }
+
+    /** @return number of times stored pomodoros of a user were passed again after a change of the user was dropped */
+    public long resynced() { return resynced.get(); }
+
+    @PreDestroy
+    public void close() {
+        resyncs.shutdownNow();
+        bus.close();
+    }
+
+    private void publish(PomodoroChange change) {
+        if (bus.publish(change, publishTimeout)) return;
+        var user = change.getPomodoro().getUser();
+        LOG.warn("Dropped {}, listeners are {} changes behind, resyncing {}", change, maximumLag(), user);
+        stale.add(user);
+        scheduleResync();
+    }
+
+    private void scheduleResync() {
+        if (resyncScheduled.compareAndSet(false, true))
+            resyncs.schedule(this::resyncStale, RESYNC_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void resyncStale() {
+        resyncScheduled.set(false);
+        if (delivering) {
+            for (var user : List.copyOf(stale)) {
+                stale.remove(user);
+                try {
+                    if (resync(user)) resynced.incrementAndGet();
+                    else stale.add(user);
+                } catch (RuntimeException e) {
+                    LOG.error("Failed to resync {}", user, e);
+                    stale.add(user);
+                }
+            }
+        }
+        if (!stale.isEmpty()) scheduleResync();
+    }
+
+    /**
+     * Holds back changes of the user from listeners, reads the stored pomodoros and passes them, then held back changes.
+     * Unlike writes, it waits for room in the ring, on its own thread.
+     * @return false if the ring is still full, to try again later
+     */
+    private boolean resync(String user) {
+        if (!bus.publish(new Hold(user), RESYNC_DELAY)) return false;
+        return bus.publish(new Stored(user, storedOf(user)), RESYNC_DELAY);
+    }
+
+    /** @return pomodoros of the user in the archive and then in the repository, oldest ended first as on replay */
+    private List<Pomodoro> storedOf(String user) {
+        var notArchived = notDeletedAfterArchiving(user);
+        var pomodoros = new ArrayList<Pomodoro>();
+        for (var pomodoro : oldestFirst(archive.newest(user, Integer.MAX_VALUE)))
+            if (!notArchived.contains(pomodoro.getId())) pomodoros.add(pomodoro);
+        pomodoros.addAll(oldestFirst(ShardContext.callAsUser(user, () -> readTransaction.execute(
+                status -> repository.findAllByUserOrderByTimingEndedDesc(user, Pageable.unpaged())))));
+        return pomodoros;
+    }
+
+    private long replayRepository() {
+        var replayed = 0L;
+        for (var user : repository.findAllUsers()) {
+            var pomodoros = readTransaction.execute(status -> repository.findAllByUserOrderByTimingEndedDesc(user, Pageable.unpaged()));
+            oldestFirst(pomodoros).forEach(pomodoro -> dispatch(PomodoroChange.of(null, pomodoro)));
+            replayed += pomodoros.size();
+        }
+        return replayed;
+    }
+
+    /** @return ids of the last archived segment of the user still present in the repository, see PomodoroArchiver */
+    private Set<UUID> notDeletedAfterArchiving(String user) {
+        var ids = archive.idsOfLastSegment(user);
+        if (ids.isEmpty()) return ids;
+        return ShardContext.callAsUser(user, () -> readTransaction.execute(status -> repository.findAllById(ids)))
+                .stream().map(Pomodoro::getId).collect(toSet());
+    }
+
+    private static List<Pomodoro> oldestFirst(List<Pomodoro> newestFirst) {
+        var pomodoros = new ArrayList<>(newestFirst);
+        Collections.reverse(pomodoros);
+        return pomodoros;
+    }
+
+    private long maximumLag() {
+        return names().stream().mapToLong(bus::lagOf).max().orElse(0);
+    }
+
+    private void dispatch(PomodoroChange change) {
+        for (var listener : listeners) {
+            try {
+                listener.changed(change);
+            } catch (RuntimeException e) {
+                LOG.error("Listener {} failed on {}", listener, change, e);
+            }
+        }
+    }
+
+    private static Map<String, Consumer<Object>> subscribers(List<PomodoroListener> listeners) {
+        var subscribers = new LinkedHashMap<String, Consumer<Object>>();
+        for (var listener : listeners) {
+            var name = listener.getClass().getSimpleName();
+            for (var i = 2; subscribers.containsKey(name); i++) name = listener.getClass().getSimpleName() + '-' + i;
+            subscribers.put(name, new Delivery(listener));
+        }
+        return subscribers;
+    }
+
+    /** Start of a resync of the user, changes of the user published after it are held back until {@link Stored} */
+    private static final class Hold {
+        final String user;
+
+        Hold(String user) { this.user = user; }
+    }
+
+    /** Pomodoros of the user read after the {@link Hold} */
+    private static final class Stored {
+        final String user;
+        final List<Pomodoro> pomodoros;
+
+        Stored(String user, List<Pomodoro> pomodoros) {
+            this.user = user;
+            this.pomodoros = pomodoros;
+        }
+    }
+
+    /** Events of the bus to a listener, on the thread of its subscription only */
+    private static final class Delivery implements Consumer<Object> {
+        private final PomodoroListener listener;
+        private final Map<String, List<PomodoroChange>> held = new HashMap<>();
+
+        Delivery(PomodoroListener listener) { this.listener = listener; }
+
+        @Override
+        public void accept(Object event) {
+            if (event instanceof Hold) {
+                held.put(((Hold) event).user, new ArrayList<>());
+            } else if (event instanceof Stored) {
+                var stored = (Stored) event;
+                var changes = held.remove(stored.user);
+                if (changes == null) return;
+                try {
+                    listener.reset(stored.user);
+                } catch (RuntimeException e) {
+                    LOG.error("Listener {} failed to reset {}", listener, stored.user, e);
+                }
+                for (var pomodoro : stored.pomodoros) changed(PomodoroChange.of(null, pomodoro));
+                changes.forEach(this::changed);
+            } else {
+                var change = (PomodoroChange) event;
+                var changes = held.get(change.getPomodoro().getUser());
+                if (changes != null) changes.add(change);
+                else listener.changed(change);
+            }
+        }
+
+        private void changed(PomodoroChange change) {
+            try {
+                listener.changed(change);
+            } catch (RuntimeException e) {
+                LOG.error("Listener {} failed on {}", listener, change, e);
+            }
+        }
+    }
+}
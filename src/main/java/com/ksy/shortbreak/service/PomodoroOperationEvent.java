@@ -0,0 +1,48 @@
+package com.ksy.shortbreak.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.function.Supplier;
+
+/** JFR event of a {@link PomodoroService} operation, committed only while a recording enables it and over its threshold */
+@Name("com.ksy.shortbreak.PomodoroOperation")
+@Label("Pomodoro Operation")
+@Category({"ShortBreak", "Service"})
+@Description("Read or write of pomodoros by PomodoroService, without the commit of its transaction")
+@StackTrace(false)
+final class PomodoroOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("User")
+    String user;
+
+    @Label("Failure")
+    @Description("Class of the exception thrown, if any")
+    String failure;
+
+    static <T> T record(String operation, String user, Supplier<T> work) {
+        var event = new PomodoroOperationEvent();
+        if (!event.isEnabled()) return work.get();
+
+        event.begin();
+        try {
+            return work.get();
+        } catch (RuntimeException | Error e) {
+            event.failure = e.getClass().getName();
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.user = user;
+                event.commit();
+            }
+        }
+    }
+}
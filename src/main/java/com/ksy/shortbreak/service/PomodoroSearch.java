@@ -0,0 +1,87 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.search.NameIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Search of pomodoros of a user by name, recently ended or started first, never started ones last.
+ * <p>
+ * The index is loaded from the file, if any, and the replay on start only reindexes pomodoros changed since it was
+ * written, e.g. by a crash before the shutdown, and removes ones not replayed, i.e. deleted since. It is written back once replayed and on shutdown.
+ */
+public class PomodoroSearch implements PomodoroListener, AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroSearch.class);
+
+    private final Path file;
+    private final NameIndex index;
+    private long reindexed;
+
+    /** @param file of the index, null to keep it in memory only */
+    public PomodoroSearch(Path file) {
+        this.file = file;
+        this.index = load(file);
+    }
+
+    @Override
+    public void changed(PomodoroChange change) {
+        var pomodoro = change.getPomodoro();
+        if (change.is(PomodoroChange.Type.DELETED)) {
+            index.remove(pomodoro.getUser(), pomodoro.getId());
+            return;
+        }
+        if (index.put(pomodoro.getUser(), pomodoro.getId(), pomodoro.getName(), recencyOf(pomodoro))) reindexed++;
+    }
+
+    @Override
+    public void reset(String user) { index.removeUser(user); }
+
+    @Override
+    public void replayed() {
+        var removed = index.removeNotPutSinceRead();
+        LOG.info("Name index of {} pomodoros is loaded, {} pomodoros changed and {} deleted since it was written", index.size(), reindexed, removed);
+        write();
+    }
+
+    /**
+     * @param after the last hit of the previous page, null for the first page
+     * @return at most {@code limit} pomodoros of the user matching every word of the query as a prefix
+     */
+    public List<NameIndex.Hit> search(String user, String query, NameIndex.Hit after, int limit) {
+        return index.search(requireNonNull(user), query, after, limit);
+    }
+
+    @Override
+    public void close() { write(); }
+
+    private void write() {
+        if (file == null) return;
+        var started = System.nanoTime();
+        index.write(file);
+        LOG.debug("Name index written to {} in {} ms", file, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private static NameIndex load(Path file) {
+        if (file == null || !Files.exists(file)) return new NameIndex();
+        try {
+            return NameIndex.read(file);
+        } catch (RuntimeException e) {
+            LOG.warn("Name index {} is not loaded, it is rebuilt by the replay", file, e);
+            return new NameIndex();
+        }
+    }
+
+    /** @return epoch millis of ended or started time, 0 if never started */
+    static long recencyOf(Pomodoro pomodoro) {
+        var timing = pomodoro.getTiming();
+        var at = timing.getEnded() != null ? timing.getEnded() : timing.getStarted();
+        return at != null ? at.toInstant().toEpochMilli() : 0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.ksy.shortbreak.service;
 
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
 import com.ksy.shortbreak.persistent.entity.Pomodoro;
 import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
 import org.slf4j.Logger;
@@ -9,53 +10,239 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.security.Principal;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 
 public @Service class PomodoroService {
     private static final Logger LOG = LoggerFactory.getLogger(PomodoroService.class);
 
     private final PomodoroRepo repository;
+    private final PomodoroArchive archive;
+    private final HistoryVersions historyVersions;
+    private final PomodoroListeners listeners;
+    private final PomodoroIds pomodoroIds;
+    private final TransactionTemplate reads;
+    private final SingleFlight<String, List<Pomodoro>> pageReads = new SingleFlight<>();
+    private final SingleFlight<String, Long> countReads = new SingleFlight<>();
 
-    public @Autowired PomodoroService(PomodoroRepo repository) { this.repository = repository; }
+    public @Autowired PomodoroService(PomodoroRepo repository, PomodoroArchive archive, HistoryVersions historyVersions,
+                                      PomodoroListeners listeners, PomodoroIds pomodoroIds,
+                                      PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.archive = archive;
+        this.historyVersions = historyVersions;
+        this.listeners = listeners;
+        this.pomodoroIds = pomodoroIds;
+        this.reads = new TransactionTemplate(transactionManager);
+        this.reads.setReadOnly(true);
+    }
 
-    @Transactional(readOnly = true)
+    /**
+     * History of the user from both the hot table and the archive, merged in the same ended time descending order.
+     * Concurrent reads of the same page of the same history version, e.g. by several tabs refreshed at once, share one
+     * query; a committed write of the user changes the version, so later reads don't wait for an outdated one. Only
+     * the read running the query opens a read-only transaction, so waiting reads hold no pooled connection.
+     */
     public List<Pomodoro> pomodorosOfUser(String user, int page, int size) {
         requireNonNull(user);
 
         var request = PageRequest.of(page, size);
-
-        return repository.findAllByUserOrderByTimingEndedDesc(user, request);
+        var key = historyVersions.versionOf(user) + ":" + page + ":" + size + ":" + user;
+        return PomodoroOperationEvent.record("history", user,
+                () -> pageReads.run(key, () -> reads.execute(status -> readPomodorosOfUser(user, request)), PomodoroService::copyOf));
     }
 
-    @Transactional(readOnly = true)
+    /** Shares concurrent counts of the same history version, like {@link #pomodorosOfUser(String, int, int)} */
     public long countPomodorosOfUser(String user) {
         requireNonNull(user);
-        return repository.countByUser(user);
+        return PomodoroOperationEvent.record("count", user, () -> countReads.run(historyVersions.versionOf(user) + ":" + user,
+                () -> reads.execute(status -> repository.countByUser(user) + archive.count(user)),
+                count -> count));
+    }
+
+    /** @return tag of current history state of the user, changed by every write of the user */
+    public String historyTagOfUser(String user) {
+        requireNonNull(user);
+        return historyVersions.tag(user);
     }
 
     @Transactional
     public Pomodoro initialize() {
+        return PomodoroOperationEvent.record("initialize", currentUser(), this::saveNew);
+    }
+
+    /**
+     * Changes already applied according to their client sequence are ignored. Concurrent updates of the same
+     * pomodoro are detected by its version without locking, the later commit fails with
+     * {@link org.springframework.dao.OptimisticLockingFailureException} and can be retried by the client. Unknown ids
+     * are mostly rejected by {@link PomodoroIds} without a lookup.
+     */
+    @Transactional
+    public Pomodoro update(Pomodoro changes) throws AccessDeniedException {
+        return PomodoroOperationEvent.record("update", currentUser(), () -> applyChanges(changes));
+    }
+
+    /**
+     * Applies ordered events of the current user in one transaction: affected pomodoros are loaded by a single query,
+     * created ones are persisted without another lookup as {@link Pomodoro#isNew() new}, and all inserts and updates
+     * are flushed on commit in JDBC batches. With sharding, ids of created ones known to {@link PomodoroIds} are
+     * looked up on other shards too, so an id is never stored twice. Failure of an event doesn't affect other events,
+     * its result is returned at the same index as the event.
+     */
+    @Transactional
+    public List<PomodoroEventResult> apply(List<PomodoroEvent> events) throws AccessDeniedException {
+        return PomodoroOperationEvent.record("apply", currentUser(), () -> applyEvents(events));
+    }
+
+    private Pomodoro saveNew() {
         var pomodoro = repository.saveAndFlush(Pomodoro.builder().timing(Pomodoro.Timing.of()).build());
         LOG.debug("Initialized pomodoro = {}", pomodoro);
+        AfterCommit.run(() -> historyVersions.bump(pomodoro.getUser()));
+        listeners.saved(null, pomodoro);
         return pomodoro;
     }
 
-    @Transactional
-    public Pomodoro update(Pomodoro changes) throws AccessDeniedException {
+    private Pomodoro applyChanges(Pomodoro changes) {
         if (changes.getId() == null) throw new IllegalArgumentException("Pomodoro not initialized yet: " + changes);
-        var current = repository.findById(changes.getId())
+        var current = Optional.of(changes.getId()).filter(pomodoroIds::mightExist).flatMap(repository::findById)
                 .orElseThrow(() -> new IllegalArgumentException("Pomodoro with ID " + changes.getId() + " was not initialized before"));
         Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication())
                 .map(Principal::getName)
                 .filter(current.getUser()::equals)
                 .orElseThrow(() -> new AccessDeniedException("Unable to update pomodoro by changes " + changes + " by user " + SecurityContextHolder.getContext().getAuthentication()));
+        if (current.hasApplied(changes)) {
+            LOG.debug("Changes {} are already applied to {}", changes, current);
+            return current;
+        }
+
+        var previous = Pomodoro.of(current);
+        var updated = repository.save(current.updateBy(changes));
+        AfterCommit.run(() -> historyVersions.bump(updated.getUser()));
+        listeners.saved(previous, updated);
+        return updated;
+    }
+
+    private List<PomodoroEventResult> applyEvents(List<PomodoroEvent> events) {
+        var user = Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication())
+                .map(Principal::getName)
+                .orElseThrow(() -> new AccessDeniedException("Unable to apply events of unauthenticated user"));
+        var ids = events.stream().map(PomodoroEvent::getId).collect(toSet());
+        var pomodoros = repository.findAllById(ids).stream().collect(toMap(Pomodoro::getId, identity()));
+        var created = events.stream()
+                .filter(event -> event.getType() == PomodoroEvent.Type.CREATE && !pomodoros.containsKey(event.getId()))
+                .map(PomodoroEvent::getId)
+                .collect(toSet());
+        var storedElsewhere = pomodoroIds.storedOnOtherShards(created, user);
+        var previous = new HashMap<UUID, Pomodoro>();
+
+        var results = new ArrayList<PomodoroEventResult>(events.size());
+        for (var event : events) results.add(apply(event, user, pomodoros, storedElsewhere, previous));
+        LOG.debug("Applied {} events of {}: {}", events.size(), user, results);
+
+        var applied = results.stream()
+                .filter(result -> result.getStatus() == PomodoroEventResult.Status.APPLIED)
+                .map(PomodoroEventResult::getId)
+                .collect(toSet());
+        if (!applied.isEmpty()) AfterCommit.run(() -> historyVersions.bump(user));
+        for (var id : applied) listeners.saved(previous.get(id), pomodoros.get(id));
+        return results;
+    }
+
+    /**
+     * @param storedElsewhere ids stored on other shards, which can't be created again
+     * @param previous states of pomodoros before the first change by the events
+     */
+    private PomodoroEventResult apply(PomodoroEvent event, String user, Map<UUID, Pomodoro> pomodoros,
+                                      Set<UUID> storedElsewhere, Map<UUID, Pomodoro> previous) {
+        var current = pomodoros.get(event.getId());
+        if (current != null && !current.getUser().equals(user))
+            return PomodoroEventResult.rejected(event.getId(), "Unable to apply event " + event + " by user " + user);
+
+        try {
+            if (event.getType() == PomodoroEvent.Type.CREATE) {
+                if (current != null) return PomodoroEventResult.ignored(event.getId());
+                if (storedElsewhere.contains(event.getId()))
+                    return PomodoroEventResult.rejected(event.getId(), "Pomodoro with ID " + event.getId() + " already exists");
+                var created = repository.save(Pomodoro.builder()
+                        .id(event.getId())
+                        .user(user)
+                        .name(event.getName())
+                        .timing(event.getDuration() != null ? Pomodoro.Timing.of(event.getDuration()) : Pomodoro.Timing.of())
+                        .clientSequence(event.getSequence())
+                        .build());
+                pomodoros.put(created.getId(), created);
+                return PomodoroEventResult.applied(created.getId());
+            }
+
+            if (current == null)
+                return PomodoroEventResult.rejected(event.getId(), "Pomodoro with ID " + event.getId() + " was not initialized before");
+            var changes = changesOf(event, user);
+            if (current.hasApplied(changes)) return PomodoroEventResult.ignored(event.getId());
+            previous.putIfAbsent(current.getId(), Pomodoro.of(current));
+            pomodoros.put(current.getId(), repository.save(current.updateBy(changes)));
+            return PomodoroEventResult.applied(event.getId());
+        } catch (IllegalArgumentException e) {
+            return PomodoroEventResult.rejected(event.getId(), e.getMessage());
+        }
+    }
+
+    private static String currentUser() {
+        return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication()).map(Principal::getName).orElse(null);
+    }
+
+    private List<Pomodoro> readPomodorosOfUser(String user, PageRequest request) {
+        var size = request.getPageSize();
+        if (archive.count(user) == 0) return repository.findAllByUserOrderByTimingEndedDesc(user, request);
+
+        var limit = (int) Math.min(request.getOffset() + size, Integer.MAX_VALUE);
+        var hot = repository.findAllByUserOrderByTimingEndedDesc(user, PageRequest.of(0, limit));
+        var cold = archive.newest(user, limit);
+        return merge(hot, cold, limit).stream().skip(request.getOffset()).collect(toList());
+    }
+
+    /** Entities returned to other callers are not shared between them */
+    private static List<Pomodoro> copyOf(List<Pomodoro> pomodoros) {
+        return pomodoros.stream().map(Pomodoro::of).collect(toList());
+    }
+
+    /** Pomodoros left in the hot table by an interrupted archiving are skipped in the archive. */
+    private static List<Pomodoro> merge(List<Pomodoro> hot, List<Pomodoro> cold, int limit) {
+        var hotIds = hot.stream().map(Pomodoro::getId).collect(toSet());
+        var merged = new ArrayList<Pomodoro>(Math.min(limit, hot.size() + cold.size()));
+        var h = 0;
+        var c = 0;
+        while (merged.size() < limit && (h < hot.size() || c < cold.size())) {
+            if (c < cold.size() && hotIds.contains(cold.get(c).getId())) c++;
+            else if (c == cold.size() || h < hot.size() && PomodoroArchive.ENDED_DESC.compare(hot.get(h), cold.get(c)) <= 0)
+                merged.add(hot.get(h++));
+            else merged.add(cold.get(c++));
+        }
+        return merged;
+    }
 
-        return repository.save(current.updateBy(changes));
+    private static Pomodoro changesOf(PomodoroEvent event, String user) {
+        var changes = Pomodoro.builder().id(event.getId()).user(user).clientSequence(event.getSequence());
+        switch (event.getType()) {
+            case RENAME: return changes.name(event.getName()).timing(Pomodoro.Timing.of(null, null, null)).build();
+            case START: return changes.timing(Pomodoro.Timing.of(null, event.getAt(), null)).build();
+            case STOP: return changes.timing(Pomodoro.Timing.of(null, null, event.getAt())).build();
+            default: throw new IllegalArgumentException("Unexpected event " + event);
+        }
     }
 }
\ No newline at end of file
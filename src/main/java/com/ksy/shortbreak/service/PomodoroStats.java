@@ -0,0 +1,66 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.FocusSummary;
+import com.ksy.shortbreak.persistent.analytics.PomodoroColumns;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+
+import static com.ksy.shortbreak.service.PomodoroChange.Type.DELETED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.ENDED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.RETIMED;
+import static java.util.Objects.requireNonNull;
+
+/** Focus statistics of completed pomodoros, served from {@link PomodoroColumns} without querying the repository. */
+public @Service class PomodoroStats implements PomodoroListener {
+    private static final Logger LOG = LoggerFactory.getLogger(PomodoroStats.class);
+
+    private final PomodoroColumns columns;
+
+    public @Autowired PomodoroStats(PomodoroColumns columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public void changed(PomodoroChange change) {
+        var pomodoro = change.getPomodoro();
+        var timing = pomodoro.getTiming();
+        if (change.is(DELETED)) {
+            if (timing.getEnded() != null) columns.remove(pomodoro.getUser(), pomodoro.getId());
+            return;
+        }
+        if (timing.getEnded() == null || !change.is(ENDED) && !change.is(RETIMED)) return;
+        columns.put(pomodoro.getUser(), pomodoro.getId(), timing.getEnded().toInstant().toEpochMilli(),
+                seconds(focusedSeconds(timing)), seconds(timing.getDuration().getSeconds()));
+    }
+
+    @Override
+    public void reset(String user) { columns.removeUser(user); }
+
+    @Override
+    public void replayed() {
+        LOG.info("Columns of {} completed pomodoros take {} KB", columns.rows(), columns.memoryBytes() / 1024);
+    }
+
+    /** @return totals of pomodoros of the user ended from {@code from} inclusive to {@code to} exclusive */
+    public FocusSummary summaryOfUser(String user, OffsetDateTime from, OffsetDateTime to) {
+        return columns.summarize(requireNonNull(user), from.toInstant().toEpochMilli(), to.toInstant().toEpochMilli());
+    }
+
+    /** @return focused seconds of the user by consecutive periods of {@code bucket} starting at {@code from} */
+    public long[] focusedSecondsOfUser(String user, OffsetDateTime from, OffsetDateTime to, Duration bucket) {
+        return columns.focusedByBucket(requireNonNull(user), from.toInstant().toEpochMilli(), to.toInstant().toEpochMilli(), bucket.toMillis());
+    }
+
+    /** @return time between started and ended of a completed pomodoro, its duration if it wasn't started */
+    static long focusedSeconds(Pomodoro.Timing timing) {
+        return timing.getStarted() != null ? Duration.between(timing.getStarted(), timing.getEnded()).getSeconds() : timing.getDuration().getSeconds();
+    }
+
+    private static int seconds(long seconds) { return (int) Math.min(seconds, Integer.MAX_VALUE); }
+}
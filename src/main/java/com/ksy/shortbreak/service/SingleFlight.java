@@ -0,0 +1,54 @@
+package com.ksy.shortbreak.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Concurrent calls with the same key share one call in flight: the first one loads the value and the others wait for
+ * it, so a burst of identical reads makes one query. Nothing is kept once the call is completed, so a key has to
+ * include everything the value depends on, e.g. a version changed by writes.
+ */
+final class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> flights = new ConcurrentHashMap<>();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * @param copy applied to the value for every waiting call, so they don't share mutable state with each other
+     * @throws RuntimeException thrown by the load, to all the calls sharing it
+     */
+    V run(K key, Supplier<V> load, UnaryOperator<V> copy) {
+        var own = new CompletableFuture<V>();
+        var flight = flights.putIfAbsent(requireNonNull(key), own);
+        if (flight == null) {
+            try {
+                var value = load.get();
+                own.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                own.completeExceptionally(e);
+                throw e;
+            } finally {
+                flights.remove(key, own);
+            }
+        }
+
+        shared.increment();
+        try {
+            return copy.apply(flight.join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    /** @return number of calls that waited for a call in flight instead of loading */
+    long shared() { return shared.sum(); }
+}
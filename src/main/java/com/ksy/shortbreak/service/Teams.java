@@ -0,0 +1,25 @@
+package com.ksy.shortbreak.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Configured teams of users, a user may be a member of several teams. */
+public class Teams {
+    private final Map<String, List<String>> members;
+    private final Map<String, List<String>> teamsByUser = new HashMap<>();
+
+    /** @param members users by teams */
+    public Teams(Map<String, List<String>> members) {
+        this.members = Map.copyOf(members);
+        members.forEach((team, users) -> users.forEach(user -> teamsByUser.computeIfAbsent(user, ignored -> new ArrayList<>()).add(team)));
+    }
+
+    public List<String> teamsOf(String user) { return teamsByUser.getOrDefault(user, List.of()); }
+
+    /** @return empty for an unknown team */
+    public List<String> membersOf(String team) { return members.getOrDefault(team, List.of()); }
+
+    public boolean isMember(String user, String team) { return teamsOf(user).contains(team); }
+}
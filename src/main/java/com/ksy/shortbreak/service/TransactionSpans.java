@@ -0,0 +1,39 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.trace.QueryTracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Spans of {@code @Transactional} methods of {@link PomodoroService} and of its history reads, which open their
+ * read-only transaction by a template once their read isn't coalesced with a running one. Ordered before the
+ * transaction advice, so a span includes waiting for a connection and the commit, and statements of the transaction
+ * are attributed to the method; a span of a coalesced read includes waiting for the shared one.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TransactionSpans {
+    private final QueryTracer tracer;
+
+    public TransactionSpans(QueryTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("execution(public * com.ksy.shortbreak.service.PomodoroService.*(..)) && @annotation(org.springframework.transaction.annotation.Transactional)"
+            + " || execution(public * com.ksy.shortbreak.service.PomodoroService.pomodorosOfUser(..))"
+            + " || execution(public * com.ksy.shortbreak.service.PomodoroService.countPomodorosOfUser(..))")
+    public Object span(ProceedingJoinPoint call) throws Throwable {
+        var span = tracer.begin("PomodoroService." + call.getSignature().getName());
+        try {
+            return call.proceed();
+        } catch (Throwable e) {
+            span.failed(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
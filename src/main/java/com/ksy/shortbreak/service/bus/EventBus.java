@@ -0,0 +1,182 @@
+package com.ksy.shortbreak.service.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Bounded lock-free ring of events delivered to every subscriber in the order of publishing.
+ * <p>
+ * Publishers claim sequences by CAS and mark the slot as published by a release write of its sequence, so publishing
+ * is a few atomic operations: if the slowest subscriber is a whole ring behind, the publisher waits up to a given
+ * timeout for a slot, then the event is dropped and counted. Every subscriber has its own thread and sequence, takes
+ * all published events in one batch and waits by the {@link WaitStrategy} when there are none, so a slow subscriber
+ * delays only itself.
+ */
+public class EventBus<E> implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(EventBus.class);
+    private static final long PUBLISH_RETRY_NANOS = 50_000;
+
+    private final String name;
+    private final Object[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    private final Map<String, Subscription> subscriptions = new LinkedHashMap<>();
+    private final WaitStrategy waitStrategy;
+    private volatile boolean running;
+
+    /** @param capacity rounded up to a power of two */
+    public EventBus(String name, int capacity, WaitStrategy waitStrategy, Map<String, Consumer<? super E>> subscribers) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Invalid capacity " + capacity);
+        var size = Integer.bitCount(capacity) == 1 ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.name = name;
+        this.slots = new Object[size];
+        this.published = new AtomicLongArray(size);
+        for (var i = 0; i < size; i++) published.set(i, -1);
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        subscribers.forEach((subscriber, consumer) -> subscriptions.put(subscriber, new Subscription(subscriber, consumer)));
+    }
+
+    /** @return false if the event is dropped as the ring is full */
+    public boolean publish(E event) { return publish(event, Duration.ZERO); }
+
+    /**
+     * Waits for the slowest subscriber to free a slot while the bus is running, so a short burst isn't dropped
+     * @return false if the event is dropped as the ring is still full after the timeout
+     */
+    public boolean publish(E event, Duration timeout) {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (!tryPublish(event)) {
+            if (!running || System.nanoTime() - deadline >= 0) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            LockSupport.parkNanos(PUBLISH_RETRY_NANOS);
+        }
+        return true;
+    }
+
+    private boolean tryPublish(E event) {
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            if (next - slots.length > minimumSequence()) return false;
+        } while (!cursor.compareAndSet(current, next));
+
+        var index = (int) next & mask;
+        slots[index] = event;
+        published.lazySet(index, next);
+        return true;
+    }
+
+    /** @return the last claimed sequence, events up to it are delivered to subscribers {@link #start(long) started} before */
+    public long cursor() { return cursor.get(); }
+
+    /** Starts delivery of events published after the sequence */
+    public synchronized void start(long after) {
+        if (running) throw new IllegalStateException("Event bus " + name + " is already started");
+        running = true;
+        for (var subscription : subscriptions.values()) {
+            subscription.sequence.set(after);
+            var thread = new Thread(subscription, name + '-' + subscription.name);
+            thread.setDaemon(true);
+            thread.start();
+            subscription.thread = thread;
+        }
+    }
+
+    public Set<String> subscribers() { return unmodifiableSet(subscriptions.keySet()); }
+
+    /** @return number of published events the subscriber hasn't processed yet */
+    public long lagOf(String subscriber) {
+        var subscription = subscriptions.get(subscriber);
+        if (subscription == null) throw new IllegalArgumentException("Unknown subscriber " + subscriber);
+        return Math.max(0, cursor.get() - subscription.sequence.get());
+    }
+
+    public long published() { return cursor.get() + 1; }
+
+    public long dropped() { return dropped.get(); }
+
+    /** @return true if all events published before the call are processed by all subscribers within the timeout */
+    public boolean awaitDelivered(Duration timeout) {
+        var target = cursor.get();
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (minimumSequence() < target) {
+            if (System.nanoTime() - deadline > 0) return false;
+            LockSupport.parkNanos(100_000);
+        }
+        return true;
+    }
+
+    /** Stops subscribers once they process events published so far, or without waiting for them if interrupted */
+    @Override
+    public synchronized void close() {
+        if (!running) return;
+        running = false;
+        try {
+            for (var subscription : subscriptions.values()) subscription.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long minimumSequence() {
+        var minimum = Long.MAX_VALUE;
+        for (var subscription : subscriptions.values()) minimum = Math.min(minimum, subscription.sequence.get());
+        return minimum == Long.MAX_VALUE ? cursor.get() : minimum;
+    }
+
+    private final class Subscription implements Runnable {
+        final String name;
+        final Consumer<? super E> consumer;
+        final AtomicLong sequence = new AtomicLong(-1);
+        Thread thread;
+
+        Subscription(String name, Consumer<? super E> consumer) {
+            this.name = name;
+            this.consumer = consumer;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            var processed = sequence.get();
+            var idle = 0;
+            while (running || processed < cursor.get()) {
+                var available = processed;
+                while (published.get((int) (available + 1) & mask) == available + 1) available++;
+                if (available == processed) {
+                    idle = waitStrategy.idle(idle);
+                    continue;
+                }
+
+                for (var next = processed + 1; next <= available; next++) {
+                    try {
+                        consumer.accept((E) slots[(int) next & mask]);
+                    } catch (RuntimeException e) {
+                        LOG.error("Subscriber {} of {} failed on event {}", name, EventBus.this.name, next, e);
+                    }
+                }
+                processed = available;
+                sequence.lazySet(processed);
+                idle = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.ksy.shortbreak.service.bus;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a subscriber of {@link EventBus} waits for events, trading CPU for latency. Publishers don't use it, they wait
+ * for room in a full ring only up to the timeout they publish with, by parking.
+ */
+public enum WaitStrategy {
+    /** Lowest latency, occupies a core per subscriber */
+    BUSY_SPIN {
+        @Override
+        int idle(int iteration) {
+            Thread.onSpinWait();
+            return iteration + 1;
+        }
+    },
+    /** Spins a bit, then gives the core to other threads */
+    YIELDING {
+        @Override
+        int idle(int iteration) {
+            if (iteration < SPINS) Thread.onSpinWait();
+            else Thread.yield();
+            return iteration + 1;
+        }
+    },
+    /** Spins and yields a bit, then sleeps in short periods, for mostly idle buses */
+    SLEEPING {
+        @Override
+        int idle(int iteration) {
+            if (iteration < SPINS) Thread.onSpinWait();
+            else if (iteration < 2 * SPINS) Thread.yield();
+            else LockSupport.parkNanos(SLEEP_NANOS);
+            return iteration + 1;
+        }
+    };
+
+    private static final int SPINS = 100;
+    private static final long SLEEP_NANOS = 100_000;
+
+    /** @return next iteration number of the same idle period, starting from 0 */
+    abstract int idle(int iteration);
+}
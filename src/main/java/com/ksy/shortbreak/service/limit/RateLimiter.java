@@ -0,0 +1,90 @@
+package com.ksy.shortbreak.service.limit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Token bucket of every key, e.g. a user, refilled by {@code permitsPerSecond} up to {@code burst} permits.
+ * <p>
+ * A bucket is a single {@link AtomicLong}: the time its tokens are refilled up to the burst, moved forward by one
+ * refill interval per admitted request by CAS. A request is admitted while the time is at most the burst of intervals
+ * ahead, otherwise it is rejected with the time left until a permit is refilled, and the bucket is not changed. A bucket
+ * refilled up to the burst is the same as an absent one, so such buckets expire: they are evicted once the number of
+ * keys reaches the maximum. If there are still too many keys with tokens taken, requests of new keys are admitted
+ * without limiting and counted as untracked, so a flood of keys can't lock out others.
+ */
+public class RateLimiter {
+    private final long interval;
+    private final long burstInterval;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    public RateLimiter(double permitsPerSecond, int burst, int maxKeys) {
+        if (permitsPerSecond <= 0 || burst < 1 || maxKeys < 1)
+            throw new IllegalArgumentException("Invalid rate limit of " + permitsPerSecond + " permits per second, burst " + burst + " and " + maxKeys + " keys");
+        this.interval = Math.max(1, (long) (1_000_000_000 / permitsPerSecond));
+        this.burstInterval = interval * burst;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @param now {@link System#nanoTime()}
+     * @return 0 if the request is admitted, nanoseconds until a permit of the key is refilled otherwise
+     */
+    public long acquire(String key, long now) {
+        var bucket = buckets.get(requireNonNull(key));
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) evictRefilled(now);
+            if (buckets.size() >= maxKeys) {
+                untracked.increment();
+                return 0;
+            }
+            bucket = buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+        }
+
+        long refilled;
+        long next;
+        do {
+            refilled = bucket.get();
+            next = (refilled - now > 0 ? refilled : now) + interval;
+            if (next - now > burstInterval) {
+                rejected.increment();
+                return next - now - burstInterval;
+            }
+        } while (!bucket.compareAndSet(refilled, next));
+        admitted.increment();
+        return 0;
+    }
+
+    /** @return number of keys with buckets, including refilled ones not evicted yet */
+    public int keys() { return buckets.size(); }
+
+    public long admitted() { return admitted.sum(); }
+
+    public long rejected() { return rejected.sum(); }
+
+    /** @return requests admitted without limiting as there were too many keys */
+    public long untracked() { return untracked.sum(); }
+
+    /**
+     * A request racing with the eviction of its bucket may be admitted by the evicted one and not counted in the new one,
+     * which gives the key one permit more at most.
+     */
+    private void evictRefilled(long now) {
+        if (!evicting.compareAndSet(false, true)) return;
+        try {
+            buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
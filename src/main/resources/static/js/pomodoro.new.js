@@ -1,5 +1,11 @@
 var timerInterval = null;
-var pomodoroEndedSound = new Audio("/resources/audio/pomodoro.ended.wav");
+var EVENTS_KEY = "pomodoro.events";
+var SEQUENCE_KEY = "pomodoro.sequence";
+var FLUSH_BATCH_SIZE = 100;
+var flushing = false;
+var flushAttempt = 0;
+var flushCallbacks = [];
+var pomodoroEndedSound = new Audio(playableSoundUrl(pomodoroEndedSoundSources));
 
 $(document).ready(function () {
     setHours(initialDurationHours);
@@ -7,35 +13,97 @@ $(document).ready(function () {
     setSeconds(initialDurationSeconds);
 
     $('#pomodoro_name').val(pomodoroDefaultName);
+    $('#pomodoro_name').on("change", function () {
+        enqueue({type: "RENAME", id: pomodoroId, name: $(this).val()});
+        flush();
+    });
+
+    $(window).on("online", function () { flush(); });
+    flush();  // events left by previous pages
 });
 
-function update(timeStarted, timeEnded) {
-    var name = $('#pomodoro_name').val();
+// Timer actions are queued in local storage and sent in batches, so they survive flaky network and page reloads.
+// Resending is safe: server ignores event with already applied sequence.
+function enqueue(event) {
+    event.key = Date.now() + ":" + Math.random();
+    event.sequence = nextSequence();
+
+    console.log("Queued event:");
+    console.log(event);
+
+    var events = queuedEvents();
+    events.push(event);
+    storeEvents(events);
+}
 
-    var dataValues = {
-        id: pomodoroId,
-        name: name,
-        started: timeStarted ? timeStarted : null,
-        ended: timeEnded ? timeEnded : null
-    };
+// done is called once the queue is empty or sending failed
+function flush(done) {
+    if (done) flushCallbacks.push(done);
+    if (flushing) return;
 
-    console.log("Going to send for update:");
-    console.log(dataValues);
+    var batch = queuedEvents().slice(0, FLUSH_BATCH_SIZE);
+    if (batch.length === 0) {
+        runFlushCallbacks();
+        return;
+    }
 
-    $.post({
-        url: "update",
-        data: dataValues,
+    flushing = true;
+    $.ajax({
+        url: "batch",
+        method: "POST",
+        contentType: "application/json",
+        data: JSON.stringify(batch.map(withoutKey)),
         cache: false,
         timeout: 10000,
-        success: function (data) {
-            console.log("update performed");
+        success: function (results) {
+            console.log("events applied:");
+            console.log(results);
+            acknowledge(batch);
+            flushing = false;
+            flushAttempt = 0;
+            flush();
         },
         error: function (e) {
-            console.log("update failed")
+            console.log("events sending failed");
+            flushing = false;
+            if (e.status === 400 || e.status === 403) {
+                acknowledge(batch);  // never accepted, resending won't help
+            } else {
+                setTimeout(flush, Math.min(1000 * Math.pow(2, flushAttempt++), 30000));
+            }
+            runFlushCallbacks();
         }
     });
 }
 
+function runFlushCallbacks() {
+    var callbacks = flushCallbacks;
+    flushCallbacks = [];
+    callbacks.forEach(function (callback) { callback(); });
+}
+
+function acknowledge(batch) {
+    var keys = batch.map(function (event) { return event.key; });
+    storeEvents(queuedEvents().filter(function (event) { return keys.indexOf(event.key) < 0; }));
+}
+
+function withoutKey(event) {
+    var copy = $.extend({}, event);
+    delete copy.key;
+    return copy;
+}
+
+function queuedEvents() { return JSON.parse(localStorage.getItem(EVENTS_KEY) || "[]"); }
+
+function storeEvents(events) { localStorage.setItem(EVENTS_KEY, JSON.stringify(events)); }
+
+// Increasing across reloads and tabs of the client
+function nextSequence() {
+    var sequence = Math.max(Date.now(), parseInt(localStorage.getItem(SEQUENCE_KEY) || "0", 10) + 1);
+    localStorage.setItem(SEQUENCE_KEY, sequence);
+    return sequence;
+}
+
 function toHomePage() {
     document.location.href = "/";
 }
@@ -44,7 +112,8 @@ function startTimer() {
     disableElement("start", true);
     $('#home').hide();
 
-    update(currentDateTime(), null);
+    enqueue({type: "START", id: pomodoroId, at: currentDateTime()});
+    flush();
     timerInterval = setInterval(function() {
         var decreased = decreaseTime();
         if (decreased) return;
@@ -61,9 +130,8 @@ function stopTimer() {
     disableElement("stop", true);
     clearInterval(timerInterval);
 
-    update(null, currentDateTime());
-
-    toHomePage();
+    enqueue({type: "STOP", id: pomodoroId, at: currentDateTime()});
+    flush(toHomePage);
 }
 
 function decreaseTime() {
@@ -112,6 +180,14 @@ function setHours(hours) { $('#hours').text(formatDurationValue(hours)); }
 function getHours() { return parseInt($('#hours').text(), 10); }
 
 
+function playableSoundUrl(sources) {
+    var probe = document.createElement("audio");
+    for (var i = 0; i < sources.length; i++) {
+        if (probe.canPlayType(sources[i].type)) return sources[i].url;
+    }
+    return sources[sources.length - 1].url;
+}
+
 function disableElement(id, disable) { $("#" + id).prop("disabled", disable); }
 
 function currentDateTime() { return new Date().toISOString(); }
\ No newline at end of file
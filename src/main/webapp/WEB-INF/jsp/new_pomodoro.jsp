@@ -6,16 +6,20 @@
     <meta charset="UTF-8"/>
     <title>New pomodoro</title>
 
-    <link rel="stylesheet" type="text/css" href="/resources/css/pomodoro.new.css">
+    <link rel="stylesheet" type="text/css" href="<c:url value="/resources/css/pomodoro.new.css"/>">
     <script type="text/javascript">
         var pomodoroId = "${pomodoro.id}";
         var pomodoroDefaultName = "${pomodoro.name}";
         var initialDurationHours = "${pomodoro.durationHours}";
         var initialDurationMinutes = "${pomodoro.durationMinutes}";
         var initialDurationSeconds = "${pomodoro.durationSeconds}";
+        var pomodoroEndedSoundSources = [
+            {url: "<c:url value="/resources/audio/pomodoro.ended.mp3"/>", type: "audio/mpeg"},
+            {url: "<c:url value="/resources/audio/pomodoro.ended.wav"/>", type: "audio/wav"}
+        ];
     </script>
-    <script type="text/javascript" src="/webjars/jquery/3.3.1-1/jquery.js"></script>
-    <script type="text/javascript" src="/resources/js/pomodoro.new.js"></script>
+    <script type="text/javascript" src="<c:url value="/webjars/jquery/3.3.1-1/jquery.min.js"/>"></script>
+    <script type="text/javascript" src="<c:url value="/resources/js/pomodoro.new.js"/>"></script>
 
 </head>
 
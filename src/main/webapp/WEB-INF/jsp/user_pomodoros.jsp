@@ -5,9 +5,9 @@
 <head>
     <meta charset="UTF-8"/>
     <title>My pomodoros</title>
-    <link rel="stylesheet" type="text/css" href="/resources/css/pomodoros.user.css">
-    <script type="text/javascript" src="/webjars/jquery/3.3.1-1/jquery.js"></script>
-    <script type="text/javascript" src="/resources/js/pomodoros.user.js"></script>
+    <link rel="stylesheet" type="text/css" href="<c:url value="/resources/css/pomodoros.user.css"/>">
+    <script type="text/javascript" src="<c:url value="/webjars/jquery/3.3.1-1/jquery.min.js"/>"></script>
+    <script type="text/javascript" src="<c:url value="/resources/js/pomodoros.user.js"/>"></script>
 </head>
 
 <body>
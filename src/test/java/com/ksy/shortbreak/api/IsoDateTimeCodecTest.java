@@ -0,0 +1,160 @@
+package com.ksy.shortbreak.api;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IsoDateTimeCodecTest {
+    private static final long SEED = 20190624L;
+    private static final int ITERATIONS = 200_000;
+    private static final String MUTATION_ALPHABET = "0123456789-+:.TZtz ";
+
+    public @Test void parse_clientIsoString_sameAsJdk() {
+        // given
+        var text = "2019-06-24T10:15:30.123Z";
+
+        // when
+        var parsed = IsoDateTimeCodec.parse(text);
+
+        // then
+        assertEquals(OffsetDateTime.parse(text), parsed);
+    }
+
+    public @Test void parse_offsetWithSeconds_fallbackToJdk() {
+        // given
+        var text = "2019-06-24T10:15:30+03:00:15";
+
+        // when
+        var parsed = IsoDateTimeCodec.parse(text);
+
+        // then
+        assertEquals(OffsetDateTime.parse(text), parsed);
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void parse_invalidDayOfMonth_jdkExceptionThrown() {
+        // given
+        var text = "2019-02-30T10:15:30Z";
+
+        // when
+        IsoDateTimeCodec.parse(text);
+    }
+
+    public @Test void format_yearOutOfFixedLayout_sameAsJdk() {
+        // given
+        var dateTime = OffsetDateTime.of(12019, 1, 2, 3, 4, 5, 6, ZoneOffset.UTC);
+
+        // when
+        var formatted = IsoDateTimeCodec.format(dateTime);
+
+        // then
+        assertEquals(dateTime.toString(), formatted);
+    }
+
+    public @Test void formatAndParse_randomDateTimes_sameAsJdk() {
+        var random = new Random(SEED);
+        for (var i = 0; i < ITERATIONS; i++) {
+            // given
+            var dateTime = randomDateTime(random);
+            var expected = dateTime.toString();
+
+            // when
+            var formatted = IsoDateTimeCodec.format(dateTime);
+            var parsed = IsoDateTimeCodec.parse(expected);
+
+            // then
+            assertEquals(expected, formatted);
+            assertEquals(expected, OffsetDateTime.parse(expected), parsed);
+        }
+    }
+
+    public @Test void parse_randomClientStrings_sameAsJdk() {
+        var random = new Random(SEED);
+        for (var i = 0; i < ITERATIONS; i++) {
+            // given
+            var text = Instant.ofEpochMilli(random.nextLong() % 253402300799999L).toString();
+
+            // when
+            var parsed = IsoDateTimeCodec.parse(text);
+
+            // then
+            assertEquals(text, OffsetDateTime.parse(text), parsed);
+        }
+    }
+
+    public @Test void parse_randomlyMutatedStrings_sameResultOrSameFailureAsJdk() {
+        var random = new Random(SEED);
+        for (var i = 0; i < ITERATIONS; i++) {
+            // given
+            var text = mutate(randomDateTime(random).toString(), random);
+
+            // when
+            var expected = parseByJdk(text);
+            var actual = parseByCodec(text);
+
+            // then
+            assertEquals(text, expected, actual);
+        }
+    }
+
+    private static Object parseByJdk(String text) {
+        try {
+            return OffsetDateTime.parse(text);
+        } catch (DateTimeParseException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object parseByCodec(String text) {
+        try {
+            return IsoDateTimeCodec.parse(text);
+        } catch (DateTimeParseException e) {
+            return e.getClass();
+        }
+    }
+
+    private static OffsetDateTime randomDateTime(Random random) {
+        var year = random.nextInt(20) == 0 ? random.nextInt(200_000) - 100_000 : random.nextInt(10_000);
+        var nano = randomNano(random);
+        var offsetSeconds = random.nextInt(4) == 0
+                ? random.nextInt(36 * 3600 + 1) - 18 * 3600
+                : (random.nextInt(37) - 18) * 3600;
+        return OffsetDateTime.of(year, 1 + random.nextInt(12), 1 + random.nextInt(28),
+                random.nextInt(24), random.nextInt(60), random.nextInt(8) == 0 ? 0 : random.nextInt(60), nano,
+                ZoneOffset.ofTotalSeconds(offsetSeconds));
+    }
+
+    private static int randomNano(Random random) {
+        switch (random.nextInt(5)) {
+            case 0: return 0;
+            case 1: return random.nextInt(1_000) * 1_000_000;
+            case 2: return random.nextInt(1_000_000) * 1_000;
+            default: return random.nextInt(1_000_000_000);
+        }
+    }
+
+    private static String mutate(String text, Random random) {
+        var chars = new StringBuilder(text);
+        var mutations = 1 + random.nextInt(3);
+        for (var i = 0; i < mutations && chars.length() > 0; i++) {
+            var position = random.nextInt(chars.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    chars.setCharAt(position, MUTATION_ALPHABET.charAt(random.nextInt(MUTATION_ALPHABET.length())));
+                    break;
+                case 1:
+                    chars.deleteCharAt(position);
+                    break;
+                default:
+                    chars.insert(position, MUTATION_ALPHABET.charAt(random.nextInt(MUTATION_ALPHABET.length())));
+            }
+        }
+        return chars.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.ksy.shortbreak.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PomodoroCborTest {
+    private static final UUID ID = UUID.fromString("00112233-4455-6677-8899-aabbccddeeff");
+
+    public @Test void encode_pomodoro_integerKeysUuidBytesAndEpochSeconds() {
+        // given
+        var pomodoro = new PomodoroDto().setId(ID).setDurationMinutes(25).setEnded("1970-01-01T00:01:40Z");
+
+        // when
+        var bytes = PomodoroCbor.encode(pomodoro);
+
+        // then
+        assertArrayEquals(new byte[]{
+                (byte) 0xa3,                                              // map of 3
+                0x01, (byte) 0xd8, 0x25, 0x50,                            // 1: tag 37, 16 bytes
+                0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77, (byte) 0x88, (byte) 0x99, (byte) 0xaa, (byte) 0xbb, (byte) 0xcc, (byte) 0xdd, (byte) 0xee, (byte) 0xff,
+                0x03, 0x19, 0x05, (byte) 0xdc,                            // 3: 1500
+                0x05, (byte) 0xc1, 0x18, 0x64                             // 5: tag 1, 100
+        }, bytes);
+    }
+
+    public @Test void decodePage_encodedPage_equalAtUtc() {
+        // given
+        var pomodoros = List.of(
+                new PomodoroDto().setId(UUID.randomUUID()).setName("Writing \u043f\u0438\u0441\u044c\u043c\u043e").setDurationHours(1).setDurationMinutes(2).setDurationSeconds(3)
+                        .setStarted("2019-06-24T10:15:30.123Z").setEnded("2019-06-24T11:17:33.123456Z").setSequence(7L),
+                new PomodoroDto().setId(UUID.randomUUID()));
+        var page = PomodoroPageDto.of(pomodoros, 42, 3, 2);
+
+        // when
+        var decoded = PomodoroCbor.decodePage(PomodoroCbor.encode(page));
+
+        // then
+        assertEquals(page, decoded);
+    }
+
+    public @Test void decodePomodoro_nullsAndUnknownKeys_skipped() {
+        // given
+        var bytes = new byte[]{
+                (byte) 0xa3,
+                0x02, (byte) 0xf6,                                        // 2: null
+                0x18, 0x63, (byte) 0x82, 0x61, 0x78, (byte) 0xa0,         // 99: ["x", {}]
+                0x06, 0x20                                                // 6: -1
+        };
+
+        // when
+        var pomodoro = PomodoroCbor.decodePomodoro(bytes);
+
+        // then
+        assertEquals(new PomodoroDto().setSequence(-1L), pomodoro);
+    }
+
+    public @Test void decodePomodoro_truncated_rejected() {
+        // given
+        var bytes = PomodoroCbor.encode(new PomodoroDto().setId(ID).setName("name"));
+
+        // when
+        try {
+            PomodoroCbor.decodePomodoro(Arrays.copyOf(bytes, bytes.length - 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated"));
+        }
+    }
+
+    public @Test void encode_page_smallerThanJson() throws Exception {
+        // given
+        var pomodoros = new ArrayList<PomodoroDto>();
+        for (var i = 0; i < 20; i++)
+            pomodoros.add(new PomodoroDto().setId(UUID.randomUUID()).setName("Pomodoro " + i).setDurationMinutes(25)
+                    .setStarted("2019-06-24T10:15:30.123+03:00").setEnded("2019-06-24T10:40:30.123+03:00").setSequence((long) i));
+        var page = PomodoroPageDto.of(pomodoros, 100, 0, 20);
+
+        // when
+        var cbor = PomodoroCbor.encode(page);
+        var json = new ObjectMapper().writeValueAsBytes(page);
+
+        // then
+        assertTrue(cbor.length + " of " + json.length, cbor.length * 3 < json.length);
+    }
+}
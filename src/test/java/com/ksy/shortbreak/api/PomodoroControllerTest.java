@@ -3,29 +3,45 @@ package com.ksy.shortbreak.api;
 import com.ksy.shortbreak.Application;
 import com.ksy.shortbreak.persistent.entity.Pomodoro;
 import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.service.PomodoroListeners;
 import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.UUID;
 
+import static java.time.temporal.ChronoUnit.HOURS;
+import static java.time.temporal.ChronoUnit.MILLIS;
 import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
@@ -35,9 +51,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 public class PomodoroControllerTest {
     private static final String USER_1 = "Alice";
     private static final String USER_2 = "Bob";
+    private static final String USER_3 = "Carol";
+    private static final String USER_4 = "Dave";
 
     private @Autowired MockMvc mvc;
     private @Autowired PomodoroRepo pomodoroRepository;
+    private @Autowired PomodoroListeners listeners;
 
     public @After void tearDown() { pomodoroRepository.deleteAll(); }
 
@@ -124,6 +143,236 @@ public class PomodoroControllerTest {
                 .andExpect(view().name("user_pomodoros"));
     }
 
+    @Test
+    @WithMockUser(value = USER_2, roles = "USER")
+    public void userPomodorosHistory_noTagSpecified_pageReturnedWithTag() throws Exception {
+        givenPomodoroInBaseOf(USER_1, "first of " + USER_1);
+        var pomodoro = givenPomodoroInBaseOf(USER_2, "first of " + USER_2);
+
+        mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(jsonPath("$.total").value(1))
+                .andExpect(jsonPath("$.pomodoros[0].id").value(pomodoro.getId().toString()))
+                .andExpect(jsonPath("$.pomodoros[0].name").value(pomodoro.getName()));
+    }
+
+    @Test
+    @WithMockUser(value = USER_2, roles = "USER")
+    public void userPomodorosHistory_historyNotChangedSinceTag_notModified() throws Exception {
+        givenPomodoroInBaseOf(USER_2, "first of " + USER_2);
+        var eTag = mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @WithMockUser(value = USER_2, roles = "USER")
+    public void userPomodorosHistory_pomodoroUpdatedSinceTag_newPageReturned() throws Exception {
+        var pomodoro = givenPomodoroInBaseOf(USER_2, "first of " + USER_2);
+        var eTag = mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(post("/pomodoro/update").param("id", pomodoro.getId().toString()).param("name", "renamed"))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(eTag)))
+                .andExpect(jsonPath("$.pomodoros[0].name").value("renamed"));
+    }
+
+    @Test
+    @WithMockUser(value = USER_2, roles = "USER")
+    public void userPomodorosHistory_cborAccepted_cborPageWithOwnTag() throws Exception {
+        var pomodoro = givenPomodoroInBaseOf(USER_2, "first of " + USER_2);
+        var jsonTag = mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        var response = mvc.perform(get("/pomodoro/history").param("page", "0").param("size", "10").accept(PomodoroCbor.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PomodoroCbor.MEDIA_TYPE))
+                .andExpect(header().string(HttpHeaders.ETAG, not(jsonTag)))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse();
+
+        var page = PomodoroCbor.decodePage(response.getContentAsByteArray());
+        assertEquals(1, page.getTotal());
+        assertEquals(pomodoro.getId(), page.getPomodoros().get(0).getId());
+        assertEquals(pomodoro.getName(), page.getPomodoros().get(0).getName());
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void updatePomodoro_cborBody_pomodoroUpdated() throws Exception {
+        var initialPomodoro = givenPomodoroInBaseOf(USER_1, "initial name");
+        var ended = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(MILLIS);
+        var update = new PomodoroDto().setId(initialPomodoro.getId()).setName("new name").setDurationMinutes(30)
+                .setStarted(ended.minusMinutes(30).toString()).setEnded(ended.toString());
+
+        mvc.perform(post("/pomodoro/update").contentType(PomodoroCbor.MEDIA_TYPE).content(PomodoroCbor.encode(update)))
+                .andExpect(status().isNoContent());
+
+        var pomodoroInDb = pomodoroRepository.findById(initialPomodoro.getId()).orElseThrow();
+        assertEquals("new name", pomodoroInDb.getName());
+        assertEquals(Duration.ofMinutes(30), pomodoroInDb.getTiming().getDuration());
+        assertTrue(pomodoroInDb.getTiming().getEnded().isEqual(ended));
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void applyEvents_createStartStopSentTwice_pomodoroSavedOnceAndRetryIgnored() throws Exception {
+        var id = UUID.randomUUID();
+        var started = OffsetDateTime.now().minusMinutes(25).truncatedTo(MILLIS);
+        var ended = OffsetDateTime.now().truncatedTo(MILLIS);
+        var batch = "[" +
+                "{\"type\": \"CREATE\", \"id\": \"" + id + "\", \"name\": \"offline\", \"durationSeconds\": 1500, \"sequence\": 1}," +
+                "{\"type\": \"START\", \"id\": \"" + id + "\", \"at\": \"" + started + "\", \"sequence\": 2}," +
+                "{\"type\": \"STOP\", \"id\": \"" + id + "\", \"at\": \"" + ended + "\", \"sequence\": 3}" +
+                "]";
+
+        mvc.perform(post("/pomodoro/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status").value(contains("APPLIED", "APPLIED", "APPLIED")));
+        mvc.perform(post("/pomodoro/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status").value(contains("IGNORED", "IGNORED", "IGNORED")));
+
+        var pomodoroInDb = pomodoroRepository.findById(id).orElseThrow();
+        assertEquals(USER_1, pomodoroInDb.getUser());
+        assertEquals("offline", pomodoroInDb.getName());
+        assertEquals(Duration.ofMinutes(25), pomodoroInDb.getTiming().getDuration());
+        assertEquals(started.toInstant(), pomodoroInDb.getTiming().getStarted().toInstant());
+        assertEquals(ended.toInstant(), pomodoroInDb.getTiming().getEnded().toInstant());
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void applyEvents_eventWithoutId_badRequest() throws Exception {
+        mvc.perform(post("/pomodoro/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"type\": \"START\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(value = USER_1, roles = "USER")
+    public void bulkRename_withoutCriterion_badRequest() throws Exception {
+        mvc.perform(post("/pomodoro/bulk/rename").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"all\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(value = USER_3, roles = "USER")
+    public void userStats_pomodoroCompletedByEvents_focusedTimeReturned() throws Exception {
+        var id = UUID.randomUUID();
+        var ended = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(HOURS).plusMinutes(30);
+        var batch = "[" +
+                "{\"type\": \"CREATE\", \"id\": \"" + id + "\", \"durationSeconds\": 1500, \"sequence\": 1}," +
+                "{\"type\": \"START\", \"id\": \"" + id + "\", \"at\": \"" + ended.minusMinutes(20) + "\", \"sequence\": 2}," +
+                "{\"type\": \"STOP\", \"id\": \"" + id + "\", \"at\": \"" + ended + "\", \"sequence\": 3}" +
+                "]";
+        mvc.perform(post("/pomodoro/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk());
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+
+        mvc.perform(get("/pomodoro/stats")
+                .param("from", ended.minusHours(1).truncatedTo(HOURS).toString())
+                .param("to", ended.plusHours(1).toString())
+                .param("bucket", "PT1H"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pomodoros").value(1))
+                .andExpect(jsonPath("$.focusedSeconds").value(1200))
+                .andExpect(jsonPath("$.plannedSeconds").value(1500))
+                .andExpect(jsonPath("$.focusedSecondsByBucket").value(contains(0, 1200, 0)));
+    }
+
+    @Test
+    @WithMockUser(value = USER_3, roles = "USER")
+    public void activePomodoros_pomodoroStartedByEvents_listedAsRunning() throws Exception {
+        var id = UUID.randomUUID();
+        var started = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(MILLIS);
+        var batch = "[" +
+                "{\"type\": \"CREATE\", \"id\": \"" + id + "\", \"durationSeconds\": 1500, \"sequence\": 1}," +
+                "{\"type\": \"START\", \"id\": \"" + id + "\", \"at\": \"" + started + "\", \"sequence\": 2}" +
+                "]";
+        mvc.perform(post("/pomodoro/batch").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk());
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+
+        mvc.perform(get("/pomodoro/active"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(greaterThan(0)))
+                .andExpect(jsonPath("$.pomodoros[*].user").value(hasItem(USER_3)));
+        mvc.perform(get("/pomodoro/active/count").param("team", "unknown"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(value = USER_3, roles = "USER")
+    public void searchPomodoros_renamedByUpdate_foundByNewNameWithNextPage() throws Exception {
+        var first = givenPomodoroInBaseOf(USER_3, "Draft");
+        var second = givenPomodoroInBaseOf(USER_3, "Draft");
+        mvc.perform(post("/pomodoro/update").param("id", first.getId().toString()).param("name", "Weekly planning"))
+                .andExpect(status().isOk());
+        mvc.perform(post("/pomodoro/update").param("id", second.getId().toString()).param("name", "Planning poker"))
+                .andExpect(status().isOk());
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+
+        var next = mvc.perform(get("/pomodoro/search").param("q", "plan").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pomodoros", hasSize(1)))
+                .andExpect(jsonPath("$.next").isString())
+                .andReturn().getResponse().getContentAsString().replaceAll(".*\"next\":\"([^\"]+)\".*", "$1");
+        mvc.perform(get("/pomodoro/search").param("q", "plan").param("size", "1").param("after", next))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pomodoros", hasSize(1)));
+        mvc.perform(get("/pomodoro/search").param("q", "weekly plan"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pomodoros[0].id").value(first.getId().toString()))
+                .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(value = USER_3, roles = "USER")
+    public void asyncNewPomodoro_authenticatedUser_pomodoroOfUserCreatedOnDatabaseExecutor() throws Exception {
+        var started = mvc.perform(post("/pomodoro/async/new"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(view().name("new_pomodoro"))
+                .andExpect(model().attributeExists("pomodoro"));
+        assertEquals(1, pomodoroRepository.countByUser(USER_3));
+    }
+
+    @Test
+    @WithMockUser(value = USER_3, roles = "USER")
+    public void asyncUpdatePomodoro_pomodoroOfUser_renamed() throws Exception {
+        var pomodoro = givenPomodoroInBaseOf(USER_3, "Draft");
+        var started = mvc.perform(post("/pomodoro/async/update").param("id", pomodoro.getId().toString()).param("name", "Renamed"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+        assertEquals("Renamed", pomodoroRepository.findById(pomodoro.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    @WithMockUser(value = USER_4, roles = "USER")
+    public void newPomodoro_burstOfUserExceeded_tooManyRequestsWithRetryAfterAndNothingSaved() throws Exception {
+        var admitted = 0;
+        while (mvc.perform(post("/pomodoro/new")).andReturn().getResponse().getStatus() == 200 && admitted < 100) admitted++;
+
+        mvc.perform(post("/pomodoro/new"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        assertThat(admitted, both(greaterThan(19)).and(lessThan(100)));
+        assertEquals(admitted, pomodoroRepository.countByUser(USER_4));
+    }
+
     private Pomodoro givenPomodoroInBaseOf(String user, String name) {
         return pomodoroRepository.save(Pomodoro.builder().user(user).name(name).timing(Pomodoro.Timing.of()).build());
     }
@@ -0,0 +1,95 @@
+package com.ksy.shortbreak.config;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadWriteRoutingDataSourceTest {
+    private final DataSource primary = database("primary");
+    private final DataSource replica = database("replica");
+    private boolean replicaAllowed = true;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @Before
+    public void setUp() {
+        useReplica(replica);
+    }
+
+    public @Test void query_readOnlyTransaction_replicaUsed() {
+        // when
+        var database = readOnly.execute(status -> databaseName());
+
+        // then
+        assertEquals("replica", database);
+    }
+
+    public @Test void query_readWriteTransaction_primaryUsed() {
+        // when
+        var database = readWrite.execute(status -> databaseName());
+
+        // then
+        assertEquals("primary", database);
+    }
+
+    public @Test void query_noTransaction_primaryUsed() {
+        // when
+        var database = databaseName();
+
+        // then
+        assertEquals("primary", database);
+    }
+
+    public @Test void query_readOnlyTransactionReplicaNotAllowed_primaryUsed() {
+        // given
+        replicaAllowed = false;
+
+        // when
+        var database = readOnly.execute(status -> databaseName());
+
+        // then
+        assertEquals("primary", database);
+    }
+
+    public @Test void query_readOnlyTransactionReplicaUnavailable_primaryUsed() {
+        // given
+        useReplica(new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/mem:replica", "sa", ""));
+
+        // when
+        var database = readOnly.execute(status -> databaseName());
+
+        // then
+        assertEquals("primary", database);
+    }
+
+    private void useReplica(DataSource replica) {
+        var dataSource = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, () -> replicaAllowed));
+        var transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String databaseName() { return jdbc.queryForObject("select name from instance", String.class); }
+
+    private static DataSource database(String name) {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        var jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table if not exists instance (name varchar(16))");
+        jdbc.update("delete from instance");
+        jdbc.update("insert into instance values (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.service.HistoryVersions;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReplicaLagTest {
+    private final DataSource primary = database();
+    private final DataSource replica = database();
+    private final HistoryVersions historyVersions = new HistoryVersions();
+    private final ReplicaLag lag = new ReplicaLag(primary, replica, historyVersions, Duration.ofSeconds(5));
+
+    public @After void tearDown() { lag.close(); }
+
+    public @Test void allows_noHeartbeatReplicatedYet_primaryUsed() {
+        // when
+        lag.beat();
+
+        // then
+        assertFalse(lag.allows(null));
+        assertFalse(lag.allows("bob"));
+    }
+
+    public @Test void allows_writeBeforeReplicatedHeartbeat_replicaUsed() {
+        // given
+        historyVersions.bump("bob");
+        lag.beat();
+        replicate();
+
+        // when
+        lag.beat();
+
+        // then
+        assertTrue(lag.allows(null));
+        assertTrue(lag.allows("bob"));
+    }
+
+    public @Test void allows_writeAfterReplicatedHeartbeat_primaryUsedForWriterOnly() {
+        // given
+        lag.beat();
+        replicate();
+        lag.beat();
+
+        // when
+        historyVersions.bump("bob");
+
+        // then
+        assertFalse(lag.allows("bob"));
+        assertTrue(lag.allows("alice"));
+    }
+
+    public @Test void allows_replicatedHeartbeatOlderThanMaxLag_primaryUsed() {
+        // given
+        var lagging = new ReplicaLag(primary, replica, historyVersions, Duration.ZERO);
+        lagging.beat();
+        replicate();
+
+        // when
+        lagging.beat();
+
+        // then
+        assertFalse(lagging.allows(null));
+        lagging.close();
+    }
+
+    /** Copies heartbeats as replication would */
+    private void replicate() {
+        var beats = new JdbcTemplate(primary).queryForList("select node, beat from replica_heartbeat");
+        var jdbc = new JdbcTemplate(replica);
+        jdbc.execute("create table if not exists replica_heartbeat (node varchar(36) primary key, beat bigint not null)");
+        jdbc.update("delete from replica_heartbeat");
+        for (var beat : beats) jdbc.update("insert into replica_heartbeat values (?, ?)", beat.get("node"), beat.get("beat"));
+    }
+
+    private static DataSource database() {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,65 @@
+package com.ksy.shortbreak.config;
+
+import com.ksy.shortbreak.Application;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+public class WebMvcResourcesTest {
+    private static final String SCRIPT = "/resources/js/pomodoro.new.js";
+
+    private @Autowired MockMvc mvc;
+    private @Autowired ResourceUrlProvider resourceUrlProvider;
+
+    public @Test void resourceUrl_staticResource_contentHashAddedToUrl() {
+        // when
+        var url = resourceUrlProvider.getForLookupPath(SCRIPT);
+
+        // then
+        assertTrue(url, url.matches("/resources/js/pomodoro\\.new-[0-9a-f]{32}\\.js"));
+    }
+
+    @Test
+    @WithMockUser(value = "Alice", roles = "USER")
+    public void getResource_contentHashUrl_cachedAsImmutable() throws Exception {
+        var url = resourceUrlProvider.getForLookupPath(SCRIPT);
+
+        mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("max-age=31536000")))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+    }
+
+    @Test
+    @WithMockUser(value = "Alice", roles = "USER")
+    public void getResource_plainUrl_notCachedAsImmutable() throws Exception {
+        mvc.perform(get(SCRIPT))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("immutable"))));
+    }
+
+    @Test
+    @WithMockUser(value = "Alice", roles = "USER")
+    public void getResource_staleContentHashUrl_notFoundAndNotCachedAsImmutable() throws Exception {
+        mvc.perform(get("/resources/js/pomodoro.new-0123456789abcdef0123456789abcdef.js"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("immutable"))));
+    }
+}
@@ -0,0 +1,54 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.junit.Test;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class ActivePomodorosTest {
+    private static final OffsetDateTime NOW = OffsetDateTime.parse("2019-06-26T12:00:00Z");
+
+    private final ActivePomodoros active = new ActivePomodoros();
+
+    public @Test void listOf_startedStoppedAndExpired_onlyRunningListedEarlierFirst() {
+        // given
+        var stopped = randomUUID();
+        var later = randomUUID();
+        var earlier = randomUUID();
+        active.start("Alice", stopped, NOW.minusMinutes(5), NOW.plusMinutes(20));
+        active.start("Alice", later, NOW.minusMinutes(1), NOW.plusMinutes(24));
+        active.start("Bob", earlier, NOW.minusMinutes(10), NOW.plusMinutes(15));
+        active.start("Bob", randomUUID(), NOW.minusMinutes(30), NOW.minusMinutes(5));
+        active.start("Carol", randomUUID(), NOW.minusMinutes(2), NOW.plusMinutes(23));
+        active.stop(stopped);
+
+        // when
+        var listed = active.listOf(List.of("Alice", "Bob"), NOW.toInstant(), 10);
+
+        // then
+        assertEquals(List.of(earlier, later), listed.stream().map(ActivePomodoros.Active::getId).collect(toList()));
+        assertEquals(2, active.countOf(List.of("Alice", "Bob"), NOW.toInstant()));
+        assertEquals(3, active.count(NOW.toInstant()));
+        assertEquals(1, active.list(NOW.toInstant(), 1).size());
+    }
+
+    public @Test void count_plannedEndPassed_expired() {
+        // given
+        var id = randomUUID();
+        active.start("Alice", id, NOW, NOW.plusMinutes(25));
+        active.start("Alice", id, NOW, NOW.plusMinutes(5));  // duration corrected
+
+        // when
+        var running = active.count(NOW.plusMinutes(4).toInstant());
+        var expired = active.count(NOW.plusMinutes(5).toInstant());
+
+        // then
+        assertEquals(1, running);
+        assertEquals(0, expired);
+        assertEquals(0, active.countOf(List.of("Alice"), NOW.plusMinutes(5).toInstant()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LeaderboardsTest {
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2019, 6, 26, 12, 0, 0, 0, ZoneOffset.UTC);  // Wednesday
+    private static final Clock CLOCK = Clock.fixed(Instant.from(NOW), ZoneOffset.UTC);
+
+    private final Leaderboards leaderboards = new Leaderboards(CLOCK, 2);
+
+    public @Test void top_timeOfSeveralDays_rankedByPeriods() {
+        // given
+        leaderboards.add("Bob", Set.of(), NOW, 1500);
+        leaderboards.add("Alice", Set.of(), NOW.minusDays(1), 3000);
+        leaderboards.add("Alice", Set.of(), NOW, 600);
+
+        // when
+        var today = leaderboards.top(null, Leaderboards.Period.DAY, 0, 1, 10);
+        var yesterday = leaderboards.top(null, Leaderboards.Period.DAY, 1, 1, 10);
+        var week = leaderboards.top(null, Leaderboards.Period.WEEK, 0, 1, 10);
+
+        // then
+        assertEquals(List.of(Leaderboards.Entry.of(1, "Bob", 1500), Leaderboards.Entry.of(2, "Alice", 600)), today);
+        assertEquals(List.of(Leaderboards.Entry.of(1, "Alice", 3000)), yesterday);
+        assertEquals(List.of(Leaderboards.Entry.of(1, "Alice", 3600), Leaderboards.Entry.of(2, "Bob", 1500)), week);
+    }
+
+    public @Test void entryOf_teamMember_rankedWithinTeamOnly() {
+        // given
+        leaderboards.add("Bob", Set.of("focus-club"), NOW, 1500);
+        leaderboards.add("Alice", Set.of(), NOW, 3000);
+
+        // when
+        var team = leaderboards.entryOf("focus-club", Leaderboards.Period.MONTH, 0, "Bob");
+        var global = leaderboards.entryOf(null, Leaderboards.Period.MONTH, 0, "Bob");
+
+        // then
+        assertEquals(Leaderboards.Entry.of(1, "Bob", 1500), team);
+        assertEquals(Leaderboards.Entry.of(2, "Bob", 1500), global);
+        assertNull(leaderboards.entryOf("focus-club", Leaderboards.Period.MONTH, 0, "Alice"));
+    }
+
+    public @Test void add_timeOlderThanRetainedPeriods_ignored() {
+        // given
+        leaderboards.add("Bob", Set.of(), NOW.minusDays(2), 1500);  // previous week still
+
+        // when
+        var day = leaderboards.top(null, Leaderboards.Period.DAY, 2, 1, 10);
+        var week = leaderboards.top(null, Leaderboards.Period.WEEK, 1, 1, 10);
+
+        // then
+        assertEquals(List.of(), day);
+        assertEquals(List.of(), week);
+        assertEquals(List.of(Leaderboards.Entry.of(1, "Bob", 1500)), leaderboards.top(null, Leaderboards.Period.WEEK, 0, 1, 10));
+    }
+}
@@ -0,0 +1,157 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroColumnsTest {
+    private static final String USER = "Bob";
+    private static final String ANOTHER_USER = "Alice";
+    private static final long HOUR = 3_600_000;
+
+    public @Test void summarize_pomodorosInAndOutOfRange_onlyInRangeSummed() {
+        // given
+        var columns = new PomodoroColumns(false);
+        columns.put(USER, randomUUID(), HOUR, 1500, 1500);
+        columns.put(USER, randomUUID(), 2 * HOUR, 1200, 1500);
+        columns.put(USER, randomUUID(), 3 * HOUR, 300, 300);
+        columns.put(ANOTHER_USER, randomUUID(), 2 * HOUR, 60, 60);
+
+        // when
+        var summary = columns.summarize(USER, HOUR, 3 * HOUR);
+
+        // then
+        assertEquals(FocusSummary.of(2, 2700, 3000), summary);
+        assertEquals(FocusSummary.of(3, 2760, 3060), columns.summarize(HOUR, 3 * HOUR));
+    }
+
+    public @Test void put_sameIdEndedAgain_rowReplaced() {
+        // given
+        var columns = new PomodoroColumns(false);
+        var id = randomUUID();
+        columns.put(USER, id, HOUR, 1500, 1500);
+
+        // when
+        columns.put(USER, id, 5 * HOUR, 600, 1500);
+
+        // then
+        assertEquals(1, columns.rows());
+        assertEquals(FocusSummary.of(0, 0, 0), columns.summarize(USER, 0, 2 * HOUR));
+        assertEquals(FocusSummary.of(1, 600, 1500), columns.summarize(USER, 0, 6 * HOUR));
+    }
+
+    public @Test void remove_deletedPomodoro_rowRemovedAndOthersKept() {
+        // given
+        var columns = new PomodoroColumns(false);
+        var deleted = randomUUID();
+        columns.put(USER, randomUUID(), HOUR, 1500, 1500);
+        columns.put(USER, deleted, 2 * HOUR, 1200, 1500);
+        columns.put(USER, randomUUID(), 3 * HOUR, 300, 300);
+
+        // when
+        columns.remove(USER, deleted);
+        columns.remove(ANOTHER_USER, deleted);
+
+        // then
+        assertEquals(2, columns.rows());
+        assertEquals(FocusSummary.of(2, 1800, 1800), columns.summarize(USER, 0, 4 * HOUR));
+    }
+
+    public @Test void focusedByBucket_pomodorosOfSeveralHours_summedByHour() {
+        // given
+        var columns = new PomodoroColumns(false);
+        columns.put(USER, randomUUID(), HOUR + 1, 100, 100);
+        columns.put(USER, randomUUID(), 2 * HOUR - 1, 200, 200);
+        columns.put(USER, randomUUID(), 3 * HOUR, 400, 400);
+
+        // when
+        var focused = columns.focusedByBucket(USER, HOUR, 4 * HOUR, HOUR);
+
+        // then
+        assertArrayEquals(new long[]{300, 0, 400}, focused);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void focusedByBucket_toBeforeFrom_exceptionThrown() {
+        // given
+        var columns = new PomodoroColumns(false);
+
+        // when
+        columns.focusedByBucket(USER, HOUR, 0, HOUR);
+    }
+
+    public @Test void summarize_randomOrderAndReplacements_sameOnAndOffHeapAsNaiveSum() {
+        var random = new Random(20190624L);
+        var onHeap = new PomodoroColumns(false);
+        var offHeap = new PomodoroColumns(true);
+        var ids = new ArrayList<UUID>();
+        var ended = new ArrayList<Long>();
+        var focused = new ArrayList<Integer>();
+        for (var i = 0; i < 5_000; i++) {
+            // given
+            var replaced = !ids.isEmpty() && random.nextInt(5) == 0;
+            var index = replaced ? random.nextInt(ids.size()) : ids.size();
+            if (!replaced) {
+                ids.add(randomUUID());
+                ended.add(0L);
+                focused.add(0);
+            }
+            ended.set(index, (long) random.nextInt(1000) * HOUR);
+            focused.set(index, random.nextInt(3600));
+            onHeap.put(USER, ids.get(index), ended.get(index), focused.get(index), 1500);
+            offHeap.put(USER, ids.get(index), ended.get(index), focused.get(index), 1500);
+        }
+        var from = 100 * HOUR;
+        var to = 700 * HOUR;
+
+        // when
+        var onHeapSummary = onHeap.summarize(USER, from, to);
+        var offHeapSummary = offHeap.summarize(USER, from, to);
+
+        // then
+        var count = 0L;
+        var focusedSum = 0L;
+        for (var i = 0; i < ids.size(); i++) {
+            if (ended.get(i) < from || ended.get(i) >= to) continue;
+            count++;
+            focusedSum += focused.get(i);
+        }
+        assertEquals(FocusSummary.of(count, focusedSum, count * 1500), onHeapSummary);
+        assertEquals(onHeapSummary, offHeapSummary);
+        assertEquals(ids.size(), offHeap.rows());
+    }
+
+    public @Test void remove_randomRemovalsAndReplacements_remainingRowsSummed() {
+        var random = new Random(20190625L);
+        var columns = new PomodoroColumns(false);
+        var ended = new HashMap<UUID, Long>();
+        for (var i = 0; i < 20_000; i++) {
+            // given
+            var existing = ended.isEmpty() ? null : ended.keySet().iterator().next();
+            var action = random.nextInt(3);
+            if (action == 0 && existing != null) {
+                columns.remove(USER, existing);
+                ended.remove(existing);
+            } else {
+                var id = action == 1 && existing != null ? existing : randomUUID();
+                ended.put(id, (long) random.nextInt(100) * HOUR);
+                columns.put(USER, id, ended.get(id), 60, 60);
+            }
+        }
+
+        // when
+        var summary = columns.summarize(USER, 0, 50 * HOUR);
+
+        // then
+        var count = ended.values().stream().filter(time -> time < 50 * HOUR).count();
+        assertEquals(FocusSummary.of(count, count * 60, count * 60), summary);
+        assertEquals(ended.size(), columns.rows());
+    }
+}
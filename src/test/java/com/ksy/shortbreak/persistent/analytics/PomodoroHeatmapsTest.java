@@ -0,0 +1,82 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroHeatmapsTest {
+    private static final String USER = "Bob";
+    private static final ZoneOffset ZONE = ZoneOffset.ofHours(3);
+
+    private final PomodoroHeatmaps heatmaps = new PomodoroHeatmaps(ZONE);
+
+    public @Test void yearOf_pomodorosOfSeveralDays_countedByDayInZone() {
+        // given
+        heatmaps.add(USER, endedAt(LocalDate.of(2019, 1, 1), 10));
+        heatmaps.add(USER, endedAt(LocalDate.of(2019, 1, 1), 11));
+        heatmaps.add(USER, OffsetDateTime.of(2019, 1, 2, 22, 30, 0, 0, ZoneOffset.UTC));  // already Jan 3 in the zone
+        heatmaps.add(USER, endedAt(LocalDate.of(2020, 1, 1), 10));
+
+        // when
+        var heatmap = heatmaps.yearOf(USER, 2019, LocalDate.of(2019, 6, 1));
+
+        // then
+        assertEquals(365, heatmap.getCounts().length);
+        assertEquals(2, heatmap.getCounts()[0]);
+        assertEquals(0, heatmap.getCounts()[1]);
+        assertEquals(1, heatmap.getCounts()[2]);
+        assertEquals(3, heatmap.getTotal());
+        assertEquals(2, heatmap.getActiveDays());
+        assertEquals(1, heatmap.getLongestStreak());
+        assertEquals(0, heatmap.getCurrentStreak());
+    }
+
+    public @Test void yearOf_pomodoroRemoved_dayNotActive() {
+        // given
+        var ended = endedAt(LocalDate.of(2019, 3, 1), 10);
+        heatmaps.add(USER, ended);
+        heatmaps.add(USER, ended);
+        heatmaps.remove(USER, ended);
+        heatmaps.remove(USER, ended);
+
+        // when
+        var heatmap = heatmaps.yearOf(USER, 2019, LocalDate.of(2019, 6, 1));
+
+        // then
+        assertEquals(0, heatmap.getTotal());
+        assertEquals(0, heatmap.getActiveDays());
+    }
+
+    public @Test void yearOf_streakOverNewYearUpToYesterday_currentStreakContinuedToPreviousYear() {
+        // given
+        for (var day = LocalDate.of(2018, 12, 20); day.isBefore(LocalDate.of(2019, 1, 5)); day = day.plusDays(1))
+            heatmaps.add(USER, endedAt(day, 12));
+        heatmaps.add(USER, endedAt(LocalDate.of(2018, 12, 1), 12));
+
+        // when
+        var heatmap = heatmaps.yearOf(USER, 2019, LocalDate.of(2019, 1, 5));
+
+        // then
+        assertEquals(4, heatmap.getLongestStreak());
+        assertEquals(16, heatmap.getCurrentStreak());
+        assertEquals(12, heatmaps.yearOf(USER, 2018, LocalDate.of(2019, 1, 5)).getLongestStreak());
+    }
+
+    public @Test void yearOf_unknownUser_emptyLeapYear() {
+        // when
+        var heatmap = heatmaps.yearOf(USER, 2020, LocalDate.of(2020, 6, 1));
+
+        // then
+        assertEquals(366, heatmap.getCounts().length);
+        assertEquals(0, heatmap.getTotal());
+    }
+
+    private static OffsetDateTime endedAt(LocalDate day, int hour) {
+        return OffsetDateTime.of(day, LocalTime.of(hour, 0), ZONE);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ksy.shortbreak.persistent.analytics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+
+public class RankedScoresTest {
+    public @Test void rankOf_sameScores_rankedByUser() {
+        // given
+        var scores = new RankedScores();
+        scores.add("Carol", 100);
+        scores.add("Bob", 300);
+        scores.add("Alice", 100);
+
+        // when
+        var ranks = List.of(scores.rankOf("Bob"), scores.rankOf("Alice"), scores.rankOf("Carol"), scores.rankOf("Dave"));
+
+        // then
+        assertEquals(List.of(1, 2, 3, 0), ranks);
+    }
+
+    public @Test void add_scoreTakenBackToZero_userRemoved() {
+        // given
+        var scores = new RankedScores();
+        scores.add("Bob", 100);
+        scores.add("Alice", 50);
+
+        // when
+        scores.add("Bob", -100);
+
+        // then
+        assertEquals(1, scores.size());
+        assertEquals(0, scores.rankOf("Bob"));
+        assertEquals(1, scores.rankOf("Alice"));
+        assertEquals(List.of(Map.entry("Alice", 50L)), scores.range(1, 10));
+    }
+
+    public @Test void rankOfAndRange_randomUpdates_sameAsSortedScores() {
+        var random = new Random(20190624L);
+        var scores = new RankedScores();
+        var expected = new HashMap<String, Long>();
+        for (var i = 0; i < 20_000; i++) {
+            // given
+            var user = "user-" + random.nextInt(500);
+            var delta = (long) random.nextInt(3000) - (random.nextInt(4) == 0 ? 2000 : 0);
+
+            // when
+            scores.add(user, delta);
+            var score = expected.getOrDefault(user, 0L) + delta;
+            if (score > 0) expected.put(user, score);
+            else expected.remove(user);
+
+            // then
+            if (i % 1000 != 0) continue;
+            var sorted = new ArrayList<>(expected.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()));
+            assertEquals(sorted.size(), scores.size());
+            for (var rank = 1; rank <= sorted.size(); rank++) assertEquals(rank, scores.rankOf(sorted.get(rank - 1).getKey()));
+            var from = 1 + random.nextInt(sorted.size());
+            assertEquals(sorted.stream().skip(from - 1).limit(20).map(entry -> Map.entry(entry.getKey(), entry.getValue())).collect(toList()),
+                    scores.range(from, 20));
+        }
+    }
+}
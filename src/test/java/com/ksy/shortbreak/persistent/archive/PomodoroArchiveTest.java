@@ -0,0 +1,132 @@
+package com.ksy.shortbreak.persistent.archive;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PomodoroArchiveTest {
+    private static final String USER = "Bob";
+    private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private PomodoroArchive archive;
+
+    @Before
+    public void setUp() {
+        archive = new PomodoroArchive(folder.getRoot().toPath());
+    }
+
+    public @Test void newest_appendedPomodoros_allFieldsRestored() {
+        // given
+        var started = NOW.minusHours(2);
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user(USER).name("Name with \u044e\u043d\u0438\u043a\u043e\u0434")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), started, started.plusNanos(1_500_000_123L)))
+                .clientSequence(42L)
+                .build();
+        var unnamed = Pomodoro.builder().id(randomUUID()).user(USER)
+                .timing(Pomodoro.Timing.of(Duration.ofSeconds(5), null, NOW.minusDays(3)))
+                .build();
+        archive.append(USER, List.of(unnamed, pomodoro));
+
+        // when
+        var newest = new PomodoroArchive(folder.getRoot().toPath()).newest(USER, 10);
+
+        // then
+        assertEquals(List.of(pomodoro, unnamed), newest);
+    }
+
+    public @Test void newest_overlappingSegments_mergedInEndedDescOrder() {
+        // given
+        var pomodoros = IntStream.range(0, 100).mapToObj(i -> completedPomodoro(Duration.ofMinutes(i))).collect(toList());
+        var odd = pomodoros.stream().filter(pomodoro -> pomodoros.indexOf(pomodoro) % 2 == 1).collect(toList());
+        var even = pomodoros.stream().filter(pomodoro -> pomodoros.indexOf(pomodoro) % 2 == 0).collect(toList());
+        archive.append(USER, odd);
+        archive.append(USER, even.subList(0, 25));
+        archive.append(USER, even.subList(25, 50));
+
+        // when
+        var newest = archive.newest(USER, 30);
+
+        // then
+        assertEquals(pomodoros.subList(0, 30), newest);
+        assertEquals(100, archive.count(USER));
+    }
+
+    public @Test void idsOfLastSegment_twoSegments_idsOfSecondReturned() {
+        // given
+        var first = completedPomodoro(Duration.ofDays(2));
+        var second = completedPomodoro(Duration.ofDays(1));
+        archive.append(USER, List.of(first));
+        archive.append(USER, List.of(second));
+
+        // when
+        var ids = archive.idsOfLastSegment(USER);
+
+        // then
+        assertEquals(Set.of(second.getId()), ids);
+    }
+
+    public @Test void discard_appendedSegment_notReadAnymore() {
+        // given
+        var kept = completedPomodoro(Duration.ofDays(2));
+        archive.append(USER, List.of(kept));
+        var segment = archive.append(USER, List.of(completedPomodoro(Duration.ofDays(1))));
+
+        // when
+        archive.discard(USER, segment);
+
+        // then
+        assertEquals(List.of(kept), archive.newest(USER, 10));
+        assertEquals(List.of(kept), new PomodoroArchive(folder.getRoot().toPath()).newest(USER, 10));
+    }
+
+    public @Test void newest_anotherUserArchived_nothingReturned() {
+        // given
+        archive.append("Alice", List.of(completedPomodoro(Duration.ofDays(1))));
+
+        // when
+        var newest = archive.newest(USER, 10);
+
+        // then
+        assertTrue(newest.isEmpty());
+        assertEquals(0, archive.count(USER));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void newest_corruptedSegment_exceptionThrown() throws Exception {
+        // given
+        var segment = archive.append(USER, List.of(completedPomodoro(Duration.ofDays(1))));
+        var bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x55;
+        Files.write(segment, bytes);
+
+        // when
+        new PomodoroArchive(folder.getRoot().toPath()).newest(USER, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void append_notCompletedPomodoro_exceptionThrown() {
+        archive.append(USER, List.of(Pomodoro.builder().id(randomUUID()).user(USER).timing(Pomodoro.Timing.of()).build()));
+    }
+
+    private static Pomodoro completedPomodoro(Duration endedAgo) {
+        return Pomodoro.builder().id(randomUUID()).user(USER).name("ended " + endedAgo + " ago")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), null, NOW.minus(endedAgo)))
+                .build();
+    }
+}
@@ -82,6 +82,14 @@ public class PomodoroTest {
         assertEquals(timing, pomodoro.getTiming());
     }
 
+    public @Test void isNew_builtWithIdOfClient_newUntilStored() {
+        // when
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user(USER).timing(Timing.of()).build();
+
+        // then
+        assertTrue(pomodoro.isNew());
+    }
+
     public @Test void ofPomodoro_pomodoroSpecified_copyOfPomodoroReturned() {
         // given
         var id = randomUUID();
@@ -455,4 +463,43 @@ public class PomodoroTest {
         // when
         toUpdate.updateBy(update);
     }
+
+    public @Test void hasApplied_updateSequenceNotAfterApplied_true() {
+        // given
+        var id = randomUUID();
+        var current = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(5L).build();
+        var duplicate = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(5L).build();
+        var stale = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(4L).build();
+
+        // then
+        assertTrue(current.hasApplied(duplicate));
+        assertTrue(current.hasApplied(stale));
+    }
+
+    public @Test void hasApplied_updateSequenceAfterAppliedOrUnknown_false() {
+        // given
+        var id = randomUUID();
+        var current = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(5L).build();
+        var newer = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(6L).build();
+        var withoutSequence = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).build();
+        var neverSequenced = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).build();
+
+        // then
+        assertFalse(current.hasApplied(newer));
+        assertFalse(current.hasApplied(withoutSequence));
+        assertFalse(neverSequenced.hasApplied(newer));
+    }
+
+    public @Test void updateBy_sequenceSpecified_sequenceApplied() {
+        // given
+        var id = randomUUID();
+        var toUpdate = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(1L).build();
+        var update = Pomodoro.builder().id(id).user(USER).timing(Timing.of()).clientSequence(2L).build();
+
+        // when
+        toUpdate.updateBy(update);
+
+        // then
+        assertEquals(Long.valueOf(2), toUpdate.getClientSequence());
+    }
 }
\ No newline at end of file
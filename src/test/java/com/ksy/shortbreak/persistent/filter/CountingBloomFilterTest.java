@@ -0,0 +1,106 @@
+package com.ksy.shortbreak.persistent.filter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CountingBloomFilterTest {
+
+    public @Test void mightContain_addedIds_neverReportedAbsent() {
+        // given
+        var filter = CountingBloomFilter.of(10_000, 0.01, 1 << 20);
+        var ids = randomIds(10_000);
+
+        // when
+        ids.forEach(filter::add);
+
+        // then
+        assertTrue(ids.stream().allMatch(filter::mightContain));
+        assertEquals(10_000, filter.size());
+    }
+
+    public @Test void mightContain_unknownIdsAtCapacity_falsePositivesWithinConfiguredRate() {
+        // given
+        var filter = CountingBloomFilter.of(10_000, 0.01, 1 << 20);
+        randomIds(10_000).forEach(filter::add);
+
+        // when
+        var falsePositives = randomIds(100_000).stream().filter(filter::mightContain).count();
+
+        // then
+        assertTrue("False positives " + falsePositives, falsePositives < 1_500);
+        assertEquals(0.01, filter.falsePositiveRate(), 0.002);
+    }
+
+    public @Test void remove_halfOfIds_removedReportedAbsentAndRestPresent() {
+        // given
+        var filter = CountingBloomFilter.of(1_000, 0.001, 1 << 20);
+        var kept = randomIds(1_000);
+        var removed = randomIds(1_000);
+        kept.forEach(filter::add);
+        removed.forEach(filter::add);
+
+        // when
+        removed.forEach(filter::remove);
+
+        // then
+        assertTrue(kept.stream().allMatch(filter::mightContain));
+        assertTrue(removed.stream().filter(filter::mightContain).count() < 50);
+        assertEquals(1_000, filter.size());
+    }
+
+    public @Test void remove_countersSaturated_otherIdsStillPresent() {
+        // given
+        var filter = CountingBloomFilter.of(16, 0.5, 8);
+        var ids = randomIds(1_000);
+        ids.forEach(filter::add);
+
+        // when
+        ids.subList(0, 999).forEach(filter::remove);
+
+        // then
+        assertTrue(filter.mightContain(ids.get(999)));
+    }
+
+    public @Test void of_memoryLimited_countersCappedAndHigherRate() {
+        // when
+        var filter = CountingBloomFilter.of(1_000_000, 0.01, 1 << 10);
+
+        // then
+        assertEquals(2048, filter.counters());
+        assertEquals(1 << 10, filter.memoryBytes());
+        assertEquals(1, filter.hashes());
+    }
+
+    public @Test void add_concurrently_noIdLost() throws Exception {
+        // given
+        var filter = CountingBloomFilter.of(100_000, 0.01, 1 << 20);
+        var ids = randomIds(100_000);
+        var threads = new ArrayList<Thread>();
+
+        // when
+        for (var part = 0; part < 4; part++) {
+            var from = part * 25_000;
+            var thread = new Thread(() -> ids.subList(from, from + 25_000).forEach(filter::add));
+            threads.add(thread);
+            thread.start();
+        }
+        for (var thread : threads) thread.join();
+
+        // then
+        assertTrue(ids.stream().allMatch(filter::mightContain));
+        assertEquals(100_000, filter.size());
+    }
+
+    private static List<UUID> randomIds(int count) {
+        return IntStream.range(0, count).mapToObj(i -> randomUUID()).collect(toList());
+    }
+}
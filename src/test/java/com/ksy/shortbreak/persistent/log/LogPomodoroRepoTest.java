@@ -0,0 +1,299 @@
+package com.ksy.shortbreak.persistent.log;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogPomodoroRepoTest {
+    private static final String USER = "Bob";
+    private static final int SEGMENT_SIZE = 64 * 1024;
+    private static final OffsetDateTime NOW = OffsetDateTime.now(ZoneOffset.ofHours(3));
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<AutoCloseable> opened = new ArrayList<>();
+    private PomodoroLog log;
+
+    @After
+    public void tearDown() throws Exception {
+        for (var repo : opened) repo.close();
+    }
+
+    public @Test void save_newPomodoro_storedWithInitialVersion() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var pomodoro = pomodoro(Duration.ofHours(1));
+
+        // when
+        var saved = repo.save(pomodoro);
+
+        // then
+        assertEquals(pomodoro, saved);
+        assertEquals(0, saved.getVersion());
+        assertEquals(saved, repo.findById(pomodoro.getId()).orElseThrow());
+    }
+
+    public @Test void save_updateOfCurrentVersion_versionIncremented() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var saved = repo.save(pomodoro(null));
+
+        // when
+        var updated = repo.save(saved.updateBy(changes(saved, NOW)));
+
+        // then
+        assertEquals(1, updated.getVersion());
+        assertEquals(NOW, repo.findById(saved.getId()).orElseThrow().getTiming().getEnded());
+    }
+
+    @Test(expected = ObjectOptimisticLockingFailureException.class)
+    public void save_updateOfStaleVersion_exceptionThrown() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var saved = repo.save(pomodoro(null));
+        var concurrent = repo.findById(saved.getId()).orElseThrow();
+        repo.save(saved.updateBy(changes(saved, NOW)));
+
+        // when
+        repo.save(concurrent.updateBy(changes(concurrent, NOW.minusMinutes(1))));
+    }
+
+    public @Test void findById_returnedPomodoroChanged_storedPomodoroNotChanged() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var saved = repo.save(pomodoro(null));
+
+        // when
+        repo.findById(saved.getId()).orElseThrow().setName("not saved");
+
+        // then
+        assertEquals(saved.getName(), repo.findById(saved.getId()).orElseThrow().getName());
+    }
+
+    public @Test void findAll_sortedByEndedAscending_pageWithNeverEndedFirst() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var latest = repo.save(pomodoro(Duration.ofHours(1)));
+        var oldest = repo.save(pomodoro(Duration.ofHours(3)));
+        var neverEnded = repo.save(pomodoro(null));
+        repo.save(pomodoro(Duration.ofHours(2)));
+
+        // when
+        var page = repo.findAll(PageRequest.of(0, 2, Sort.by("timing.ended")));
+        var descending = repo.findAll(Sort.by(Sort.Direction.DESC, "timing.ended"));
+
+        // then
+        assertEquals(List.of(neverEnded.getId(), oldest.getId()), page.stream().map(Pomodoro::getId).collect(toList()));
+        assertEquals(4, page.getTotalElements());
+        assertEquals(latest.getId(), descending.get(0).getId());
+        assertEquals(neverEnded.getId(), descending.get(3).getId());
+    }
+
+    public @Test void findAll_exampleOfNameIgnoringCase_matchingPomodorosReturned() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var reading = repo.save(Pomodoro.builder().id(randomUUID()).user(USER).name("Reading").timing(Pomodoro.Timing.of()).build());
+        repo.save(Pomodoro.builder().id(randomUUID()).user(USER).name("Writing").timing(Pomodoro.Timing.of()).build());
+        repo.save(Pomodoro.builder().id(randomUUID()).user("Alice").name("reading").timing(Pomodoro.Timing.of()).build());
+        var probe = Pomodoro.builder().user(USER).name("READ").timing(Pomodoro.Timing.of()).build();
+        var matcher = ExampleMatcher.matching().withIgnorePaths("version").withIgnoreCase()
+                .withStringMatcher(ExampleMatcher.StringMatcher.STARTING);
+
+        // when
+        var found = repo.findAll(Example.of(probe, matcher));
+
+        // then
+        assertEquals(List.of(reading.getId()), found.stream().map(Pomodoro::getId).collect(toList()));
+        assertEquals(1, repo.count(Example.of(probe, matcher)));
+        assertTrue(repo.findOne(Example.of(probe, matcher)).isPresent());
+        assertFalse(repo.exists(Example.of(probe, ExampleMatcher.matching().withIgnorePaths("version"))));
+    }
+
+    public @Test void findAllByUserOrderByTimingEndedDesc_pomodorosOfUsers_pageOfUserInHistoryOrder() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var notEnded = repo.save(pomodoro(null));
+        var endedDayAgo = repo.save(pomodoro(Duration.ofDays(1)));
+        var endedHourAgo = repo.save(pomodoro(Duration.ofHours(1)));
+        repo.save(Pomodoro.builder().id(randomUUID()).user("Alice").timing(Pomodoro.Timing.of()).build());
+
+        // when
+        var firstPage = repo.findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(0, 2));
+        var secondPage = repo.findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(1, 2));
+
+        // then
+        assertEquals(List.of(endedHourAgo, endedDayAgo), firstPage);
+        assertEquals(List.of(notEnded), secondPage);
+        assertEquals(3, repo.countByUser(USER));
+    }
+
+    public @Test void findAllByUserAndTimingEndedBefore_endedAtDifferentTime_oldestEndedBeforeReturned() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        repo.save(pomodoro(null));
+        var endedWeekAgo = repo.save(pomodoro(Duration.ofDays(7)));
+        var endedDayAgo = repo.save(pomodoro(Duration.ofDays(1)));
+        repo.save(pomodoro(Duration.ofHours(1)));
+
+        // when
+        var ended = repo.findAllByUserAndTimingEndedBeforeOrderByTimingEndedAsc(USER, NOW.minusHours(2), PageRequest.of(0, 10));
+        var users = repo.findUsersWithPomodorosEndedBefore(NOW.minusHours(2));
+
+        // then
+        assertEquals(List.of(endedWeekAgo, endedDayAgo), ended);
+        assertEquals(List.of(USER), users);
+    }
+
+    public @Test void findAllMatchingForUpdate_filterOverBatches_matchingOfUserInIdOrder() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var matching = IntStream.range(0, 5).mapToObj(i -> repo.save(pomodoro(Duration.ofHours(i + 1)))).map(Pomodoro::getId).sorted().collect(toList());
+        repo.save(pomodoro(Duration.ofDays(3)));
+        repo.save(pomodoro(null));
+        repo.save(Pomodoro.builder().id(randomUUID()).user("Alice").name("ended PT1H ago").timing(Pomodoro.Timing.of(Duration.ofMinutes(25), null, NOW)).build());
+        var filter = PomodoroFilter.of(null, NOW.minusDays(1), null, "PT");
+
+        // when
+        var first = repo.findAllMatchingForUpdate(USER, filter, null, 3);
+        var second = repo.findAllMatchingForUpdate(USER, filter, first.get(2).getId(), 3);
+
+        // then
+        assertEquals(matching.subList(0, 3), first.stream().map(Pomodoro::getId).collect(toList()));
+        assertEquals(matching.subList(3, 5), second.stream().map(Pomodoro::getId).collect(toList()));
+    }
+
+    public @Test void renameAndDeleteAllByUserAndIdIn_idsOfUsers_onlyOfUserChangedAndVersionIncremented() {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var renamed = repo.save(pomodoro(Duration.ofHours(1)));
+        var deleted = repo.save(pomodoro(Duration.ofHours(2)));
+        var another = repo.save(Pomodoro.builder().id(randomUUID()).user("Alice").timing(Pomodoro.Timing.of()).build());
+
+        // when
+        var renamedCount = repo.renameAllByUserAndIdIn(USER, Set.of(renamed.getId(), another.getId(), randomUUID()), "Renamed");
+        var deletedCount = repo.deleteAllByUserAndIdIn(USER, Set.of(deleted.getId(), another.getId()));
+
+        // then
+        assertEquals(1, renamedCount);
+        assertEquals(1, deletedCount);
+        var stored = repo.findById(renamed.getId()).orElseThrow();
+        assertEquals("Renamed", stored.getName());
+        assertEquals(renamed.getVersion() + 1, stored.getVersion());
+        assertFalse(repo.existsById(deleted.getId()));
+        assertEquals(another, repo.findById(another.getId()).orElseThrow());
+        assertEquals(1, repo.countByIdInAndUserNot(Set.of(renamed.getId(), another.getId()), USER));
+    }
+
+    public @Test void recover_reopenedWithoutSnapshot_stateReplayedFromLog() throws Exception {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var saved = IntStream.range(0, 100).mapToObj(i -> repo.save(pomodoro(Duration.ofMinutes(i)))).collect(toList());
+        var updated = repo.save(saved.get(0).updateBy(changes(saved.get(0), NOW.minusSeconds(1))));
+        repo.deleteById(saved.get(1).getId());
+
+        // when
+        var reopened = reopenAfterCrash();
+
+        // then
+        assertEquals(99, reopened.count());
+        assertEquals(updated, reopened.findById(updated.getId()).orElseThrow());
+        assertEquals(1, reopened.findById(updated.getId()).orElseThrow().getVersion());
+        assertFalse(reopened.existsById(saved.get(1).getId()));
+    }
+
+    public @Test void recover_manySegmentsAndSnapshots_stateRecoveredAndReplacedSegmentsDeleted() throws Exception {
+        // given
+        var repo = open(100);
+        var ids = new HashSet<UUID>();
+        for (var i = 0; i < 2_000; i++) ids.add(repo.save(pomodoro(Duration.ofMinutes(i))).getId());
+        repo.close();
+        opened.remove(repo);
+
+        // when
+        var reopened = open(100);
+
+        // then
+        assertEquals(ids, reopened.findAll().stream().map(Pomodoro::getId).collect(toSet()));
+        assertEquals(1, files("snapshot-").size());
+        assertTrue(files("log-").size() <= 2);
+    }
+
+    public @Test void recover_tornRecordAtTheEnd_recordsBeforeKeptAndAppendingContinued() throws Exception {
+        // given
+        var repo = open(Long.MAX_VALUE);
+        var first = repo.save(pomodoro(Duration.ofHours(2)));
+        try (var file = new RandomAccessFile(files("log-").get(0).toFile(), "rw")) {
+            file.seek(log.position());
+            file.writeInt(100);  // length of a record whose body was not written
+            file.writeInt(12345);
+        }
+        var reopened = reopenAfterCrash();
+
+        // when
+        var second = reopened.save(pomodoro(Duration.ofHours(1)));
+
+        // then
+        var recovered = reopenAfterCrash();
+        assertEquals(Set.of(first, second), new HashSet<>(recovered.findAll()));
+    }
+
+    private LogPomodoroRepo open(long snapshotEvery) {
+        log = new PomodoroLog(folder.getRoot().toPath(), SEGMENT_SIZE, FsyncPolicy.NEVER, Duration.ofSeconds(1));
+        var repo = new LogPomodoroRepo(log, snapshotEvery);
+        opened.add(repo);
+        return repo;
+    }
+
+    /** Opens the log again as after a crash of the current one: without final snapshot */
+    private LogPomodoroRepo reopenAfterCrash() {
+        opened.clear();
+        log.close();
+        return open(Long.MAX_VALUE);
+    }
+
+    private List<Path> files(String prefix) throws Exception {
+        try (var files = Files.list(folder.getRoot().toPath())) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().collect(toList());
+        }
+    }
+
+    private static Pomodoro pomodoro(Duration endedAgo) {
+        var ended = endedAgo != null ? NOW.minus(endedAgo) : null;
+        return Pomodoro.builder().id(randomUUID()).user(USER).name("ended " + endedAgo + " ago")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), null, ended))
+                .clientSequence(1L)
+                .build();
+    }
+
+    private static Pomodoro changes(Pomodoro pomodoro, OffsetDateTime ended) {
+        return Pomodoro.builder().id(pomodoro.getId()).user(USER).timing(Pomodoro.Timing.of(null, null, ended)).build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.ksy.shortbreak.persistent.search;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NameIndexTest {
+    private static final String USER = "Bob";
+
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private final NameIndex index = new NameIndex();
+
+    public @Test void search_prefixesOfEveryWord_matchingRankedByRecency() {
+        // given
+        var report = randomUUID();
+        var review = randomUUID();
+        var oldReport = randomUUID();
+        index.put(USER, report, "Quarterly Report, draft", 300);
+        index.put(USER, review, "Review of the quarterly budget", 200);
+        index.put(USER, oldReport, "Report for the quarter", 100);
+        index.put(USER, randomUUID(), "Caf\u00e9 break", 400);
+        index.put("Alice", randomUUID(), "Quarterly report", 500);
+
+        // when
+        var quarterly = index.search(USER, "QUART", null, 10);
+        var quarterlyReport = index.search(USER, "report quar", null, 10);
+
+        // then
+        assertEquals(List.of(report, review, oldReport), ids(quarterly));
+        assertEquals(List.of(report, oldReport), ids(quarterlyReport));
+        assertEquals(1, index.search(USER, "cafe", null, 10).size());
+        assertEquals(List.of(), index.search(USER, "report budget", null, 10));
+        assertEquals(List.of(), index.search(USER, " , ", null, 10));
+    }
+
+    public @Test void search_afterCursor_nextPageOfSameRecency() {
+        // given
+        for (var i = 0; i < 5; i++) index.put(USER, randomUUID(), "Focus " + i, 100);
+
+        // when
+        var first = index.search(USER, "focus", null, 3);
+        var second = index.search(USER, "focus", first.get(2), 3);
+
+        // then
+        assertEquals(3, first.size());
+        assertEquals(2, second.size());
+        assertTrue(first.stream().noneMatch(second::contains));
+    }
+
+    public @Test void put_renamed_foundByNewNameOnly() {
+        // given
+        var id = randomUUID();
+        index.put(USER, id, "Writing", 100);
+
+        // when
+        var renamed = index.put(USER, id, "Reading", 100);
+        var unchanged = index.put(USER, id, "Reading", 100);
+
+        // then
+        assertTrue(renamed);
+        assertFalse(unchanged);
+        assertEquals(List.of(), index.search(USER, "writ", null, 10));
+        assertEquals(List.of(id), ids(index.search(USER, "read", null, 10)));
+        assertEquals(1, index.size());
+    }
+
+    public @Test void remove_notLastPomodoro_lastOneStillFoundAndRemovedNot() {
+        // given
+        var removed = randomUUID();
+        var last = randomUUID();
+        index.put(USER, removed, "Deep work", 100);
+        index.put(USER, randomUUID(), "Email", 200);
+        index.put(USER, last, "Deep reading", 300);
+
+        // when
+        var found = index.remove(USER, removed);
+        var again = index.remove(USER, removed);
+
+        // then
+        assertTrue(found);
+        assertFalse(again);
+        assertEquals(List.of(last), ids(index.search(USER, "deep", null, 10)));
+        assertEquals(List.of(), index.search(USER, "work", null, 10));
+        assertEquals(2, index.size());
+    }
+
+    public @Test void removeNotPutSinceRead_someDeletedBeforeReplay_onlyPutOnesKept() {
+        // given
+        var file = folder.getRoot().toPath().resolve("names.idx");
+        var ids = new ArrayList<UUID>();
+        for (var i = 0; i < 10; i++) {
+            ids.add(randomUUID());
+            index.put(USER, ids.get(i), "Task " + i, i);
+        }
+        index.write(file);
+        var read = NameIndex.read(file);
+        for (var i = 0; i < 10; i += 3) read.put(USER, ids.get(i), "Task " + i, i);
+
+        // when
+        var removed = read.removeNotPutSinceRead();
+
+        // then
+        assertEquals(6, removed);
+        assertEquals(List.of(ids.get(9), ids.get(6), ids.get(3), ids.get(0)), ids(read.search(USER, "task", null, 10)));
+    }
+
+    public @Test void read_writtenIndex_sameSearchResults() {
+        // given
+        var file = folder.getRoot().toPath().resolve("names.idx");
+        for (var i = 0; i < 300; i++) index.put(USER, randomUUID(), "Task " + i + (i % 2 == 0 ? " even" : " odd"), i);
+        index.write(file);
+
+        // when
+        var read = NameIndex.read(file);
+
+        // then
+        assertEquals(index.size(), read.size());
+        assertEquals(index.search(USER, "even task", null, 20), read.search(USER, "even task", null, 20));
+        assertEquals(index.search(USER, "task 1", null, 50), read.search(USER, "task 1", null, 50));
+    }
+
+    public @Test void read_corruptedFile_rejected() throws IOException {
+        // given
+        var file = folder.getRoot().toPath().resolve("names.idx");
+        index.put(USER, randomUUID(), "Task", 1);
+        index.write(file);
+        var bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 6] ^= 1;
+        Files.write(file, bytes);
+
+        // when
+        try {
+            NameIndex.read(file);
+            fail("Corrupted index is read");
+        } catch (IllegalStateException | UncheckedIOException e) {
+            // then rejected
+        }
+    }
+
+    private static List<UUID> ids(List<NameIndex.Hit> hits) { return hits.stream().map(NameIndex.Hit::getId).collect(toList()); }
+}
@@ -0,0 +1,63 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardRingTest {
+    private static final int USERS = 100_000;
+    private static final int VIRTUAL_NODES = 128;
+
+    public @Test void shardOf_manyUsers_evenlyDistributed() {
+        // given
+        var ring = new ShardRing(List.of("a", "b", "c", "d"), VIRTUAL_NODES);
+
+        // when
+        var users = new HashMap<String, Integer>();
+        IntStream.range(0, USERS).forEach(i -> users.merge(ring.shardOf("user-" + i), 1, Integer::sum));
+
+        // then
+        assertEquals(4, users.size());
+        users.forEach((shard, count) -> assertTrue(shard + " has " + count, Math.abs(count - USERS / 4) < USERS / 4 * 0.2));
+    }
+
+    public @Test void shardOf_shardAdded_onlyUsersOfNewShardMoved() {
+        // given
+        var ring = new ShardRing(List.of("a", "b", "c"), VIRTUAL_NODES);
+        var extended = new ShardRing(List.of("a", "b", "c", "d"), VIRTUAL_NODES);
+
+        // when
+        var moved = IntStream.range(0, USERS)
+                .mapToObj(i -> "user-" + i)
+                .filter(user -> !ring.shardOf(user).equals(extended.shardOf(user)))
+                .peek(user -> assertEquals(user, "d", extended.shardOf(user)))
+                .count();
+
+        // then
+        assertTrue("moved " + moved, Math.abs(moved - USERS / 4) < USERS / 4 * 0.2);
+    }
+
+    public @Test void shardOf_shardsListedInAnotherOrder_sameShard() {
+        // given
+        var ring = new ShardRing(List.of("a", "b", "c"), VIRTUAL_NODES);
+        var reordered = new ShardRing(List.of("c", "a", "b"), VIRTUAL_NODES);
+
+        // when
+        var differ = IntStream.range(0, USERS)
+                .mapToObj(i -> "user-" + i)
+                .anyMatch(user -> !ring.shardOf(user).equals(reordered.shardOf(user)));
+
+        // then
+        assertEquals(false, differ);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_duplicatedShardNames_exceptionThrown() {
+        new ShardRing(List.of("a", "a"), VIRTUAL_NODES);
+    }
+}
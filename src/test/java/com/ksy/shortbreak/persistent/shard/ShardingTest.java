@@ -0,0 +1,172 @@
+package com.ksy.shortbreak.persistent.shard;
+
+import com.ksy.shortbreak.Application;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.service.PomodoroBulk;
+import com.ksy.shortbreak.service.PomodoroEvent;
+import com.ksy.shortbreak.service.PomodoroEventResult;
+import com.ksy.shortbreak.service.PomodoroIds;
+import com.ksy.shortbreak.service.PomodoroService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+@AutoConfigureMockMvc
+@ActiveProfiles("sharded")
+public class ShardingTest {
+    private @Autowired Shards shards;
+    private @Autowired ShardRebalancer rebalancer;
+    private @Autowired PomodoroRepo repository;
+    private @Autowired PomodoroService service;
+    private @Autowired MockMvc mvc;
+    private @Autowired PomodoroIds ids;
+    private @Autowired PomodoroBulk bulk;
+
+    public @Test void initialData_usersOfDifferentShards_everyUserStoredOnlyInItsShard() {
+        // given
+        var ksyShard = shards.ring().shardOf("ksy");
+        var bobShard = shards.ring().shardOf("bob");
+
+        // when
+        var ksyPomodoros = countOnShards("ksy");
+        var bobPomodoros = countOnShards("bob");
+
+        // then
+        assertEquals(Map.of(ksyShard, 56L), ksyPomodoros);
+        assertEquals(Map.of(bobShard, 31L), bobPomodoros);
+    }
+
+    @Test
+    @WithMockUser(value = "bob", roles = "USER")
+    public void pomodorosOfUser_authenticatedUser_readFromShardOfUser() {
+        // when
+        var pomodoros = service.pomodorosOfUser("bob", 0, 100);
+        var total = service.countPomodorosOfUser("bob");
+
+        // then
+        assertEquals(31, pomodoros.size());
+        assertEquals(31, total);
+    }
+
+    public @Test void rebalance_pomodoroOnAnotherShard_movedToShardOfUser() {
+        // given
+        var user = "carol";
+        var shard = shards.ring().shardOf(user);
+        var anotherShard = shards.names().stream().filter(name -> !name.equals(shard)).findFirst().orElseThrow();
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user(user).name("misplaced").timing(Pomodoro.Timing.of()).build();
+        ShardContext.callOnShard(anotherShard, () -> repository.save(pomodoro));
+
+        // when
+        var moved = rebalancer.rebalance();
+
+        // then
+        assertEquals(Map.of(user, 1), moved);
+        assertEquals(Map.of(shard, 1L), countOnShards(user));
+        assertEquals(1L, (long) ShardContext.callAsUser(user, () -> repository.countByUser(user)));
+    }
+
+    @Test
+    @WithMockUser(value = "dave", roles = "USER")
+    public void update_pomodoroSavedOnShardAfterStart_knownToIdFilter() {
+        // given
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user("dave").name("new").timing(Pomodoro.Timing.of()).build();
+        ShardContext.callAsUser("dave", () -> repository.save(pomodoro));
+        var rename = Pomodoro.builder().id(pomodoro.getId()).name("renamed").timing(Pomodoro.Timing.of(null, null, null)).build();
+
+        // when
+        var updated = ShardContext.callAsUser("dave", () -> service.update(rename));
+
+        // then
+        assertEquals("renamed", updated.getName());
+        assertTrue(ids.mightExist(pomodoro.getId()));
+    }
+
+    @Test
+    @WithMockUser(value = "erin", roles = "USER")
+    public void rename_idOfPomodoroOfUserOnAnotherShard_rejected() {
+        // given
+        var shard = shards.ring().shardOf("erin");
+        var owner = Stream.of("frank", "grace", "heidi", "ivan", "judy")
+                .filter(user -> !shards.ring().shardOf(user).equals(shard))
+                .findFirst().orElseThrow();
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user(owner).name("foreign").timing(Pomodoro.Timing.of()).build();
+        ShardContext.callAsUser(owner, () -> repository.save(pomodoro));
+
+        // when
+        try {
+            ShardContext.callAsUser("erin", () -> bulk.rename(PomodoroFilter.of(Set.of(pomodoro.getId()), null, null, null), "mine"));
+            fail("Pomodoro of " + owner + " is renamed by erin");
+        } catch (AccessDeniedException expected) {
+        }
+
+        // then
+        assertEquals("foreign", ShardContext.callAsUser(owner, () -> repository.findById(pomodoro.getId())).orElseThrow().getName());
+    }
+
+    @Test
+    @WithMockUser(value = "erin", roles = "USER")
+    public void apply_createWithIdOfPomodoroOnAnotherShard_rejected() {
+        // given
+        var shard = shards.ring().shardOf("erin");
+        var owner = Stream.of("frank", "grace", "heidi", "ivan", "judy")
+                .filter(user -> !shards.ring().shardOf(user).equals(shard))
+                .findFirst().orElseThrow();
+        var pomodoro = Pomodoro.builder().id(randomUUID()).user(owner).name("foreign").timing(Pomodoro.Timing.of()).build();
+        ShardContext.callAsUser(owner, () -> repository.save(pomodoro));
+
+        // when
+        var results = service.apply(List.of(PomodoroEvent.create(pomodoro.getId(), "mine", null, 1L)));
+
+        // then
+        assertEquals(PomodoroEventResult.Status.REJECTED, results.get(0).getStatus());
+        assertEquals(Map.of(shards.ring().shardOf(owner), 1L), countOnShards(owner));
+        assertEquals(0L, (long) ShardContext.callAsUser("erin", () -> repository.countByUser("erin")));
+    }
+
+    @Test
+    @WithMockUser(value = "admin", roles = {"USER", "ADMIN"})
+    public void pomodorosByShard_admin_countsReturned() throws Exception {
+        mvc.perform(get("/admin/shards")).andExpect(status().isOk());
+    }
+
+    @Test
+    @WithMockUser(value = "bob", roles = "USER")
+    public void pomodorosByShard_notAdmin_forbidden() throws Exception {
+        mvc.perform(get("/admin/shards")).andExpect(status().isForbidden());
+    }
+
+    private Map<String, Long> countOnShards(String user) {
+        var counts = new HashMap<String, Long>();
+        for (var shard : shards.names()) {
+            var count = new JdbcTemplate(shards.dataSource(shard))
+                    .queryForObject("select count(*) from pomodoro p where p.user = ?", Long.class, user);
+            if (count > 0) counts.put(shard, count);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,98 @@
+package com.ksy.shortbreak.persistent.trace;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class QueryTracerTest {
+    private final List<String> slow = new ArrayList<>();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryTracer tracer = new QueryTracer(Duration.ZERO, Duration.ZERO, 40, slow::add);
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        tracer.bindTo(registry);
+        jdbc = new JdbcTemplate(tracer.trace(new DriverManagerDataSource("jdbc:h2:mem:" + randomUUID() + ";DB_CLOSE_DELAY=-1")));
+        jdbc.execute("create table pomodoro (id uuid primary key, name varchar(255), ended timestamp with time zone)");
+        slow.clear();
+    }
+
+    public @Test void statement_overThreshold_loggedWithParameterShapesRowsAndCallSite() {
+        // given
+        jdbc.update("insert into pomodoro (id, name, ended) values (?, ?, ?)", randomUUID(), "first", null);
+        jdbc.update("insert into pomodoro (id, name, ended) values (?, ?, ?)", randomUUID(), "second", OffsetDateTime.now());
+        slow.clear();
+
+        // when
+        var names = jdbc.queryForList("select name from pomodoro where name like ? order by name", String.class, "%");
+
+        // then
+        assertEquals(List.of("first", "second"), names);
+        assertEquals(1, slow.size());
+        var record = slow.get(0);
+        assertTrue(record, record.startsWith("slow_statement elapsed_ms="));
+        assertTrue(record, record.contains(" call_site=QueryTracerTest.statement_overThreshold_loggedWithParameterShapesRowsAndCallSite "));
+        assertTrue(record, record.contains(" operation=select rows=2 "));
+        assertTrue(record, record.contains(" params=\"(String)\" sql=\"select name from pomodoro where name lik...\""));
+        assertEquals(2, registry.get("db.statement").tags("call.site", "none", "operation", "insert").timer().count());
+        assertEquals(1, registry.get("db.statement").tags("call.site", "none", "operation", "select").timer().count());
+    }
+
+    public @Test void statement_nullAndObjectParameters_shapesWithoutValues() {
+        // when
+        jdbc.update("insert into pomodoro (id, name, ended) values (?, ?, ?)", randomUUID(), null, OffsetDateTime.now());
+
+        // then
+        assertTrue(slow.get(0), slow.get(0).contains(" operation=insert rows=1 "));
+        assertTrue(slow.get(0), slow.get(0).contains(" params=\"(UUID, null, OffsetDateTime)\""));
+    }
+
+    public @Test void span_statementsOfThread_attributedAndSummedInTransactionRecord() {
+        // given
+        var span = tracer.begin("PomodoroService.update");
+
+        // when
+        jdbc.batchUpdate("insert into pomodoro (id, name) values (?, ?)", List.of(
+                new Object[]{randomUUID(), "first"}, new Object[]{randomUUID(), "second"}, new Object[]{randomUUID(), "third"}));
+        jdbc.queryForList("select id from pomodoro", UUID.class);
+        span.end();
+
+        // then
+        assertEquals(3, slow.size());
+        assertTrue(slow.get(0), slow.get(0).contains(" call_site=PomodoroService.update operation=insert rows=3 "));
+        assertTrue(slow.get(0), slow.get(0).contains(" params=\"3 x (UUID, String)\""));
+        assertTrue(slow.get(1), slow.get(1).contains(" call_site=PomodoroService.update operation=select rows=3 "));
+        assertTrue(slow.get(2), slow.get(2).startsWith("slow_transaction "));
+        assertTrue(slow.get(2), slow.get(2).contains(" method=PomodoroService.update statements=2 rows=6 connection_wait_ms="));
+        assertEquals(1, registry.get("db.transaction").tags("method", "PomodoroService.update", "outcome", "success").timer().count());
+        assertEquals(2, registry.get("db.connection.wait").tags("call.site", "PomodoroService.update").timer().count());
+    }
+
+    public @Test void span_failed_failureRecordedAndNextStatementsNotAttributed() {
+        // given
+        var span = tracer.begin("PomodoroService.initialize");
+        span.failed(new IllegalStateException());
+
+        // when
+        span.end();
+        jdbc.queryForList("select id from pomodoro", UUID.class);
+
+        // then
+        assertTrue(slow.get(0), slow.get(0).endsWith(" failure=java.lang.IllegalStateException"));
+        assertTrue(slow.get(1), slow.get(1).contains(" call_site=QueryTracerTest."));
+        assertEquals(1, registry.get("db.transaction").tags("outcome", "failure").timer().count());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ksy.shortbreak.service;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class DatabaseExecutorTest {
+    private final DatabaseExecutor executor = new DatabaseExecutor(1, 1);
+
+    public @After void tearDown() {
+        SecurityContextHolder.clearContext();
+        executor.close();
+    }
+
+    public @Test void supply_authenticatedUser_workRunsAsTheUser() throws Exception {
+        // given
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("Bob", null, "ROLE_USER"));
+
+        // when
+        var user = executor.supply(() -> SecurityContextHolder.getContext().getAuthentication().getName());
+
+        // then
+        assertEquals("Bob", user.get(5, TimeUnit.SECONDS));
+    }
+
+    public @Test void supply_threadBusyAndQueueFull_rejectedAtOnce() throws Exception {
+        // given
+        var release = new CountDownLatch(1);
+        var running = executor.supply(() -> await(release));
+        var queued = executor.supply(() -> "queued");
+
+        // when
+        try {
+            executor.supply(() -> "rejected");
+            fail("Work is accepted beyond the queue");
+        } catch (RejectedExecutionException e) {
+            // then
+            release.countDown();
+        }
+        assertEquals("released", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+            return "released";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
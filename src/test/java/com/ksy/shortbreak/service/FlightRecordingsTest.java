@@ -0,0 +1,113 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class FlightRecordingsTest {
+    public @Rule TemporaryFolder folder = new TemporaryFolder();
+
+    private FlightRecordings recordings;
+
+    @Before
+    public void setUp() {
+        assumeTrue(FlightRecordings.isAvailable());
+        recordings = new FlightRecordings(folder.getRoot().toPath(), "default", 16 << 20, 2);
+    }
+
+    public @After void tearDown() { if (recordings != null) recordings.close(); }
+
+    public @Test void stop_operationsAndRejectedTimingRecorded_customEventsWritten() throws Exception {
+        // given
+        var recording = recordings.start(null, null);
+        PomodoroOperationEvent.record("update", "Bob", () -> "updated");
+        try {
+            Pomodoro.Timing.of(Duration.ZERO);
+        } catch (IllegalArgumentException expected) {
+        }
+
+        // when
+        var file = recordings.stop(recording.getId()).orElseThrow();
+
+        // then
+        var events = RecordingFile.readAllEvents(file);
+        var operations = eventsOf(events, "com.ksy.shortbreak.PomodoroOperation");
+        assertEquals(1, operations.size());
+        assertEquals("update", operations.get(0).getString("operation"));
+        assertEquals("Bob", operations.get(0).getString("user"));
+        var rejected = eventsOf(events, "com.ksy.shortbreak.TimingRejected");
+        assertEquals(1, rejected.size());
+        assertEquals("duration", rejected.get(0).getString("check"));
+        assertEquals(List.of(file), recordings.files());
+    }
+
+    public @Test void rotate_continuousRecording_newestFilesKept() {
+        // given
+        recordings.startContinuous();
+
+        // when
+        var first = recordings.rotate().orElseThrow();
+        var second = recordings.rotate().orElseThrow();
+        var third = recordings.rotate().orElseThrow();
+
+        // then
+        assertFalse(Files.exists(first));
+        assertEquals(List.of(third, second), recordings.files());
+        assertTrue(recordings.isContinuous());
+        assertEquals(1, recordings.recordings().size());
+    }
+
+    public @Test void rotate_onDemandRecordingWritten_keptUntilDeleted() {
+        // given
+        var onDemand = recordings.stop(recordings.start(null, null).getId()).orElseThrow();
+        recordings.startContinuous();
+
+        // when
+        var first = recordings.rotate().orElseThrow();
+        var second = recordings.rotate().orElseThrow();
+        var third = recordings.rotate().orElseThrow();
+
+        // then
+        assertFalse(Files.exists(first));
+        assertEquals(List.of(third, second, onDemand), recordings.files());
+        assertTrue(recordings.delete(onDemand.getFileName().toString()));
+        assertEquals(List.of(third, second), recordings.files());
+        assertFalse(recordings.delete(onDemand.getFileName().toString()));
+    }
+
+    public @Test void file_pathOutsideDirectoryOrUnknown_notFound() throws Exception {
+        // given
+        Files.writeString(folder.newFolder("other").toPath().resolve("secret.jfr"), "secret");
+
+        // then
+        assertTrue(recordings.file("../other/secret.jfr").isEmpty());
+        assertTrue(recordings.file("unknown.jfr").isEmpty());
+        assertTrue(recordings.stop(Long.MAX_VALUE).isEmpty());
+        assertTrue(recordings.rotate().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void start_unknownSettings_exceptionThrown() {
+        // when
+        recordings.start("unknown", null);
+    }
+
+    private static List<RecordedEvent> eventsOf(List<RecordedEvent> events, String type) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(type)).collect(toList());
+    }
+}
@@ -0,0 +1,60 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.ActivePomodoros;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroActivityTest {
+    private static final String TEAM = "focus-club";
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2019, 6, 26, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final PomodoroActivity activity = new PomodoroActivity(new ActivePomodoros(),
+            new Teams(Map.of(TEAM, List.of("Alice"))), Clock.fixed(NOW.toInstant(), ZoneOffset.UTC));
+
+    public @Test void changed_startedThenEnded_runningUntilEnded() {
+        // given
+        var id = randomUUID();
+        var initialized = pomodoro(id, "Alice", null, null);
+        var started = pomodoro(id, "Alice", NOW.minusMinutes(5), null);
+        var ended = pomodoro(id, "Alice", NOW.minusMinutes(5), NOW);
+        activity.changed(PomodoroChange.of(null, initialized));
+        activity.changed(PomodoroChange.of(initialized, started));
+        activity.changed(PomodoroChange.of(null, pomodoro(randomUUID(), "Bob", NOW.minusMinutes(1), null)));
+
+        // when
+        var runningInTeam = activity.count(TEAM);
+        var running = activity.list(null, 10).size();
+        activity.changed(PomodoroChange.of(started, ended));
+
+        // then
+        assertEquals(1, runningInTeam);
+        assertEquals(2, running);
+        assertEquals(0, activity.count(TEAM));
+        assertEquals(1, activity.count(null));
+    }
+
+    public @Test void changed_replayedPomodoroStartedLongAgo_notRunning() {
+        // when
+        activity.changed(PomodoroChange.of(null, pomodoro(randomUUID(), "Alice", NOW.minusHours(1), null)));
+
+        // then
+        assertEquals(0, activity.count(null));
+    }
+
+    private static Pomodoro pomodoro(UUID id, String user, OffsetDateTime started, OffsetDateTime ended) {
+        return Pomodoro.builder().id(id).user(user).name("Focus")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), started, ended))
+                .build();
+    }
+}
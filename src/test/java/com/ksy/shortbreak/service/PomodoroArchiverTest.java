@@ -0,0 +1,68 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.Application;
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:archiver",
+        "shortbreak.archive.enabled=true",
+        "shortbreak.archive.older-than=PT72H",
+        "shortbreak.archive.batch-size=10"
+})
+public class PomodoroArchiverTest {
+    private static final String USER = "ksy";
+
+    private @Autowired PomodoroArchiver archiver;
+    private @Autowired PomodoroArchive archive;
+    private @Autowired PomodoroRepo repository;
+    private @Autowired PomodoroService service;
+
+    @BeforeClass
+    public static void setUpDirectory() throws Exception {
+        System.setProperty("shortbreak.archive.directory", Files.createTempDirectory("archive").toString());
+    }
+
+    @AfterClass
+    public static void tearDownDirectory() {
+        System.clearProperty("shortbreak.archive.directory");
+    }
+
+    public @Test void archive_completedLongAgo_movedToArchiveAndHistoryUnchanged() {
+        // given
+        var history = ids(service.pomodorosOfUser(USER, 0, 100));
+        var secondPage = ids(service.pomodorosOfUser(USER, 1, 20));
+        var total = service.countPomodorosOfUser(USER);
+
+        // when
+        archiver.archive();
+
+        // then
+        assertTrue(archive.count(USER) > 0);
+        assertEquals(total, repository.countByUser(USER) + archive.count(USER));
+        assertEquals(history, ids(service.pomodorosOfUser(USER, 0, 100)));
+        assertEquals(secondPage, ids(service.pomodorosOfUser(USER, 1, 20)));
+        assertEquals(total, service.countPomodorosOfUser(USER));
+    }
+
+    private static List<UUID> ids(List<Pomodoro> pomodoros) {
+        return pomodoros.stream().map(Pomodoro::getId).collect(toList());
+    }
+}
@@ -0,0 +1,141 @@
+package com.ksy.shortbreak.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PomodoroBackupsTest {
+    private Path directory;
+    private DataSource source;
+    private DataSource target;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("backups");
+        source = database();
+        target = database();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    public @Test void restore_backupOfManyChunks_equalRowsRestored() {
+        // given
+        var jdbc = new JdbcTemplate(source);
+        var ended = Timestamp.valueOf(LocalDateTime.of(2019, 7, 1, 12, 0, 0, 123_456_789));
+        for (var i = 0; i < 100; i++)
+            insert(jdbc, randomUUID(), "ksy", "Pomodoro " + i + " \u043f\u043e\u043c\u0438\u0434\u043e\u0440", 1_500_000_000_000L, ended, ended, (long) i);
+        insert(jdbc, randomUUID(), "bob", null, 0, null, null, null);
+        var backups = backups(source, 256);
+
+        // when
+        var file = backups.backup();
+        var restored = backups(target, 256).restore(file);
+
+        // then
+        assertEquals(101, restored);
+        assertEquals(rows(source), rows(target));
+    }
+
+    public @Test void backup_beyondKept_oldestDeletedAndEveryOneCopied() throws InterruptedException {
+        // given
+        var backups = new PomodoroBackups(source, null, directory, directory.resolve("copies"), 2, 1024, false, null);
+        insert(new JdbcTemplate(source), randomUUID(), "ksy", "first", 1, null, null, null);
+
+        // when
+        var first = backups.backup();
+        Thread.sleep(5);
+        var second = backups.backup();
+        Thread.sleep(5);
+        var third = backups.backup();
+
+        // then
+        assertEquals(List.of(third, second), backups.files());
+        assertFalse(Files.exists(first));
+        assertTrue(Files.exists(directory.resolve("copies").resolve(first.getFileName())));
+        assertEquals(1, backups(target, 1024).restore(directory.resolve("copies").resolve(third.getFileName())));
+    }
+
+    public @Test void restore_intoDatabaseWithPomodoros_rejected() {
+        // given
+        insert(new JdbcTemplate(source), randomUUID(), "ksy", "first", 1, null, null, null);
+        var file = backups(source, 1024).backup();
+
+        // when
+        try {
+            backups(source, 1024).restore(file);
+            fail();
+        } catch (IllegalStateException e) {
+            // then
+            assertEquals(1, rows(source).size());
+        }
+    }
+
+    public @Test void restore_incompleteFile_nothingRestored() throws IOException {
+        // given
+        var jdbc = new JdbcTemplate(source);
+        for (var i = 0; i < 50; i++) insert(jdbc, randomUUID(), "ksy", "Pomodoro " + i, 1, null, null, null);
+        var file = backups(source, 256).backup();
+        try (var channel = FileChannel.open(file, WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+
+        // when
+        try {
+            backups(target, 256).restore(file);
+            fail();
+        } catch (IllegalStateException e) {
+            // then
+            assertEquals(0, rows(target).size());
+        }
+    }
+
+    private PomodoroBackups backups(DataSource dataSource, int chunkBytes) {
+        return new PomodoroBackups(dataSource, null, directory, null, 10, chunkBytes, false, null);
+    }
+
+    private static DataSource database() {
+        var dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("create table pomodoro (id binary not null, client_sequence bigint, name varchar(255), "
+                + "duration bigint not null, ended timestamp, started timestamp, user varchar(255) not null, version bigint not null, primary key (id))");
+        return dataSource;
+    }
+
+    private static void insert(JdbcTemplate jdbc, UUID id, String user, String name, long duration, Timestamp started, Timestamp ended, Long clientSequence) {
+        jdbc.update("insert into pomodoro (id, version, user, name, duration, started, ended, client_sequence) values (?, ?, ?, ?, ?, ?, ?, ?)",
+                id, 3L, user, name, duration, started, ended, clientSequence);
+    }
+
+    private static List<Map<String, Object>> rows(DataSource dataSource) {
+        var rows = new JdbcTemplate(dataSource).queryForList("select * from pomodoro p order by p.id");
+        rows.forEach(row -> row.put("ID", Arrays.toString((byte[]) row.get("ID"))));
+        return rows;
+    }
+}
@@ -0,0 +1,179 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.Application;
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroFilter;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.ksy.shortbreak.config.Security.USER_ROLE;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:bulk",
+        "shortbreak.bulk.batch-size=10",
+        "shortbreak.archive.directory=build/bulk-test-archive"
+})
+public class PomodoroBulkTest {
+    private static final OffsetDateTime NOW = OffsetDateTime.now();
+
+    private @Autowired PomodoroBulk bulk;
+    private @Autowired PomodoroRepo repository;
+    private @Autowired PomodoroService service;
+    private @Autowired PomodoroStats stats;
+    private @Autowired PomodoroSearch search;
+    private @Autowired PomodoroIds ids;
+    private @Autowired PomodoroListeners listeners;
+    private @Autowired PomodoroArchive archive;
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    public @Test void rename_nameMatchOverSeveralBatches_allRenamedAndReindexed() {
+        // given
+        var user = givenAuthorizedUser("reader");
+        for (var i = 0; i < 25; i++) save(user, "Reading chapter " + i, NOW.minusHours(i + 1));
+        var writing = save(user, "Writing", NOW);
+        var tag = service.historyTagOfUser(user);
+
+        // when
+        var renamed = bulk.rename(PomodoroFilter.of(null, null, null, "READING"), "Study");
+
+        // then
+        assertEquals(25, renamed);
+        var pomodoros = repository.findAllByUserOrderByTimingEndedDesc(user, Pageable.unpaged());
+        assertEquals(25, pomodoros.stream().filter(pomodoro -> "Study".equals(pomodoro.getName()) && pomodoro.getVersion() == 1).count());
+        assertEquals(0, repository.findById(writing.getId()).orElseThrow().getVersion());
+        assertNotEquals(tag, service.historyTagOfUser(user));
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(25, search.search(user, "study", null, 100).size());
+        assertEquals(List.of(), search.search(user, "reading", null, 100));
+        assertEquals(0, bulk.rename(PomodoroFilter.of(null, null, null, "study"), "Study"));
+    }
+
+    public @Test void delete_endedRange_deletedWithStatsAndIds() {
+        // given
+        var user = givenAuthorizedUser("cleaner");
+        var deleted = new ArrayList<UUID>();
+        for (var i = 0; i < 15; i++) deleted.add(save(user, "Yesterday " + i, NOW.minusDays(1).minusMinutes(i)).getId());
+        save(user, "Last week", NOW.minusDays(7));
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(15, stats.summaryOfUser(user, NOW.minusDays(2), NOW).getPomodoros());
+
+        // when
+        var count = bulk.delete(PomodoroFilter.of(null, NOW.minusDays(2), NOW, null));
+
+        // then
+        assertEquals(15, count);
+        assertEquals(1, repository.countByUser(user));
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(0, stats.summaryOfUser(user, NOW.minusDays(2), NOW).getPomodoros());
+        assertEquals(1, stats.summaryOfUser(user, NOW.minusDays(8), NOW).getPomodoros());
+        assertEquals(List.of(), search.search(user, "yesterday", null, 100));
+        assertFalse(ids.mightExist(deleted.get(0)));
+        try {
+            service.update(Pomodoro.builder().id(deleted.get(0)).name("Back").timing(Pomodoro.Timing.of(null, null, null)).build());
+            fail("Deleted pomodoro updated");
+        } catch (IllegalArgumentException e) {
+            // rejected as never initialized
+        }
+        assertEquals(0, bulk.delete(PomodoroFilter.of(Set.copyOf(deleted), null, null, null)));
+    }
+
+    public @Test void delete_idsIncludingOfAnotherUser_rejectedAndNothingDeleted() {
+        // given
+        var another = save("owner", "Not yours", NOW);
+        var user = givenAuthorizedUser("intruder");
+        var own = save(user, "Mine", NOW);
+
+        // when
+        try {
+            bulk.delete(PomodoroFilter.of(Set.of(own.getId(), another.getId()), null, null, null));
+            fail("Pomodoro of another user deleted");
+        } catch (AccessDeniedException e) {
+            // then
+            assertTrue(repository.existsById(own.getId()));
+            assertTrue(repository.existsById(another.getId()));
+        }
+    }
+
+    public @Test void retime_idsAndUnknownId_durationOfMatchingChanged() {
+        // given
+        var user = givenAuthorizedUser("timer");
+        var first = save(user, "First", NOW.minusHours(2));
+        var second = save(user, "Second", NOW.minusHours(1));
+        var untouched = save(user, "Untouched", NOW);
+
+        // when
+        var changed = bulk.retime(PomodoroFilter.of(Set.of(first.getId(), second.getId(), randomUUID()), null, null, null), Duration.ofMinutes(50));
+
+        // then
+        assertEquals(2, changed);
+        assertEquals(Duration.ofMinutes(50), repository.findById(first.getId()).orElseThrow().getTiming().getDuration());
+        assertEquals(Duration.ofMinutes(50), repository.findById(second.getId()).orElseThrow().getTiming().getDuration());
+        assertEquals(0, repository.findById(untouched.getId()).orElseThrow().getVersion());
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(3000 * 2 + 1500, stats.summaryOfUser(user, NOW.minusDays(1), NOW.plusMinutes(1)).getPlannedSeconds());
+    }
+
+    public @Test void delete_archivedPomodoroMatching_rejectedAndNothingDeleted() {
+        // given
+        var user = givenAuthorizedUser("archivist-" + randomUUID());
+        var archived = Pomodoro.builder().id(randomUUID()).user(user).name("Old")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), NOW.minusDays(60).minusMinutes(25), NOW.minusDays(60)))
+                .build();
+        archive.append(user, List.of(archived));
+        var stored = save(user, "New", NOW);
+
+        // when
+        try {
+            bulk.delete(PomodoroFilter.of(null, NOW.minusDays(90), null, null));
+            fail("Archived pomodoro is deleted");
+        } catch (IllegalStateException expected) {
+        }
+
+        // then
+        assertTrue(repository.findById(stored.getId()).isPresent());
+        assertEquals(1, bulk.delete(PomodoroFilter.of(null, NOW.minusDays(1), null, null)));
+    }
+
+    /** Saved as by the service, so listeners get the pomodoro too */
+    private Pomodoro save(String user, String name, OffsetDateTime ended) {
+        var pomodoro = repository.save(Pomodoro.builder().id(randomUUID()).user(user).name(name)
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), ended.minusMinutes(25), ended))
+                .build());
+        listeners.saved(null, pomodoro);
+        return pomodoro;
+    }
+
+    private static String givenAuthorizedUser(String user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user, "pswd", List.of(USER_ROLE)));
+        return user;
+    }
+}
@@ -0,0 +1,58 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Set;
+
+import static com.ksy.shortbreak.service.PomodoroChange.Type.ENDED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.INITIALIZED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.RENAMED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.RETIMED;
+import static com.ksy.shortbreak.service.PomodoroChange.Type.STARTED;
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroChangeTest {
+    private static final OffsetDateTime STARTED_AT = OffsetDateTime.parse("2019-06-26T12:00:00Z");
+
+    public @Test void of_lifecycleOfPomodoro_typesOfEveryStep() {
+        // given
+        var initialized = Pomodoro.builder().id(randomUUID()).user("Bob").name("Focus").timing(Pomodoro.Timing.of()).build();
+        var started = Pomodoro.of(initialized);
+        started.getTiming().updateBy(Pomodoro.Timing.of(null, STARTED_AT, null));
+        var renamed = Pomodoro.of(started);
+        renamed.setName("Deep focus");
+        var ended = Pomodoro.of(renamed);
+        ended.getTiming().updateBy(Pomodoro.Timing.of(null, null, STARTED_AT.plusMinutes(25)));
+        var corrected = Pomodoro.of(ended);
+        corrected.getTiming().updateBy(Pomodoro.Timing.of(null, null, STARTED_AT.plusMinutes(20)));
+
+        // when
+        var changes = new PomodoroChange[]{
+                PomodoroChange.of(null, initialized), PomodoroChange.of(initialized, started), PomodoroChange.of(started, renamed),
+                PomodoroChange.of(renamed, ended), PomodoroChange.of(ended, corrected), PomodoroChange.of(corrected, corrected)};
+
+        // then
+        assertEquals(Set.of(INITIALIZED), changes[0].getTypes());
+        assertEquals(Set.of(STARTED), changes[1].getTypes());
+        assertEquals(Set.of(RENAMED), changes[2].getTypes());
+        assertEquals(Set.of(ENDED), changes[3].getTypes());
+        assertEquals(Set.of(RETIMED), changes[4].getTypes());
+        assertEquals(Set.of(), changes[5].getTypes());
+    }
+
+    public @Test void of_replayedCompletedPomodoro_initializedStartedAndEnded() {
+        // given
+        var completed = Pomodoro.builder().id(randomUUID()).user("Bob").name("Focus")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), STARTED_AT, STARTED_AT.plusMinutes(25))).build();
+
+        // when
+        var change = PomodoroChange.of(null, completed);
+
+        // then
+        assertEquals(Set.of(INITIALIZED, STARTED, ENDED), change.getTypes());
+    }
+}
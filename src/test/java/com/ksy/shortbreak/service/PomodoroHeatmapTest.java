@@ -0,0 +1,49 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.PomodoroHeatmaps;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroHeatmapTest {
+    private static final String USER = "Bob";
+    private static final LocalDate TODAY = LocalDate.of(2019, 6, 24);
+
+    private final PomodoroHeatmaps heatmaps = new PomodoroHeatmaps(ZoneOffset.UTC);
+    private final PomodoroHeatmap heatmap = new PomodoroHeatmap(heatmaps);
+
+    public @Test void changed_endedMovedToAnotherDay_countMoved() {
+        // given
+        var id = randomUUID();
+        var started = pomodoro(id, null);
+        var ended = pomodoro(id, TODAY.minusDays(1));
+        var corrected = pomodoro(id, TODAY);
+
+        // when
+        heatmap.changed(PomodoroChange.of(null, started));
+        heatmap.changed(PomodoroChange.of(started, ended));
+        heatmap.changed(PomodoroChange.of(ended, corrected));
+        heatmap.changed(PomodoroChange.of(corrected, corrected));
+
+        // then
+        var year = heatmaps.yearOf(USER, 2019, TODAY);
+        assertEquals(1, year.getTotal());
+        assertEquals(1, year.getCounts()[TODAY.getDayOfYear() - 1]);
+        assertEquals(1, year.getCurrentStreak());
+    }
+
+    private static Pomodoro pomodoro(UUID id, LocalDate endedOn) {
+        var ended = endedOn != null ? OffsetDateTime.of(endedOn.atTime(12, 0), ZoneOffset.UTC) : null;
+        return Pomodoro.builder().id(id).user(USER)
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), OffsetDateTime.of(2019, 6, 1, 0, 0, 0, 0, ZoneOffset.UTC), ended))
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.persistent.analytics.Leaderboards;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+
+public class PomodoroLeaderboardsTest {
+    private static final String USER = "Bob";
+    private static final String TEAM = "focus-club";
+    private static final OffsetDateTime NOW = OffsetDateTime.of(2019, 6, 26, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    private final PomodoroLeaderboards leaderboards = new PomodoroLeaderboards(
+            new Leaderboards(Clock.fixed(NOW.toInstant(), ZoneOffset.UTC), 2), new Teams(Map.of(TEAM, List.of(USER))));
+
+    public @Test void changed_startedThenEndedThenRenamed_focusedTimeCountedOnce() {
+        // given
+        var id = randomUUID();
+        var started = pomodoro(id, NOW.minusMinutes(25), null);
+        var ended = pomodoro(id, NOW.minusMinutes(25), NOW.minusMinutes(5));
+        var renamed = pomodoro(id, NOW.minusMinutes(25), NOW.minusMinutes(5));
+        renamed.setName("Renamed");
+
+        // when
+        leaderboards.changed(PomodoroChange.of(null, started));
+        leaderboards.changed(PomodoroChange.of(started, ended));
+        leaderboards.changed(PomodoroChange.of(ended, renamed));
+
+        // then
+        var expected = Leaderboards.Entry.of(1, USER, 1200);
+        assertEquals(expected, leaderboards.entryOf(USER, null, Leaderboards.Period.DAY, 0));
+        assertEquals(List.of(expected), leaderboards.top(TEAM, Leaderboards.Period.DAY, 0, 10));
+    }
+
+    public @Test void changed_endedTimeCorrected_focusedTimeReplaced() {
+        // given
+        var id = randomUUID();
+        var ended = pomodoro(id, NOW.minusMinutes(25), NOW.minusMinutes(5));
+        var corrected = pomodoro(id, NOW.minusMinutes(25), NOW);
+        leaderboards.changed(PomodoroChange.of(null, ended));
+
+        // when
+        leaderboards.changed(PomodoroChange.of(ended, corrected));
+
+        // then
+        assertEquals(Leaderboards.Entry.of(1, USER, 1500), leaderboards.entryOf(USER, TEAM, Leaderboards.Period.WEEK, 0));
+    }
+
+    public @Test void changed_oneOfTwoDeleted_focusedTimeOfDeletedSubtracted() {
+        // given
+        var kept = pomodoro(randomUUID(), NOW.minusMinutes(25), NOW.minusMinutes(5));
+        var deleted = pomodoro(randomUUID(), NOW.minusMinutes(60), NOW.minusMinutes(35));
+        leaderboards.changed(PomodoroChange.of(null, kept));
+        leaderboards.changed(PomodoroChange.of(null, deleted));
+
+        // when
+        leaderboards.changed(PomodoroChange.deleted(deleted));
+
+        // then
+        assertEquals(Leaderboards.Entry.of(1, USER, 1200), leaderboards.entryOf(USER, null, Leaderboards.Period.DAY, 0));
+    }
+
+    private static Pomodoro pomodoro(UUID id, OffsetDateTime started, OffsetDateTime ended) {
+        return Pomodoro.builder().id(id).user(USER).name("Done")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), started, ended))
+                .build();
+    }
+}
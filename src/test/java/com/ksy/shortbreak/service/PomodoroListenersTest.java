@@ -0,0 +1,163 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.config.EventsProperties;
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
+import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
+import com.ksy.shortbreak.persistent.shard.Shards;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static java.util.UUID.randomUUID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PomodoroListenersTest {
+    private static final String USER = "Bob";
+
+    private @Mock ObjectProvider<PomodoroListener> listenerProvider;
+    private @Mock ObjectProvider<Shards> shards;
+    private @Mock PomodoroRepo repository;
+    private @Mock PomodoroArchive archive;
+    private @Mock PlatformTransactionManager transactionManager;
+    private @Mock PomodoroListener failing;
+
+    private final List<Pomodoro> saved = new ArrayList<>();
+    private PomodoroListeners listeners;
+
+    @Before
+    public void setUp() {
+        given(listenerProvider.orderedStream()).willReturn(Stream.of(failing, change -> saved.add(change.getPomodoro())));
+        listeners = new PomodoroListeners(listenerProvider, repository, archive, shards, transactionManager, new EventsProperties());
+    }
+
+    public @After void tearDown() { listeners.close(); }
+
+    public @Test void replay_archivedAndStoredPomodoros_allPassedToListenersDespiteFailure() {
+        // given
+        var archived = pomodoro(OffsetDateTime.now().minusDays(40));
+        var stored = pomodoro(OffsetDateTime.now());
+        given(archive.users()).willReturn(List.of(USER));
+        given(archive.newest(USER, Integer.MAX_VALUE)).willReturn(List.of(archived));
+        given(repository.findAllUsers()).willReturn(List.of(USER));
+        given(repository.findAllByUserOrderByTimingEndedDesc(USER, Pageable.unpaged())).willReturn(List.of(stored));
+        doThrow(new IllegalStateException("Broken listener")).when(failing).changed(any());
+
+        // when
+        listeners.replay();
+        listeners.replay();
+
+        // then
+        assertEquals(List.of(archived, stored), saved);
+        verify(failing).replayed();
+    }
+
+    public @Test void saved_afterReplayOutsideOfTransaction_copyDelivered() {
+        // given
+        var pomodoro = pomodoro(OffsetDateTime.now());
+        var unchanged = Pomodoro.of(pomodoro);
+        listeners.replay();
+
+        // when
+        listeners.saved(null, pomodoro);
+        pomodoro.setName("Changed after save");
+        listeners.saved(pomodoro, unchanged);
+
+        // then
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(2, saved.size());
+        assertNotSame(pomodoro, saved.get(0));
+        assertEquals("Done", saved.get(0).getName());
+        assertEquals(2, listeners.published());
+        assertEquals(0, listeners.dropped());
+    }
+
+    public @Test void saved_nothingVisibleChanged_notPublished() {
+        // given
+        var pomodoro = pomodoro(OffsetDateTime.now());
+        listeners.replay();
+
+        // when
+        listeners.saved(Pomodoro.of(pomodoro), pomodoro);
+
+        // then
+        assertEquals(0, listeners.published());
+    }
+
+    public @Test void saved_ringFullBeyondTimeout_userResyncedWithChangesHeldBack() throws InterruptedException {
+        // given
+        var blocked = new CountDownLatch(1);
+        var received = new CopyOnWriteArrayList<String>();
+        var recording = new PomodoroListener() {
+            public void changed(PomodoroChange change) {
+                awaitQuietly(blocked);
+                received.add(change.getPomodoro().getName());
+            }
+
+            public void reset(String user) { received.add("reset " + user); }
+        };
+        var properties = new EventsProperties();
+        properties.setCapacity(1);
+        properties.setPublishTimeout(Duration.ofMillis(10));
+        given(listenerProvider.orderedStream()).willReturn(Stream.of(recording));
+        listeners.close();
+        listeners = new PomodoroListeners(listenerProvider, repository, archive, shards, transactionManager, properties);
+        listeners.replay();
+        var first = named("First");
+        var second = named("Second");
+        given(repository.findAllByUserOrderByTimingEndedDesc(USER, Pageable.unpaged())).willReturn(List.of(second, first));
+
+        // when
+        listeners.saved(null, first);
+        listeners.saved(null, second);
+        blocked.countDown();
+
+        // then
+        assertEquals(1, listeners.dropped());
+        var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (listeners.resynced() == 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        assertTrue(listeners.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of("First", "reset " + USER, "First", "Second"), received);
+    }
+
+    private static Pomodoro named(String name) {
+        var pomodoro = pomodoro(OffsetDateTime.now());
+        pomodoro.setName(name);
+        return pomodoro;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Pomodoro pomodoro(OffsetDateTime ended) {
+        return Pomodoro.builder().id(randomUUID()).user(USER).name("Done")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), ended.minusMinutes(25), ended))
+                .build();
+    }
+}
@@ -1,6 +1,8 @@
 package com.ksy.shortbreak.service;
 
+import com.ksy.shortbreak.persistent.archive.PomodoroArchive;
 import com.ksy.shortbreak.persistent.entity.Pomodoro;
+import com.ksy.shortbreak.persistent.filter.CountingBloomFilter;
 import com.ksy.shortbreak.persistent.repository.PomodoroRepo;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,10 +19,15 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static com.ksy.shortbreak.config.Security.USER_ROLE;
 import static java.time.OffsetDateTime.now;
@@ -29,6 +36,9 @@ import static java.util.UUID.randomUUID;
 import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -40,12 +50,18 @@ public class PomodoroServiceTest {
     private static final String HACKER_USER = "Alice";
 
     private @Mock PomodoroRepo repo;
+    private @Mock PomodoroArchive archive;
+    private @Mock HistoryVersions historyVersions;
+    private @Mock PomodoroListeners listeners;
+    private @Mock PomodoroIds pomodoroIds;
+    private @Mock PlatformTransactionManager transactionManager;
     private @InjectMocks PomodoroService service;
 
     @Before
     public void setUp() {
         securityContext = new SecurityContextImpl();
         SecurityContextHolder.setContext(securityContext);
+        lenient().when(pomodoroIds.mightExist(any())).thenReturn(true);
     }
 
 
@@ -84,6 +100,93 @@ public class PomodoroServiceTest {
         assertEquals(expectedPomodoros, pomodoros);
     }
 
+    public @Test void pomodorosOfUser_someArchived_hotAndArchivedMergedInEndedDescOrder() {
+        // given
+        var page = 1;
+        var size = 2;
+        var notEnded = completedPomodoroOfUser(null);
+        var endedHourAgo = completedPomodoroOfUser(Duration.ofHours(1));
+        var endedDayAgo = completedPomodoroOfUser(Duration.ofDays(1));
+        var endedWeekAgo = completedPomodoroOfUser(Duration.ofDays(7));
+        var endedMonthAgo = completedPomodoroOfUser(Duration.ofDays(30));
+        given(archive.count(USER)).willReturn(2L);
+        given(repo.findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(0, 4)))
+                .willReturn(List.of(endedHourAgo, endedWeekAgo, notEnded));
+        given(archive.newest(USER, 4)).willReturn(List.of(endedDayAgo, endedMonthAgo));
+
+        // when
+        var pomodoros = service.pomodorosOfUser(USER, page, size);
+
+        // then
+        assertEquals(List.of(endedWeekAgo, endedMonthAgo), pomodoros);
+    }
+
+    public @Test void pomodorosOfUser_concurrentReadsOfSameVersion_queriedOnceAndCopiesReturned() throws Exception {
+        // given
+        var expected = List.of(completedPomodoroOfUser(Duration.ofHours(1)));
+        var querying = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        given(repo.findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(0, 10))).willAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return expected;
+        });
+        var first = new CompletableFuture<List<Pomodoro>>();
+        new Thread(() -> first.complete(service.pomodorosOfUser(USER, 0, 10))).start();
+        querying.await();
+        var second = new CompletableFuture<List<Pomodoro>>();
+        var follower = new Thread(() -> second.complete(service.pomodorosOfUser(USER, 0, 10)));
+        follower.start();
+        while (follower.getState() != Thread.State.WAITING) Thread.yield();
+
+        // when
+        release.countDown();
+
+        // then
+        assertEquals(expected, first.get(5, TimeUnit.SECONDS));
+        assertEquals(expected, second.get(5, TimeUnit.SECONDS));
+        assertNotSame(expected.get(0), second.get().get(0));
+        verify(repo, times(1)).findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(0, 10));
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    public @Test void pomodorosOfUser_historyChangedDuringRead_nextReadQueriesAgain() throws Exception {
+        // given
+        var before = List.of(completedPomodoroOfUser(Duration.ofHours(1)));
+        var after = List.of(completedPomodoroOfUser(Duration.ofMinutes(1)));
+        var querying = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        given(historyVersions.versionOf(USER)).willReturn(1L, 2L);
+        given(repo.findAllByUserOrderByTimingEndedDesc(USER, PageRequest.of(0, 10))).willAnswer(invocation -> {
+            querying.countDown();
+            release.await();
+            return before;
+        }).willReturn(after);
+        var first = new CompletableFuture<List<Pomodoro>>();
+        new Thread(() -> first.complete(service.pomodorosOfUser(USER, 0, 10))).start();
+        querying.await();
+
+        // when
+        var second = service.pomodorosOfUser(USER, 0, 10);
+
+        // then
+        release.countDown();
+        assertEquals(before, first.get(5, TimeUnit.SECONDS));
+        assertEquals(after, second);
+    }
+
+    public @Test void countPomodorosOfUser_someArchived_bothTiersCounted() {
+        // given
+        given(repo.countByUser(USER)).willReturn(3L);
+        given(archive.count(USER)).willReturn(2L);
+
+        // when
+        var count = service.countPomodorosOfUser(USER);
+
+        // then
+        assertEquals(5L, count);
+    }
+
     @Test(expected = AccessDeniedException.class)
     public void initialize_unauthorized_exceptionThrown() throws Exception {
         // given
@@ -145,6 +248,25 @@ public class PomodoroServiceTest {
         service.update(pomodoro);
     }
 
+    public @Test void update_idNeverInitialized_rejectedWithoutLookup() {
+        // given
+        givenAuthorizedUser(USER);
+        var ids = new PomodoroIds(repo, null, null, CountingBloomFilter.of(1_000, 0.01, 1 << 10));
+        ids.load();
+        var service = new PomodoroService(repo, archive, historyVersions, listeners, ids, transactionManager);
+
+        // when
+        try {
+            service.update(generatePomodoroOfUserWithId());
+            fail("Update of unknown pomodoro applied");
+        } catch (IllegalArgumentException e) {
+            // then
+            assertTrue(e.getMessage().endsWith("was not initialized before"));
+        }
+        assertEquals(1, ids.rejected());
+        verify(repo, never()).findById(any());
+    }
+
     @Test(expected = AccessDeniedException.class)
     public void update_pomodoroWithIdBelongsToAnotherUser_exceptionThrown() throws Exception {
         // given
@@ -245,6 +367,121 @@ public class PomodoroServiceTest {
         service.update(update);
     }
 
+    public @Test void update_changesApplied_historyVersionOfOwnerBumped() {
+        // given
+        givenAuthorizedUser(USER);
+        var currentPomodoro = generatePomodoroOfUserWithId();
+        var update = Pomodoro.builder().id(currentPomodoro.getId()).name("renamed").timing(Pomodoro.Timing.of()).build();
+
+        given(repo.findById(update.getId())).willReturn(Optional.of(currentPomodoro));
+        given(repo.save(any())).willAnswer(call -> call.getArgument(0));
+
+        // when
+        service.update(update);
+
+        // then
+        verify(historyVersions).bump(USER);
+    }
+
+    public @Test void initialize_userAuthorized_historyVersionOfUserBumped() {
+        // given
+        givenAuthorizedUser(USER);
+        given(repo.saveAndFlush(any())).willAnswer(call -> call.getArgument(0));
+
+        // when
+        service.initialize();
+
+        // then
+        verify(historyVersions).bump(USER);
+    }
+
+    public @Test void update_sequenceAlreadyApplied_changesIgnored() {
+        // given
+        givenAuthorizedUser(USER);
+        var currentPomodoro = Pomodoro.builder().id(randomUUID()).name("applied").timing(Pomodoro.Timing.of()).clientSequence(3L).build();
+        var duplicate = Pomodoro.builder().id(currentPomodoro.getId()).name("retried").timing(Pomodoro.Timing.of()).clientSequence(3L).build();
+
+        given(repo.findById(duplicate.getId())).willReturn(Optional.of(currentPomodoro));
+
+        // when
+        var result = service.update(duplicate);
+
+        // then
+        assertEquals("applied", result.getName());
+        verify(repo, never()).save(any());
+    }
+
+    public @Test void apply_eventsOfOwnAndAnotherUserPomodoros_ownAppliedAndAnotherRejected() {
+        // given
+        givenAuthorizedUser(HACKER_USER);
+        var own = Pomodoro.builder().id(randomUUID()).user(HACKER_USER).timing(Pomodoro.Timing.of()).build();
+        var another = generatePomodoroOfUserWithId();
+        var started = now().minusMinutes(1);
+        var events = List.of(
+                PomodoroEvent.start(own.getId(), started, 1L),
+                PomodoroEvent.rename(another.getId(), "Alice climbs to Bob's pomodoro", 2L));
+
+        given(repo.findAllById(Set.of(own.getId(), another.getId()))).willReturn(List.of(own, another));
+        given(repo.save(any())).willAnswer(call -> call.getArgument(0));
+
+        // when
+        var results = service.apply(events);
+
+        // then
+        assertEquals(PomodoroEventResult.applied(own.getId()), results.get(0));
+        assertEquals(PomodoroEventResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(started, own.getTiming().getStarted());
+        assertEquals("some name", another.getName());
+        verify(historyVersions).bump(HACKER_USER);
+    }
+
+    public @Test void apply_createOfExistingAndStopWithAppliedSequence_eventsIgnored() {
+        // given
+        givenAuthorizedUser(USER);
+        var existing = Pomodoro.builder().id(randomUUID()).timing(Pomodoro.Timing.of()).clientSequence(5L).build();
+        var events = List.of(
+                PomodoroEvent.create(existing.getId(), "retried", null, 4L),
+                PomodoroEvent.stop(existing.getId(), now(), 5L));
+
+        given(repo.findAllById(Set.of(existing.getId()))).willReturn(List.of(existing));
+
+        // when
+        var results = service.apply(events);
+
+        // then
+        assertEquals(List.of(PomodoroEventResult.ignored(existing.getId()), PomodoroEventResult.ignored(existing.getId())), results);
+        assertNull(existing.getTiming().getEnded());
+        verify(repo, never()).save(any());
+    }
+
+    public @Test void apply_createThenInvalidStopThenStart_perEventResultsReturned() {
+        // given
+        givenAuthorizedUser(USER);
+        var id = randomUUID();
+        var started = now();
+        var events = List.of(
+                PomodoroEvent.create(id, "offline", Duration.ofMinutes(25), 1L),
+                PomodoroEvent.start(id, started, 2L),
+                PomodoroEvent.stop(id, started.minusMinutes(1), 3L));
+
+        given(repo.findAllById(Set.of(id))).willReturn(List.of());
+        given(repo.save(any())).willAnswer(call -> call.getArgument(0));
+
+        // when
+        var results = service.apply(events);
+
+        // then
+        assertEquals(PomodoroEventResult.applied(id), results.get(0));
+        assertEquals(PomodoroEventResult.applied(id), results.get(1));
+        assertEquals(PomodoroEventResult.Status.REJECTED, results.get(2).getStatus());
+
+        var captor = ArgumentCaptor.forClass(Pomodoro.class);
+        verify(repo, times(2)).save(captor.capture());
+        assertEquals(USER, captor.getValue().getUser());
+        assertEquals(started, captor.getValue().getTiming().getStarted());
+        assertNull(captor.getValue().getTiming().getEnded());
+    }
+
     public @Test void countPomodorosOfUser_userSpecified_valueFromRepositoryReturned() {
         // given
         given(repo.countByUser(USER)).willReturn(11L);
@@ -260,6 +497,12 @@ public class PomodoroServiceTest {
         return Pomodoro.builder().user(USER).name("some name").timing(Pomodoro.Timing.of()).build();
     }
 
+    private Pomodoro completedPomodoroOfUser(Duration endedAgo) {
+        var ended = endedAgo != null ? now().minus(endedAgo) : null;
+        return Pomodoro.builder().id(randomUUID()).user(USER).name("some name")
+                .timing(Pomodoro.Timing.of(Duration.ofMinutes(25), null, ended)).build();
+    }
+
     private Pomodoro generatePomodoroOfUserWithId() {
         return Pomodoro.builder().id(randomUUID()).user(USER).name("some name").timing(Pomodoro.Timing.of()).build();
     }
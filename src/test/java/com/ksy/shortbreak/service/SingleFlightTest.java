@@ -0,0 +1,119 @@
+package com.ksy.shortbreak.service;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class SingleFlightTest {
+    private final SingleFlight<String, List<String>> flights = new SingleFlight<>();
+
+    public @Test void run_concurrentCallsOfSameKey_loadedOnceAndCopiesShared() throws InterruptedException {
+        // given
+        var loads = new AtomicInteger();
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var loaded = List.of("first");
+        var results = new CopyOnWriteArrayList<List<String>>();
+        var leader = new Thread(() -> results.add(flights.run("ksy", () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            awaitQuietly(release);
+            return loaded;
+        }, ArrayList::new)));
+        leader.start();
+        loading.await();
+        var followers = new ArrayList<Thread>();
+        for (var i = 0; i < 3; i++) followers.add(new Thread(() -> results.add(flights.run("ksy", () -> {
+            loads.incrementAndGet();
+            return List.of("second");
+        }, ArrayList::new))));
+        followers.forEach(Thread::start);
+        while (flights.shared() < 3) Thread.yield();
+
+        // when
+        release.countDown();
+        leader.join();
+        for (var follower : followers) follower.join();
+
+        // then
+        assertEquals(1, loads.get());
+        assertEquals(4, results.size());
+        assertEquals(1, results.stream().filter(result -> result == loaded).count());
+        for (var result : results) assertEquals(loaded, result);
+    }
+
+    public @Test void run_afterCompletedCall_loadedAgain() {
+        // given
+        var first = flights.run("ksy", () -> List.of("first"), ArrayList::new);
+
+        // when
+        var second = flights.run("ksy", () -> List.of("second"), ArrayList::new);
+
+        // then
+        assertEquals(List.of("first"), first);
+        assertEquals(List.of("second"), second);
+        assertEquals(0, flights.shared());
+    }
+
+    public @Test void run_differentKeys_notShared() {
+        // given
+        var first = List.of("first");
+
+        // when
+        var result = flights.run("ksy", () -> flights.run("bob", () -> first, ArrayList::new), ArrayList::new);
+
+        // then
+        assertSame(first, result);
+        assertEquals(0, flights.shared());
+    }
+
+    public @Test void run_loadFailed_failureSharedAndNextCallLoads() throws InterruptedException {
+        // given
+        var loading = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var failures = new CopyOnWriteArrayList<RuntimeException>();
+        Runnable failing = () -> {
+            try {
+                flights.run("ksy", () -> {
+                    loading.countDown();
+                    awaitQuietly(release);
+                    throw new IllegalStateException("Database is down");
+                }, ArrayList::new);
+            } catch (IllegalStateException e) {
+                failures.add(e);
+            }
+        };
+        var leader = new Thread(failing);
+        leader.start();
+        loading.await();
+        var follower = new Thread(failing);
+        follower.start();
+        while (flights.shared() < 1) Thread.yield();
+
+        // when
+        release.countDown();
+        leader.join();
+        follower.join();
+
+        // then
+        assertEquals(2, failures.size());
+        assertSame(failures.get(0), failures.get(1));
+        var recovered = List.of("recovered");
+        assertSame(recovered, flights.run("ksy", () -> recovered, ArrayList::new));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ksy.shortbreak.service;
+
+import com.ksy.shortbreak.Application;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = Application.class)
+public class TransactionSpansTest {
+    private @Autowired PomodoroService service;
+    private @Autowired MeterRegistry registry;
+
+    @Test
+    @WithMockUser(value = "bob", roles = "USER")
+    public void pomodorosOfUser_readByTemplate_transactionTimedByMethod() {
+        // given
+        var reads = countOf("PomodoroService.pomodorosOfUser");
+        var counts = countOf("PomodoroService.countPomodorosOfUser");
+
+        // when
+        service.pomodorosOfUser("bob", 0, 10);
+        service.countPomodorosOfUser("bob");
+
+        // then
+        assertEquals(reads + 1, countOf("PomodoroService.pomodorosOfUser"));
+        assertEquals(counts + 1, countOf("PomodoroService.countPomodorosOfUser"));
+    }
+
+    private long countOf(String method) {
+        var timer = registry.find("db.transaction").tags("method", method, "outcome", "success").timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
@@ -0,0 +1,131 @@
+package com.ksy.shortbreak.service.bus;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventBusTest {
+    private EventBus<Integer> bus;
+
+    public @After void tearDown() { bus.close(); }
+
+    public @Test void publish_concurrentPublishers_everySubscriberGetsAllInPublishersOrder() throws InterruptedException {
+        // given
+        var first = new CopyOnWriteArrayList<Integer>();
+        var second = new CopyOnWriteArrayList<Integer>();
+        bus = new EventBus<>("test", 1024, WaitStrategy.YIELDING, Map.of("first", first::add, "second", second::add));
+        bus.start(bus.cursor());
+        var publishers = new ArrayList<Thread>();
+        for (var publisher = 0; publisher < 4; publisher++) {
+            var offset = publisher * 1000;
+            publishers.add(new Thread(() -> {
+                for (var i = 0; i < 1000; i++) while (!bus.publish(offset + i)) Thread.yield();
+            }));
+        }
+
+        // when
+        publishers.forEach(Thread::start);
+        for (var publisher : publishers) publisher.join();
+
+        // then
+        assertTrue(bus.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(4000, first.size());
+        assertEquals(first, second);
+        for (var publisher = 0; publisher < 4; publisher++) {
+            var offset = publisher * 1000;
+            var ofPublisher = first.stream().filter(event -> event / 1000 == offset / 1000).toArray();
+            for (var i = 0; i < ofPublisher.length; i++) assertEquals(offset + i, ofPublisher[i]);
+        }
+    }
+
+    public @Test void publish_slowSubscriberRingBehind_droppedWithoutWaiting() throws InterruptedException {
+        // given
+        var blocked = new CountDownLatch(1);
+        var received = new CopyOnWriteArrayList<Integer>();
+        Consumer<Integer> slow = event -> {
+            awaitQuietly(blocked);
+            received.add(event);
+        };
+        bus = new EventBus<>("test", 3, WaitStrategy.SLEEPING, Map.of("slow", slow));
+        bus.start(bus.cursor());
+
+        // when
+        var published = new ArrayList<Boolean>();
+        for (var i = 0; i < 6; i++) published.add(bus.publish(i));
+        var lag = bus.lagOf("slow");
+        blocked.countDown();
+
+        // then
+        assertEquals(List.of(true, true, true, true, false, false), published);
+        assertEquals(4, lag);
+        assertEquals(2, bus.dropped());
+        assertTrue(bus.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of(0, 1, 2, 3), received);
+        assertEquals(0, bus.lagOf("slow"));
+    }
+
+    public @Test void publish_slotFreedWithinTimeout_publishedAfterWaiting() throws InterruptedException {
+        // given
+        var blocked = new CountDownLatch(1);
+        var received = new CopyOnWriteArrayList<Integer>();
+        Consumer<Integer> slow = event -> {
+            awaitQuietly(blocked);
+            received.add(event);
+        };
+        bus = new EventBus<>("test", 1, WaitStrategy.SLEEPING, Map.of("slow", slow));
+        bus.start(bus.cursor());
+        bus.publish(0);
+        var releaser = new Thread(() -> {
+            LockSupport.parkNanos(Duration.ofMillis(50).toNanos());
+            blocked.countDown();
+        });
+        releaser.start();
+
+        // when
+        var published = bus.publish(1, Duration.ofSeconds(5));
+        releaser.join();
+
+        // then
+        assertTrue(published);
+        assertEquals(0, bus.dropped());
+        assertTrue(bus.awaitDelivered(Duration.ofSeconds(5)));
+        assertEquals(List.of(0, 1), received);
+    }
+
+    public @Test void close_eventsPublishedBeforeStart_deliveredAfterTheSequence() {
+        // given
+        var received = new CopyOnWriteArrayList<Integer>();
+        bus = new EventBus<>("test", 8, WaitStrategy.BUSY_SPIN, Map.of("subscriber", received::add));
+        bus.publish(0);
+        var replayed = bus.cursor();
+        bus.publish(1);
+        bus.publish(2);
+
+        // when
+        bus.start(replayed);
+        bus.close();
+
+        // then
+        assertEquals(List.of(1, 2), received);
+        assertEquals(0, bus.lagOf("subscriber"));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
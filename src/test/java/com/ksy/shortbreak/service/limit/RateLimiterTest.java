@@ -0,0 +1,114 @@
+package com.ksy.shortbreak.service.limit;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class RateLimiterTest {
+    private static final long NOW = 1_000_000_000_000L;
+
+    public @Test void acquire_burstTaken_rejectedUntilPermitRefilled() {
+        // given
+        var limiter = new RateLimiter(2, 3, 10);
+        for (var i = 0; i < 3; i++) assertEquals(0, limiter.acquire("ksy", NOW));
+
+        // when
+        var wait = limiter.acquire("ksy", NOW);
+
+        // then
+        assertEquals(MILLISECONDS.toNanos(500), wait);
+        assertEquals(MILLISECONDS.toNanos(100), limiter.acquire("ksy", NOW + MILLISECONDS.toNanos(400)));
+        assertEquals(0, limiter.acquire("ksy", NOW + MILLISECONDS.toNanos(500)));
+        assertEquals(0, limiter.acquire("bob", NOW));
+        assertEquals(5, limiter.admitted());
+        assertEquals(2, limiter.rejected());
+    }
+
+    public @Test void acquire_longPause_refilledOnlyUpToBurst() {
+        // given
+        var limiter = new RateLimiter(1, 2, 10);
+        limiter.acquire("ksy", NOW);
+        limiter.acquire("ksy", NOW);
+
+        // when
+        var later = NOW + SECONDS.toNanos(60);
+        var admitted = 0;
+        while (limiter.acquire("ksy", later) == 0) admitted++;
+
+        // then
+        assertEquals(2, admitted);
+    }
+
+    public @Test void acquire_maxKeysReached_refilledBucketsEvictedForNewKeys() {
+        // given
+        var limiter = new RateLimiter(1, 1, 2);
+        limiter.acquire("ksy", NOW);
+        limiter.acquire("bob", NOW + SECONDS.toNanos(1));
+
+        // when
+        var wait = limiter.acquire("alice", NOW + SECONDS.toNanos(1));
+
+        // then
+        assertEquals(0, wait);
+        assertEquals(2, limiter.keys());
+        assertEquals(0, limiter.untracked());
+        assertEquals(SECONDS.toNanos(1), limiter.acquire("bob", NOW + SECONDS.toNanos(1)));
+    }
+
+    public @Test void acquire_maxKeysWithTokensTaken_newKeysAdmittedUntracked() {
+        // given
+        var limiter = new RateLimiter(1, 1, 2);
+        limiter.acquire("ksy", NOW);
+        limiter.acquire("bob", NOW);
+
+        // when
+        var first = limiter.acquire("alice", NOW);
+        var second = limiter.acquire("alice", NOW);
+
+        // then
+        assertEquals(0, first);
+        assertEquals(0, second);
+        assertEquals(2, limiter.untracked());
+        assertEquals(2, limiter.keys());
+    }
+
+    public @Test void acquire_concurrentRequestsOfUser_exactlyBurstAdmitted() throws InterruptedException {
+        // given
+        var limiter = new RateLimiter(0.001, 100, 10);
+        var admitted = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (var thread = 0; thread < 8; thread++) {
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+                for (var i = 0; i < 1000; i++) if (limiter.acquire("ksy", NOW) == 0) admitted.incrementAndGet();
+            }));
+        }
+        threads.forEach(Thread::start);
+
+        // when
+        start.countDown();
+        for (var thread : threads) thread.join();
+
+        // then
+        assertEquals(100, admitted.get());
+        assertEquals(7900, limiter.rejected());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_zeroRate_rejected() { new RateLimiter(0, 1, 1); }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}